@@ -15,6 +15,7 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
@@ -111,6 +112,9 @@ public class ItemExport
         options.addOption("n", "number", true,
                 "sequence number to begin exporting items with");
         options.addOption("z", "zip", true, "export as zip file (specify filename e.g. export.zip)");
+        options.addOption("T", "threads", true, "number of threads exporting items (zip only)");
+        options.addOption("S", "split", true,
+                "split the zip file into archives of at most this size in megabytes (zip only)");
         options.addOption("h", "help", false, "help");
 
         CommandLine line = parser.parse(options, argv);
@@ -132,6 +136,8 @@ public class ItemExport
                     .println("\nfull collection: ItemExport -t COLLECTION -i ID -d dest -n number");
             System.out
                     .println("singleitem:       ItemExport -t ITEM -i ID -d dest -n number");
+            System.out
+                    .println("zip archives:     ItemExport -t COLLECTION -i ID -d dest -n number -z export.zip -T 4 -S 2048");
 
             System.exit(0);
         }
@@ -179,6 +185,18 @@ public class ItemExport
             zipFileName = line.getOptionValue('z');
         }
 
+        int threads = 0;
+        if (line.hasOption('T'))
+        {
+            threads = Integer.parseInt(line.getOptionValue('T'));
+        }
+
+        long maxSize = 0;
+        if (line.hasOption('S'))
+        {
+            maxSize = Long.parseLong(line.getOptionValue('S')) * 1048576L;
+        }
+
         // now validate the args
         if (myType == -1)
         {
@@ -210,6 +228,7 @@ public class ItemExport
 
         Context c = new Context();
         c.turnOffAuthorisationSystem();
+        c.setBatchMode(true);
 
         if (myType == Constants.ITEM)
         {
@@ -276,7 +295,7 @@ public class ItemExport
                 System.out.println("Exporting from collection: " + myIDString);
                 items = mycollection.getItems();
             }
-            exportAsZip(c, items, destDirName, zipFileName, seqStart, migrate);
+            exportAsZip(c, items, destDirName, zipFileName, seqStart, migrate, threads, maxSize);
         }
         else
         {
@@ -401,6 +420,18 @@ public class ItemExport
      */
     private static void writeMetadata(Context c, Item i, File destDir, boolean migrate)
             throws Exception
+    {
+        // Save each of the schemas into it's own metadata file
+        for (String schema : getSchemas(i))
+        {
+            writeMetadata(c, schema, i, destDir, migrate);
+        }
+    }
+
+    /**
+     * @return the schemas of the metadata of the item
+     */
+    static Set<String> getSchemas(Item i)
     {
         Set<String> schemas = new HashSet<String>();
         Metadatum[] Metadatums = i.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
@@ -408,27 +439,26 @@ public class ItemExport
         {
             schemas.add(Metadatum.schema);
         }
+        return schemas;
+    }
 
-        // Save each of the schemas into it's own metadata file
-        for (String schema : schemas)
+    /**
+     * @return the name of the metadata file of a schema
+     */
+    static String getMetadataFileName(String schema)
+    {
+        if (schema.equals(MetadataSchema.DC_SCHEMA))
         {
-            writeMetadata(c, schema, i, destDir, migrate);
+            return "dublin_core.xml";
         }
+        return "metadata_" + schema + ".xml";
     }
 
     // output the item's dublin core into the item directory
     private static void writeMetadata(Context c, String schema, Item i,
             File destDir, boolean migrate) throws Exception
     {
-        String filename;
-        if (schema.equals(MetadataSchema.DC_SCHEMA))
-        {
-            filename = "dublin_core.xml";
-        }
-        else
-        {
-            filename = "metadata_" + schema + ".xml";
-        }
+        String filename = getMetadataFileName(schema);
 
         File outFile = new File(destDir, filename);
 
@@ -438,97 +468,111 @@ public class ItemExport
         {
             BufferedOutputStream out = new BufferedOutputStream(
                     new FileOutputStream(outFile));
+            try
+            {
+                writeMetadata(schema, i, out, migrate);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        else
+        {
+            throw new Exception("Cannot create dublin_core.xml in " + destDir);
+        }
+    }
 
-            Metadatum[] dcorevalues = i.getMetadata(schema, Item.ANY, Item.ANY,
-                    Item.ANY);
-
-            // XML preamble
-            byte[] utf8 = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n"
-                    .getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
-
-            String dcTag = "<dublin_core schema=\"" + schema + "\">\n";
-            utf8 = dcTag.getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
+    /**
+     * Write the metadata of a schema of the item, in the format of the
+     * importer. The stream is not closed.
+     */
+    static void writeMetadata(String schema, Item i, OutputStream out, boolean migrate)
+            throws IOException, SQLException
+    {
+        Metadatum[] dcorevalues = i.getMetadata(schema, Item.ANY, Item.ANY,
+                Item.ANY);
 
-            String dateIssued = null;
-            String dateAccessioned = null;
+        // XML preamble
+        byte[] utf8 = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n"
+                .getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
 
-            for (Metadatum dcv : dcorevalues)
-            {
-                String qualifier = dcv.qualifier;
+        String dcTag = "<dublin_core schema=\"" + schema + "\">\n";
+        utf8 = dcTag.getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
 
-                if (qualifier == null)
-                {
-                    qualifier = "none";
-                }
+        String dateIssued = null;
+        String dateAccessioned = null;
 
-                String language = dcv.language;
+        for (Metadatum dcv : dcorevalues)
+        {
+            String qualifier = dcv.qualifier;
 
-                if (language != null)
-                {
-                    language = " language=\"" + language + "\"";
-                }
-                else
-                {
-                    language = "";
-                }
+            if (qualifier == null)
+            {
+                qualifier = "none";
+            }
 
-                utf8 = ("  <dcvalue element=\"" + dcv.element + "\" "
-                        + "qualifier=\"" + qualifier + "\""
-                        + language + ">"
-                        + Utils.addEntities(dcv.value) + "</dcvalue>\n")
-                        .getBytes("UTF-8");
-
-                if ((!migrate) ||
-                    (migrate && !(
-                     ("date".equals(dcv.element) && "issued".equals(qualifier)) ||
-                     ("date".equals(dcv.element) && "accessioned".equals(qualifier)) ||
-                     ("date".equals(dcv.element) && "available".equals(qualifier)) ||
-                     ("identifier".equals(dcv.element) && "uri".equals(qualifier) &&
-                      (dcv.value != null && dcv.value.startsWith("http://hdl.handle.net/" +
-                       HandleManager.getPrefix() + "/"))) ||
-                     ("description".equals(dcv.element) && "provenance".equals(qualifier)) ||
-                     ("format".equals(dcv.element) && "extent".equals(qualifier)) ||
-                     ("format".equals(dcv.element) && "mimetype".equals(qualifier)))))
-                {
-                    out.write(utf8, 0, utf8.length);
-                }
+            String language = dcv.language;
 
-                // Store the date issued and accession to see if they are different
-                // because we need to keep date.issued if they are, when migrating
-                if (("date".equals(dcv.element) && "issued".equals(qualifier)))
-                {
-                    dateIssued = dcv.value;
-                }
-                if (("date".equals(dcv.element) && "accessioned".equals(qualifier)))
-                {
-                    dateAccessioned = dcv.value;
-                }
+            if (language != null)
+            {
+                language = " language=\"" + language + "\"";
             }
+            else
+            {
+                language = "";
+            }
+
+            utf8 = ("  <dcvalue element=\"" + dcv.element + "\" "
+                    + "qualifier=\"" + qualifier + "\""
+                    + language + ">"
+                    + Utils.addEntities(dcv.value) + "</dcvalue>\n")
+                    .getBytes("UTF-8");
 
-            // When migrating, only keep date.issued if it is different to date.accessioned
-            if ((migrate) &&
-                (dateIssued != null) &&
-                (dateAccessioned != null) &&
-                (!dateIssued.equals(dateAccessioned)))
+            if ((!migrate) ||
+                (migrate && !(
+                 ("date".equals(dcv.element) && "issued".equals(qualifier)) ||
+                 ("date".equals(dcv.element) && "accessioned".equals(qualifier)) ||
+                 ("date".equals(dcv.element) && "available".equals(qualifier)) ||
+                 ("identifier".equals(dcv.element) && "uri".equals(qualifier) &&
+                  (dcv.value != null && dcv.value.startsWith("http://hdl.handle.net/" +
+                   HandleManager.getPrefix() + "/"))) ||
+                 ("description".equals(dcv.element) && "provenance".equals(qualifier)) ||
+                 ("format".equals(dcv.element) && "extent".equals(qualifier)) ||
+                 ("format".equals(dcv.element) && "mimetype".equals(qualifier)))))
             {
-                utf8 = ("  <dcvalue element=\"date\" "
-                        + "qualifier=\"issued\">"
-                        + Utils.addEntities(dateIssued) + "</dcvalue>\n")
-                        .getBytes("UTF-8");
                 out.write(utf8, 0, utf8.length);
             }
 
-            utf8 = "</dublin_core>\n".getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
-
-            out.close();
+            // Store the date issued and accession to see if they are different
+            // because we need to keep date.issued if they are, when migrating
+            if (("date".equals(dcv.element) && "issued".equals(qualifier)))
+            {
+                dateIssued = dcv.value;
+            }
+            if (("date".equals(dcv.element) && "accessioned".equals(qualifier)))
+            {
+                dateAccessioned = dcv.value;
+            }
         }
-        else
+
+        // When migrating, only keep date.issued if it is different to date.accessioned
+        if ((migrate) &&
+            (dateIssued != null) &&
+            (dateAccessioned != null) &&
+            (!dateIssued.equals(dateAccessioned)))
         {
-            throw new Exception("Cannot create dublin_core.xml in " + destDir);
+            utf8 = ("  <dcvalue element=\"date\" "
+                    + "qualifier=\"issued\">"
+                    + Utils.addEntities(dateIssued) + "</dcvalue>\n")
+                    .getBytes("UTF-8");
+            out.write(utf8, 0, utf8.length);
         }
+
+        utf8 = "</dublin_core>\n".getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
     }
 
     // create the file 'handle' which contains the handle assigned to the item
@@ -590,8 +634,6 @@ public class ItemExport
                 // bundles can have multiple bitstreams now...
                 Bitstream[] bitstreams = bundles[j].getBitstreams();
 
-                String bundleName = bundles[j].getName();
-
                 for (int k = 0; k < bitstreams.length; k++)
                 {
                     Bitstream b = bitstreams[k];
@@ -599,20 +641,6 @@ public class ItemExport
                     String myName = b.getName();
                     String oldName = myName;
 
-                    String description = b.getDescription();
-                    if (!StringUtils.isEmpty(description))
-                    {
-                        description = "\tdescription:" + description;
-                    } else
-                    {
-                        description = "";
-                    }
-
-                    String primary = "";
-                    if (bundles[j].getPrimaryBitstreamID() == b.getID()) {
-                        primary = "\tprimary:true ";
-                    }
-
                     int myPrefix = 1; // only used with name conflict
 
                     InputStream is = b.retrieve();
@@ -645,18 +673,7 @@ public class ItemExport
                             fos.close();
 
                             // write the manifest file entry
-                            if (b.isRegisteredBitstream())
-                            {
-                                out.println("-r -s " + b.getStoreNumber()
-                                        + " -f " + myName +
-                                        "\tbundle:" + bundleName +
-                                        primary + description);
-                            }
-                            else
-                            {
-                                out.println(myName + "\tbundle:" + bundleName +
-                                            primary + description);
-                            }
+                            out.println(getContentsLine(bundles[j], b, myName));
 
                             isDone = true;
                         }
@@ -682,6 +699,38 @@ public class ItemExport
         }
     }
 
+    /**
+     * @return the line of the contents file for a bitstream exported with
+     *         the given name
+     */
+    static String getContentsLine(Bundle bundle, Bitstream b, String name)
+            throws SQLException
+    {
+        String description = b.getDescription();
+        if (!StringUtils.isEmpty(description))
+        {
+            description = "\tdescription:" + description;
+        } else
+        {
+            description = "";
+        }
+
+        String primary = "";
+        if (bundle.getPrimaryBitstreamID() == b.getID()) {
+            primary = "\tprimary:true ";
+        }
+
+        if (b.isRegisteredBitstream())
+        {
+            return "-r -s " + b.getStoreNumber()
+                    + " -f " + name +
+                    "\tbundle:" + bundle.getName() +
+                    primary + description;
+        }
+        return name + "\tbundle:" + bundle.getName() +
+                primary + description;
+    }
+
     /**
      * Method to perform an export and save it as a zip file.
      *
@@ -697,27 +746,71 @@ public class ItemExport
                                    String destDirName, String zipFileName,
                                    int seqStart, boolean migrate) throws Exception
     {
-        String workDir = getExportWorkDirectory() +
-                         System.getProperty("file.separator") +
-                         zipFileName;
-
-        File wkDir = new File(workDir);
-        if (!wkDir.exists() && !wkDir.mkdirs())
-        {
-            log.error("Unable to create working direcory");
-        }
+        exportAsZip(context, items, destDirName, zipFileName, seqStart, migrate, 0, 0);
+    }
 
+    /**
+     * Method to perform an export straight into zip files, with several
+     * threads, without an intermediate export directory.
+     *
+     * @param context The DSpace Context
+     * @param items The items to export
+     * @param destDirName The directory to save the export in
+     * @param zipFileName The name to save the zip file as
+     * @param seqStart The first number in the sequence
+     * @param migrate Whether to use the migrate option or not
+     * @param threads The number of threads exporting items, 0 for
+     *            <code>org.dspace.app.itemexport.threads</code>
+     * @param maxSize The maximum size of a zip file in bytes, 0 to write a
+     *            single zip file. Split zip files are numbered, and hold
+     *            whole items.
+     * @throws Exception
+     */
+    public static void exportAsZip(Context context, ItemIterator items,
+                                   String destDirName, String zipFileName,
+                                   int seqStart, boolean migrate,
+                                   int threads, long maxSize) throws Exception
+    {
         File dnDir = new File(destDirName);
         if (!dnDir.exists() && !dnDir.mkdirs())
         {
             log.error("Unable to create destination directory");
         }
 
-        // export the items using normal export method
-        exportItem(context, items, workDir, seqStart, migrate);
+        List<Integer> itemIDs = new ArrayList<Integer>();
+        try
+        {
+            while (items.hasNext())
+            {
+                itemIDs.add(items.nextID());
+            }
+        }
+        finally
+        {
+            items.close();
+        }
+
+        System.out.println("Beginning export");
 
-        // now zip up the export directory created above
-        zip(workDir, destDirName + System.getProperty("file.separator") + zipFileName);
+        ZipItemExport export = new ZipItemExport(new File(dnDir, zipFileName), maxSize, migrate);
+        if (threads > 0)
+        {
+            export.setThreads(threads);
+        }
+        try
+        {
+            export.export(itemIDs, null, seqStart);
+            for (File archive : export.finish())
+            {
+                System.out.println("Created " + archive);
+            }
+        }
+        catch (Exception e)
+        {
+            export.abort();
+            throw e;
+        }
+        System.out.println(export.getSummary());
     }
 
     /**
@@ -965,7 +1058,6 @@ public class ItemExport
                 public void run()
                 {
                     Context context = null;
-                    ItemIterator iitems = null;
                     try
                     {
                         // create a new dspace context
@@ -975,9 +1067,6 @@ public class ItemExport
 
                         String fileName = assembleFileName("item", eperson,
                                 new Date());
-                        String workParentDir = getExportWorkDirectory()
-                                + System.getProperty("file.separator")
-                                + fileName;
                         String downloadDir = getExportDownloadDirectory(eperson
                                 .getID());
                         File dnDir = new File(downloadDir);
@@ -986,32 +1075,24 @@ public class ItemExport
                             log.error("Unable to create download directory");
                         }
 
-                        Iterator<String> iter = itemsMap.keySet().iterator();
-                        while(iter.hasNext())
+                        // export the items straight into the zip file
+                        ZipItemExport export = new ZipItemExport(new File(downloadDir, fileName + ".zip"),
+                                0, migrate);
+                        try
                         {
-                            String keyName = iter.next();
-                            iitems = new ItemIterator(context, itemsMap.get(keyName));
-
-                            String workDir = workParentDir 
-                                    + System.getProperty("file.separator")
-                                    + keyName;
-
-                            File wkDir = new File(workDir);
-                            if (!wkDir.exists() && !wkDir.mkdirs())
+                            Iterator<String> iter = itemsMap.keySet().iterator();
+                            while(iter.hasNext())
                             {
-                                log.error("Unable to create working directory");
+                                String keyName = iter.next();
+                                export.export(itemsMap.get(keyName), keyName, 1);
                             }
-
-
-                            // export the items using normal export method
-                            exportItem(context, iitems, workDir, 1, migrate);
-                            iitems.close();
+                            export.finish();
+                        }
+                        catch (Exception e)
+                        {
+                            export.abort();
+                            throw e;
                         }
-
-                        // now zip up the export directory created above
-                        zip(workParentDir, downloadDir
-                                + System.getProperty("file.separator")
-                                + fileName + ".zip");
                         // email message letting user know the file is ready for
                         // download
                         emailSuccessMessage(context, eperson, fileName + ".zip");
@@ -1032,11 +1113,6 @@ public class ItemExport
                     }
                     finally
                     {
-                        if (iitems != null)
-                        {
-                            iitems.close();
-                        }
-
                         // Make sure the database connection gets closed in all conditions.
                     	try {
 							context.complete();
@@ -0,0 +1,257 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Calendar;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+/**
+ * Writes a zip archive of entries compressed beforehand: the data of an entry
+ * is copied as is, its checksum and sizes being known before, so that the
+ * entries can be compressed by several threads and appended by one. The
+ * <code>java.util.zip</code> streams cannot do that, as they compress the
+ * entries themselves.
+ * <P>
+ * The Zip64 extensions are written for the entries, offsets and entry counts
+ * beyond the limits of the original format. Not thread safe.
+ */
+class RawZipOutputStream
+{
+    /** The compression methods of the zip format */
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final long LIMIT_32 = 0xFFFFFFFFL;
+    private static final int LIMIT_16 = 0xFFFF;
+
+    /** Version 2.0, or 4.5 for the Zip64 extensions */
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    /** General purpose flag: the names are encoded in UTF-8 */
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private final CountingOutputStream out;
+
+    /** The central directory, written by {@link #finish()} */
+    private final ByteArrayOutputStream directory = new ByteArrayOutputStream();
+
+    private int entryCount = 0;
+
+    private final long dosTime = toDosTime(System.currentTimeMillis());
+
+    private boolean finished = false;
+
+    RawZipOutputStream(OutputStream out)
+    {
+        this.out = new CountingOutputStream(out);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    long getByteCount()
+    {
+        return out.getByteCount();
+    }
+
+    /**
+     * Write an entry.
+     *
+     * @param name
+     *            the name of the entry
+     * @param method
+     *            {@link #STORED}, or {@link #DEFLATED} for data compressed
+     *            without the zlib header (see
+     *            {@link java.util.zip.Deflater#Deflater(int, boolean)})
+     * @param crc
+     *            the CRC-32 of the uncompressed data
+     * @param size
+     *            the size of the uncompressed data
+     * @param data
+     *            the data of the entry, as written in the archive
+     * @param compressedSize
+     *            the size of the data
+     */
+    void writeEntry(String name, int method, long crc, long size, InputStream data, long compressedSize)
+            throws IOException
+    {
+        if (finished)
+        {
+            throw new IOException("The archive is finished");
+        }
+        byte[] nameBytes = name.getBytes("UTF-8");
+        long offset = out.getByteCount();
+        boolean zip64Sizes = size >= LIMIT_32 || compressedSize >= LIMIT_32;
+        boolean zip64 = zip64Sizes || offset >= LIMIT_32;
+
+        // local file header, the Zip64 sizes in both fields when needed
+        writeInt(out, 0x04034b50L);
+        writeShort(out, zip64Sizes ? VERSION_ZIP64 : VERSION);
+        writeShort(out, FLAG_UTF8);
+        writeShort(out, method);
+        writeInt(out, dosTime);
+        writeInt(out, crc);
+        writeInt(out, zip64Sizes ? LIMIT_32 : compressedSize);
+        writeInt(out, zip64Sizes ? LIMIT_32 : size);
+        writeShort(out, nameBytes.length);
+        writeShort(out, zip64Sizes ? 20 : 0);
+        out.write(nameBytes);
+        if (zip64Sizes)
+        {
+            writeShort(out, 0x0001);
+            writeShort(out, 16);
+            writeLong(out, size);
+            writeLong(out, compressedSize);
+        }
+
+        long copied = IOUtils.copyLarge(data, out);
+        if (copied != compressedSize)
+        {
+            throw new IOException("Entry " + name + ": " + copied + " bytes instead of " + compressedSize);
+        }
+
+        // central directory header, the Zip64 extra field with the values
+        // beyond the limits only
+        ByteArrayOutputStream extra = new ByteArrayOutputStream();
+        if (size >= LIMIT_32)
+        {
+            writeLong(extra, size);
+        }
+        if (compressedSize >= LIMIT_32)
+        {
+            writeLong(extra, compressedSize);
+        }
+        if (offset >= LIMIT_32)
+        {
+            writeLong(extra, offset);
+        }
+        writeInt(directory, 0x02014b50L);
+        writeShort(directory, VERSION_ZIP64);
+        writeShort(directory, zip64 ? VERSION_ZIP64 : VERSION);
+        writeShort(directory, FLAG_UTF8);
+        writeShort(directory, method);
+        writeInt(directory, dosTime);
+        writeInt(directory, crc);
+        writeInt(directory, Math.min(compressedSize, LIMIT_32));
+        writeInt(directory, Math.min(size, LIMIT_32));
+        writeShort(directory, nameBytes.length);
+        writeShort(directory, extra.size() == 0 ? 0 : extra.size() + 4);
+        // comment length, disk number, internal and external attributes
+        writeShort(directory, 0);
+        writeShort(directory, 0);
+        writeShort(directory, 0);
+        writeInt(directory, 0);
+        writeInt(directory, Math.min(offset, LIMIT_32));
+        directory.write(nameBytes);
+        if (extra.size() > 0)
+        {
+            writeShort(directory, 0x0001);
+            writeShort(directory, extra.size());
+            extra.writeTo(directory);
+        }
+        entryCount++;
+    }
+
+    /**
+     * Write the central directory. The stream is not closed.
+     */
+    void finish() throws IOException
+    {
+        if (finished)
+        {
+            return;
+        }
+        finished = true;
+        long directoryOffset = out.getByteCount();
+        directory.writeTo(out);
+        long directorySize = directory.size();
+
+        if (entryCount >= LIMIT_16 || directoryOffset >= LIMIT_32 || directorySize >= LIMIT_32)
+        {
+            // Zip64 end of central directory record, and its locator
+            long zip64Offset = out.getByteCount();
+            writeInt(out, 0x06064b50L);
+            writeLong(out, 44);
+            writeShort(out, VERSION_ZIP64);
+            writeShort(out, VERSION_ZIP64);
+            writeInt(out, 0);
+            writeInt(out, 0);
+            writeLong(out, entryCount);
+            writeLong(out, entryCount);
+            writeLong(out, directorySize);
+            writeLong(out, directoryOffset);
+
+            writeInt(out, 0x07064b50L);
+            writeInt(out, 0);
+            writeLong(out, zip64Offset);
+            writeInt(out, 1);
+        }
+
+        // end of central directory record
+        writeInt(out, 0x06054b50L);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, Math.min(entryCount, LIMIT_16));
+        writeShort(out, Math.min(entryCount, LIMIT_16));
+        writeInt(out, Math.min(directorySize, LIMIT_32));
+        writeInt(out, Math.min(directoryOffset, LIMIT_32));
+        writeShort(out, 0);
+        out.flush();
+    }
+
+    /**
+     * Write the central directory and close the stream.
+     */
+    void close() throws IOException
+    {
+        try
+        {
+            finish();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static long toDosTime(long time)
+    {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = Math.max(1980, calendar.get(Calendar.YEAR));
+        return ((long) (year - 1980) << 25) | ((long) (calendar.get(Calendar.MONTH) + 1) << 21)
+                | ((long) calendar.get(Calendar.DAY_OF_MONTH) << 16)
+                | ((long) calendar.get(Calendar.HOUR_OF_DAY) << 11)
+                | ((long) calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    private static void writeShort(OutputStream os, int value) throws IOException
+    {
+        os.write(value & 0xFF);
+        os.write((value >>> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream os, long value) throws IOException
+    {
+        writeShort(os, (int) (value & 0xFFFF));
+        writeShort(os, (int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private static void writeLong(OutputStream os, long value) throws IOException
+    {
+        writeInt(os, value & LIMIT_32);
+        writeInt(os, value >>> 32);
+    }
+}
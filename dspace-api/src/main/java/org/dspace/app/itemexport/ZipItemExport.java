@@ -0,0 +1,501 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.core.ContextExecutor;
+
+/**
+ * Export of items streamed straight into zip archives, in the layout of
+ * ItemExport, without an export directory to compress afterwards.
+ * <P>
+ * The items are read by several threads, each with its own context. Each
+ * thread compresses the files of an item, into memory or temporary files,
+ * then appends them to the archive: only the copy of the compressed data is
+ * serialized. The bitstreams of already compressed formats are stored without
+ * compression. The archives can be
+ * split at a maximum size, between items, so that each of them can be
+ * imported on its own.
+ */
+class ZipItemExport
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(ZipItemExport.class);
+
+    /** The size of a compressed file kept in memory until appended */
+    private static final int SPOOL_THRESHOLD = 1 << 20;
+
+    /** The formats stored without compression, unless configured */
+    private static final String DEFAULT_STORED_MIMETYPES = "image/jpeg, image/png, image/gif, image/jp2, "
+            + "audio/mpeg, video/mp4, video/mpeg, video/quicktime, application/zip, application/x-gzip";
+
+    /** The archive, or the name of the archives if split */
+    private final File target;
+
+    /** The maximum size of an archive, in bytes, or 0 */
+    private final long maxSize;
+
+    private final boolean migrate;
+
+    private int threads;
+
+    /** The MIME types of the bitstreams stored without compression */
+    private final Set<String> storedMimeTypes = new HashSet<String>();
+
+    /** The archive being written, its temporary file, and its item count */
+    private RawZipOutputStream zip;
+    private File tempFile;
+    private int archiveItems;
+
+    /** The archives written */
+    private final List<File> archives = new ArrayList<File>();
+
+    private final AtomicInteger itemCount = new AtomicInteger();
+    private final AtomicLong byteCount = new AtomicLong();
+    private final long start = System.currentTimeMillis();
+
+    /**
+     * @param target
+     *            the archive to write; split archives are named after it,
+     *            with their number
+     * @param maxSize
+     *            the maximum size of an archive in bytes, 0 to write a single
+     *            archive. An item larger than that gets an archive of its own.
+     * @param migrate
+     *            whether to export for migration
+     */
+    ZipItemExport(File target, long maxSize, boolean migrate)
+    {
+        this.target = target;
+        this.maxSize = maxSize;
+        this.migrate = migrate;
+        threads = Math.max(1, ConfigurationManager.getIntProperty("org.dspace.app.itemexport.threads", 1));
+
+        String stored = ConfigurationManager.getProperty("org.dspace.app.itemexport.zip.stored.mimetypes");
+        for (String mimeType : StringUtils.split(stored == null ? DEFAULT_STORED_MIMETYPES : stored, ", "))
+        {
+            storedMimeTypes.add(mimeType.toLowerCase());
+        }
+    }
+
+    /**
+     * @param threads
+     *            the number of threads exporting items
+     */
+    void setThreads(int threads)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Export items into the archives, in directories numbered from a
+     * sequence number. The export stops at the first error.
+     *
+     * @param itemIDs
+     *            the items to export
+     * @param prefix
+     *            the directory of the item directories in the archives, or
+     *            null
+     * @param seqStart
+     *            the number of the directory of the first item
+     */
+    void export(List<Integer> itemIDs, String prefix, int seqStart) throws Exception
+    {
+        ContextExecutor<Context> executor = new ContextExecutor<Context>("itemexport", threads)
+        {
+            @Override
+            protected Context createContext() throws SQLException
+            {
+                Context context = new Context();
+                context.turnOffAuthorisationSystem();
+                return context;
+            }
+
+            @Override
+            protected Context createWorker(Context context)
+            {
+                return context;
+            }
+        };
+        try
+        {
+            int seq = seqStart;
+            for (final Integer itemID : itemIDs)
+            {
+                if (executor.isFailed())
+                {
+                    break;
+                }
+                final String dir = (prefix == null ? "" : prefix + "/") + seq++;
+                executor.execute(new ContextExecutor.WorkerTask<Context>()
+                {
+                    @Override
+                    public void run(Context context) throws Exception
+                    {
+                        try
+                        {
+                            exportItem(context, itemID, dir);
+                        }
+                        catch (Exception e)
+                        {
+                            log.error("Unable to export item " + itemID, e);
+                            throw e;
+                        }
+                    }
+                });
+            }
+            executor.finish();
+        }
+        finally
+        {
+            executor.close();
+        }
+    }
+
+    /**
+     * Read an item and write its entries into the archive.
+     */
+    private void exportItem(Context context, int itemID, String dir)
+            throws IOException, SQLException, AuthorizeException
+    {
+        Item item = Item.find(context, itemID);
+        if (item == null)
+        {
+            log.warn("Item " + itemID + " not found, not exported");
+            return;
+        }
+
+        System.out.println("Exporting Item " + itemID + " to " + dir);
+
+        List<CompressedEntry> entries = new ArrayList<CompressedEntry>();
+        try
+        {
+            Set<String> names = new HashSet<String>();
+            for (String schema : ItemExport.getSchemas(item))
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ItemExport.writeMetadata(schema, item, out, migrate);
+                String name = ItemExport.getMetadataFileName(schema);
+                names.add(name);
+                entries.add(compress(dir + "/" + name, out.toByteArray()));
+            }
+            names.add("contents");
+            names.add("handle");
+
+            StringWriter contents = new StringWriter();
+            PrintWriter contentsOut = new PrintWriter(contents);
+            List<CompressedEntry> bitstreamEntries = new ArrayList<CompressedEntry>();
+            for (Bundle bundle : item.getBundles())
+            {
+                for (Bitstream b : bundle.getBitstreams())
+                {
+                    // number the names in conflict, as the directory export does
+                    String name = b.getName();
+                    for (int myPrefix = 1; !names.add(name); myPrefix++)
+                    {
+                        name = myPrefix + "_" + b.getName();
+                    }
+                    contentsOut.println(ItemExport.getContentsLine(bundle, b, name));
+
+                    boolean stored = b.getFormat() != null && b.getFormat().getMIMEType() != null
+                            && storedMimeTypes.contains(b.getFormat().getMIMEType().toLowerCase());
+                    bitstreamEntries.add(compress(dir + "/" + name, b.retrieve(), stored));
+                }
+            }
+            contentsOut.close();
+            entries.add(compress(dir + "/contents", contents.toString().getBytes("UTF-8")));
+            entries.addAll(bitstreamEntries);
+
+            if (!migrate && item.getHandle() != null)
+            {
+                StringWriter handle = new StringWriter();
+                PrintWriter handleOut = new PrintWriter(handle);
+                handleOut.println(item.getHandle());
+                handleOut.close();
+                entries.add(compress(dir + "/handle", handle.toString().getBytes("UTF-8")));
+            }
+
+            write(entries);
+        }
+        finally
+        {
+            for (CompressedEntry entry : entries)
+            {
+                entry.delete();
+            }
+        }
+        context.clearCache();
+    }
+
+    private CompressedEntry compress(String name, byte[] data) throws IOException
+    {
+        return compress(name, new ByteArrayInputStream(data), false);
+    }
+
+    /**
+     * Compress a file of an item, or only compute its checksum if it is
+     * stored, into memory or into a temporary file next to the archive. The
+     * data is closed.
+     */
+    private CompressedEntry compress(String name, InputStream data, boolean stored) throws IOException
+    {
+        CompressedEntry entry = new CompressedEntry(name, stored ? RawZipOutputStream.STORED
+                : RawZipOutputStream.DEFLATED, new DeferredFileOutputStream(SPOOL_THRESHOLD, "export",
+                ".zip.part", target.getAbsoluteFile().getParentFile()));
+        CheckedInputStream in = new CheckedInputStream(data, new CRC32());
+        Deflater deflater = null;
+        try
+        {
+            OutputStream out = entry.data;
+            if (!stored)
+            {
+                // raw deflate data, as in the zip entries
+                deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+                out = new DeflaterOutputStream(entry.data, deflater, 1 << 16);
+            }
+            entry.size = IOUtils.copyLarge(in, out);
+            out.close();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            IOUtils.closeQuietly(entry.data);
+            entry.delete();
+            throw e;
+        }
+        finally
+        {
+            in.close();
+            if (deflater != null)
+            {
+                deflater.end();
+            }
+        }
+        entry.crc = in.getChecksum().getValue();
+        entry.compressedSize = entry.data.getByteCount();
+        return entry;
+    }
+
+    /**
+     * Append the compressed files of an item, in a new archive if they would
+     * not fit into the current one.
+     */
+    private synchronized void write(List<CompressedEntry> entries) throws IOException
+    {
+        long size = 0;
+        long compressedSize = 0;
+        for (CompressedEntry entry : entries)
+        {
+            size += entry.size;
+            compressedSize += entry.compressedSize;
+        }
+        if (zip == null || (maxSize > 0 && archiveItems > 0 && zip.getByteCount() + compressedSize > maxSize))
+        {
+            nextArchive();
+        }
+
+        for (CompressedEntry entry : entries)
+        {
+            InputStream in = entry.getData();
+            try
+            {
+                zip.writeEntry(entry.name, entry.method, entry.crc, entry.size, in, entry.compressedSize);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        archiveItems++;
+        itemCount.incrementAndGet();
+        byteCount.addAndGet(size);
+    }
+
+    /**
+     * Close the current archive and start the next one.
+     */
+    private void nextArchive() throws IOException
+    {
+        closeArchive();
+
+        File file = target;
+        if (maxSize > 0)
+        {
+            String name = target.getName();
+            int number = archives.size() + 1;
+            if (name.toLowerCase().endsWith(".zip"))
+            {
+                name = name.substring(0, name.length() - 4) + "_" + number + ".zip";
+            }
+            else
+            {
+                name = name + "_" + number;
+            }
+            file = new File(target.getParentFile(), name);
+        }
+        archives.add(file);
+
+        tempFile = new File(file.getPath() + "_tmp");
+        zip = new RawZipOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16));
+        archiveItems = 0;
+    }
+
+    /**
+     * Complete the current archive and give it its name.
+     */
+    private void closeArchive() throws IOException
+    {
+        if (zip == null)
+        {
+            return;
+        }
+        zip.close();
+        zip = null;
+
+        File file = archives.get(archives.size() - 1);
+        if (!tempFile.renameTo(file))
+        {
+            throw new IOException("Unable to rename " + tempFile + " to " + file);
+        }
+    }
+
+    /**
+     * Complete the last archive, writing an empty one if no item was
+     * exported.
+     *
+     * @return the archives written
+     */
+    synchronized List<File> finish() throws IOException
+    {
+        if (archives.isEmpty())
+        {
+            nextArchive();
+        }
+        closeArchive();
+        log.info(getSummary());
+        return archives;
+    }
+
+    /**
+     * Stop the export after an error: remove the archive being written.
+     */
+    synchronized void abort()
+    {
+        try
+        {
+            if (zip != null)
+            {
+                zip.close();
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to close " + tempFile, e);
+        }
+        zip = null;
+        if (tempFile != null && tempFile.exists() && !tempFile.delete())
+        {
+            log.warn("Unable to delete " + tempFile);
+        }
+    }
+
+    /**
+     * @return the number of items, the size and the throughput of the export
+     */
+    String getSummary()
+    {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        DecimalFormat megabytes = new DecimalFormat("#.##");
+        return "Exported " + itemCount.get() + " items (" + megabytes.format(byteCount.get() / 1048576d)
+                + " MB) into " + archives.size() + " archive(s) in " + (elapsed / 1000) + " s ("
+                + (itemCount.get() * 1000L / elapsed) + " items/s, "
+                + megabytes.format(byteCount.get() * 1000d / elapsed / 1048576d) + " MB/s, "
+                + threads + " threads)";
+    }
+
+    /**
+     * A file of an item compressed by an exporting thread, in memory when
+     * small, else in a temporary file.
+     */
+    private static class CompressedEntry
+    {
+        private final String name;
+
+        /** the compression method, of {@link RawZipOutputStream} */
+        private final int method;
+
+        private final DeferredFileOutputStream data;
+
+        /** the checksum and the size of the file, before compression */
+        private long crc;
+        private long size;
+
+        private long compressedSize;
+
+        CompressedEntry(String name, int method, DeferredFileOutputStream data)
+        {
+            this.name = name;
+            this.method = method;
+            this.data = data;
+        }
+
+        InputStream getData() throws IOException
+        {
+            if (data.isInMemory())
+            {
+                return new ByteArrayInputStream(data.getData());
+            }
+            return new FileInputStream(data.getFile());
+        }
+
+        void delete()
+        {
+            if (!data.isInMemory())
+            {
+                FileUtils.deleteQuietly(data.getFile());
+            }
+        }
+    }
+}
@@ -51,6 +51,7 @@ import org.dspace.content.authority.Choices;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.core.ContextExecutor;
 import org.dspace.core.Email;
 import org.dspace.core.I18nUtil;
 import org.dspace.core.LogManager;
@@ -102,6 +103,12 @@ public class ItemImport
 
     private static PrintWriter mapOut = null;
 
+    /** Number of threads adding items, each with its own context */
+    private int threads = ConfigurationManager.getIntProperty("org.dspace.app.batchitemimport.threads", 1);
+
+    /** Number of items added by each commit */
+    private int batchSize = ConfigurationManager.getIntProperty("org.dspace.app.batchitemimport.commit.batch", 1);
+
     private static final String tempWorkDir = ConfigurationManager.getProperty("org.dspace.app.batchitemimport.work.dir");
 
     static {
@@ -173,6 +180,10 @@ public class ItemImport
             options.addOption("R", "resume", false,
                     "resume a failed import (add only)");
             options.addOption("q", "quiet", false, "don't display metadata");
+            options.addOption("T", "threads", true,
+                    "number of threads adding items, each with its own transaction (add only)");
+            options.addOption("B", "batch", true,
+                    "number of items added by each commit (add only)");
 
             options.addOption("h", "help", false, "help");
 
@@ -197,6 +208,8 @@ public class ItemImport
                         .println("replacing items: ItemImport -r -e eperson -c collection -s sourcedir -m mapfile");
                 System.out
                         .println("deleting items:  ItemImport -d -e eperson -m mapfile");
+                System.out
+                        .println("adding items with 4 threads, committing every 100 items:    ItemImport -a -e eperson -c collection -s sourcedir -m mapfile -T 4 -B 100");
                 System.out
                         .println("If multiple collections are specified, the first collection will be the one that owns the item.");
 
@@ -403,6 +416,16 @@ public class ItemImport
 
             ItemImport myloader = new ItemImport();
 
+            if (line.hasOption('T'))
+            {
+                myloader.setThreads(Integer.parseInt(line.getOptionValue('T')));
+            }
+
+            if (line.hasOption('B'))
+            {
+                myloader.setBatchSize(Integer.parseInt(line.getOptionValue('B')));
+            }
+
             // create a context
             Context c = new Context();
 
@@ -643,6 +666,39 @@ public class ItemImport
         }
     }
 
+    /**
+     * Set the number of threads adding items. Each thread adds its items in
+     * its own context, so the bitstreams of several items are stored at the
+     * same time.
+     *
+     * @param threads the number of threads, 1 to add the items in the
+     *        context given to {@link #addItems}
+     */
+    public void setThreads(int threads)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("The number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Set the number of items added by each commit. The mapfile only lists
+     * committed items, so that a resumed import adds again the items of a
+     * failed transaction.
+     *
+     * @param batchSize the number of items, 1 to commit each item
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("The commit batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
     public void addItemsAtomic(Context c, Collection[] mycollections, String sourceDir, String mapFile, boolean template) throws Exception {
         try {
             addItems(c, mycollections, sourceDir, mapFile, template);
@@ -705,40 +761,36 @@ public class ItemImport
 
             Arrays.sort(dircontents, ComparatorUtils.naturalComparator());
 
-        for (int i = 0; i < dircontents.length; i++)
-        {
-            if (skipItems.containsKey(dircontents[i]))
+            if (threads > 1)
             {
-                System.out.println("Skipping import of " + dircontents[i]);
+                addItemsInParallel(c, mycollections, sourceDir, dircontents, skipItems, template);
+                return;
             }
-            else
+
+            Batch batch = new Batch(c);
+            for (int i = 0; i < dircontents.length; i++)
             {
-                Collection [] clist;
-                if (directoryFileCollections) {
-                    String path = sourceDir + File.separatorChar + dircontents[i];
-                    try {
-                        Collection[] cols = processCollectionFile(c, path, "collections");
-                        if (cols == null) {
-                            System.out.println("No collections specified for item " + dircontents[i] + ". Skipping.");
-                            continue;
-                        }
-                        clist = cols;
-                    }
-                    catch (IllegalArgumentException e)
-                    {
-                        System.out.println(e.getMessage() + " Skipping." );
-                        continue;
-                    }
+                if (skipItems.containsKey(dircontents[i]))
+                {
+                    System.out.println("Skipping import of " + dircontents[i]);
                 }
                 else
                 {
-                    clist = mycollections;
+                    Collection[] clist = mycollections;
+                    if (directoryFileCollections)
+                    {
+                        clist = getCollections(c, sourceDir, dircontents[i]);
+                        if (clist == null)
+                        {
+                            continue;
+                        }
+                    }
+                    batch.add(addItem(c, clist, sourceDir, dircontents[i], template));
+                    System.out.println(i + " " + dircontents[i]);
+                    c.clearCache();
                 }
-                addItem(c, clist, sourceDir, dircontents[i], mapOut, template);
-                System.out.println(i + " " + dircontents[i]);
-                c.clearCache();
             }
-        }
+            batch.commit();
 
         } finally {
             if(mapOut!=null) {
@@ -807,7 +859,8 @@ public class ItemImport
             handleOut.close();
 
             deleteItem(c, oldItem);
-            addItem(c, mycollections, sourceDir, newItemName, null, template);
+            addItem(c, mycollections, sourceDir, newItemName, template);
+            c.commit();
             c.clearCache();
         }
     }
@@ -844,14 +897,14 @@ public class ItemImport
     }
 
     /**
-     * item? try and add it to the archive.
+     * item? try and add it to the archive. The item is not committed.
      * @param mycollections - add item to these Collections.
      * @param path - directory containing the item directories.
      * @param itemname handle - non-null means we have a pre-defined handle already
-     * @param mapOut - mapfile we're writing
+     * @return the line of the mapfile for the item, or null for a test run
      */
-    private Item addItem(Context c, Collection[] mycollections, String path,
-            String itemname, PrintWriter mapOut, boolean template) throws Exception
+    private String addItem(Context c, Collection[] mycollections, String path,
+            String itemname, boolean template) throws Exception
     {
         String mapOutputString = null;
 
@@ -947,15 +1000,204 @@ public class ItemImport
             }
         }
 
-        // made it this far, everything is fine, commit transaction
-        if (mapOut != null)
+        // made it this far, everything is fine, the caller commits the transaction
+        return mapOutputString;
+    }
+
+    /**
+     * Find the collections of an item from the 'collections' file of its
+     * directory.
+     * @return the collections, or null if the item must be skipped
+     */
+    private Collection[] getCollections(Context c, String sourceDir, String itemname) throws Exception
+    {
+        String path = sourceDir + File.separatorChar + itemname;
+        try
         {
-            mapOut.println(mapOutputString);
+            Collection[] cols = processCollectionFile(c, path, "collections");
+            if (cols == null)
+            {
+                System.out.println("No collections specified for item " + itemname + ". Skipping.");
+            }
+            return cols;
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage() + " Skipping.");
+            return null;
         }
+    }
 
-        c.commit();
+    /**
+     * Add the items with several threads. A DSpace context is not thread
+     * safe: each thread adds its items in its own context, committed every
+     * batch of items. The import stops at the first error, after the pending
+     * items of the other threads are committed.
+     */
+    private void addItemsInParallel(final Context c, final Collection[] mycollections, final String sourceDir,
+            String[] dircontents, Map<String, String> skipItems, final boolean template) throws Exception
+    {
+        ContextExecutor<Batch> executor = new ContextExecutor<Batch>("itemimport", threads)
+        {
+            @Override
+            protected Context createContext() throws SQLException
+            {
+                Context context = new Context();
+                if (c.getCurrentUser() != null)
+                {
+                    context.setCurrentUser(EPerson.find(context, c.getCurrentUser().getID()));
+                }
+                if (c.ignoreAuthorization())
+                {
+                    context.turnOffAuthorisationSystem();
+                }
+                return context;
+            }
 
-        return myitem;
+            @Override
+            protected Batch createWorker(Context context) throws SQLException
+            {
+                Batch batch = new Batch(context);
+                if (mycollections != null)
+                {
+                    // the collections must belong to the context adding to them
+                    batch.collections = new Collection[mycollections.length];
+                    for (int i = 0; i < mycollections.length; i++)
+                    {
+                        batch.collections[i] = Collection.find(context, mycollections[i].getID());
+                    }
+                }
+                return batch;
+            }
+
+            @Override
+            protected void finishWorker(Batch batch) throws SQLException
+            {
+                batch.commit();
+            }
+        };
+
+        System.out.println("Adding items with " + threads + " threads, committing every " + batchSize + " items");
+
+        try
+        {
+            for (int i = 0; i < dircontents.length && !executor.isFailed(); i++)
+            {
+                final int index = i;
+                final String itemname = dircontents[i];
+                if (skipItems.containsKey(itemname))
+                {
+                    System.out.println("Skipping import of " + itemname);
+                    continue;
+                }
+                executor.execute(new ContextExecutor.WorkerTask<Batch>()
+                {
+                    @Override
+                    public void run(Batch batch) throws Exception
+                    {
+                        try
+                        {
+                            Collection[] clist = batch.collections;
+                            if (clist == null)
+                            {
+                                clist = getCollections(batch.context, sourceDir, itemname);
+                                if (clist == null)
+                                {
+                                    return;
+                                }
+                            }
+                            batch.add(addItem(batch.context, clist, sourceDir, itemname, template));
+                            System.out.println(index + " " + itemname);
+                            batch.context.clearCache();
+                        }
+                        catch (Exception e)
+                        {
+                            log.error("Unable to add item from directory " + itemname, e);
+                            // the items of the batch are not in the mapfile
+                            batch.abort();
+                            throw e;
+                        }
+                    }
+                });
+            }
+            executor.finish();
+        }
+        finally
+        {
+            executor.close();
+        }
+    }
+
+    /**
+     * The items added in a context and not committed yet. The lines of the
+     * mapfile are written once the items are committed.
+     */
+    private class Batch
+    {
+        private final Context context;
+
+        /** the collections given to the import, found in the context */
+        private Collection[] collections;
+
+        private final List<String> mapLines = new ArrayList<String>();
+
+        private int size = 0;
+
+        Batch(Context context)
+        {
+            this.context = context;
+        }
+
+        /**
+         * Count an added item, and commit the batch once full.
+         * @param mapLine the line of the mapfile for the item, or null
+         */
+        void add(String mapLine) throws SQLException
+        {
+            if (mapLine != null)
+            {
+                mapLines.add(mapLine);
+            }
+            if (++size >= batchSize)
+            {
+                commit();
+            }
+        }
+
+        void commit() throws SQLException
+        {
+            if (size == 0 || !context.isValid())
+            {
+                return;
+            }
+            context.commit();
+            size = 0;
+            if (mapOut != null && !mapLines.isEmpty())
+            {
+                synchronized (mapOut)
+                {
+                    for (String mapLine : mapLines)
+                    {
+                        mapOut.println(mapLine);
+                    }
+                    mapOut.flush();
+                }
+            }
+            mapLines.clear();
+        }
+
+        /**
+         * Discard the pending items and close the context.
+         */
+        void abort()
+        {
+            if (context.isValid())
+            {
+                context.abort();
+            }
+            size = 0;
+            mapLines.clear();
+        }
     }
 
     // remove, given the actual item
@@ -336,6 +336,8 @@ public class MediaFilterManager
 
             // have to be super-user to do the filtering
             c.turnOffAuthorisationSystem();
+            // don't keep the filtered items in memory
+            c.setBatchMode(true);
 
             // now apply the filters
             if (identifier == null)
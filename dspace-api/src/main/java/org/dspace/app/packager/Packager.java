@@ -151,6 +151,8 @@ public class Packager
                 "Submission package (Input); this is the default. ");
         options.addOption("i", "identifier", true, "Handle of object to disseminate.");
         options.addOption("a", "all", false, "also recursively ingest/disseminate any child packages, e.g. all Items within a Collection (not all packagers may support this option!)");
+        options.addOption("j", "threads", true, "with -a, ingest/disseminate the Items of each Collection with this number of parallel workers. The objects are committed progressively, in batches of 'commitBatchSize' (see -o) packages, instead of all at once.");
+        options.addOption("l", "ledger", true, "with -a, record the progress in this file: if the process fails, run it again with the same ledger to resume it. Implies progressive commits, as -j.");
         options.addOption("h", "help", false, "help (you may also specify '-h -t [type]' for additional help with a specific type of packager)");
         options.addOption("u", "no-user-interaction", false, "Skips over all user interaction (i.e. [y/n] question prompts) within this script. This flag can be used if you want to save (pipe) a report of all changes to a file, and therefore need to bypass all user interaction.");
 
@@ -271,6 +273,14 @@ public class Packager
             //enable 'recursiveMode' param to packager implementations, in case it helps with packaging or ingestion process
             pkgParams.setRecursiveModeEnabled(true);
         }
+        if (line.hasOption('j'))
+        {
+            pkgParams.setWorkerThreads(Integer.parseInt(line.getOptionValue('j')));
+        }
+        if (line.hasOption('l'))
+        {
+            pkgParams.setLedger(line.getOptionValue('l'));
+        }
         String files[] = line.getArgs();
         if (files.length > 0)
         {
@@ -7,14 +7,31 @@
  */
 package org.dspace.app.sitemap;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.log4j.Logger;
+import org.dspace.core.BoundedExecutor;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Utils;
+
 /**
  * Base class for creating sitemaps of various kinds. A sitemap consists of one
  * or more files which list significant URLs on a site for search engines to
@@ -33,11 +50,19 @@ import java.util.zip.GZIPOutputStream;
  *   }
  *   g.finish();
  * </pre>
+ * <P>
+ * The sitemap files are compressed and written by a pool of threads
+ * (<code>sitemap.threads</code>) while the URLs of the next ones are added. The
+ * checksum of each file is kept from one run to the next, and a file is only
+ * written again if its contents changed.
  *
  * @author Robert Tansley
  */
 public abstract class AbstractGenerator
 {
+    /** Logger */
+    private static final Logger log = Logger.getLogger(AbstractGenerator.class);
+
     /** Number of files written so far */
     protected int fileCount;
 
@@ -50,12 +75,24 @@ public abstract class AbstractGenerator
     /** Directory files are written to */
     protected File outputDir;
 
-    /** Current output */
-    protected PrintStream currentOutput;
+    /** Current file, written once complete */
+    protected StringBuilder currentOutput;
 
     /** Size in bytes of trailing boilerplate */
     private int trailingByteCount;
 
+    /** The checksums of the files of the previous run, by file name */
+    private Map<String, FileChecksum> previousChecksums;
+
+    /** The checksums of the files of this run, by file name */
+    private final Map<String, FileChecksum> checksums = new HashMap<String, FileChecksum>();
+
+    /** Number of files written because their contents changed */
+    private final AtomicInteger changedCount = new AtomicInteger();
+
+    /** The threads compressing and writing the files */
+    private BoundedExecutor executor;
+
     /**
      * Initialize this generator to write to the given directory. This must be
      * called by any subclass constructor.
@@ -81,16 +118,7 @@ public abstract class AbstractGenerator
     {
         String lbp = getLeadingBoilerPlate();
 
-        OutputStream fo = new FileOutputStream(new File(outputDir,
-                getFilename(fileCount)));
-
-        if (useCompression())
-        {
-            fo = new GZIPOutputStream(fo);
-        }
-
-        currentOutput = new PrintStream(fo);
-        currentOutput.print(lbp);
+        currentOutput = new StringBuilder(lbp);
         bytesWritten = lbp.length();
         urlsWritten = 0;
     }
@@ -122,22 +150,67 @@ public abstract class AbstractGenerator
             startNewFile();
         }
 
-        currentOutput.print(newURLText);
+        currentOutput.append(newURLText);
         bytesWritten += newURLText.length();
         urlsWritten++;
     }
 
     /**
-     * Finish with the current sitemap file.
+     * Finish with the current sitemap file, and hand it to the threads
+     * writing the files.
      *
      * @throws IOException
      *             if an error occurs writing
      */
     protected void closeCurrentFile() throws IOException
     {
-        currentOutput.print(getTrailingBoilerPlate());
-        currentOutput.close();
+        currentOutput.append(getTrailingBoilerPlate());
+        final String filename = getFilename(fileCount);
+        final String contents = currentOutput.toString();
+        currentOutput = null;
         fileCount++;
+
+        if (executor == null)
+        {
+            // A queue as long as the threads: the URLs wait for the threads,
+            // so that only a few files are in memory
+            int threads = ConfigurationManager.getIntProperty("sitemap.threads",
+                    Runtime.getRuntime().availableProcessors());
+            executor = new BoundedExecutor("sitemap", threads, threads);
+        }
+        throwFailure();
+        executor.execute(new BoundedExecutor.Task()
+        {
+            @Override
+            public void run() throws IOException
+            {
+                try
+                {
+                    writeIfChanged(filename, contents.getBytes("UTF-8"));
+                }
+                catch (IOException e)
+                {
+                    log.error("Unable to write sitemap file " + filename, e);
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Throw the first failure of the threads writing the files.
+     */
+    private void throwFailure() throws IOException
+    {
+        Exception e = executor.getFailure();
+        if (e instanceof IOException)
+        {
+            throw (IOException) e;
+        }
+        else if (e != null)
+        {
+            throw new IOException("Unable to write the sitemap files", e);
+        }
     }
 
     /**
@@ -157,21 +230,212 @@ public abstract class AbstractGenerator
             closeCurrentFile();
         }
 
-        OutputStream fo = new FileOutputStream(new File(outputDir,
-                getIndexFilename()));
+        if (executor != null)
+        {
+            executor.shutdown();
+            throwFailure();
+        }
 
-        if (useCompression())
+        // the files of the previous run beyond the last one of this run
+        for (String filename : getPreviousChecksums().keySet())
         {
-            fo = new GZIPOutputStream(fo);
+            File file = new File(outputDir, filename);
+            if (!checksums.containsKey(filename) && !filename.equals(getIndexFilename())
+                    && file.exists() && !file.delete())
+            {
+                log.warn("Unable to delete the former sitemap file " + file);
+            }
         }
 
-        PrintStream out = new PrintStream(fo);
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(index, false, "UTF-8");
         writeIndex(out, fileCount);
         out.close();
+        writeIfChanged(getIndexFilename(), index.toByteArray());
+
+        writeChecksums();
+        log.info("Sitemap files of " + getIndexFilename() + ": " + fileCount + ", changed: "
+                + changedCount.get());
 
         return fileCount;
     }
 
+    /**
+     * @return number of sitemap files written by {@link #finish()} because
+     *         their contents changed since the previous run, the index
+     *         included
+     */
+    public int getChangedCount()
+    {
+        return changedCount.get();
+    }
+
+    /**
+     * Return the date the contents of a sitemap file last changed.
+     *
+     * @param number
+     *            index of the sitemap file (zero is first).
+     * @return the date, now for a file changed by this run
+     */
+    protected Date getLastModified(int number)
+    {
+        FileChecksum checksum;
+        synchronized (checksums)
+        {
+            checksum = checksums.get(getFilename(number));
+        }
+        return checksum == null ? new Date() : new Date(checksum.lastModified);
+    }
+
+    /**
+     * Write a file, unless it exists with the same contents as at the
+     * previous run. The file is written to a temporary file first, so that
+     * it is never read incomplete.
+     */
+    private void writeIfChanged(String filename, byte[] contents) throws IOException
+    {
+        String md5 = Utils.toHex(getMD5().digest(contents));
+        File file = new File(outputDir, filename);
+        FileChecksum previous = getPreviousChecksums().get(filename);
+
+        FileChecksum checksum;
+        if (previous != null && previous.md5.equals(md5) && file.exists())
+        {
+            checksum = previous;
+        }
+        else
+        {
+            File temp = new File(outputDir, filename + ".tmp");
+            OutputStream fo = new FileOutputStream(temp);
+            try
+            {
+                if (useCompression())
+                {
+                    fo = new GZIPOutputStream(fo, 1 << 16);
+                }
+                fo.write(contents);
+            }
+            finally
+            {
+                fo.close();
+            }
+            if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+            {
+                throw new IOException("Unable to write " + file);
+            }
+            checksum = new FileChecksum(md5, System.currentTimeMillis());
+            changedCount.incrementAndGet();
+        }
+
+        synchronized (checksums)
+        {
+            checksums.put(filename, checksum);
+        }
+    }
+
+    private static MessageDigest getMD5() throws IOException
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @return the file the checksums of the files are kept in
+     */
+    private File getChecksumFile()
+    {
+        return new File(outputDir, getIndexFilename() + ".checksums");
+    }
+
+    /**
+     * @return the checksums of the files of the previous run, read once
+     */
+    private synchronized Map<String, FileChecksum> getPreviousChecksums() throws IOException
+    {
+        if (previousChecksums == null)
+        {
+            previousChecksums = new HashMap<String, FileChecksum>();
+            File file = getChecksumFile();
+            if (file.exists())
+            {
+                BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+                try
+                {
+                    String line;
+                    while ((line = in.readLine()) != null)
+                    {
+                        String[] fields = line.split("\t");
+                        if (fields.length == 3)
+                        {
+                            try
+                            {
+                                previousChecksums.put(fields[0], new FileChecksum(fields[1],
+                                        Long.parseLong(fields[2])));
+                            }
+                            catch (NumberFormatException e)
+                            {
+                                log.warn("Bad line in " + file + ": " + line);
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        return previousChecksums;
+    }
+
+    /**
+     * Save the checksums of the files written by this run, for the next one.
+     */
+    private void writeChecksums() throws IOException
+    {
+        File file = getChecksumFile();
+        File temp = new File(outputDir, file.getName() + ".tmp");
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+        try
+        {
+            for (Map.Entry<String, FileChecksum> checksum : new TreeMap<String, FileChecksum>(checksums).entrySet())
+            {
+                out.print(checksum.getKey() + "\t" + checksum.getValue().md5 + "\t"
+                        + checksum.getValue().lastModified + "\n");
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+        {
+            throw new IOException("Unable to write " + file);
+        }
+    }
+
+    /**
+     * The checksum of the contents of a file, and the date they last changed.
+     */
+    private static class FileChecksum
+    {
+        private final String md5;
+
+        private final long lastModified;
+
+        FileChecksum(String md5, long lastModified)
+        {
+            this.md5 = md5;
+            this.lastModified = lastModified;
+        }
+    }
+
     /**
      * Return marked-up text to be included in a sitemap about a given URL.
      *
@@ -13,13 +13,18 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
-import org.dspace.content.Collection;
-import org.dspace.content.Community;
-import org.dspace.content.Item;
-import org.dspace.content.ItemIterator;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
 
+/**
+ * Add the URLs of the communities, collections and archived items to the
+ * sitemaps. The handles and dates are read straight from the database, in a
+ * stable order so that the unchanged sitemap files are not written again.
+ */
 public class DSpaceObjectsSitemapGenerator implements ISitemapGeneratorPlugin {
 
     @Override
@@ -28,69 +33,60 @@ public class DSpaceObjectsSitemapGenerator implements ISitemapGeneratorPlugin {
 		String handleURLStem = ConfigurationManager.getProperty("dspace.url") + "/handle/";
 		StringBuffer objectDetails = new StringBuffer();
 		if (includes.contains("community")) {
-
-			Community[] comms = Community.findAll(c);
-			for (int i = 0; i < comms.length; i++) {
-				String url = handleURLStem + comms[i].getHandle();
-
-				if (makeHTMLMap) {
-					html.addURL(url, null);
-				}
-				if (makeSitemapOrg) {
-					sitemapsOrg.addURL(url, null);
-				}
-			}
-
-			objectDetails.append(",communities=").append(comms.length);
+			int count = addUrls(c, "SELECT h.handle FROM community c JOIN handle h"
+					+ " ON h.resource_type_id = ? AND h.resource_id = c.community_id"
+					+ " ORDER BY c.community_id", Constants.COMMUNITY,
+					handleURLStem, makeHTMLMap, makeSitemapOrg, html, sitemapsOrg);
+			objectDetails.append(",communities=").append(count);
 		}
 
 		if (includes.contains("collection")) {
-			Collection[] colls = Collection.findAll(c);
-			for (int i = 0; i < colls.length; i++) {
-				String url = handleURLStem + colls[i].getHandle();
-
-				if (makeHTMLMap) {
-					html.addURL(url, null);
-				}
-				if (makeSitemapOrg) {
-					sitemapsOrg.addURL(url, null);
-				}
-			}
-			objectDetails.append(",collections=").append(colls.length);
+			int count = addUrls(c, "SELECT h.handle FROM collection c JOIN handle h"
+					+ " ON h.resource_type_id = ? AND h.resource_id = c.collection_id"
+					+ " ORDER BY c.collection_id", Constants.COLLECTION,
+					handleURLStem, makeHTMLMap, makeSitemapOrg, html, sitemapsOrg);
+			objectDetails.append(",collections=").append(count);
+		}
 
+		if (includes.contains("item")) {
+			int count = addUrls(c, "SELECT h.handle, i.last_modified FROM item i JOIN handle h"
+					+ " ON h.resource_type_id = ? AND h.resource_id = i.item_id"
+					+ " WHERE i.in_archive = '1' ORDER BY i.item_id", Constants.ITEM,
+					handleURLStem, makeHTMLMap, makeSitemapOrg, html, sitemapsOrg);
+			objectDetails.append(",items=").append(count);
 		}
+		return objectDetails.toString();
+	}
 
-		ItemIterator allItems = null;
+	/**
+	 * Send to the generators the URLs of the handles returned by a query, with
+	 * their last modification date when the query returns one.
+	 * 
+	 * @return the number of URLs
+	 */
+	private int addUrls(Context c, String query, int type, String handleURLStem, boolean makeHTMLMap,
+			boolean makeSitemapOrg, AbstractGenerator html, AbstractGenerator sitemapsOrg)
+			throws SQLException, IOException {
+		int count = 0;
+		TableRowIterator rows = DatabaseManager.query(c, query, type);
 		try {
+			while (rows.hasNext()) {
+				TableRow row = rows.next();
+				String url = handleURLStem + row.getStringColumn("handle");
+				Date lastMod = row.hasColumn("last_modified") ? row.getDateColumn("last_modified") : null;
 
-			int itemCount = 0;
-			if (includes.contains("item")) {
-				allItems = Item.findAll(c);
-
-				while (allItems.hasNext()) {
-					Item i = allItems.next();
-					String url = handleURLStem + i.getHandle();
-					Date lastMod = i.getLastModified();
-
-					if (makeHTMLMap) {
-						html.addURL(url, lastMod);
-					}
-					if (makeSitemapOrg) {
-						sitemapsOrg.addURL(url, lastMod);
-					}
-					i.decache();
-
-					itemCount++;
+				if (makeHTMLMap) {
+					html.addURL(url, lastMod);
 				}
-				objectDetails.append(",items=").append(itemCount);
-
+				if (makeSitemapOrg) {
+					sitemapsOrg.addURL(url, lastMod);
+				}
+				count++;
 			}
 		} finally {
-			if (allItems != null) {
-				allItems.close();
-			}
+			rows.close();
 		}
-		return objectDetails.toString();
+		return count;
 	}
 
     @Override
@@ -196,12 +196,14 @@ public class GenerateSitemaps {
 
         if (makeHTMLMap) {
             int files = html.finish();
-            log.info(LogManager.getHeader(c, "write_sitemap", "type=html,num_files=" + files + objectDetails.toString()));
+            log.info(LogManager.getHeader(c, "write_sitemap", "type=html,num_files=" + files
+                    + ",changed_files=" + html.getChangedCount() + objectDetails.toString()));
         }
 
         if (makeSitemapOrg) {
             int files = sitemapsOrg.finish();
-            log.info(LogManager.getHeader(c, "write_sitemap", "type=html,num_files=" + files + objectDetails.toString()));
+            log.info(LogManager.getHeader(c, "write_sitemap", "type=sitemaps.org,num_files=" + files
+                    + ",changed_files=" + sitemapsOrg.getChangedCount() + objectDetails.toString()));
         }
         c.abort();
     }
@@ -0,0 +1,237 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.statistics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The counts of the log lines of one or more log files, by day, as gathered
+ * by the LogAnalyser. Aggregates can be merged, and saved to a file so that a
+ * log file is only parsed again when it changes.
+ */
+class LogAggregate
+{
+    /** The kinds of counted values */
+    static final String ACTION = "action";
+    static final String SEARCH = "search";
+    static final String USER = "user";
+    static final String ITEM = "item";
+
+    /** The counts of each day, by yyyy-MM-dd */
+    private final SortedMap<String, Day> days = new TreeMap<String, Day>();
+
+    /**
+     * @param day the day, as yyyy-MM-dd
+     * @return the counts of the day, created if needed
+     */
+    Day getDay(String day)
+    {
+        Day counts = days.get(day);
+        if (counts == null)
+        {
+            counts = new Day();
+            days.put(day, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * @param from the first day, as yyyy-MM-dd, or null
+     * @param to the last day, as yyyy-MM-dd, or null
+     * @return the counts of the days of the range, by day
+     */
+    SortedMap<String, Day> getDays(String from, String to)
+    {
+        SortedMap<String, Day> range = days;
+        if (from != null)
+        {
+            range = range.tailMap(from);
+        }
+        if (to != null)
+        {
+            // the day after the last one
+            range = range.headMap(to + "\0");
+        }
+        return range;
+    }
+
+    /**
+     * Add the counts of another aggregate to this one.
+     */
+    void merge(LogAggregate other)
+    {
+        for (Map.Entry<String, Day> day : other.days.entrySet())
+        {
+            getDay(day.getKey()).merge(day.getValue());
+        }
+    }
+
+    /**
+     * Save the aggregate, with a header line identifying what it was computed
+     * from.
+     */
+    void write(File file, String header) throws IOException
+    {
+        File temp = new File(file.getPath() + ".tmp");
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+        try
+        {
+            out.write(header);
+            out.write('\n');
+            for (Map.Entry<String, Day> day : days.entrySet())
+            {
+                Day counts = day.getValue();
+                out.write(day.getKey() + "\tlines\t\t" + counts.lines + "\n");
+                out.write(day.getKey() + "\twarnings\t\t" + counts.warnings + "\n");
+                for (Map.Entry<String, Map<String, int[]>> kind : counts.counters.entrySet())
+                {
+                    for (Map.Entry<String, int[]> count : kind.getValue().entrySet())
+                    {
+                        out.write(day.getKey() + "\t" + kind.getKey() + "\t"
+                                + count.getKey().replaceAll("[\t\n\r]", " ") + "\t" + count.getValue()[0] + "\n");
+                    }
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!temp.renameTo(file))
+        {
+            file.delete();
+            if (!temp.renameTo(file))
+            {
+                throw new IOException("Unable to write " + file);
+            }
+        }
+    }
+
+    /**
+     * @return the aggregate saved in the file, or null if the file does not
+     *         exist or was saved with another header
+     */
+    static LogAggregate read(File file, String header) throws IOException
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try
+        {
+            if (!header.equals(in.readLine()))
+            {
+                return null;
+            }
+            LogAggregate aggregate = new LogAggregate();
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4)
+                {
+                    return null;
+                }
+                Day day = aggregate.getDay(fields[0]);
+                int count = Integer.parseInt(fields[3]);
+                if ("lines".equals(fields[1]))
+                {
+                    day.lines += count;
+                }
+                else if ("warnings".equals(fields[1]))
+                {
+                    day.warnings += count;
+                }
+                else
+                {
+                    day.add(fields[1], fields[2], count);
+                }
+            }
+            return aggregate;
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * The counts of one day
+     */
+    static class Day
+    {
+        /** number of log lines */
+        int lines;
+
+        /** number of warnings */
+        int warnings;
+
+        /** the counts of each kind of value, see {@link LogAggregate#ACTION} */
+        private final Map<String, Map<String, int[]>> counters = new HashMap<String, Map<String, int[]>>();
+
+        /**
+         * Add to the count of a value.
+         */
+        void add(String kind, String key, int count)
+        {
+            Map<String, int[]> counter = getCounter(kind);
+            int[] value = counter.get(key);
+            if (value == null)
+            {
+                counter.put(key, new int[] { count });
+            }
+            else
+            {
+                value[0] += count;
+            }
+        }
+
+        /**
+         * @return the counts of a kind of value, by value
+         */
+        Map<String, int[]> getCounter(String kind)
+        {
+            Map<String, int[]> counter = counters.get(kind);
+            if (counter == null)
+            {
+                counter = new HashMap<String, int[]>();
+                counters.put(kind, counter);
+            }
+            return counter;
+        }
+
+        void merge(Day other)
+        {
+            lines += other.lines;
+            warnings += other.warnings;
+            for (Map.Entry<String, Map<String, int[]>> kind : other.counters.entrySet())
+            {
+                for (Map.Entry<String, int[]> count : kind.getValue().entrySet())
+                {
+                    add(kind.getKey(), count.getKey(), count.getValue()[0]);
+                }
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@
  */
 package org.dspace.app.statistics;
 
+import org.apache.commons.io.FileUtils;
 import org.dspace.content.MetadataSchema;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
@@ -21,6 +22,12 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -197,6 +204,26 @@ public class LogAnalyser
    /** the end date of the report */
    private static Date endDate = null;
         
+   /** the directory keeping the counts of each log file, or null */
+   private static String cacheDir = ConfigurationManager.getProperty("report.analyser.cache");
+   
+   /** the number of log files parsed in parallel */
+   private static int threads = ConfigurationManager.getIntProperty("report.analyser.threads",
+           Runtime.getRuntime().availableProcessors());
+   
+   /** the counts of the log files parsed by this JVM, by file and version */
+   private static final Map<String, LogAggregate> parsedFiles = new ConcurrentHashMap<String, LogAggregate>();
+   
+   /** the format of the days, not thread safe */
+   private static final ThreadLocal<SimpleDateFormat> dayFormat = new ThreadLocal<SimpleDateFormat>()
+   {
+       @Override
+       protected SimpleDateFormat initialValue()
+       {
+           return new SimpleDateFormat("yyyy'-'MM'-'dd");
+       }
+   };
+   
    /** the starting date of the report as obtained from the log files */
    private static Date logStartDate = null;
         
@@ -269,6 +296,16 @@ public class LogAnalyser
             {
                 myLookUp = true;
             }
+            
+            if (argv[i].equals("-cache"))
+            {
+                cacheDir = argv[i+1];
+            }
+            
+            if (argv[i].equals("-threads"))
+            {
+                threads = Math.max(1, Integer.parseInt(argv[i+1]));
+            }
         }
         
         // now call the method which actually processes the logs
@@ -317,10 +354,13 @@ public class LogAnalyser
         // set the parameters for this analysis
         setParameters(myLogDir, myFileTemplate, myConfigFile, myOutFile, myStartDate, myEndDate, myLookUp);
         
-        // pre prepare our standard file readers and buffered readers
-        FileReader fr = null;
-        BufferedReader br = null;
-        
+        // reset the counters of a previous analysis
+        lineCount = 0;
+        warnCount = 0;
+        views = 0;
+        logStartDate = null;
+        logEndDate = null;
+
         // read in the config information, throwing an error if we fail to open
         // the given config file
         readConfig(configFile);
@@ -335,150 +375,60 @@ public class LogAnalyser
         // standard loop counter
         int i = 0;
         
-        // for every log file do analysis
-        // FIXME: it is easy to implement not processing log files after the
-        // dates exceed the end boundary, but is there an easy way to do it
-        // for the start of the file?  Note that we can assume that the contents
-        // of the log file are sequential, but can we assume the files are
-        // provided in a data sequence?
-        for (i = 0; i < logFiles.length; i++)
+        // the counts of each log file, by day, parsed in parallel or read
+        // from the cache
+        String configChecksum = Long.toString(FileUtils.checksumCRC32(new File(configFile)));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<LogAggregate>> aggregates = new ArrayList<Future<LogAggregate>>();
+        try
         {
-            // check to see if this file is a log file agains the global regex
-            Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
-            if (matchRegex.matches())
+            for (i = 0; i < logFiles.length; i++)
             {
-                // if it is a log file, open it up and lets have a look at the
-                // contents.
-                try 
-                {  
-                    fr = new FileReader(logFiles[i].toString());  
-                    br = new BufferedReader(fr);
-                } 
-                catch (IOException e) 
-                {  
-                    System.out.println("Failed to read log file " + logFiles[i].toString());
-                    System.exit(0);
-                } 
-
-                // for each line in the file do the analysis
-                // FIXME: perhaps each section needs to be dolled out to an
-                // analysing class to allow pluggability of other methods of
-                // analysis, and ease of code reading too - Pending further thought
-                String line = null;
-                while ((line = br.readLine()) != null)
+                // check to see if this file is a log file agains the global regex
+                Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
+                if (matchRegex.matches())
                 {
-                    // get the log line object
-                    LogLine logLine = getLogLine(line);
-                    
-                    // if there are line segments get on with the analysis
-                    if (logLine != null)
+                    final File logFile = logFiles[i];
+                    final String header = "dstat-aggregate\t" + logFile.length() + "\t"
+                            + logFile.lastModified() + "\t" + configChecksum;
+                    aggregates.add(executor.submit(new Callable<LogAggregate>()
                     {
-                        // first find out if we are constraining by date and 
-                        // if so apply the restrictions
-                        if ((startDate != null) && (!logLine.afterDate(startDate)))
-                        {
-                            continue;
-                        }
-                        
-                        if ((endDate !=null) && (!logLine.beforeDate(endDate)))
-                        {
-                            break;
-                        }
-                        
-                        // count the number of lines parsed
-                        lineCount++;
-                        
-                        // if we are not constrained by date, register the date
-                        // as the start/end date if it is the earliest/latest so far
-                        // FIXME: this should probably have a method of its own
-                        if (startDate == null)
-                        {
-                            if (logStartDate != null)
-                            {
-                                if (logLine.beforeDate(logStartDate))
-                                {
-                                    logStartDate = logLine.getDate();
-                                }
-                            }
-                            else
-                            {
-                                logStartDate = logLine.getDate();
-                            }
-                        }
-                        
-                        if (endDate == null)
-                        {
-                            if (logEndDate != null)
-                            {
-                                if (logLine.afterDate(logEndDate))
-                                {
-                                    logEndDate = logLine.getDate();
-                                }
-                            }
-                            else
-                            {
-                                logEndDate = logLine.getDate();
-                            }
-                        }
-                        
-                        // count the warnings
-                        if (logLine.isLevel("WARN"))
-                        {
-                            // FIXME: really, this ought to be some kind of level
-                            // aggregator
-                            warnCount++;
-                        }
-
-                        // is the action a search?
-                        if (logLine.isAction("search"))
-                        {
-                            // get back all the valid search words from the query
-                            String[] words = analyseQuery(logLine.getParams());
-                            
-                            // for each search word add to the aggregator or
-                            // increment the aggregator's counter
-                            for (int j = 0; j < words.length; j++)
-                            {
-                                // FIXME: perhaps aggregators ought to be objects
-                                // themselves
-                                searchAggregator.put(words[j], increment(searchAggregator, words[j]));
-                            }
-                        }
-
-                        // is the action a login, and are we counting user logins?
-                        if (logLine.isAction("login") && !userEmail.equals("off"))
-                        {
-                            userAggregator.put(logLine.getUser(), increment(userAggregator, logLine.getUser()));
-                        }
-
-                        // is the action an item view?
-                        if (logLine.isAction("view_item"))
+                        @Override
+                        public LogAggregate call() throws IOException
                         {
-                            String handle = logLine.getParams();
-
-                            // strip the handle string
-                            Matcher matchHandle = handleRX.matcher(handle);
-                            handle = matchHandle.replaceAll("");
-                            
-                            // strip the item id string
-                            Matcher matchItem = itemRX.matcher(handle);
-                            handle = matchItem.replaceAll("").trim();
-
-                            // either add the handle to the aggregator or
-                            // increment its counter
-                            itemAggregator.put(handle, increment(itemAggregator, handle));
+                            return getAggregate(logFile, header);
                         }
-
-                        // log all the activity
-                        actionAggregator.put(logLine.getAction(), increment(actionAggregator, logLine.getAction()));
-                    }
+                    }));
                 }
+            }
 
-                // close the file reading buffers
-                br.close();
-                fr.close();
-
+            // only count the days of the analysed period
+            String from = (startDate != null) ? dayFormat.get().format(startDate) : null;
+            String to = (endDate != null) ? dayFormat.get().format(endDate) : null;
+            for (Future<LogAggregate> aggregate : aggregates)
+            {
+                for (Map.Entry<String, LogAggregate.Day> day : aggregate.get().getDays(from, to).entrySet())
+                {
+                    addDay(day.getKey(), day.getValue());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
             }
+            throw new IOException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
         
         // do we want to do a database lookup?  Do so only if the start and
@@ -519,6 +469,176 @@ public class LogAnalyser
     }
    
     
+    /**
+     * get the counts of a log file, from the memory or the cache directory if
+     * the file did not change since it was last parsed
+     *
+     * @param   logFile     the log file
+     * @param   header      identifies the version of the log file and of the
+     *                      configuration the counts are computed from
+     *
+     * @return              the counts of the log file, by day
+     */
+    private static LogAggregate getAggregate(File logFile, String header)
+        throws IOException
+    {
+        String key = logFile.getAbsolutePath() + "\n" + header;
+        LogAggregate aggregate = parsedFiles.get(key);
+        if (aggregate != null)
+        {
+            return aggregate;
+        }
+
+        File cacheFile = null;
+        if (cacheDir != null)
+        {
+            cacheFile = new File(cacheDir, logFile.getName() + ".agg");
+            aggregate = LogAggregate.read(cacheFile, header);
+        }
+        if (aggregate == null)
+        {
+            aggregate = analyseFile(logFile);
+            if (cacheFile != null)
+            {
+                cacheFile.getParentFile().mkdirs();
+                aggregate.write(cacheFile, header);
+            }
+        }
+        parsedFiles.put(key, aggregate);
+        return aggregate;
+    }
+    
+    
+    /**
+     * count the lines of a log file, by day
+     *
+     * @param   logFile     the log file to be parsed
+     *
+     * @return              the counts of the log file
+     */
+    static LogAggregate analyseFile(File logFile)
+        throws IOException
+    {
+        LogAggregate aggregate = new LogAggregate();
+        BufferedReader br = new BufferedReader(new FileReader(logFile));
+        try
+        {
+            // for each line in the file do the analysis
+            String line = null;
+            while ((line = br.readLine()) != null)
+            {
+                // get the log line object
+                LogLine logLine = getLogLine(line);
+                if (logLine == null)
+                {
+                    continue;
+                }
+                
+                LogAggregate.Day day = aggregate.getDay(dayFormat.get().format(logLine.getDate()));
+                
+                // count the number of lines parsed
+                day.lines++;
+                
+                // count the warnings
+                if (logLine.isLevel("WARN"))
+                {
+                    day.warnings++;
+                }
+
+                // is the action a search?
+                if (logLine.isAction("search"))
+                {
+                    // get back all the valid search words from the query
+                    String[] words = analyseQuery(logLine.getParams());
+                    for (int j = 0; j < words.length; j++)
+                    {
+                        day.add(LogAggregate.SEARCH, words[j], 1);
+                    }
+                }
+
+                // is the action a login?  Whether they are reported depends
+                // on the user.email setting
+                if (logLine.isAction("login"))
+                {
+                    day.add(LogAggregate.USER, logLine.getUser(), 1);
+                }
+
+                // is the action an item view?
+                if (logLine.isAction("view_item"))
+                {
+                    String handle = logLine.getParams();
+
+                    // strip the handle string
+                    Matcher matchHandle = handleRX.matcher(handle);
+                    handle = matchHandle.replaceAll("");
+                    
+                    // strip the item id string
+                    Matcher matchItem = itemRX.matcher(handle);
+                    handle = matchItem.replaceAll("").trim();
+
+                    day.add(LogAggregate.ITEM, handle, 1);
+                }
+
+                // log all the activity
+                day.add(LogAggregate.ACTION, logLine.getAction(), 1);
+            }
+        }
+        finally
+        {
+            br.close();
+        }
+        return aggregate;
+    }
+    
+    
+    /**
+     * add the counts of a day of the analysed period to the aggregators
+     *
+     * @param   dayString   the day, as yyyy-MM-dd
+     * @param   day         the counts of the day
+     */
+    private static void addDay(String dayString, LogAggregate.Day day)
+    {
+        if (day.lines == 0)
+        {
+            return;
+        }
+        lineCount += day.lines;
+        warnCount += day.warnings;
+        
+        // if we are not constrained by date, register the date
+        // as the start/end date if it is the earliest/latest so far
+        Date date = parseDate(dayString);
+        if (startDate == null && (logStartDate == null || date.before(logStartDate)))
+        {
+            logStartDate = date;
+        }
+        if (endDate == null && (logEndDate == null || date.after(logEndDate)))
+        {
+            logEndDate = date;
+        }
+        
+        addCounts(searchAggregator, day.getCounter(LogAggregate.SEARCH));
+        if (!userEmail.equals("off"))
+        {
+            addCounts(userAggregator, day.getCounter(LogAggregate.USER));
+        }
+        addCounts(itemAggregator, day.getCounter(LogAggregate.ITEM));
+        addCounts(actionAggregator, day.getCounter(LogAggregate.ACTION));
+    }
+    
+    
+    private static void addCounts(Map<String, Integer> aggregator, Map<String, int[]> counts)
+    {
+        for (Map.Entry<String, int[]> count : counts.entrySet())
+        {
+            Integer value = aggregator.get(count.getKey());
+            aggregator.put(count.getKey(),
+                    Integer.valueOf((value != null ? value.intValue() : 0) + count.getValue()[0]));
+        }
+    }
+    
+    
     /**
      * set the passed parameters up as global class variables.  This has to
      * be done in a separate method because the API permits for running from
@@ -999,12 +1119,11 @@ public class LogAnalyser
      */
     public static Date parseDate(String date)
     {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy'-'MM'-'dd");
         Date parsedDate = null;
         
         try 
         {
-             parsedDate = sdf.parse(date);
+             parsedDate = dayFormat.get().parse(date);
         }
         catch (ParseException e)
         {
@@ -1329,6 +1448,16 @@ public class LogAnalyser
                             "\tOptional\n" +
                             "\tForce a lookup of the current database statistics\n" +
                             "\tOnly needs to be used if date constraints are also in place\n" +
+                        "-cache [cache directory]\n" +
+                            "\tOptional\n" +
+                            "\tKeep the counts of each log file in the given directory, so\n" +
+                            "\tthat only the new or changed log files are parsed next time\n" +
+                            "\tDefault uses report.analyser.cache from dspace.cfg, if set\n" +
+                        "-threads [number]\n" +
+                            "\tOptional\n" +
+                            "\tThe number of log files parsed in parallel\n" +
+                            "\tDefault uses report.analyser.threads from dspace.cfg, or the\n" +
+                            "\tnumber of processors\n" +
                         "-help\n" +
                             "\tdisplay this usage information\n";
         
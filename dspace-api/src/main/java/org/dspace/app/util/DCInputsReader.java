@@ -36,6 +36,10 @@ import org.dspace.core.ConfigurationManager;
  * supply the value stored in the database if its sibling display value gets
  * selected from a choice list.
  *
+ * The readers are not modified after the parsing: use
+ * {@link SubmissionConfigRegistry} to share them instead of parsing the file
+ * again.
+ *
  * @author  Brian S. Hughes
  * @version $Revision$
  */
@@ -78,10 +82,10 @@ public class DCInputsReader
     private Map<String, List<String>> valuePairs = null;    // Holds display/storage pairs
     
     /**
-     * Mini-cache of last DCInputSet requested. If submissions are not typically
-     * form-interleaved, there will be a modest win.
+     * The DCInputSet of each form, built once after the parsing so that the
+     * reader can be shared between threads
      */
-    private DCInputSet lastInputSet = null;
+    private Map<String, DCInputSet> inputSets = null;
     
     private Map<String, List<String>> mappedValuePairs = new HashMap<String, List<String>>();
 
@@ -128,6 +132,7 @@ public class DCInputsReader
                 Document doc = db.parse(uri);
                 doNodes(doc);
                 checkValues();
+                buildInputSets();
         }
         catch (FactoryConfigurationError fe)
         {
@@ -138,6 +143,18 @@ public class DCInputsReader
                 throw new DCInputsReaderException("Error creating submission forms: "+e);
         }
     }
+
+    private void buildInputSets()
+    {
+        Map<String, DCInputSet> sets = new HashMap<String, DCInputSet>();
+        for (String formName : formDefns.keySet())
+        {
+                sets.put(formName, new DCInputSet(formName,
+                        formHeadings.get(formName), formDefns.get(formName),
+                        valuePairs));
+        }
+        inputSets = Collections.unmodifiableMap(sets);
+    }
    
     public Iterator<String> getPairsNameIterator()
     {
@@ -171,20 +188,12 @@ public class DCInputsReader
         {
                 throw new DCInputsReaderException("No form designated as default");
         }
-        // check mini-cache, and return if match
-        if ( lastInputSet != null && lastInputSet.getFormName().equals( formName ) )
-        {
-                return lastInputSet;
-        }
-        // cache miss - construct new DCInputSet
-        List<List<Map<String, String>>> pages = formDefns.get(formName);
-        List<String> headings = formHeadings.get(formName);
-        if ( pages == null )
+        DCInputSet inputSet = inputSets.get(formName);
+        if ( inputSet == null )
         {
                 throw new DCInputsReaderException("Missing the " + formName  + " form");
         }
-        lastInputSet = new DCInputSet(formName, headings, pages, valuePairs);
-        return lastInputSet;
+        return inputSet;
     }
     
     /**
@@ -8,7 +8,9 @@
 package org.dspace.app.util;
 
 import org.dspace.core.ConfigurationManager;
+import org.dspace.core.PluginManager;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.SharedRowCache;
 import org.apache.log4j.Logger;
 
 import javax.servlet.ServletContextListener;
@@ -133,6 +135,16 @@ public class DSpaceContextListener implements ServletContextListener
         } catch (IllegalAccessException ex) {
             event.getServletContext().log("Can't create webapp MBean:  " + ex.getMessage());
         }
+
+        /**
+         * Stage 4
+         *
+         * Load the configured plugins, if requested.
+         */
+        if (ConfigurationManager.getBooleanProperty("pluginmanager.prewarm", false))
+        {
+            PluginManager.prewarm();
+        }
     }
 
     /**
@@ -145,6 +157,9 @@ public class DSpaceContextListener implements ServletContextListener
     {
         webApp.deregister();
 
+        log.info("Plugin lookups by interface: " + PluginManager.getLookupCounts());
+        SharedRowCache.logStatistics();
+
         try
         {
             // Remove the database pool
@@ -9,6 +9,7 @@ package org.dspace.app.util;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.ServletException;
 import org.xml.sax.SAXException;
 import org.w3c.dom.*;
@@ -80,10 +81,11 @@ public class SubmissionConfigReader
     private Map<String, List<Map<String, String>>> submitDefns = null;
 
     /**
-     * Mini-cache of last SubmissionConfig object requested (so that we don't
-     * always reload from scratch)
+     * Cache of the SubmissionConfig objects already requested, keyed by
+     * submission name and workflow flag (so that we don't always reload from
+     * scratch)
      */
-    private SubmissionConfig lastSubmissionConfig = null;
+    private Map<String, SubmissionConfig> submissionConfigs = new ConcurrentHashMap<String, SubmissionConfig>();
 
     /**
      * Load Submission Configuration from the
@@ -94,6 +96,17 @@ public class SubmissionConfigReader
         buildInputs(configDir + SUBMIT_DEF_FILE_PREFIX + SUBMIT_DEF_FILE_SUFFIX);
     }
 
+    /**
+     * Load Submission Configuration from the given file
+     * 
+     * @param fileName
+     *            the full path of the item submission configuration file
+     */
+    public SubmissionConfigReader(String fileName) throws ServletException
+    {
+        buildInputs(fileName);
+    }
+
     /**
      * Parse an XML encoded item submission configuration file.
      * <P>
@@ -170,15 +183,15 @@ public class SubmissionConfigReader
         log.debug("Loading submission process config named '" + submitName
                 + "'");
 
-        // check mini-cache, and return if match
-        if (lastSubmissionConfig != null
-                && lastSubmissionConfig.getSubmissionName().equals(submitName)
-                && lastSubmissionConfig.isWorkflow() == isWorkflow)
+        // check cache, and return if match
+        String cacheKey = submitName + (isWorkflow ? "#workflow" : "");
+        SubmissionConfig submissionConfig = submissionConfigs.get(cacheKey);
+        if (submissionConfig != null)
         {
             log.debug("Found submission process config '" + submitName
                     + "' in cache.");
 
-            return lastSubmissionConfig;
+            return submissionConfig;
         }
 
         // cache miss - construct new SubmissionConfig
@@ -194,13 +207,14 @@ public class SubmissionConfigReader
         log.debug("Submission process config '" + submitName
                 + "' not in cache. Reloading from scratch.");
 
-        lastSubmissionConfig = new SubmissionConfig(submitName, steps,
+        submissionConfig = new SubmissionConfig(submitName, steps,
                 isWorkflow);
+        submissionConfigs.put(cacheKey, submissionConfig);
 
         log.debug("Submission process config has "
-                + lastSubmissionConfig.getNumberOfSteps() + " steps listed.");
+                + submissionConfig.getNumberOfSteps() + " steps listed.");
 
-        return lastSubmissionConfig;
+        return submissionConfig;
     }
 
     /**
@@ -0,0 +1,209 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.util;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletException;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * JVM wide registry of the parsed submission configuration files
+ * (input-forms.xml and its localized variants, item-submission.xml).
+ * <p>
+ * The readers are parsed once and shared: they are not modified after the
+ * parsing, so the lookups don't need any lock. When the modification time of
+ * a file changes the file is parsed again and the new reader replaces the
+ * previous one; the callers holding the previous reader keep a consistent,
+ * if outdated, view. If the modified file cannot be parsed the error is
+ * logged and the previous reader is kept.
+ * <p>
+ * The files are checked at most every
+ * <code>submission.config.check-interval</code> seconds (default 5); a
+ * negative value disables the reload.
+ */
+public class SubmissionConfigRegistry
+{
+    private static Logger log = Logger.getLogger(SubmissionConfigRegistry.class);
+
+    private static final Registry<DCInputsReader> inputsReaders = new Registry<DCInputsReader>()
+    {
+        @Override
+        DCInputsReader load(String fileName) throws Exception
+        {
+            return new DCInputsReader(fileName);
+        }
+    };
+
+    private static final Registry<SubmissionConfigReader> submissionConfigReaders = new Registry<SubmissionConfigReader>()
+    {
+        @Override
+        SubmissionConfigReader load(String fileName) throws Exception
+        {
+            return new SubmissionConfigReader(fileName);
+        }
+    };
+
+    private SubmissionConfigRegistry()
+    {
+    }
+
+    /**
+     * @return the reader of the default input-forms.xml file
+     */
+    public static DCInputsReader getInputsReader()
+            throws DCInputsReaderException
+    {
+        return getInputsReader(getConfigDir() + DCInputsReader.FORM_DEF_FILE);
+    }
+
+    /**
+     * @param fileName
+     *            the full path of the input forms file, i.e. a localized one
+     * @return the reader of the requested input forms file
+     */
+    public static DCInputsReader getInputsReader(String fileName)
+            throws DCInputsReaderException
+    {
+        try
+        {
+            return inputsReaders.get(fileName);
+        }
+        catch (DCInputsReaderException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new DCInputsReaderException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the reader of the item-submission.xml file
+     */
+    public static SubmissionConfigReader getSubmissionConfigReader()
+            throws ServletException
+    {
+        try
+        {
+            return submissionConfigReaders.get(getConfigDir()
+                    + SubmissionConfigReader.SUBMIT_DEF_FILE_PREFIX
+                    + SubmissionConfigReader.SUBMIT_DEF_FILE_SUFFIX);
+        }
+        catch (ServletException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new ServletException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drop all the parsed files, they will be parsed again on the next
+     * request.
+     */
+    public static void clear()
+    {
+        inputsReaders.snapshots.clear();
+        submissionConfigReaders.snapshots.clear();
+    }
+
+    private static String getConfigDir()
+    {
+        return ConfigurationManager.getProperty("dspace.dir") + File.separator
+                + "config" + File.separator;
+    }
+
+    /**
+     * A parsed file and the modification time it was parsed at
+     */
+    private static class Snapshot<T>
+    {
+        private final T reader;
+
+        private final long lastModified;
+
+        private volatile long lastChecked;
+
+        Snapshot(T reader, long lastModified, long lastChecked)
+        {
+            this.reader = reader;
+            this.lastModified = lastModified;
+            this.lastChecked = lastChecked;
+        }
+    }
+
+    private abstract static class Registry<T>
+    {
+        private final ConcurrentMap<String, Snapshot<T>> snapshots = new ConcurrentHashMap<String, Snapshot<T>>();
+
+        abstract T load(String fileName) throws Exception;
+
+        T get(String fileName) throws Exception
+        {
+            String key = new File(fileName).getAbsolutePath();
+            Snapshot<T> snapshot = snapshots.get(key);
+            if (snapshot != null && !isExpired(key, snapshot))
+            {
+                return snapshot.reader;
+            }
+            synchronized (this)
+            {
+                // another thread could have parsed the file in the meantime
+                Snapshot<T> current = snapshots.get(key);
+                if (current != null && current != snapshot)
+                {
+                    return current.reader;
+                }
+                long lastModified = new File(key).lastModified();
+                try
+                {
+                    current = new Snapshot<T>(load(key), lastModified,
+                            System.currentTimeMillis());
+                }
+                catch (Exception e)
+                {
+                    if (snapshot == null)
+                    {
+                        throw e;
+                    }
+                    log.error("Unable to reload " + key
+                            + ", the previous configuration is kept", e);
+                    current = new Snapshot<T>(snapshot.reader, lastModified,
+                            System.currentTimeMillis());
+                }
+                snapshots.put(key, current);
+                if (snapshot != null)
+                {
+                    log.info("Reloaded the submission configuration " + key);
+                }
+                return current.reader;
+            }
+        }
+
+        private boolean isExpired(String fileName, Snapshot<T> snapshot)
+        {
+            int interval = ConfigurationManager.getIntProperty(
+                    "submission.config.check-interval", 5);
+            long now = System.currentTimeMillis();
+            if (interval < 0 || now - snapshot.lastChecked < interval * 1000L)
+            {
+                return false;
+            }
+            snapshot.lastChecked = now;
+            return new File(fileName).lastModified() != snapshot.lastModified;
+        }
+    }
+}
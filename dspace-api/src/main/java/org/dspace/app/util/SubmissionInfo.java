@@ -81,7 +81,7 @@ public class SubmissionInfo extends HashMap
     private Bitstream bitstream;
     
     /** Reader for submission process configuration file * */
-    private static SubmissionConfigReader submissionConfigReader;
+    private static volatile SubmissionConfigReader submissionConfigReader;
     
     private Integer codeCallerPage;
         
@@ -121,11 +121,13 @@ public class SubmissionInfo extends HashMap
         
     	SubmissionInfo subInfo = new SubmissionInfo();
     	
-        // load SubmissionConfigReader only the first time
-        // or if we're using a different UI now.
-        if (submissionConfigReader == null)
+        // get the shared SubmissionConfigReader, reload the cached
+        // configuration the first time or if the configuration file changed
+        SubmissionConfigReader reader = SubmissionConfigRegistry
+                .getSubmissionConfigReader();
+        if (reader != submissionConfigReader)
         {
-            submissionConfigReader = new SubmissionConfigReader();
+            submissionConfigReader = reader;
             forceReload=true;
         }
 
@@ -406,7 +406,8 @@ public class Util {
         }
 
         // Read the input form file for the specific collection
-        DCInputsReader inputsReader = new DCInputsReader(formFileName);
+        DCInputsReader inputsReader = SubmissionConfigRegistry
+                .getInputsReader(formFileName);
 
         DCInputSet inputSet = inputsReader.getInputs(col_handle);
 
@@ -19,6 +19,8 @@ import org.dspace.content.Metadatum;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.core.Context;
+import org.dspace.discovery.IGlobalSearchResult;
+import org.dspace.discovery.ProjectedDSpaceObject;
 import org.dspace.sort.SortOption;
 
 /**
@@ -519,7 +521,17 @@ public class BrowseInfo
     		
     		for (int i = 0; i < bis.length; i++)
     		{
-    			if (!(bis[i] instanceof BrowsableDSpaceObject))
+    			if (bis[i] instanceof BrowseDSpaceObject
+    			        && ((BrowseDSpaceObject) bis[i]).getBrowsableDSpaceObject() instanceof ProjectedDSpaceObject)
+    			{
+    				DSpaceObject dso = ((ProjectedDSpaceObject) ((BrowseDSpaceObject) bis[i])
+    				        .getBrowsableDSpaceObject()).getDSpaceObject();
+    				if (dso instanceof Item)
+    				{
+    					itemList.add((Item) dso);
+    				}
+    			}
+    			else if (!(bis[i] instanceof BrowsableDSpaceObject))
     			{
     				Item item = Item.find(context, bis[i].getID());
     				if (item != null)
@@ -538,6 +550,33 @@ public class BrowseInfo
     	}
     }
 
+    /**
+     * Return the results of the Browse for display: the items read from the
+     * index if the browse is configured so (see
+     * <code>discovery.result.projection</code>), the Items otherwise.
+     *
+     * @return The results of the Browse
+     */
+    public IGlobalSearchResult[] getDisplayResults(Context context)
+        throws BrowseException
+    {
+        BrowseItem[] bis = getBrowseItemResults();
+        List<IGlobalSearchResult> results = new ArrayList<IGlobalSearchResult>();
+        for (BrowseItem bi : bis)
+        {
+            if (bi instanceof BrowseDSpaceObject
+                    && ((BrowseDSpaceObject) bi).getBrowsableDSpaceObject() instanceof ProjectedDSpaceObject)
+            {
+                results.add(((BrowseDSpaceObject) bi).getBrowsableDSpaceObject());
+            }
+        }
+        if (results.size() < bis.length)
+        {
+            return getItemResults(context);
+        }
+        return results.toArray(new IGlobalSearchResult[results.size()]);
+    }
+
     /**
      * Return the results of the Browse as a BrowseItem array
      *
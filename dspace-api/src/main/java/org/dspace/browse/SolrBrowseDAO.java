@@ -10,13 +10,16 @@ package org.dspace.browse;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.discovery.DiscoverFacetField;
 import org.dspace.discovery.DiscoverQuery;
@@ -24,6 +27,7 @@ import org.dspace.discovery.DiscoverQuery.SORT_ORDER;
 import org.dspace.discovery.DiscoverResult;
 import org.dspace.discovery.DiscoverResult.FacetResult;
 import org.dspace.discovery.DiscoverResult.SearchDocument;
+import org.dspace.discovery.ProjectedDSpaceObject;
 import org.dspace.discovery.SearchService;
 import org.dspace.discovery.SearchServiceException;
 import org.dspace.discovery.configuration.DiscoveryConfigurationParameters;
@@ -74,6 +78,33 @@ public class SolrBrowseDAO implements BrowseDAO
     /** Log4j log */
     private static Logger log = Logger.getLogger(SolrBrowseDAO.class);
 
+    /** Solr cursor of the first result */
+    private static final String CURSOR_START = "*";
+
+    /** Number of cursors kept (browse.solr.cursor.cache-size) */
+    private static final int CURSOR_CACHE_SIZE = ConfigurationManager.getIntProperty(
+            "browse.solr.cursor.cache-size", 1000);
+
+    /** Milliseconds a cursor is used for (browse.solr.cursor.ttl) */
+    private static final long CURSOR_TTL = ConfigurationManager.getLongProperty(
+            "browse.solr.cursor.ttl", 60) * 1000L;
+
+    /**
+     * Solr cursors of the pages served so far, by query and offset, with the
+     * time they were saved, so that the next and previous pages are fetched
+     * with a cursor instead of a start offset. The cursors expire after
+     * {@link #CURSOR_TTL}: once the index has changed they no longer start at
+     * their offset. Guarded by itself.
+     */
+    private static final Map<String, CachedCursor> cursors = new LinkedHashMap<String, CachedCursor>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedCursor> eldest)
+        {
+            return size() > CURSOR_CACHE_SIZE;
+        }
+    };
+
     /** The DSpace context */
     private Context context;
 
@@ -144,11 +175,23 @@ public class SolrBrowseDAO implements BrowseDAO
     private boolean itemsDiscoverable = true;
 
     private boolean showFrequencies;
+
+    /** whether the pages are fetched with Solr cursors (browse.solr.cursor) */
+    private boolean cursorMode = ConfigurationManager.getBooleanProperty("browse.solr.cursor", false);
+
+    /** whether the items are read from the index (discovery.result.projection) */
+    private boolean projection = ConfigurationManager.getBooleanProperty("discovery", "result.projection", false);
+
+    /** column, value and offset of the last ascending jump, see doOffsetQuery */
+    private String seekColumn = null;
+    private String seekValue = null;
+    private int seekOffset = -1;
     
     private DiscoverResult getSolrResponse() throws BrowseException
     {
         if (sResponse == null)
         {
+            String signature = null;
             DiscoverQuery query = new DiscoverQuery();
             addLocationScopeFilter(query);
             addStatusFilter(query);
@@ -165,10 +208,7 @@ public class SolrBrowseDAO implements BrowseDAO
             else
             {
 				query.setMaxResults(limit > 0 ? limit : 20);
-                if (offset > 0)
-                {
-                    query.setStart(offset);
-                }
+                query.setProjection(projection);
 
                 // caution check first authority, value is always present!
                 if (authority != null && !valuePartial)
@@ -195,6 +235,7 @@ public class SolrBrowseDAO implements BrowseDAO
                     query.setSortField("bi_" + orderField + "_sort",
                             ascending ? SORT_ORDER.asc : SORT_ORDER.desc);
                 }
+                signature = setPosition(query);
             }
             try
             {
@@ -205,10 +246,122 @@ public class SolrBrowseDAO implements BrowseDAO
             {
                 throw new BrowseException(e);
             }
+            if (query.getCursorMark() != null && sResponse.getNextCursorMark() != null)
+            {
+                putCursor(signature + "@" + (Math.max(offset, 0) + query.getMaxResults()),
+                        sResponse.getNextCursorMark());
+            }
         }
         return sResponse;
     }
 
+    /**
+     * Position the query on the requested page. In cursor mode the page is
+     * fetched with the cursor left by the previous or the next page, or, right
+     * after a jump, with a filter on the values from the jump target on: Solr
+     * doesn't have to collect and skip the results before the page. Other
+     * pages fall back to a start offset.
+     * 
+     * @return the signature of the query the cursors are stored with, null
+     *         if not in cursor mode
+     */
+    private String setPosition(DiscoverQuery query)
+    {
+        if (!cursorMode || orderField == null)
+        {
+            if (offset > 0)
+            {
+                query.setStart(offset);
+            }
+            return null;
+        }
+
+        // a total order, so that the offsets and the cursors agree
+        query.setSortByUniqueKey(true);
+        String signature = signature(query);
+        String cursorMark = offset > 0 ? getCursor(signature + "@" + offset) : CURSOR_START;
+        if (cursorMark == null && ascending && offset == seekOffset
+                && orderField.equals(seekColumn))
+        {
+            // the first results are the ones counted before the offset
+            query.addFilterQueries("bi_" + seekColumn + "_sort:[\""
+                    + escapeQuoted(seekValue) + "\" TO *]");
+            cursorMark = CURSOR_START;
+        }
+        if (cursorMark != null)
+        {
+            query.setCursorMark(cursorMark);
+        }
+        else
+        {
+            query.setStart(offset);
+        }
+        return signature;
+    }
+
+    /**
+     * @return the key of the cursors of a query, independent of the page size.
+     *         It includes the user, as the results depend on their rights.
+     */
+    private String signature(DiscoverQuery query)
+    {
+        StringBuilder key = new StringBuilder();
+        key.append(context.getCurrentUser() == null ? -1 : context.getCurrentUser().getID())
+                .append('|').append(itemsWithdrawn || !itemsDiscoverable).append('|')
+                .append(query.getSortField()).append(' ').append(query.getSortOrder());
+        for (String filter : query.getFilterQueries())
+        {
+            key.append('|').append(filter);
+        }
+        return key.toString();
+    }
+
+    private static String getCursor(String key)
+    {
+        synchronized (cursors)
+        {
+            CachedCursor cursor = cursors.get(key);
+            if (cursor == null)
+            {
+                return null;
+            }
+            if (System.currentTimeMillis() - cursor.saved > CURSOR_TTL)
+            {
+                cursors.remove(key);
+                return null;
+            }
+            return cursor.mark;
+        }
+    }
+
+    private static void putCursor(String key, String cursorMark)
+    {
+        synchronized (cursors)
+        {
+            cursors.put(key, new CachedCursor(cursorMark));
+        }
+    }
+
+    /**
+     * A cursor with the time it was saved
+     */
+    private static class CachedCursor
+    {
+        private final String mark;
+
+        private final long saved = System.currentTimeMillis();
+
+        CachedCursor(String mark)
+        {
+            this.mark = mark;
+        }
+    }
+
+    private static String escapeQuoted(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
     private void addExtraFilter(String table, DiscoverQuery query)
     {
         String filter = ConfigurationManager.getProperty("browse.solr."+table+".filter");
@@ -310,10 +463,28 @@ public class SolrBrowseDAO implements BrowseDAO
         DiscoverResult resp = getSolrResponse();
 
         List<BrowseItem> bitems = new ArrayList<BrowseItem>();
+        if (projection)
+        {
+            for (ProjectedDSpaceObject projected : resp.getProjectedObjects())
+            {
+                // the display strategies of the other objects need the
+                // objects themselves
+                BrowsableDSpaceObject browsable = projected;
+                if (projected.getType() != Constants.ITEM)
+                {
+                    DSpaceObject dso = projected.getDSpaceObject();
+                    if (!(dso instanceof BrowsableDSpaceObject))
+                    {
+                        continue;
+                    }
+                    browsable = (BrowsableDSpaceObject) dso;
+                }
+                bitems.add(new BrowseDSpaceObject(context, browsable));
+            }
+            return bitems;
+        }
         for (DSpaceObject solrDoc : resp.getDspaceObjects())
         {
-            // FIXME introduce projection, don't retrieve Item immediately when
-            // processing the query...
             BrowseItem bitem = null;
             if (solrDoc instanceof BrowsableDSpaceObject)
             {
@@ -408,7 +579,15 @@ public class SolrBrowseDAO implements BrowseDAO
         {
             throw new BrowseException(e);
         }
-        return (int) resp.getTotalSearchResults();
+        int count = (int) resp.getTotalSearchResults();
+        if (isAscending)
+        {
+            // the page at this offset starts with the first value >= value
+            seekColumn = column;
+            seekValue = value;
+            seekOffset = count;
+        }
+        return count;
     }
 
     @Override
@@ -742,4 +742,10 @@ public class Bitstream extends DSpaceObject
         bRow.setColumn("checksum", valueMD5);
         modified = true;
     }
+
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import org.dspace.core.Context;
 import org.dspace.core.LogManager;
 import org.dspace.event.Event;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.SharedRowCache;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 
@@ -92,40 +93,30 @@ public class Bundle extends DSpaceObject
         query.append(bitstreamOrderingDirection);
 
         // Get bitstreams
-        TableRowIterator tri = DatabaseManager.query(
+        //Since bitstreams can be ordered by a column in bundle2bitstream
+        //We cannot use queryTable, the rows get the bitstream table later on
+        List<TableRow> rows = SharedRowCache.queryChildren(
                 ourContext,
+                Constants.BUNDLE,
+                bundleRow.getIntColumn("bundle_id"),
+                SharedRowCache.BITSTREAMS,
+                "bitstream",
                 query.toString(),
                 bundleRow.getIntColumn("bundle_id"));
 
-        try
+        for (TableRow r : rows)
         {
-            while (tri.hasNext())
-            {
-                TableRow r = tri.next();
+            // First check the cache
+            Bitstream fromCache = (Bitstream) context.fromCache(
+                    Bitstream.class, r.getIntColumn("bitstream_id"));
 
-                // First check the cache
-                Bitstream fromCache = (Bitstream) context.fromCache(
-                        Bitstream.class, r.getIntColumn("bitstream_id"));
-
-                if (fromCache != null)
-                {
-                    bitstreams.add(fromCache);
-                }
-                else
-                {
-                    //Since bitstreams can be ordered by a column in bundle2bitstream
-                    //We cannot use queryTable & so we need to add our table later on
-                    r.setTable("bitstream");
-                    bitstreams.add(new Bitstream(ourContext, r));
-                }
+            if (fromCache != null)
+            {
+                bitstreams.add(fromCache);
             }
-        }
-        finally
-        {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
+            else
             {
-                tri.close();
+                bitstreams.add(new Bitstream(ourContext, r));
             }
         }
 
@@ -856,4 +847,10 @@ public class Bundle extends DSpaceObject
         addBitstream(b);
         return b;
     }
+
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
@@ -1948,4 +1948,10 @@ public class Collection extends DSpaceObject implements IGlobalSearchResult
 		vl.value = dcval;
 		return new Metadatum[]{vl};
 	}
+
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
@@ -1512,4 +1512,10 @@ public class Community extends DSpaceObject implements IGlobalSearchResult
 		vl.value = dcval;
 		return new Metadatum[]{vl};
 	}
+
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
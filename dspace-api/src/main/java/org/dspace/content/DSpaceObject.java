@@ -32,6 +32,7 @@ import org.dspace.event.Event;
 import org.dspace.handle.HandleManager;
 import org.dspace.identifier.IdentifierService;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.SharedRowCache;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 import org.dspace.util.ItemUtils;
@@ -1211,56 +1212,40 @@ public abstract class DSpaceObject implements IGlobalSearchResult
                 metadata = new ArrayList<Metadatum>();
 
                 // Get Dublin Core metadata
-                TableRowIterator tri = retrieveMetadata(resourceId, resourceTypeId);
+                List<TableRow> rows = retrieveMetadata(resourceId, resourceTypeId);
 
-                if (tri != null)
+                for (TableRow resultRow : rows)
                 {
-                    try
-                    {
-                        while (tri.hasNext())
-                        {
-                            TableRow resultRow = tri.next();
-
-                            // Get the associated metadata field and schema information
-                            int fieldID = resultRow.getIntColumn("metadata_field_id");
-                            MetadataField field = MetadataField.find(c, fieldID);
+                    // Get the associated metadata field and schema information
+                    int fieldID = resultRow.getIntColumn("metadata_field_id");
+                    MetadataField field = MetadataField.find(c, fieldID);
 
-                            if (field == null)
-                            {
-                                log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resourceTypeId + " and resourceId=" + resourceId);
-                            }
-                            else
-                            {
-                                MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
-                                if (schema == null)
-                                {
-                                    log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
-                                }
-                                else
-                                {
-                                    // Make a Metadatum object
-                                    Metadatum dcv = new Metadatum();
-                                    dcv.element = field.getElement();
-                                    dcv.qualifier = field.getQualifier();
-                                    dcv.value = resultRow.getStringColumn("text_value");
-                                    dcv.language = resultRow.getStringColumn("text_lang");
-                                    //dcv.namespace = schema.getNamespace();
-                                    dcv.schema = schema.getName();
-                                    dcv.authority = resultRow.getStringColumn("authority");
-                                    dcv.confidence = resultRow.getIntColumn("confidence");
-                                    dcv.setPlace(resultRow.getIntColumn("place"));
-                                    // Add it to the list
-                                    metadata.add(dcv);
-                                }
-                            }
-                        }
+                    if (field == null)
+                    {
+                        log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resourceTypeId + " and resourceId=" + resourceId);
                     }
-                    finally
+                    else
                     {
-                        // close the TableRowIterator to free up resources
-                        if (tri != null)
+                        MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
+                        if (schema == null)
                         {
-                            tri.close();
+                            log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
+                        }
+                        else
+                        {
+                            // Make a Metadatum object
+                            Metadatum dcv = new Metadatum();
+                            dcv.element = field.getElement();
+                            dcv.qualifier = field.getQualifier();
+                            dcv.value = resultRow.getStringColumn("text_value");
+                            dcv.language = resultRow.getStringColumn("text_lang");
+                            //dcv.namespace = schema.getNamespace();
+                            dcv.schema = schema.getName();
+                            dcv.authority = resultRow.getStringColumn("authority");
+                            dcv.confidence = resultRow.getIntColumn("confidence");
+                            dcv.setPlace(resultRow.getIntColumn("place"));
+                            // Add it to the list
+                            metadata.add(dcv);
                         }
                     }
                 }
@@ -1274,9 +1259,10 @@ public abstract class DSpaceObject implements IGlobalSearchResult
             metadata = m;
         }
 
-        TableRowIterator retrieveMetadata(int resourceId, int resourceTypeId) throws SQLException
+        List<TableRow> retrieveMetadata(int resourceId, int resourceTypeId) throws SQLException
         {
-            return DatabaseManager.queryTable(ourContext, "MetadataValue",
+            return SharedRowCache.query(ourContext, resourceTypeId, resourceId,
+                    SharedRowCache.METADATA, "MetadataValue",
                     "SELECT * FROM MetadataValue WHERE resource_id= ? and resource_type_id = ? ORDER BY metadata_field_id, place",
                     resourceId,
                     resourceTypeId);
@@ -1358,4 +1344,13 @@ public abstract class DSpaceObject implements IGlobalSearchResult
     {
         return modifiedMetadata;
     }
+
+    /**
+     * @return true if the object has changes not yet written by
+     *         <code>update()</code>
+     */
+    public boolean isModified()
+    {
+        return modifiedMetadata;
+    }
 }
\ No newline at end of file
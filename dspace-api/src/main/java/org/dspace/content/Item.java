@@ -41,6 +41,7 @@ import org.dspace.handle.HandleManager;
 import org.dspace.identifier.IdentifierException;
 import org.dspace.identifier.IdentifierService;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.SharedRowCache;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 import org.dspace.utils.DSpace;
@@ -725,38 +726,26 @@ public class Item extends DSpaceObject implements BrowsableDSpaceObject
         {
                 bundles = new ArrayList<Bundle>();
                 // Get bundles
-                TableRowIterator tri = DatabaseManager.queryTable(ourContext, "bundle",
+                List<TableRow> rows = SharedRowCache.queryChildren(ourContext,
+                        Constants.ITEM, getID(), SharedRowCache.BUNDLES, "bundle",
                                         "SELECT bundle.* FROM bundle, item2bundle WHERE " +
                                         "item2bundle.bundle_id=bundle.bundle_id AND " +
                                         "item2bundle.item_id= ? ",
                         itemRow.getIntColumn("item_id"));
 
-            try
+            for (TableRow r : rows)
             {
-                while (tri.hasNext())
-                {
-                    TableRow r = tri.next();
-
-                    // First check the cache
-                    Bundle fromCache = (Bundle) ourContext.fromCache(Bundle.class,
-                                                r.getIntColumn("bundle_id"));
+                // First check the cache
+                Bundle fromCache = (Bundle) ourContext.fromCache(Bundle.class,
+                                            r.getIntColumn("bundle_id"));
 
-                    if (fromCache != null)
-                    {
-                        bundles.add(fromCache);
-                    }
-                    else
-                    {
-                        bundles.add(new Bundle(ourContext, r));
-                    }
+                if (fromCache != null)
+                {
+                    bundles.add(fromCache);
                 }
-            }
-            finally
-            {
-                // close the TableRowIterator to free up resources
-                if (tri != null)
+                else
                 {
-                    tri.close();
+                    bundles.add(new Bundle(ourContext, r));
                 }
             }
         }
@@ -2161,4 +2150,9 @@ public class Item extends DSpaceObject implements BrowsableDSpaceObject
         return wrapperService.getWrapper(this);    
     }
 
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import org.apache.log4j.Logger;
 
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.core.I18nUtil;
 import org.dspace.core.SelfNamedPlugin;
 
@@ -82,7 +83,7 @@ public class DCInputAuthority extends SelfNamedPlugin implements ChoiceAuthority
                     try
                     {
                         dcInputsReader.put(locale.getLanguage(),
-                                new DCInputsReader(I18nUtil
+                                SubmissionConfigRegistry.getInputsReader(I18nUtil
                                         .getInputFormsFileName(locale)));
                     }
                     catch (DCInputsReaderException e)
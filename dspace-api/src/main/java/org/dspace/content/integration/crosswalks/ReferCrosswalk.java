@@ -32,6 +32,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInputSet;
 import org.dspace.app.util.DCInputsReader;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Collection;
 import org.dspace.content.Metadatum;
@@ -133,7 +134,7 @@ public class ReferCrosswalk extends SelfNamedPlugin
 	        }
 
 	        // Read the input form file for the specific collection
-	        DCInputsReader inputsReader = new DCInputsReader(formFileName);
+	        DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader(formFileName);
 
 	        DCInputSet inputSet = inputsReader.getInputs(col_handle);
 	        aliasForm = inputSet.getFormName();
@@ -16,6 +16,8 @@ import org.dspace.content.ItemIterator;
 import org.dspace.content.crosswalk.CrosswalkException;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.core.LogManager;
+import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
@@ -53,9 +55,18 @@ import java.util.List;
 public abstract class AbstractPackageDisseminator
         implements PackageDisseminator
 {
+    /** log4j category */
+    private static Logger log = Logger.getLogger(AbstractPackageDisseminator.class);
+
     /**  List of all successfully disseminated package files */
     private List<File> packageFileList = new ArrayList<File>();
 
+    /**
+     * Progress ledger of the current disseminateAll() process, in parallel
+     * mode only
+     **/
+    private PackageLedger ledger = null;
+
     /**
      * Recursively export one or more DSpace Objects as a series of packages.
      * This method will export the given DSpace Object as well as all referenced
@@ -94,13 +105,36 @@ public abstract class AbstractPackageDisseminator
             params.setRecursiveModeEnabled(true);
         }
 
+        //In parallel mode, open the progress ledger for the whole process
+        if(params.parallelModeEnabled() && ledger == null && params.getLedger() != null)
+        {
+            ledger = new PackageLedger(new File(params.getLedger()));
+            try
+            {
+                return disseminateAll(context, dso, params, pkgFile);
+            }
+            finally
+            {
+                ledger.close();
+                ledger = null;
+            }
+        }
+
         // If this object package has NOT already been disseminated
         // NOTE: This ensures we don't accidentally disseminate the same object
         // TWICE, e.g. when an Item is mapped into multiple Collections.
-        if(!getPackageList().contains(pkgFile))
+        if(isRecorded(pkgFile))
+        {
+            log.info(LogManager.getHeader(context, "skip_package_disseminate", "Object was disseminated by a previous process, package-skipped=" + pkgFile.getName()));
+        }
+        else if(!getPackageList().contains(pkgFile))
         {
             // Disseminate the object using provided PackageDisseminator
             disseminate(context, dso, params, pkgFile);
+            if(ledger != null && pkgFile.exists())
+            {
+                ledger.record(pkgFile, dso.getHandle(), null);
+            }
         }
 
         //check if package was disseminated
@@ -128,6 +162,12 @@ public abstract class AbstractPackageDisseminator
                     case Constants.COLLECTION :
                         //Also find all Items in this Collection and disseminate
                         Collection collection = (Collection) dso;
+                        //In parallel mode, the Items are disseminated by a pool of workers
+                        if(params.parallelModeEnabled())
+                        {
+                            disseminateItemsInParallel(context, collection, params, pkgDirectory, fileExtension);
+                            break;
+                        }
                         ItemIterator iterator = collection.getItems();
                         while(iterator.hasNext())
                         {
@@ -179,6 +219,97 @@ public abstract class AbstractPackageDisseminator
         return getPackageList();
     }
 
+    /**
+     * Disseminate the Items of a Collection in parallel mode: the Items are
+     * disseminated by a {@link PackageWorkerPool}, each worker using its own
+     * instance of this disseminator.
+     *
+     * @param context DSpace context.
+     * @param collection the Collection
+     * @param params Properties-style list of options
+     * @param pkgDirectory directory of the packages
+     * @param fileExtension extension of the package files
+     */
+    protected void disseminateItemsInParallel(Context context, Collection collection,
+            final PackageParameters params, String pkgDirectory, String fileExtension)
+        throws PackageException, SQLException
+    {
+        List<PackageWorkerPool.Task> tasks = new ArrayList<PackageWorkerPool.Task>();
+        ItemIterator iterator = collection.getItems();
+        try
+        {
+            while(iterator.hasNext())
+            {
+                Item item = iterator.next();
+                final int itemID = item.getID();
+                final File childPkg = new File(pkgDirectory + PackageUtils.getPackageName(item, fileExtension));
+                item.decache();
+
+                if(isRecorded(childPkg))
+                {
+                    addToPackageList(childPkg);
+                }
+                else if(!getPackageList().contains(childPkg))
+                {
+                    tasks.add(new PackageWorkerPool.Task()
+                    {
+                        @Override
+                        public File getPackageFile()
+                        {
+                            return childPkg;
+                        }
+
+                        @Override
+                        public String run(Context workerContext) throws Exception
+                        {
+                            return disseminateItem(workerContext, itemID, params, childPkg);
+                        }
+                    });
+                }
+            }
+        }
+        finally
+        {
+            iterator.close();
+        }
+
+        log.info(LogManager.getHeader(context, "package_parallel_disseminate", "collection=" + collection.getHandle()
+                + ", packages=" + tasks.size() + ", threads=" + params.getWorkerThreads()));
+        for(PackageWorkerPool.Result result : new PackageWorkerPool(context, params, ledger).run(tasks))
+        {
+            if(result.getPackageFile().exists())
+            {
+                addToPackageList(result.getPackageFile());
+            }
+        }
+    }
+
+    /**
+     * Disseminate a single Item in a worker of the parallel mode, with a new
+     * instance of this disseminator.
+     *
+     * @return the handle of the Item
+     */
+    private String disseminateItem(Context context, int itemID, PackageParameters params,
+            File pkgFile) throws Exception
+    {
+        Item item = Item.find(context, itemID);
+        AbstractPackageDisseminator worker = getClass().newInstance();
+        worker.disseminate(context, item, params, pkgFile);
+        String handle = item.getHandle();
+        item.decache();
+        return handle;
+    }
+
+    /**
+     * @return true if the package is recorded in the progress ledger of a
+     *         previous process and still exists
+     */
+    private boolean isRecorded(File pkgFile)
+    {
+        return ledger != null && ledger.get(pkgFile) != null && pkgFile.exists();
+    }
+
     /**
      * Add File to list of successfully disseminated package files
      * @param f added File.
@@ -81,6 +81,12 @@ public abstract class AbstractPackageIngester
      **/
     private Map<File, String> pkgIngestedMap = new LinkedHashMap<File, String>();
 
+    /**
+     * Progress ledger of the current ingestAll()/replaceAll() process, in
+     * parallel mode only
+     **/
+    private PackageLedger ledger = null;
+
     /**
      * Recursively create one or more DSpace Objects out of the contents
      * of the ingested package (and all other referenced packages).
@@ -130,19 +136,43 @@ public abstract class AbstractPackageIngester
             params.setRecursiveModeEnabled(true);
         }
 
+        //In parallel mode, open the progress ledger for the whole process
+        if(params.parallelModeEnabled() && ledger == null && params.getLedger() != null)
+        {
+            ledger = new PackageLedger(new File(params.getLedger()));
+            try
+            {
+                return ingestAll(context, parent, pkgFile, params, license);
+            }
+            finally
+            {
+                ledger.close();
+                ledger = null;
+            }
+        }
+
         //Initial DSpace Object to ingest
         DSpaceObject dso = null;
+
+        //Package already ingested by a previous (failed) process, if any
+        PackageLedger.Entry recorded = getLedgerEntry(pkgFile);
         
         // If we have not previously parsed/ingested this package file
         // NOTE: This ensures we don't accidentally ingest the same package
         // TWICE, e.g. an Item's package may be referenced from multiple 
         // Collection packages (if Item is mapped to multiple Collections)
-        if(!getIngestedMap().containsKey(pkgFile))
+        if(recorded != null)
+        {
+            log.info(LogManager.getHeader(context, "skip_package_ingest", "Object was ingested by a previous process, package-skipped=" + pkgFile.getName()));
+            dso = resolveRecorded(context, recorded);
+        }
+        else if(!getIngestedMap().containsKey(pkgFile))
         {
             try
             {
                 //actually ingest pkg using provided PackageIngester
                 dso = ingest(context, parent, pkgFile, params, license);
+                recordInLedger(context, pkgFile, dso, params);
             }
             catch(IllegalStateException ie)
             {
@@ -176,11 +206,17 @@ public abstract class AbstractPackageIngester
             if(dso.getType()!=Constants.ITEM)
             {
                 //Check if we found child package references when ingesting this latest DSpaceObject
-                List<String> childPkgRefs = getPackageReferences(dso);
+                List<String> childPkgRefs = recorded != null ? recorded.getChildren() : getPackageReferences(dso);
                 
+                //In parallel mode, the Items of a Collection are ingested by a pool of workers
+                if(params.parallelModeEnabled() && dso.getType()==Constants.COLLECTION
+                        && childPkgRefs!=null && !childPkgRefs.isEmpty())
+                {
+                    processItemsInParallel(context, (Collection) dso, pkgFile, childPkgRefs, params, license, false);
+                }
                 //we can only recursively ingest child packages
                 //if we have references to them 
-                if(childPkgRefs!=null && !childPkgRefs.isEmpty())
+                else if(childPkgRefs!=null && !childPkgRefs.isEmpty())
                 {
                     //Recursively ingest each child package, using this current object as the parent DSpace Object
                     for(String childPkgRef : childPkgRefs)
@@ -271,19 +307,43 @@ public abstract class AbstractPackageIngester
             params.setRecursiveModeEnabled(true);
         }
 
+        //In parallel mode, open the progress ledger for the whole process
+        if(params.parallelModeEnabled() && ledger == null && params.getLedger() != null)
+        {
+            ledger = new PackageLedger(new File(params.getLedger()));
+            try
+            {
+                return replaceAll(context, dso, pkgFile, params);
+            }
+            finally
+            {
+                ledger.close();
+                ledger = null;
+            }
+        }
+
         //Initial DSpace Object to replace
         DSpaceObject replacedDso = null;
+
+        //Package already replaced by a previous (failed) process, if any
+        PackageLedger.Entry recorded = getLedgerEntry(pkgFile);
         
         // If we have not previously parsed/ingested this package file
         // NOTE: This ensures we don't accidentally ingest the same package
         // TWICE, e.g. an Item's package may be referenced from multiple 
         // Collection packages (if Item is mapped to multiple Collections)
-        if(!getIngestedMap().containsKey(pkgFile))
+        if(recorded != null)
+        {
+            log.info(LogManager.getHeader(context, "skip_package_replace", "Object was replaced by a previous process, package-skipped=" + pkgFile.getName()));
+            replacedDso = resolveRecorded(context, recorded);
+        }
+        else if(!getIngestedMap().containsKey(pkgFile))
         { 
             //Actually ingest pkg using provided PackageIngester, and replace object
             //NOTE: 'dso' may be null! If it is null, the PackageIngester must determine
             //      the object to be replaced from the package itself.
             replacedDso = replace(context, dso, pkgFile, params);
+            recordInLedger(context, pkgFile, replacedDso, params);
         }
         else
         {
@@ -301,11 +361,17 @@ public abstract class AbstractPackageIngester
             if(replacedDso.getType()!=Constants.ITEM)
             {
                 //Check if we found child package references when replacing this latest DSpaceObject
-                List<String> childPkgRefs = getPackageReferences(replacedDso);
+                List<String> childPkgRefs = recorded != null ? recorded.getChildren() : getPackageReferences(replacedDso);
 
+                //In parallel mode, the Items of a Collection are replaced by a pool of workers
+                if(params.parallelModeEnabled() && replacedDso.getType()==Constants.COLLECTION
+                        && childPkgRefs!=null && !childPkgRefs.isEmpty())
+                {
+                    processItemsInParallel(context, (Collection) replacedDso, pkgFile, childPkgRefs, params, null, true);
+                }
                 //we can only recursively ingest child packages
                 //if we have references to them
-                if(childPkgRefs!=null && !childPkgRefs.isEmpty())
+                else if(childPkgRefs!=null && !childPkgRefs.isEmpty())
                 {
                     //Recursively replace each child package
                     for(String childPkgRef : childPkgRefs)
@@ -347,7 +413,160 @@ public abstract class AbstractPackageIngester
         return getIngestedList();
     }
 
-   
+
+    /**
+     * Ingest (or replace) the Item packages referenced by a Collection
+     * package in parallel mode: the packages are processed by a
+     * {@link PackageWorkerPool}, each worker using its own instance of this
+     * ingester. Then, in the current context, the Items are mapped to the
+     * Collection (if it doesn't own them) and the changes are committed.
+     *
+     * @param context DSpace context.
+     * @param collection the Collection just ingested/replaced
+     * @param pkgFile the Collection package
+     * @param childPkgRefs the references to the Item packages
+     * @param params Properties-style list of options
+     * @param license may be null, which takes default license.
+     * @param replace true to replace the Items, false to ingest them
+     */
+    protected void processItemsInParallel(Context context, Collection collection,
+            File pkgFile, List<String> childPkgRefs, final PackageParameters params,
+            final String license, final boolean replace)
+        throws PackageException, AuthorizeException, SQLException, IOException
+    {
+        List<PackageWorkerPool.Task> tasks = new ArrayList<PackageWorkerPool.Task>();
+        List<PackageWorkerPool.Result> results = new ArrayList<PackageWorkerPool.Result>();
+        for(String childPkgRef : childPkgRefs)
+        {
+            //Assume package reference is relative to current (parent) package location
+            final File childPkg = new File(pkgFile.getAbsoluteFile().getParent(), childPkgRef);
+
+            PackageLedger.Entry recorded = getLedgerEntry(childPkg);
+            if(recorded != null)
+            {
+                log.info(LogManager.getHeader(context, "skip_package_ingest", "Object was processed by a previous process, package-skipped=" + childPkg.getName()));
+                results.add(new PackageWorkerPool.Result(childPkg, recorded.getHandle()));
+            }
+            else if(getIngestedMap().containsKey(childPkg))
+            {
+                results.add(new PackageWorkerPool.Result(childPkg, getIngestedMap().get(childPkg)));
+            }
+            else
+            {
+                tasks.add(new PackageWorkerPool.Task()
+                {
+                    @Override
+                    public File getPackageFile()
+                    {
+                        return childPkg;
+                    }
+
+                    @Override
+                    public String run(Context workerContext) throws Exception
+                    {
+                        return processItem(workerContext, childPkg, params, license, replace);
+                    }
+                });
+            }
+        }
+
+        log.info(LogManager.getHeader(context, "package_parallel_ingest", "collection=" + collection.getHandle()
+                + ", packages=" + tasks.size() + ", skipped=" + results.size() + ", threads=" + params.getWorkerThreads()));
+        results.addAll(new PackageWorkerPool(context, params, ledger).run(tasks));
+
+        for(PackageWorkerPool.Result result : results)
+        {
+            if(result.getHandle() == null)
+            {
+                continue;
+            }
+            if(!getIngestedMap().containsKey(result.getPackageFile()))
+            {
+                getIngestedMap().put(result.getPackageFile(), result.getHandle());
+            }
+
+            // A Collection can map to Items that it does not "own".
+            // If a Collection package has an Item as a child, it
+            // should be mapped regardless of ownership.
+            DSpaceObject child = HandleManager.resolveToObject(context, result.getHandle());
+            if(child instanceof Item && !((Item) child).isIn(collection))
+            {
+                collection.addItem((Item) child);
+            }
+        }
+        context.commit();
+    }
+
+    /**
+     * Ingest (or replace) a single Item package in a worker of the parallel
+     * mode, with a new instance of this ingester.
+     *
+     * @return the handle of the Item, or null if it was skipped
+     */
+    private String processItem(Context context, File itemPkg, PackageParameters params,
+            String license, boolean replace) throws Exception
+    {
+        AbstractPackageIngester worker = getClass().newInstance();
+        // the ingesters may change the parameters
+        PackageParameters workerParams = new PackageParameters();
+        workerParams.putAll(params);
+
+        DSpaceObject item = null;
+        try
+        {
+            item = replace ? worker.replace(context, null, itemPkg, workerParams)
+                    : worker.ingest(context, null, itemPkg, workerParams, license);
+        }
+        catch(IllegalStateException ie)
+        {
+            //the object already exists: skip it if we are keeping existing objects
+            if(!params.keepExistingModeEnabled())
+            {
+                throw ie;
+            }
+            log.warn(LogManager.getHeader(context, "skip_package_ingest", "Object already exists, package-skipped=" + itemPkg.getName()));
+        }
+        return item == null ? null : item.getHandle();
+    }
+
+    /**
+     * @return the entry of a package recorded in the progress ledger, or null
+     *         if there is no ledger or the package is not recorded
+     */
+    private PackageLedger.Entry getLedgerEntry(File pkgFile)
+    {
+        return ledger == null ? null : ledger.get(pkgFile);
+    }
+
+    /**
+     * @return the object ingested from a package recorded in the progress
+     *         ledger, or null if it was skipped
+     */
+    private DSpaceObject resolveRecorded(Context context, PackageLedger.Entry recorded)
+            throws SQLException
+    {
+        return recorded.getHandle() == null ? null
+                : HandleManager.resolveToObject(context, recorded.getHandle());
+    }
+
+    /**
+     * In parallel mode commit the object just ingested/replaced, so that the
+     * workers can see it, and record its package in the progress ledger.
+     */
+    private void recordInLedger(Context context, File pkgFile, DSpaceObject dso,
+            PackageParameters params) throws SQLException, IOException
+    {
+        if(!params.parallelModeEnabled() || dso == null)
+        {
+            return;
+        }
+        context.commit();
+        if(ledger != null)
+        {
+            ledger.record(pkgFile, dso.getHandle(), getPackageReferences(dso));
+        }
+    }
+
     /**
      * During ingestion process, some submission information packages (SIPs)
      * may reference other packages to be ingested (recursively).
@@ -0,0 +1,163 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Progress ledger of a recursive ingest, replace or dissemination in
+ * parallel mode: every package is recorded once the object it was ingested
+ * to (or disseminated from) is committed, so that a failed run can be resumed
+ * by skipping the recorded packages.
+ * <P>
+ * The ledger is a text file with a line per package: the absolute path of the
+ * package, the handle of the object and the references to the child packages,
+ * separated by tabs. Lines are only appended, a line truncated by a crash is
+ * ignored.
+ */
+class PackageLedger
+{
+    private static final String SEPARATOR = "\t";
+
+    private static final String NO_HANDLE = "-";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final Writer writer;
+
+    /**
+     * Open a ledger, loading the packages already recorded in it.
+     *
+     * @param file
+     *            the ledger file, created if it doesn't exist
+     */
+    PackageLedger(File file) throws IOException
+    {
+        if (file.exists())
+        {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), "UTF-8")))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    String[] fields = line.split(SEPARATOR, -1);
+                    // only complete lines end with the separator
+                    if (fields.length >= 3 && line.endsWith(SEPARATOR))
+                    {
+                        String handle = NO_HANDLE.equals(fields[1]) ? null : fields[1];
+                        List<String> children = new ArrayList<String>(
+                                Arrays.asList(fields).subList(2, fields.length - 1));
+                        entries.put(fields[0], new Entry(handle, children));
+                    }
+                }
+            }
+        }
+        writer = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+        if (!endsWithNewLine(file))
+        {
+            // terminate a truncated line, not to corrupt the next one
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    private static boolean endsWithNewLine(File file) throws IOException
+    {
+        if (file.length() == 0)
+        {
+            return true;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"))
+        {
+            raf.seek(file.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    /**
+     * @return the recorded entry of the package, or null if the package is
+     *         not recorded
+     */
+    Entry get(File pkgFile)
+    {
+        return entries.get(pkgFile.getAbsolutePath());
+    }
+
+    /**
+     * Record a completed package. It must be called after the commit of the
+     * object.
+     *
+     * @param pkgFile
+     *            the package
+     * @param handle
+     *            the handle of the object, may be null
+     * @param children
+     *            the references to the child packages, may be null
+     */
+    synchronized void record(File pkgFile, String handle, List<String> children)
+            throws IOException
+    {
+        List<String> refs = children == null ? Collections.<String>emptyList() : children;
+        StringBuilder line = new StringBuilder(pkgFile.getAbsolutePath())
+                .append(SEPARATOR).append(handle == null ? NO_HANDLE : handle)
+                .append(SEPARATOR);
+        for (String ref : refs)
+        {
+            line.append(ref).append(SEPARATOR);
+        }
+        writer.write(line.append('\n').toString());
+        writer.flush();
+        entries.put(pkgFile.getAbsolutePath(), new Entry(handle, new ArrayList<String>(refs)));
+    }
+
+    synchronized void close() throws IOException
+    {
+        writer.close();
+    }
+
+    /**
+     * A recorded package
+     */
+    static class Entry
+    {
+        private final String handle;
+
+        private final List<String> children;
+
+        Entry(String handle, List<String> children)
+        {
+            this.handle = handle;
+            this.children = children;
+        }
+
+        String getHandle()
+        {
+            return handle;
+        }
+
+        List<String> getChildren()
+        {
+            return children;
+        }
+    }
+}
@@ -337,5 +337,112 @@ public class PackageParameters extends Properties
         addProperty("recursiveMode", String.valueOf(value));
     }
 
+    /**
+     * Returns integer form of property with selectable default
+     * @param key the key to look for in this property list.
+     * @param defaultAnswer default to return if there is no such property,
+     *   or if its value is not an integer
+     * @return the integer derived from the value of property, or default
+     *   if it was not specified.
+     */
+    public int getIntProperty(String key, int defaultAnswer)
+    {
+        String stringValue = getProperty(key);
+
+        if (stringValue == null)
+        {
+            return defaultAnswer;
+        }
+        try
+        {
+            return Integer.parseInt(stringValue.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return defaultAnswer;
+        }
+    }
+
+    /***
+     * Utility method to get the number of worker threads of a recursive
+     * ingest, replace or dissemination. When greater than one the items of
+     * each collection are processed in parallel, each worker with its own
+     * context (see {@link #parallelModeEnabled()}).
+     * <p>
+     * Defaults to 1 if previously unset.
+     *
+     * @return number of worker threads
+     */
+    public int getWorkerThreads()
+    {
+        return Math.max(1, getIntProperty("workerThreads", 1));
+    }
+
+    /***
+     * Utility method to set the number of worker threads of a recursive
+     * ingest, replace or dissemination.
+     *
+     * @param value number of worker threads
+     */
+    public void setWorkerThreads(int value)
+    {
+        setProperty("workerThreads", String.valueOf(value));
+    }
+
+    /***
+     * Utility method to get the number of items each worker processes
+     * between two commits in parallel mode.
+     * <p>
+     * Defaults to 10 if previously unset.
+     *
+     * @return number of items per commit
+     */
+    public int getCommitBatchSize()
+    {
+        return Math.max(1, getIntProperty("commitBatchSize", 10));
+    }
+
+    /***
+     * Utility method to get the progress ledger of a recursive ingest,
+     * replace or dissemination: the file where the completed packages are
+     * recorded, so that a failed run can be resumed.
+     *
+     * @return path of the ledger file, or null if unset
+     */
+    public String getLedger()
+    {
+        return getProperty("ledger");
+    }
+
+    /***
+     * Utility method to set the progress ledger of a recursive ingest,
+     * replace or dissemination.
+     *
+     * @param value path of the ledger file
+     */
+    public void setLedger(String value)
+    {
+        setProperty("ledger", value);
+    }
+
+    /***
+     * Utility method to tell if the recursive ingest, replace or
+     * dissemination runs in parallel mode: it is enabled by more than one
+     * worker thread or by a progress ledger.
+     * <p>
+     * In parallel mode the containers (communities and collections) are
+     * processed and committed one by one, in dependency order, then the items
+     * of each collection are processed by the workers, which commit every
+     * {@link #getCommitBatchSize()} items. A failure doesn't roll back what
+     * was already committed: a new run with the same ledger skips the
+     * packages recorded in it.
+     *
+     * @return boolean result
+     */
+    public boolean parallelModeEnabled()
+    {
+        return getWorkerThreads() > 1 || getLedger() != null;
+    }
+
 
 }
@@ -0,0 +1,250 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.core.LogManager;
+
+/**
+ * Processes the item packages of a collection in parallel mode (see
+ * {@link PackageParameters#parallelModeEnabled()}). Each worker thread has
+ * its own context, with the user and the authorization state of the main
+ * context, and commits every {@link PackageParameters#getCommitBatchSize()}
+ * packages; the committed packages are recorded in the ledger.
+ * <P>
+ * When a package fails the worker rolls back its uncommitted packages, the
+ * other workers stop after their current package and the failure is thrown
+ * to the caller.
+ */
+class PackageWorkerPool
+{
+    /** log4j category */
+    private static Logger log = Logger.getLogger(PackageWorkerPool.class);
+
+    /**
+     * The processing of a package
+     */
+    interface Task
+    {
+        File getPackageFile();
+
+        /**
+         * @param context
+         *            the context of the worker
+         * @return the handle of the ingested or disseminated object, null if
+         *         the package was skipped
+         */
+        String run(Context context) throws Exception;
+    }
+
+    /**
+     * A committed package
+     */
+    static class Result
+    {
+        private final File pkgFile;
+
+        private final String handle;
+
+        Result(File pkgFile, String handle)
+        {
+            this.pkgFile = pkgFile;
+            this.handle = handle;
+        }
+
+        File getPackageFile()
+        {
+            return pkgFile;
+        }
+
+        String getHandle()
+        {
+            return handle;
+        }
+    }
+
+    private final Context parent;
+
+    private final int threads;
+
+    private final int batchSize;
+
+    private final PackageLedger ledger;
+
+    /**
+     * @param parent
+     *            the main context, the workers get its user and authorization
+     *            state
+     * @param params
+     *            the packager parameters with the number of threads and the
+     *            commit batch size
+     * @param ledger
+     *            the progress ledger, may be null
+     */
+    PackageWorkerPool(Context parent, PackageParameters params, PackageLedger ledger)
+    {
+        this.parent = parent;
+        this.threads = params.getWorkerThreads();
+        this.batchSize = params.getCommitBatchSize();
+        this.ledger = ledger;
+    }
+
+    /**
+     * Run the tasks and wait for their completion.
+     *
+     * @return the committed packages
+     * @throws PackageException
+     *             wrapping the first failure
+     */
+    List<Result> run(List<Task> tasks) throws PackageException
+    {
+        List<Result> results = new ArrayList<Result>();
+        if (tasks.isEmpty())
+        {
+            return results;
+        }
+
+        final Queue<Task> queue = new ConcurrentLinkedQueue<Task>(tasks);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        int workers = Math.min(threads, tasks.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try
+        {
+            List<Future<List<Result>>> futures = new ArrayList<Future<List<Result>>>();
+            for (int i = 0; i < workers; i++)
+            {
+                futures.add(executor.submit(new Callable<List<Result>>()
+                {
+                    @Override
+                    public List<Result> call() throws Exception
+                    {
+                        return work(queue, failed);
+                    }
+                }));
+            }
+
+            Throwable failure = null;
+            for (Future<List<Result>> future : futures)
+            {
+                try
+                {
+                    results.addAll(future.get());
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e.getCause();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    failed.set(true);
+                    if (failure == null)
+                    {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null)
+            {
+                if (failure instanceof PackageException)
+                {
+                    throw (PackageException) failure;
+                }
+                throw new PackageException(failure);
+            }
+            return results;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Result> work(Queue<Task> queue, AtomicBoolean failed)
+            throws Exception
+    {
+        Context context = newContext();
+        List<Result> committed = new ArrayList<Result>();
+        List<Result> pending = new ArrayList<Result>();
+        Task task = null;
+        try
+        {
+            while (!failed.get() && (task = queue.poll()) != null)
+            {
+                pending.add(new Result(task.getPackageFile(), task.run(context)));
+                if (pending.size() >= batchSize)
+                {
+                    commit(context, pending);
+                    committed.addAll(pending);
+                    pending.clear();
+                }
+            }
+            task = null;
+            commit(context, pending);
+            committed.addAll(pending);
+            context.complete();
+            return committed;
+        }
+        catch (Exception e)
+        {
+            failed.set(true);
+            log.error(LogManager.getHeader(context, "package_worker_failed",
+                    "package=" + (task == null ? null : task.getPackageFile())
+                            + ", rolled back packages=" + pending.size()), e);
+            context.abort();
+            throw e;
+        }
+    }
+
+    private void commit(Context context, List<Result> pending)
+            throws SQLException, IOException
+    {
+        context.commit();
+        if (ledger != null)
+        {
+            for (Result result : pending)
+            {
+                ledger.record(result.getPackageFile(), result.getHandle(), null);
+            }
+        }
+    }
+
+    private Context newContext() throws SQLException
+    {
+        Context context = new Context();
+        context.setCurrentUser(parent.getCurrentUser());
+        if (parent.ignoreAuthorization())
+        {
+            context.turnOffAuthorisationSystem();
+        }
+        if (!parent.isRequiredItemWrapper())
+        {
+            context.turnOffItemWrapper();
+        }
+        context.setBatchMode(true);
+        return context;
+    }
+}
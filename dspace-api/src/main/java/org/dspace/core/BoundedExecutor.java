@@ -0,0 +1,200 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs tasks with a fixed number of threads, for the command line tools
+ * processing many objects. The queue of the tasks is bounded: when it is
+ * full, the thread submitting a task runs it itself, so that the reading of
+ * the input waits for the threads instead of filling the memory.
+ * <P>
+ * The first failure of a task is kept, and the tasks not started yet are
+ * skipped: {@link #finish()} throws it once the running tasks are done.
+ * <P>
+ * The threads are daemon threads, so that an executor left unfinished after
+ * an error does not keep the JVM running.
+ */
+public class BoundedExecutor
+{
+    private static final Logger log = Logger.getLogger(BoundedExecutor.class);
+
+    /**
+     * A task, which may fail with any exception.
+     */
+    public interface Task
+    {
+        void run() throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+
+    private final int threads;
+
+    private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+    /**
+     * @param name
+     *            prefix of the names of the threads
+     * @param threads
+     *            the number of threads, at least one
+     */
+    public BoundedExecutor(String name, int threads)
+    {
+        this(name, threads, threads * 2);
+    }
+
+    /**
+     * @param name
+     *            prefix of the names of the threads
+     * @param threads
+     *            the number of threads, at least one
+     * @param queueSize
+     *            the number of tasks waiting for a thread before the
+     *            submitting thread runs them itself
+     */
+    public BoundedExecutor(final String name, int threads, int queueSize)
+    {
+        this.threads = Math.max(1, threads);
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * @return the number of threads
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Run a task, unless a task failed already. This waits when the queue of
+     * the tasks is full, by running the task in the calling thread.
+     */
+    public void execute(final Task task)
+    {
+        if (isFailed())
+        {
+            return;
+        }
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (isFailed())
+                {
+                    return;
+                }
+                try
+                {
+                    task.run();
+                }
+                catch (Exception e)
+                {
+                    fail(e);
+                }
+                catch (Error e)
+                {
+                    fail(new RuntimeException(e));
+                    throw e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Record a failure, which stops the tasks not started yet. The first
+     * failure is thrown by {@link #finish()}, the following ones are only
+     * logged.
+     */
+    public void fail(Exception e)
+    {
+        if (!failure.compareAndSet(null, e))
+        {
+            log.error("Another task failed", e);
+        }
+    }
+
+    /**
+     * @return true if a task failed
+     */
+    public boolean isFailed()
+    {
+        return failure.get() != null;
+    }
+
+    /**
+     * @return the first failure of a task, or null
+     */
+    public Exception getFailure()
+    {
+        return failure.get();
+    }
+
+    /**
+     * Wait for the submitted tasks to be done, without throwing their failure.
+     * No task can be submitted afterwards. When the calling thread is
+     * interrupted, the tasks not started are dropped and the running ones
+     * interrupted.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+        boolean interrupted = false;
+        while (!executor.isTerminated())
+        {
+            try
+            {
+                executor.awaitTermination(1L, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException e)
+            {
+                interrupted = true;
+                fail(e);
+                executor.shutdownNow();
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for the submitted tasks to be done, and throw the first failure
+     * of a task.
+     */
+    public void finish() throws Exception
+    {
+        shutdown();
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+    }
+}
@@ -14,10 +14,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Category;
 import org.apache.log4j.Logger;
@@ -37,6 +39,11 @@ import org.dspace.servicemanager.config.DSpaceConfigurationService;
  * Other configuration files are read from the <code>config</code> directory
  * of the DSpace installation directory (specified as the property
  * <code>dspace.dir</code> in the main configuration file.)
+ * <P>
+ * The property getters read from immutable snapshots of the configuration,
+ * with the values already trimmed and parsed, so that they don't lock nor
+ * parse anything once the configuration is loaded. The typed getters return
+ * the values parsed by the snapshot, without going through the strings.
  *
  *
  * @author Robert Tansley
@@ -53,7 +60,16 @@ public class ConfigurationManager
     private static Properties properties = null;
 
     /** module configuration properties */
-    private static Map<String, Properties> moduleProps = new HashMap<String, Properties>();
+    private static Map<String, Properties> moduleProps = new ConcurrentHashMap<String, Properties>();
+
+    /** The parsed configuration properties, set once loaded */
+    private static volatile ConfigurationSnapshot snapshot = null;
+
+    /**
+     * The parsed module configuration properties. The map is never modified,
+     * a copy is made when a module is loaded
+     */
+    private static volatile Map<String, ConfigurationSnapshot> moduleSnapshots = Collections.emptyMap();
 
     // limit of recursive depth of property variable interpolation in
     // configuration; anything greater than this is very likely to be a loop.
@@ -153,6 +169,69 @@ public class ConfigurationManager
         return retProps;
     }
 
+    private static ConfigurationSnapshot getSnapshot()
+    {
+        ConfigurationSnapshot current = snapshot;
+        if (current == null)
+        {
+            loadConfig(null);
+            current = snapshot;
+        }
+
+        return current;
+    }
+
+    private static ConfigurationSnapshot getSnapshot(String module)
+    {
+        ConfigurationSnapshot current = moduleSnapshots.get(module);
+        if (current == null)
+        {
+            loadModuleConfig(module);
+            current = moduleSnapshots.get(module);
+        }
+
+        return current == ConfigurationSnapshot.MISSING ? null : current;
+    }
+
+    /**
+     * Get the parsed value of a regular property. It is the single lookup of
+     * the regular properties: {@link #getProperty(String)} and the typed
+     * getters all read through it.
+     *
+     * @return the parsed value, or <code>null</code> if the property does not
+     *         exist
+     */
+    static ConfigurationSnapshot.Value getValue(String property)
+    {
+        ConfigurationSnapshot current = getSnapshot();
+        return current == null ? null : current.get(property);
+    }
+
+    /**
+     * Get the parsed value of a property, looking in the regular properties
+     * with the module name prepended if the module doesn't define it.
+     */
+    private static ConfigurationSnapshot.Value getValue(String module, String property)
+    {
+        if (module == null)
+        {
+            return getValue(property);
+        }
+
+        ConfigurationSnapshot modSnapshot = getSnapshot(module);
+        if (modSnapshot != null)
+        {
+            ConfigurationSnapshot.Value value = modSnapshot.get(property);
+            if (value != null)
+            {
+                return value;
+            }
+        }
+
+        // look in regular properties with module name prepended
+        return getValue(module + "." + property);
+    }
+
     /**
      * Get a configuration property
      *
@@ -164,9 +243,8 @@ public class ConfigurationManager
      */
     public static String getProperty(String property)
     {
-        Properties props = getMutableProperties();
-        String value = props == null ? null : props.getProperty(property);
-        return (value != null) ? value.trim() : null;
+        ConfigurationSnapshot.Value value = getValue(property);
+        return value == null ? null : value.getString();
     }
 
     /**
@@ -183,26 +261,8 @@ public class ConfigurationManager
      */
     public static String getProperty(String module, String property)
     {
-        if (module == null)
-        {
-            return getProperty(property);
-        }
-
-        String value = null;
-        Properties modProps = getMutableProperties(module);
-
-        if (modProps != null)
-        {
-            value = modProps.getProperty(property);
-        }
-
-        if (value == null)
-        {
-            // look in regular properties with module name prepended
-            value = getProperty(module + "." + property);
-        }
-
-        return (value != null) ? value.trim() : null;
+        ConfigurationSnapshot.Value value = getValue(module, property);
+        return value == null ? null : value.getString();
     }
 
     /**
@@ -276,22 +336,19 @@ public class ConfigurationManager
      */
     public static int getIntProperty(String module, String property, int defaultValue)
     {
-       String stringValue = getProperty(module, property);
-       int intValue = defaultValue;
-
-       if (stringValue != null)
-       {
-           try
-           {
-               intValue = Integer.parseInt(stringValue.trim());
-           }
-           catch (NumberFormatException e)
-           {
-               warn("Warning: Number format error in property: " + property);
-           }
+        ConfigurationSnapshot.Value value = getValue(module, property);
+
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        if (value.getIntValue() == null)
+        {
+            warn("Warning: Number format error in property: " + property);
+            return defaultValue;
         }
 
-        return intValue;
+        return value.getIntValue();
     }
 
     /**
@@ -364,22 +421,19 @@ public class ConfigurationManager
      */
     public static long getLongProperty(String module, String property, int defaultValue)
     {
-        String stringValue = getProperty(module, property);
-        long longValue = defaultValue;
+        ConfigurationSnapshot.Value value = getValue(module, property);
 
-        if (stringValue != null)
+        if (value == null)
         {
-            try
-            {
-                longValue = Long.parseLong(stringValue.trim());
-            }
-            catch (NumberFormatException e)
-            {
-                warn("Warning: Number format error in property: " + property);
-            }
+            return defaultValue;
+        }
+        if (value.getLongValue() == null)
+        {
+            warn("Warning: Number format error in property: " + property);
+            return defaultValue;
         }
 
-        return longValue;
+        return value.getLongValue();
     }
 
     /**
@@ -402,13 +456,11 @@ public class ConfigurationManager
      */ 
     public static boolean getBooleanProperty(String module, String property, String defaultProperty)
     {
-        String stringValue = getProperty(module, property);
+        ConfigurationSnapshot.Value value = getValue(module, property);
 
-        if (stringValue != null)
+        if (value != null)
         {
-            stringValue = stringValue.trim();
-            return  stringValue.equalsIgnoreCase("true") ||
-                    stringValue.equalsIgnoreCase("yes");
+            return value.getBooleanValue();
         }
         return getBooleanProperty(module, defaultProperty, false);
     }
@@ -494,13 +546,11 @@ public class ConfigurationManager
      */
     public static boolean getBooleanProperty(String module, String property, boolean defaultValue)
     {
-        String stringValue = getProperty(module, property);
+        ConfigurationSnapshot.Value value = getValue(module, property);
 
-        if (stringValue != null)
+        if (value != null)
         {
-        	stringValue = stringValue.trim();
-            return  stringValue.equalsIgnoreCase("true") ||
-                    stringValue.equalsIgnoreCase("yes");
+            return value.getBooleanValue();
         }
         else
         {
@@ -554,6 +604,12 @@ public class ConfigurationManager
 
     private static synchronized void loadModuleConfig(String module)
     {
+        if (moduleSnapshots.containsKey(module))
+        {
+            // loaded by another thread in the meantime
+            return;
+        }
+
         // try to find it in modules
         File modFile = null;
         try
@@ -590,18 +646,21 @@ public class ConfigurationManager
                 for (Enumeration pe = modProps.propertyNames(); pe.hasMoreElements(); )
                 {
                     String key = (String)pe.nextElement();
-                    String ival = interpolate(key, modProps.getProperty(key), 1);
+                    String ival = interpolate(getMutableProperties(), key, modProps.getProperty(key), 1);
                     if (ival != null)
                     {
                         modProps.setProperty(key, ival);
                     }
                 }
                 moduleProps.put(module, modProps);
+                putModuleSnapshot(module, new ConfigurationSnapshot(modProps));
             }
             else
             {
                 // log invalid request
                 warn("Requested configuration module: " + module + " not found");
+                // don't look for the file again on every request
+                putModuleSnapshot(module, ConfigurationSnapshot.MISSING);
             }
         }
         catch (IOException ioE)
@@ -611,6 +670,13 @@ public class ConfigurationManager
         }
     }
 
+    private static void putModuleSnapshot(String module, ConfigurationSnapshot modSnapshot)
+    {
+        Map<String, ConfigurationSnapshot> snapshots = new HashMap<String, ConfigurationSnapshot>(moduleSnapshots);
+        snapshots.put(module, modSnapshot);
+        moduleSnapshots = snapshots;
+    }
+
     /**
      * Load the DSpace configuration properties. Only does anything if
      * properties are not already loaded. Properties are loaded in from the
@@ -688,10 +754,12 @@ public class ConfigurationManager
             }
             else
             {
-                properties = new Properties();
+                // published only once completely loaded, so that a failed
+                // load doesn't leave a partial configuration behind
+                Properties loaded = new Properties();
                 is = url.openStream();
                 reader = new InputStreamReader(is, "UTF-8");
-                properties.load(reader);
+                loaded.load(reader);
 
                 // load all properties from the system which begin with the
                 // prefix
@@ -704,7 +772,7 @@ public class ConfigurationManager
                                 String propName = key.substring(DSpaceConfigurationService.DSPACE_PREFIX.length());
                                 String propVal = systemProps.getProperty(key);
                                 log.info("Loading system property as config: " + propName + "=>" + propVal);
-                                properties.put(propName, propVal);
+                                loaded.put(propName, propVal);
                             }
                         } catch (RuntimeException e) {
                             log.error("Failed to properly get config value from system property: " + o, e);
@@ -713,15 +781,18 @@ public class ConfigurationManager
                 }
                 
                 // walk values, interpolating any embedded references.
-                for (Enumeration<?> pe = properties.propertyNames(); pe.hasMoreElements(); )
+                for (Enumeration<?> pe = loaded.propertyNames(); pe.hasMoreElements(); )
                 {
                     String key = (String)pe.nextElement();
-                    String value = interpolate(key, properties.getProperty(key), 1);
+                    String value = interpolate(loaded, key, loaded.getProperty(key), 1);
                     if (value != null)
                     {
-                        properties.setProperty(key, value);
+                        loaded.setProperty(key, value);
                     }
                 }
+
+                snapshot = new ConfigurationSnapshot(loaded);
+                properties = loaded;
             }
 
         }
@@ -877,11 +948,12 @@ public class ConfigurationManager
 
     /**
      * Recursively interpolate variable references in value of
-     * property named "key".
+     * property named "key", the variables being read from (and their
+     * interpolated values stored in) the given properties.
      * @return new value if it contains interpolations, or null
      *   if it had no variable references.
      */
-    private static String interpolate(String key, String value, int level)
+    private static String interpolate(Properties variables, String key, String value, int level)
     {
         if (level > RECURSION_LIMIT)
         {
@@ -909,17 +981,17 @@ public class ConfigurationManager
                 {
                     result.append(value.substring(from, start));
                 }
-                if (properties.containsKey(var))
+                if (variables.containsKey(var))
                 {
-                    String ivalue = interpolate(var, properties.getProperty(var), level+1);
+                    String ivalue = interpolate(variables, var, variables.getProperty(var), level+1);
                     if (ivalue != null)
                     {
                         result.append(ivalue);
-                        properties.setProperty(var, ivalue);
+                        variables.setProperty(var, ivalue);
                     }
                     else
                     {
-                        result.append(((String)properties.getProperty(var)).trim());
+                        result.append(((String)variables.getProperty(var)).trim());
                     }
                 }
                 else
@@ -0,0 +1,131 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable copy of a set of configuration properties. The values are trimmed
+ * and parsed once, when the snapshot is built, so that the readers don't need
+ * to lock the underlying {@link Properties} nor to parse the values again.
+ * <P>
+ * A snapshot is never modified: {@link ConfigurationManager} builds one when
+ * the configuration, or a module configuration, is loaded and publishes it
+ * once complete.
+ */
+final class ConfigurationSnapshot
+{
+    /** Placeholder of a module without configuration file */
+    static final ConfigurationSnapshot MISSING = new ConfigurationSnapshot(new Properties());
+
+    private final Map<String, Value> values;
+
+    ConfigurationSnapshot(Properties properties)
+    {
+        Map<String, Value> map = new HashMap<String, Value>();
+        for (String key : properties.stringPropertyNames())
+        {
+            String value = properties.getProperty(key);
+            if (value != null)
+            {
+                map.put(key, new Value(value.trim()));
+            }
+        }
+        values = map;
+    }
+
+    /**
+     * @return the parsed value of the property, or <code>null</code> if the
+     *         property does not exist
+     */
+    Value get(String property)
+    {
+        return values.get(property);
+    }
+
+    /**
+     * @return the trimmed value of the property, or <code>null</code> if the
+     *         property does not exist
+     */
+    String getString(String property)
+    {
+        Value value = values.get(property);
+        return value == null ? null : value.getString();
+    }
+
+    int size()
+    {
+        return values.size();
+    }
+
+    /**
+     * A property value with its typed representations
+     */
+    static final class Value
+    {
+        private final String string;
+
+        private final Integer intValue;
+
+        private final Long longValue;
+
+        private final boolean booleanValue;
+
+        Value(String string)
+        {
+            this.string = string;
+            Long parsed = null;
+            try
+            {
+                parsed = Long.valueOf(string);
+            }
+            catch (NumberFormatException e)
+            {
+                // not a number
+            }
+            this.longValue = parsed;
+            this.intValue = parsed != null && parsed.longValue() == parsed.intValue()
+                    ? Integer.valueOf(parsed.intValue()) : null;
+            this.booleanValue = string.equalsIgnoreCase("true")
+                    || string.equalsIgnoreCase("yes");
+        }
+
+        String getString()
+        {
+            return string;
+        }
+
+        /**
+         * @return the value as an integer, <code>null</code> if it is not an
+         *         integer
+         */
+        Integer getIntValue()
+        {
+            return intValue;
+        }
+
+        /**
+         * @return the value as a long, <code>null</code> if it is not a long
+         */
+        Long getLongValue()
+        {
+            return longValue;
+        }
+
+        /**
+         * @return true if the value is <code>TRUE</code> or <code>YES</code>
+         *         (case insensitive)
+         */
+        boolean getBooleanValue()
+        {
+            return booleanValue;
+        }
+    }
+}
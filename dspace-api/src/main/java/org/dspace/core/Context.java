@@ -12,11 +12,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.EmptyStackException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Stack;
 
 import javax.naming.InitialContext;
@@ -32,6 +30,7 @@ import org.dspace.event.Dispatcher;
 import org.dspace.event.Event;
 import org.dspace.event.EventManager;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.SharedRowCache;
 
 /**
  * Class representing the context of a particular DSpace operation. This stores
@@ -85,7 +84,10 @@ public class Context
     private Stack<String> authStateClassCallHistory;
 
     /** Object cache for this context */
-    private Map<String, Object> objectCache;
+    private ObjectCache objectCache;
+
+    /** Whether the unmodified objects are evicted from the cache on commit */
+    private boolean batchMode = false;
 
     /** Group IDs of special groups user is a member of */
     private List<Integer> specialGroups;
@@ -93,6 +95,9 @@ public class Context
     /** Content events */
     private LinkedList<Event> events = null;
 
+    /** Whether the current transaction has written to the database */
+    private boolean pendingWrites = false;
+
     /** Event dispatcher name */
     private String dispName = null;
 
@@ -172,7 +177,7 @@ public class Context
         ignoreAuth = false;
         requiredItemWrapper = true;
 
-        objectCache = new HashMap<String, Object>();
+        objectCache = new ObjectCache(ConfigurationManager.getIntProperty("context.cache.max-objects", 0));
         specialGroups = new ArrayList<Integer>();
 
         authStateChangeHistory = new Stack<Boolean>();
@@ -411,6 +416,7 @@ public class Context
             // If connection is closed or null, this is a no-op
             DatabaseManager.freeConnection(connection);
             connection = null;
+            pendingWrites = false;
             clearCache();
         }
     }
@@ -462,10 +468,16 @@ public class Context
 				}
 			}
 
+			if (batchMode)
+			{
+				objectCache.evictUnmodified();
+			}
+
 		}
         finally
         {
             events = null;
+            pendingWrites = false;
             if (dispatcher != null)
             {
                 EventManager.returnDispatcher(dispName, dispatcher);
@@ -509,6 +521,11 @@ public class Context
         }
 
         events.add(event);
+
+        // the rows of the object are stale from now on, also for the other
+        // contexts if the change has already been written
+        SharedRowCache.invalidate(event.getSubjectType(), event.getSubjectID());
+        SharedRowCache.invalidate(event.getObjectType(), event.getObjectID());
     }
 
     /**
@@ -527,6 +544,25 @@ public class Context
         return !CollectionUtils.isEmpty(events);
     }
 
+    /**
+     * Record that the current transaction has written to the database. Until
+     * the transaction is committed or aborted this context doesn't read from
+     * the {@link SharedRowCache}, so that it always sees its own changes.
+     */
+    public void markPendingWrites()
+    {
+        pendingWrites = true;
+    }
+
+    /**
+     * @return true if the current transaction has written to the database, or
+     *         has raised events, and it is not committed yet
+     */
+    public boolean hasPendingWrites()
+    {
+        return pendingWrites || hasEvents();
+    }
+
     /**
      * Retrieves the first element in the events list & removes it from the list of events once retrieved
      * @return The first event of the list or <code>null</code> if the list is empty
@@ -586,6 +622,7 @@ public class Context
             }
             connection = null;
             events = null;
+            pendingWrites = false;
             clearCache();
         }
     }
@@ -628,9 +665,7 @@ public class Context
      */
     public Object fromCache(Class<?> objectClass, int id)
     {
-        String key = objectClass.getName() + id;
-
-        return objectCache.get(key);
+        return objectCache.get(objectClass, id);
     }
 
     /**
@@ -646,8 +681,7 @@ public class Context
         // bypass cache if in read-only mode
         if (! isReadOnly())
         {
-            String key = o.getClass().getName() + id;
-            objectCache.put(key, o);
+            objectCache.put(o, id);
         }
     }
 
@@ -661,8 +695,7 @@ public class Context
      */
     public void removeCached(Object o, int id)
     {
-        String key = o.getClass().getName() + id;
-        objectCache.remove(key);
+        objectCache.remove(o.getClass(), id);
     }
 
     /**
@@ -689,6 +722,66 @@ public class Context
         return objectCache.size();
     }
 
+    /**
+     * Get the number of objects evicted from the cache, because it was full
+     * or by the batch mode.
+     *
+     * @return the number of evicted objects
+     */
+    public long getCacheEvictions()
+    {
+        return objectCache.getEvictions();
+    }
+
+    /**
+     * Bound the object cache: when it is full the least recently used objects
+     * without changes not yet written are evicted. The default bound is
+     * <code>context.cache.max-objects</code>.
+     *
+     * @param maxObjects
+     *            the maximum number of cached objects, 0 for no limit
+     */
+    public void setCacheLimit(int maxObjects)
+    {
+        objectCache.setMaxSize(maxObjects);
+    }
+
+    /**
+     * @return the maximum number of cached objects, 0 or a negative value if
+     *         the cache is not bounded
+     */
+    public int getCacheLimit()
+    {
+        return objectCache.getMaxSize();
+    }
+
+    /**
+     * Switch the batch mode, for the long running processes that use the same
+     * context for many objects: after each commit the cached objects without
+     * changes not yet written are evicted, and the cache is bounded by
+     * <code>context.cache.batch.max-objects</code> (default 2000) if it is not
+     * bounded yet.
+     *
+     * @param batchMode
+     *            true to switch the batch mode on
+     */
+    public void setBatchMode(boolean batchMode)
+    {
+        this.batchMode = batchMode;
+        if (batchMode && getCacheLimit() <= 0)
+        {
+            setCacheLimit(ConfigurationManager.getIntProperty("context.cache.batch.max-objects", 2000));
+        }
+    }
+
+    /**
+     * @return true if the context is in batch mode
+     */
+    public boolean isBatchMode()
+    {
+        return batchMode;
+    }
+
     /**
      * set membership in a special group
      * 
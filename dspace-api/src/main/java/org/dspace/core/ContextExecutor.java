@@ -0,0 +1,176 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs tasks needing a DSpace context with a fixed number of threads. A
+ * context is not thread safe: each thread gets its own worker, created at its
+ * first task with a new context, and the tasks of the thread are given its
+ * worker. The worker holds the state of the thread, like objects found in its
+ * context or a pending batch.
+ * <P>
+ * The executor owns the contexts: {@link #finish()} waits for the tasks,
+ * completes the workers (see {@link #finishWorker(Object)}) and aborts the
+ * contexts left open, so that a context does not outlive the executor.
+ * {@link #close()} aborts them without completing the workers, after an
+ * error of the submitting thread. The connections used are at most the
+ * number of threads plus one, the submitting thread running the tasks when
+ * the queue is full.
+ *
+ * @param <W>
+ *            the type of the workers
+ */
+public abstract class ContextExecutor<W> extends BoundedExecutor
+{
+    /**
+     * A task run with the worker of its thread.
+     */
+    public interface WorkerTask<W>
+    {
+        void run(W worker) throws Exception;
+    }
+
+    private final ThreadLocal<W> current = new ThreadLocal<W>();
+
+    private final List<W> workers = Collections.synchronizedList(new ArrayList<W>());
+
+    private final List<Context> contexts = Collections.synchronizedList(new ArrayList<Context>());
+
+    /**
+     * @param name
+     *            prefix of the names of the threads
+     * @param threads
+     *            the number of threads, at least one
+     */
+    public ContextExecutor(String name, int threads)
+    {
+        super(name, threads);
+    }
+
+    /**
+     * Create the context of a thread. The default is a new context, to
+     * override for instance to set its user.
+     */
+    protected Context createContext() throws SQLException
+    {
+        return new Context();
+    }
+
+    /**
+     * Create the worker of a thread, at its first task.
+     *
+     * @param context
+     *            the context of the thread, owned by the executor
+     */
+    protected abstract W createWorker(Context context) throws Exception;
+
+    /**
+     * Complete the work of a thread once all the tasks are done, for instance
+     * to commit its last batch. This is called by the thread finishing the
+     * executor, for each worker, even when a task failed. The default does
+     * nothing: the contexts are aborted afterwards.
+     */
+    protected void finishWorker(W worker) throws Exception
+    {
+    }
+
+    /**
+     * Run a task with the worker of the thread running it, unless a task
+     * failed already.
+     */
+    public void execute(final WorkerTask<W> task)
+    {
+        execute(new Task()
+        {
+            @Override
+            public void run() throws Exception
+            {
+                task.run(getWorker());
+            }
+        });
+    }
+
+    private W getWorker() throws Exception
+    {
+        W worker = current.get();
+        if (worker == null)
+        {
+            Context context = createContext();
+            contexts.add(context);
+            worker = createWorker(context);
+            workers.add(worker);
+            current.set(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Wait for the submitted tasks to be done, complete the workers and abort
+     * the contexts left open. Throws the first failure of a task or of a
+     * worker.
+     */
+    @Override
+    public void finish() throws Exception
+    {
+        try
+        {
+            shutdown();
+            synchronized (workers)
+            {
+                for (W worker : workers)
+                {
+                    try
+                    {
+                        finishWorker(worker);
+                    }
+                    catch (Exception e)
+                    {
+                        fail(e);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            close();
+        }
+        if (getFailure() != null)
+        {
+            throw getFailure();
+        }
+    }
+
+    /**
+     * Wait for the submitted tasks to be done and abort the contexts left
+     * open, without completing the workers. This can be called again after
+     * {@link #finish()}.
+     */
+    public void close()
+    {
+        shutdown();
+        synchronized (contexts)
+        {
+            for (Context context : contexts)
+            {
+                if (context.isValid())
+                {
+                    context.abort();
+                }
+            }
+            contexts.clear();
+        }
+        workers.clear();
+        // the submitting thread may have run tasks
+        current.remove();
+    }
+}
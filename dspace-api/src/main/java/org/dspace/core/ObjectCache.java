@@ -0,0 +1,313 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.dspace.content.DSpaceObject;
+
+/**
+ * The object cache of a {@link Context}: the objects are looked up by class
+ * and ID, without building a key for each lookup, and the least recently used
+ * ones are evicted when the cache is bounded and full. The objects with
+ * changes not yet written (see {@link DSpaceObject#isModified()}) are never
+ * evicted, so the cache can exceed its bound when they are many.
+ * <P>
+ * It is not thread safe, as the context.
+ */
+final class ObjectCache
+{
+    private final Map<Class<?>, IntMap> maps = new HashMap<Class<?>, IntMap>();
+
+    /**
+     * Sentinel of the circular list of the cached objects, from the least
+     * recently used (head.next) to the most recently used (head.prev)
+     */
+    private final Node head = new Node(null, 0, null);
+
+    private int size = 0;
+
+    private int maxSize;
+
+    private long evictions = 0;
+
+    /**
+     * @param maxSize
+     *            the maximum number of cached objects, 0 or a negative value
+     *            for no limit
+     */
+    ObjectCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+        head.prev = head;
+        head.next = head;
+    }
+
+    Object get(Class<?> type, int id)
+    {
+        IntMap map = maps.get(type);
+        Node node = map == null ? null : map.get(id);
+        if (node == null)
+        {
+            return null;
+        }
+        unlink(node);
+        append(node);
+        return node.value;
+    }
+
+    void put(Object o, int id)
+    {
+        Class<?> type = o.getClass();
+        IntMap map = maps.get(type);
+        if (map == null)
+        {
+            map = new IntMap();
+            maps.put(type, map);
+        }
+        Node node = map.get(id);
+        if (node != null)
+        {
+            node.value = o;
+            unlink(node);
+        }
+        else
+        {
+            node = new Node(type, id, o);
+            map.put(id, node);
+            size++;
+        }
+        append(node);
+        evict();
+    }
+
+    void remove(Class<?> type, int id)
+    {
+        IntMap map = maps.get(type);
+        Node node = map == null ? null : map.remove(id);
+        if (node != null)
+        {
+            unlink(node);
+            size--;
+        }
+    }
+
+    void clear()
+    {
+        maps.clear();
+        head.prev = head;
+        head.next = head;
+        size = 0;
+    }
+
+    /**
+     * Evict all the objects without changes not yet written.
+     *
+     * @return the number of evicted objects
+     */
+    int evictUnmodified()
+    {
+        int evicted = 0;
+        Node node = head.next;
+        while (node != head)
+        {
+            Node next = node.next;
+            if (!isModified(node.value))
+            {
+                remove(node.type, node.id);
+                evicted++;
+            }
+            node = next;
+        }
+        evictions += evicted;
+        return evicted;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    void setMaxSize(int maxSize)
+    {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Evict the least recently used objects while the cache is over its bound
+     */
+    private void evict()
+    {
+        if (maxSize <= 0)
+        {
+            return;
+        }
+        Node node = head.next;
+        while (size > maxSize && node != head)
+        {
+            Node next = node.next;
+            if (!isModified(node.value))
+            {
+                remove(node.type, node.id);
+                evictions++;
+            }
+            node = next;
+        }
+    }
+
+    private static boolean isModified(Object o)
+    {
+        return o instanceof DSpaceObject && ((DSpaceObject) o).isModified();
+    }
+
+    private void append(Node node)
+    {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static void unlink(Node node)
+    {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node
+    {
+        private final Class<?> type;
+
+        private final int id;
+
+        private Object value;
+
+        private Node prev;
+
+        private Node next;
+
+        Node(Class<?> type, int id, Object value)
+        {
+            this.type = type;
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Open addressing hash map from int keys to nodes, with linear probing
+     */
+    private static final class IntMap
+    {
+        private int[] keys = new int[16];
+
+        private Node[] values = new Node[16];
+
+        private int size = 0;
+
+        Node get(int key)
+        {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask)
+            {
+                if (keys[i] == key)
+                {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, Node node)
+        {
+            if ((size + 1) * 2 > keys.length)
+            {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null && keys[i] != key)
+            {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null)
+            {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = node;
+        }
+
+        Node remove(int key)
+        {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null && keys[i] != key)
+            {
+                i = (i + 1) & mask;
+            }
+            Node removed = values[i];
+            if (removed == null)
+            {
+                return null;
+            }
+            values[i] = null;
+            size--;
+            // shift back the following entries of the probe sequence
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask)
+            {
+                int home = hash(keys[j]) & mask;
+                boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+                if (movable)
+                {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+            return removed;
+        }
+
+        private void resize(int capacity)
+        {
+            int[] oldKeys = keys;
+            Node[] oldValues = values;
+            keys = new int[capacity];
+            values = new Node[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldValues[i] != null)
+                {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(int key)
+        {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -17,11 +17,17 @@ import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -57,6 +63,10 @@ import org.apache.log4j.Logger;
  *  any characters except for comma (,) and equals (=).  It may contain
  *  embedded spaces.  Comma is a special character used to separate
  *  names in the configuration entry.
+ *  <p>
+ *  The plugin classes and the reusable instances are cached in concurrent
+ *  maps, so that looking up a plugin already used doesn't lock nor load
+ *  any class. The caches can be filled at startup with {@link #prewarm()}.
  *
  * @author Larry Stone
  * @see SelfNamedPlugin
@@ -99,7 +109,38 @@ public class PluginManager
 
     // Map of plugin class to "reusable" metric (as Boolean, must be Object)
     // Key is Class, value is Boolean (true by default).
-    private static Map<Class<Object>, Boolean> cacheMeCache = new HashMap<Class<Object>, Boolean>();
+    private static Map<Class<Object>, Boolean> cacheMeCache = new ConcurrentHashMap<Class<Object>, Boolean>();
+
+    // Map of plugin class names to the loaded classes, so that each class
+    // is resolved only once.
+    private static ConcurrentMap<String, Class> classCache = new ConcurrentHashMap<String, Class>();
+
+    // Number of plugin lookups, by interface name
+    private static ConcurrentMap<String, AtomicLong> lookupCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+    // Load a plugin class, from the cache if already loaded
+    private static Class loadClass(String classname)
+        throws ClassNotFoundException
+    {
+        Class pluginClass = classCache.get(classname);
+        if (pluginClass == null)
+        {
+            pluginClass = Class.forName(classname, true, loader);
+            classCache.putIfAbsent(classname, pluginClass);
+        }
+        return pluginClass;
+    }
+
+    private static void countLookup(String iname)
+    {
+        AtomicLong count = lookupCounts.get(iname);
+        if (count == null)
+        {
+            lookupCounts.putIfAbsent(iname, new AtomicLong());
+            count = lookupCounts.get(iname);
+        }
+        count.incrementAndGet();
+    }
 
     /**
      * Whether or not to cache instances of this class. Ironically,
@@ -169,6 +210,7 @@ public class PluginManager
         throws PluginConfigurationError, PluginInstantiationException
     {
         String iname = interfaceClass.getName();
+        countLookup(iname);
 
         // configuration format is  prefix.<interface> = <classname>
         String classname = getConfigProperty(module, SINGLE_PREFIX+iname);
@@ -185,7 +227,7 @@ public class PluginManager
 
     // cache of config data for Sequence Plugins; format its
     // <interface-name> -> [ <classname>.. ]  (value is Array)
-    private static Map<String, String[]> sequenceConfig = new HashMap<String, String[]>();
+    private static Map<String, String[]> sequenceConfig = new ConcurrentHashMap<String, String[]>();
 
     /**
      * Returns instances of all plugins that implement the interface
@@ -224,6 +266,7 @@ public class PluginManager
         // cache the configuration for this interface after grovelling it once:
         // format is  prefix.<interface> = <classname>
         String iname = intfc.getName();
+        countLookup(iname);
         String classname[] = null;
         if (!sequenceConfig.containsKey(iname))
         {
@@ -252,7 +295,7 @@ public class PluginManager
 
 
     // Map of cached (reusable) single plugin instances - class -> instance.
-    private static Map<Serializable, Object> anonymousInstanceCache = new HashMap<Serializable, Object>();
+    private static ConcurrentMap<Serializable, Object> anonymousInstanceCache = new ConcurrentHashMap<Serializable, Object>();
 
     // Get possibly-cached plugin instance for un-named plugin,
     // this is shared by Single and Sequence plugins.
@@ -261,14 +304,19 @@ public class PluginManager
     {
         try
         {
-            Class pluginClass = Class.forName(classname, true, loader);
+            Class pluginClass = loadClass(classname);
             if (cacheMe(module, pluginClass))
             {
                 Object cached = anonymousInstanceCache.get(pluginClass);
                 if (cached == null)
                 {
-                    cached = pluginClass.newInstance();
-                    anonymousInstanceCache.put(pluginClass, cached);
+                    Object created = pluginClass.newInstance();
+                    // another thread could have created it in the meantime
+                    cached = anonymousInstanceCache.putIfAbsent(pluginClass, created);
+                    if (cached == null)
+                    {
+                        cached = created;
+                    }
                 }
                 return cached;
             }
@@ -294,14 +342,28 @@ public class PluginManager
 
     // Map of named plugin classes, [intfc,name] -> class
     // Also contains intfc -> "marker" to mark when interface has been loaded.
-    private static Map<String, String> namedPluginClasses = new HashMap<String, String>();
+    private static Map<String, String> namedPluginClasses = new ConcurrentHashMap<String, String>();
 
     // Map of cached (reusable) named plugin instances, [class,name] -> instance
-    private static Map<Serializable, Object> namedInstanceCache = new HashMap<Serializable, Object>();
+    private static ConcurrentMap<Serializable, Object> namedInstanceCache = new ConcurrentHashMap<Serializable, Object>();
+
+    // Map of the same instances by [intfc,name], so that a plugin already
+    // looked up is found with a single read.
+    private static Map<String, Object> namedPluginCache = new ConcurrentHashMap<String, Object>();
 
     // load and cache configuration data for the given interface.
     private static void configureNamedPlugin(String module, String iname)
         throws ClassNotFoundException
+    {
+        // the marker key is added last, once the interface is configured
+        if (!namedPluginClasses.containsKey(iname))
+        {
+            configureNamedPluginOnce(module, iname);
+        }
+    }
+
+    private static synchronized void configureNamedPluginOnce(String module, String iname)
+        throws ClassNotFoundException
     {
         int found = 0;
 
@@ -355,7 +417,7 @@ public class PluginManager
                 {
                     try
                     {
-                        Class pluginClass = Class.forName(classnames[i], true, loader);
+                        Class pluginClass = loadClass(classnames[i]);
                         String names[] = (String[])pluginClass.getMethod("getPluginNames").
                                                    invoke(null);
                         if (names == null || names.length == 0)
@@ -441,8 +503,14 @@ public class PluginManager
         try
         {
             String iname = intfc.getName();
-            configureNamedPlugin(module, iname);
+            countLookup(iname);
             String key = iname + SEP + name;
+            Object found = namedPluginCache.get(key);
+            if (found != null)
+            {
+                return found;
+            }
+            configureNamedPlugin(module, iname);
             String cname = namedPluginClasses.get(key);
             if (cname == null)
             {
@@ -450,7 +518,7 @@ public class PluginManager
             }
             else
             {
-                Class pluginClass = Class.forName(cname, true, loader);
+                Class pluginClass = loadClass(cname);
                 if (cacheMe(module, pluginClass))
                 {
                     String nkey = pluginClass.getName() + SEP + name;
@@ -460,13 +528,19 @@ public class PluginManager
                         log.debug("Creating cached instance of: " + cname +
                                           " for interface=" + iname +
                                           " pluginName=" + name );
-                        cached = pluginClass.newInstance();
-                        if (cached instanceof SelfNamedPlugin)
+                        Object created = pluginClass.newInstance();
+                        if (created instanceof SelfNamedPlugin)
+                        {
+                            ((SelfNamedPlugin) created).setPluginInstanceName(name);
+                        }
+                        // another thread could have created it in the meantime
+                        cached = namedInstanceCache.putIfAbsent(nkey, created);
+                        if (cached == null)
                         {
-                            ((SelfNamedPlugin) cached).setPluginInstanceName(name);
+                            cached = created;
                         }
-                        namedInstanceCache.put(nkey, cached);
                     }
+                    namedPluginCache.put(key, cached);
                     return cached;
                 }
                 else
@@ -614,11 +688,12 @@ public class PluginManager
      */
     public static void releasePlugin(Object plugin)
     {
+        forgetInstance(plugin, namedPluginCache);
         forgetInstance(plugin, namedInstanceCache);
         forgetInstance(plugin, anonymousInstanceCache);
     }
 
-    private static void forgetInstance(Object plugin, Map<Serializable, Object> cacheMap)
+    private static void forgetInstance(Object plugin, Map<? extends Serializable, Object> cacheMap)
     {
         Collection values = cacheMap.values();
         Iterator ci = values.iterator();
@@ -628,11 +703,117 @@ public class PluginManager
             Object val = ci.next();
             if (val == plugin)
             {
-                values.remove(val);
+                ci.remove();
             }
         }
     }
 
+    /**
+     * Load the classes and create the reusable instances of all the plugins
+     * configured in dspace.cfg and in the module configurations, so that the
+     * first requests don't pay for it. Plugins that cannot be created are
+     * logged and skipped: they will fail again when requested.
+     */
+    public static void prewarm()
+    {
+        int count = prewarm(null);
+        for (String module : getModuleNames())
+        {
+            count += prewarm(module);
+        }
+        // the pre-warm doesn't count as usage
+        lookupCounts.clear();
+        log.info("Pre-warmed " + count + " plugins");
+    }
+
+    /**
+     * Pre-warm the plugins configured by a configuration file.
+     *
+     * @param module the module, or <code>null</code> for dspace.cfg
+     * @return the number of plugins created
+     */
+    private static int prewarm(String module)
+    {
+        int count = 0;
+        Enumeration<?> pne = ConfigurationManager.propertyNames(module);
+        while (pne != null && pne.hasMoreElements())
+        {
+            String key = (String) pne.nextElement();
+            try
+            {
+                if (key.startsWith(SINGLE_PREFIX))
+                {
+                    getSinglePlugin(module, loadClass(key.substring(SINGLE_PREFIX.length())));
+                    count++;
+                }
+                else if (key.startsWith(SEQUENCE_PREFIX))
+                {
+                    count += getPluginSequence(module, loadClass(key.substring(SEQUENCE_PREFIX.length()))).length;
+                }
+                else if (key.startsWith(NAMED_PREFIX) || key.startsWith(SELFNAMED_PREFIX))
+                {
+                    Class intfc = loadClass(key.substring(key.startsWith(NAMED_PREFIX) ?
+                            NAMED_PREFIX.length() : SELFNAMED_PREFIX.length()));
+                    for (String name : getAllPluginNames(module, intfc))
+                    {
+                        if (getNamedPlugin(module, intfc, name) != null)
+                        {
+                            count++;
+                        }
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                log.warn("Unable to pre-warm the plugins configured by " + key
+                        + (module == null ? "" : " in module " + module) + ": " + e.getMessage());
+            }
+            catch (PluginConfigurationError e)
+            {
+                log.warn("Unable to pre-warm the plugins configured by " + key
+                        + (module == null ? "" : " in module " + module) + ": " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the names of the modules having a configuration file in
+     *         [dspace]/config/modules
+     */
+    private static List<String> getModuleNames()
+    {
+        List<String> modules = new ArrayList<String>();
+        File[] files = new File(ConfigurationManager.getProperty("dspace.dir")
+                + File.separator + "config" + File.separator + "modules").listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                String name = file.getName();
+                if (file.isFile() && name.endsWith(".cfg"))
+                {
+                    modules.add(name.substring(0, name.length() - ".cfg".length()));
+                }
+            }
+        }
+        Collections.sort(modules);
+        return modules;
+    }
+
+    /**
+     * @return the number of plugin lookups since startup, by interface name
+     */
+    public static Map<String, Long> getLookupCounts()
+    {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : lookupCounts.entrySet())
+        {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
     /* -----------------------------------------------------------------
      *  Code to check configuration is all below this line
      * -----------------------------------------------------------------
@@ -643,7 +824,7 @@ public class PluginManager
     {
         try
         {
-            if (Class.forName(iname, true, loader) != null)
+            if (loadClass(iname) != null)
             {
                 return true;
             }
@@ -660,7 +841,7 @@ public class PluginManager
     {
         try
         {
-            if (!checkSelfNamed(Class.forName(iname, true, loader)))
+            if (!checkSelfNamed(loadClass(iname)))
             {
                 log.error("The class \"" + iname + "\" is NOT a subclass of SelfNamedPlugin but it should be!");
             }
@@ -997,12 +1178,14 @@ public class PluginManager
     /**
      * Refresh plugin, TODO need to introduce management of the lifecycle
      */
-    public static void refreshPlugin(){
+    public static synchronized void refreshPlugin(){
         cacheMeCache.clear(); 
         sequenceConfig.clear();
         anonymousInstanceCache.clear();
         namedPluginClasses.clear();
+        namedPluginCache.clear();
         namedInstanceCache.clear();
+        classCache.clear();
     }    
     
     /**
@@ -18,6 +18,7 @@ import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputSet;
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.content.Metadatum;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
@@ -48,7 +49,7 @@ public class RequiredMetadata extends AbstractCurationTask
         super.init(curator, taskId);
         try
         {
-            reader = new DCInputsReader();
+            reader = SubmissionConfigRegistry.getInputsReader();
         }
         catch (DCInputsReaderException dcrE)
         {
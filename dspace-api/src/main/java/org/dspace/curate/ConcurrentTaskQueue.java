@@ -0,0 +1,37 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * ConcurrentTaskQueue is a TaskQueue that allows more than one reader at
+ * the same time. Each reader claims a limited number of entries with its own
+ * ticket, the claimed entries are not visible to the other readers until
+ * released without removal.
+ */
+public interface ConcurrentTaskQueue extends TaskQueue
+{
+    /**
+     * Claims at most <code>max</code> unclaimed task entries from the named
+     * queue. Unlike {@link #dequeue(String, long)} the queue is not locked:
+     * other readers can claim the remaining entries with a different ticket.
+     *
+     * @param queueName
+     *        the name of the queue to read
+     * @param ticket
+     *        a unique token which must be presented to release the entries
+     * @param max
+     *        the maximum number of entries to claim
+     * @return set
+     *        the claimed task entries, empty if the queue is drained
+     * @throws IOException
+     */
+    Set<TaskQueueEntry> dequeue(String queueName, long ticket, int max) throws IOException;
+}
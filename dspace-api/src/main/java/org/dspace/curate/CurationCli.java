@@ -10,6 +10,7 @@ package org.dspace.curate;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -18,6 +19,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
 
 import org.dspace.content.Site;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.core.PluginManager;
 import org.dspace.eperson.EPerson;
@@ -52,6 +54,10 @@ public class CurationCli
                 "maximum number of objects allowed in context cache. If absent, no limit");
         options.addOption("s", "scope", true,
                 "transaction scope to impose: use 'object', 'curation', or 'open'. If absent, 'open' applies");
+        options.addOption("p", "parallel", true,
+                "number of threads processing the task queue. If absent, the queue is processed by a single thread");
+        options.addOption("R", "retries", true,
+                "number of additional attempts for a queue entry whose curation failed, used with -p. If absent, 0");
         options.addOption("v", "verbose", false,
                 "report activity to stdout");
         options.addOption("h", "help", false, "help");
@@ -66,6 +72,8 @@ public class CurationCli
         String reporterName = null;
         String limit = null;
         String scope = null;
+        String threads = null;
+        String retries = null;
         boolean verbose = false;
 
         if (line.hasOption('h'))
@@ -121,6 +129,16 @@ public class CurationCli
             scope = line.getOptionValue('s');
         }
 
+        if (line.hasOption('p'))
+        { // worker threads
+            threads = line.getOptionValue('p');
+        }
+
+        if (line.hasOption('R'))
+        { // retries
+            retries = line.getOptionValue('R');
+        }
+
         if (line.hasOption('v'))
         { // verbose
             verbose = true;
@@ -145,6 +163,12 @@ public class CurationCli
         	System.exit(1);
         }
         
+        if (threads != null && Integer.parseInt(threads) <= 0)
+        {
+            System.out.println("Number of threads '" + threads + "' must be a positive integer");
+            System.exit(1);
+        }
+
         if (scope != null && Curator.TxScope.valueOf(scope.toUpperCase()) == null)
     	{
         	System.out.println("Bad transaction scope '" + scope + "': only 'object', 'curation' or 'open' recognized");
@@ -251,6 +275,35 @@ public class CurationCli
                 System.out.println("No implementation configured for queue");
                 throw new UnsupportedOperationException("No queue service available");
             }
+            if (threads != null)
+            {
+                CurationQueueRunner runner = new CurationQueueRunner(queue, taskQueueName)
+                        .setThreads(Integer.parseInt(threads))
+                        .setBatchSize(ConfigurationManager.getIntProperty("curate", "taskqueue.batch-size", 10))
+                        .setMaxRetries(retries != null ? Integer.parseInt(retries) : 0)
+                        .setRetryDelay(ConfigurationManager.getLongProperty("curate", "taskqueue.retry-delay", 1000))
+                        .setEPersonName(ePersonName)
+                        .setReporter(reporterName)
+                        .setCacheLimit(limit != null ? Integer.valueOf(limit) : null)
+                        .setTransactionScope(scope != null ? Curator.TxScope.valueOf(scope.toUpperCase()) : null)
+                        .setVerbose(verbose);
+                long processed = runner.run();
+                long elapsed = System.currentTimeMillis() - start;
+                System.out.println("Processed " + processed + " queue entries with "
+                        + threads + " threads in " + elapsed + " ms");
+                for (Map.Entry<String, CurationQueueRunner.TaskStats> taskStats : runner.getStats().entrySet())
+                {
+                    CurationQueueRunner.TaskStats ts = taskStats.getValue();
+                    System.out.println("Task " + taskStats.getKey() + ": performed "
+                            + ts.getPerformed() + ", failed " + ts.getFailed()
+                            + ", retried " + ts.getRetried() + ", average "
+                            + Math.round(ts.getAverage()) + " ms, throughput "
+                            + (elapsed > 0 ? ts.getPerformed() * 1000 / elapsed : ts.getPerformed())
+                            + " entries/s");
+                }
+                c.complete();
+                return;
+            }
             // use current time as our reader 'ticket'
             long ticket = System.currentTimeMillis();
             Iterator<TaskQueueEntry> entryIter = queue.dequeue(taskQueueName, ticket).iterator();
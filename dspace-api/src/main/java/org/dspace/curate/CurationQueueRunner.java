@@ -0,0 +1,453 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+
+/**
+ * CurationQueueRunner drains a task queue with several worker threads. Each
+ * worker owns its Curator and curates every entry in a new Context, so that
+ * the transaction scope of the Curator is respected per thread: with 'object'
+ * or 'curation' scope the Curator commits as usual, with 'open' scope the
+ * work of each entry is committed before a batch of claimed entries is
+ * removed from the queue.
+ * <p>
+ * If the queue is a {@link ConcurrentTaskQueue} the workers claim small
+ * batches of entries with their own ticket, so that other nodes can drain the
+ * same queue. Otherwise the whole queue is read once and the entries are
+ * shared among the workers.
+ * <p>
+ * An entry whose curation throws an exception or ends with
+ * {@link Curator#CURATE_ERROR} is attempted again, waiting
+ * <code>retryDelay * 2^attempt</code> milliseconds between the attempts. The
+ * changes of a failed attempt are rolled back before the next one.
+ */
+public class CurationQueueRunner
+{
+    private static Logger log = Logger.getLogger(CurationQueueRunner.class);
+
+    private static final Random random = new Random();
+
+    private final TaskQueue queue;
+    private final String queueName;
+    private int threads = 1;
+    private int batchSize = 10;
+    private int maxRetries = 0;
+    private long retryDelay = 1000L;
+    private String ePersonName = null;
+    private String reporter = null;
+    private Integer cacheLimit = null;
+    private Curator.TxScope txScope = null;
+    private boolean verbose = false;
+
+    private final ConcurrentMap<String, TaskStats> stats = new ConcurrentHashMap<String, TaskStats>();
+
+    /**
+     * Throughput statistics of a curation task.
+     */
+    public static class TaskStats
+    {
+        private final AtomicLong performed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong retried = new AtomicLong();
+        private final AtomicLong elapsed = new AtomicLong();
+
+        public long getPerformed()
+        {
+            return performed.get();
+        }
+
+        public long getFailed()
+        {
+            return failed.get();
+        }
+
+        public long getRetried()
+        {
+            return retried.get();
+        }
+
+        /**
+         * @return the time spent performing the task in all the threads,
+         *         in milliseconds
+         */
+        public long getElapsed()
+        {
+            return elapsed.get();
+        }
+
+        /**
+         * @return the average time to perform the task on a queue entry
+         */
+        public double getAverage()
+        {
+            long count = performed.get();
+            return count > 0 ? (double) elapsed.get() / count : 0;
+        }
+    }
+
+    public CurationQueueRunner(TaskQueue queue, String queueName)
+    {
+        this.queue = queue;
+        this.queueName = queueName;
+    }
+
+    public CurationQueueRunner setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    public CurationQueueRunner setBatchSize(int batchSize)
+    {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    public CurationQueueRunner setMaxRetries(int maxRetries)
+    {
+        this.maxRetries = Math.max(0, maxRetries);
+        return this;
+    }
+
+    public CurationQueueRunner setRetryDelay(long retryDelay)
+    {
+        this.retryDelay = retryDelay;
+        return this;
+    }
+
+    public CurationQueueRunner setEPersonName(String ePersonName)
+    {
+        this.ePersonName = ePersonName;
+        return this;
+    }
+
+    public CurationQueueRunner setReporter(String reporter)
+    {
+        this.reporter = reporter;
+        return this;
+    }
+
+    public CurationQueueRunner setCacheLimit(Integer cacheLimit)
+    {
+        this.cacheLimit = cacheLimit;
+        return this;
+    }
+
+    public CurationQueueRunner setTransactionScope(Curator.TxScope txScope)
+    {
+        this.txScope = txScope;
+        return this;
+    }
+
+    public CurationQueueRunner setVerbose(boolean verbose)
+    {
+        this.verbose = verbose;
+        return this;
+    }
+
+    /**
+     * @return the statistics collected so far, by task name
+     */
+    public Map<String, TaskStats> getStats()
+    {
+        return new TreeMap<String, TaskStats>(stats);
+    }
+
+    /**
+     * Drain the queue, waiting for all the workers to end.
+     *
+     * @return the number of processed entries
+     * @throws Exception if a worker was unable to work
+     */
+    public long run() throws Exception
+    {
+        long ticket = -1L;
+        final ConcurrentLinkedQueue<TaskQueueEntry> shared;
+        if (queue instanceof ConcurrentTaskQueue)
+        {
+            shared = null;
+        }
+        else
+        {
+            ticket = System.currentTimeMillis();
+            shared = new ConcurrentLinkedQueue<TaskQueueEntry>(
+                    queue.dequeue(queueName, ticket));
+        }
+
+        final AtomicLong processed = new AtomicLong();
+        boolean completed = false;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<Future<?>>();
+        try
+        {
+            for (int i = 0; i < threads; i++)
+            {
+                workers.add(executor.submit(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            processed.addAndGet(work(shared));
+                        }
+                        catch (Exception e)
+                        {
+                            throw new IllegalStateException(e.getMessage(), e);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers)
+            {
+                worker.get();
+            }
+            completed = true;
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if (shared != null)
+            {
+                // keep the entries if a worker didn't complete
+                queue.release(queueName, ticket, completed);
+            }
+        }
+        return processed.get();
+    }
+
+    /**
+     * Process the entries of the queue in the current thread.
+     *
+     * @param shared
+     *            the entries to share with the other workers, null if the
+     *            worker must claim its own entries
+     * @return the number of processed entries
+     */
+    private long work(ConcurrentLinkedQueue<TaskQueueEntry> shared)
+            throws Exception
+    {
+        long processed = 0;
+        Curator curator = newCurator();
+        if (shared != null)
+        {
+            TaskQueueEntry entry;
+            while ((entry = shared.poll()) != null)
+            {
+                curate(curator, entry);
+                processed++;
+            }
+        }
+        else
+        {
+            ConcurrentTaskQueue cQueue = (ConcurrentTaskQueue) queue;
+            while (true)
+            {
+                long ticket = random.nextLong() & Long.MAX_VALUE;
+                Set<TaskQueueEntry> entries = cQueue.dequeue(queueName,
+                        ticket, batchSize);
+                if (entries.isEmpty())
+                {
+                    break;
+                }
+                try
+                {
+                    // the work of each entry is durable before the entries
+                    // are removed
+                    for (TaskQueueEntry entry : entries)
+                    {
+                        curate(curator, entry);
+                        processed++;
+                    }
+                    cQueue.release(queueName, ticket, true);
+                }
+                catch (Exception e)
+                {
+                    // make the entries available again
+                    cQueue.release(queueName, ticket, false);
+                    throw e;
+                }
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * @return a new Context acting as the configured EPerson, or with the
+     *         authorisation system turned off
+     */
+    private Context newContext() throws Exception
+    {
+        Context c = new Context();
+        try
+        {
+            if (ePersonName != null)
+            {
+                EPerson ePerson = EPerson.findByEmail(c, ePersonName);
+                c.setCurrentUser(ePerson);
+            }
+            else
+            {
+                c.turnOffAuthorisationSystem();
+            }
+            return c;
+        }
+        catch (Exception e)
+        {
+            c.abort();
+            throw e;
+        }
+    }
+
+    private Curator newCurator()
+    {
+        Curator curator = new Curator();
+        if (reporter != null)
+        {
+            curator.setReporter(reporter);
+        }
+        if (cacheLimit != null)
+        {
+            curator.setCacheLimit(cacheLimit);
+        }
+        if (txScope != null)
+        {
+            curator.setTransactionScope(txScope);
+        }
+        curator.setInvoked(Curator.Invoked.BATCH);
+        return curator;
+    }
+
+    /**
+     * Curate a queue entry, attempting again on failure. Each attempt runs in
+     * its own Context: the changes of a failed attempt are rolled back before
+     * the next one, the Context of the last attempt is completed.
+     */
+    private void curate(Curator curator, TaskQueueEntry entry)
+            throws Exception
+    {
+        if (verbose)
+        {
+            System.out.println("Curating id: " + entry.getObjectId());
+        }
+        for (int attempt = 0;; attempt++)
+        {
+            curator.clear();
+            Exception error = null;
+            Context c = newContext();
+            try
+            {
+                try
+                {
+                    // does entry relate to a DSO or workflow object?
+                    if (entry.getObjectId().indexOf("/") > 0)
+                    {
+                        for (String task : entry.getTaskNames())
+                        {
+                            curator.addTask(task);
+                        }
+                        curator.curate(c, entry.getObjectId());
+                    }
+                    else
+                    {
+                        // make eperson who queued task the effective user
+                        EPerson agent = EPerson.findByEmail(c, entry.getEpersonId());
+                        if (agent != null)
+                        {
+                            c.setCurrentUser(agent);
+                        }
+                        WorkflowCurator.curate(curator, c, entry.getObjectId());
+                    }
+                }
+                catch (Exception e)
+                {
+                    error = e;
+                }
+                boolean failed = error != null;
+                for (String task : entry.getTaskNames())
+                {
+                    failed |= curator.getStatus(task) == Curator.CURATE_ERROR;
+                }
+                boolean retry = failed && attempt < maxRetries;
+                collectStats(curator, entry, failed && !retry, retry);
+                if (!retry)
+                {
+                    if (error != null)
+                    {
+                        log.error("Unable to curate " + entry.getObjectId()
+                                + " from queue " + queueName, error);
+                    }
+                    c.complete();
+                    return;
+                }
+            }
+            finally
+            {
+                if (c.isValid())
+                {
+                    // discard the partial changes of the failed attempt
+                    c.abort();
+                }
+            }
+            log.warn("Curation of " + entry.getObjectId() + " failed, attempt "
+                    + (attempt + 1) + " of " + (maxRetries + 1));
+            Thread.sleep(retryDelay << attempt);
+        }
+    }
+
+    private void collectStats(Curator curator, TaskQueueEntry entry,
+            boolean failed, boolean retried)
+    {
+        for (String task : entry.getTaskNames())
+        {
+            long elapsed = curator.getElapsedTime(task);
+            if (elapsed < 0)
+            {
+                // task not performed
+                continue;
+            }
+            TaskStats taskStats = stats.get(task);
+            if (taskStats == null)
+            {
+                stats.putIfAbsent(task, new TaskStats());
+                taskStats = stats.get(task);
+            }
+            taskStats.elapsed.addAndGet(elapsed);
+            if (retried)
+            {
+                taskStats.retried.incrementAndGet();
+            }
+            else
+            {
+                taskStats.performed.incrementAndGet();
+                if (failed)
+                {
+                    taskStats.failed.incrementAndGet();
+                }
+            }
+        }
+    }
+}
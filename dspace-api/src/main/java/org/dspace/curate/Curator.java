@@ -348,6 +348,18 @@ public class Curator
         return (tr != null) ? tr.result : null;
     }
 
+    /**
+     * Returns the time spent performing the named task since it was added.
+     * 
+     * @param taskName the task name
+     * @return the elapsed time in milliseconds, -1 if the task is unknown
+     */
+    public long getElapsedTime(String taskName)
+    {
+        TaskRunner tr = trMap.get(taskName);
+        return (tr != null) ? tr.elapsed : -1L;
+    }
+
     /**
      * Assigns a result to the performance of the named task.
      * 
@@ -546,6 +558,7 @@ public class Curator
         ResolvedTask task = null;
         int statusCode = CURATE_UNSET;
         String result = null;
+        long elapsed = 0L;
 
         public TaskRunner(ResolvedTask task)
         {
@@ -560,7 +573,9 @@ public class Curator
                 {
                     throw new IOException("DSpaceObject is null");
                 }
+                long start = System.currentTimeMillis();
                 statusCode = task.perform(dso);
+                elapsed += System.currentTimeMillis() - start;
                 String id = (dso.getHandle() != null) ? dso.getHandle() : "workflow item: " + dso.getID();
                 log.info(logMessage(id));
                 visit(dso);
@@ -582,7 +597,9 @@ public class Curator
                 {
                     throw new IOException("Context or identifier is null");
                 }
+                long start = System.currentTimeMillis();
                 statusCode = task.perform(c, id);
+                elapsed += System.currentTimeMillis() - start;
                 log.info(logMessage(id));
                 visit(null);
                 return ! suspend(statusCode);
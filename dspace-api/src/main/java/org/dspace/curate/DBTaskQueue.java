@@ -0,0 +1,306 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * DBTaskQueue provides a TaskQueue implementation based on the
+ * curation_task_queue table. Entries are claimed row by row setting the
+ * reader ticket, so that several readers - threads or nodes - can drain the
+ * same queue at the same time. On PostgreSQL and Oracle the rows are locked
+ * with <code>FOR UPDATE SKIP LOCKED</code> so that concurrent readers don't
+ * wait for each other.
+ * <p>
+ * Entries claimed by a reader that never released them are made available
+ * again after <code>taskqueue.db.claim-timeout</code> seconds. The claims are
+ * not renewed while the entries are curated, so the timeout must exceed the
+ * time needed to curate a whole batch, otherwise other readers curate the
+ * same entries again.
+ */
+public class DBTaskQueue implements ConcurrentTaskQueue
+{
+    private static Logger log = Logger.getLogger(DBTaskQueue.class);
+
+    private static final String TABLE = "curation_task_queue";
+
+    private static final String FIND_QUEUES = "SELECT DISTINCT queue_name FROM curation_task_queue";
+
+    private static final String FIND_CLAIMABLE = "SELECT id FROM curation_task_queue WHERE queue_name = ? AND (ticket IS NULL OR claimed_date < ?)";
+
+    private static final String CLAIM_ALL = "UPDATE curation_task_queue SET ticket = ?, claimed_date = ? WHERE queue_name = ? AND (ticket IS NULL OR claimed_date < ?)";
+
+    private static final String FIND_CLAIMED = "SELECT * FROM curation_task_queue WHERE queue_name = ? AND ticket = ?";
+
+    private static final String DELETE_CLAIMED = "DELETE FROM curation_task_queue WHERE queue_name = ? AND ticket = ?";
+
+    private static final String UNCLAIM = "UPDATE curation_task_queue SET ticket = NULL, claimed_date = NULL WHERE queue_name = ? AND ticket = ?";
+
+    public DBTaskQueue()
+    {
+    }
+
+    @Override
+    public String[] queueNames()
+    {
+        List<String> names = new ArrayList<String>();
+        Context context = null;
+        TableRowIterator tri = null;
+        try
+        {
+            context = new Context();
+            tri = DatabaseManager.query(context, FIND_QUEUES);
+            while (tri.hasNext())
+            {
+                names.add(tri.next().getStringColumn("queue_name"));
+            }
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to list the curation task queues", e);
+        }
+        finally
+        {
+            if (tri != null)
+            {
+                tri.close();
+            }
+            abort(context);
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public void enqueue(String queueName, TaskQueueEntry entry)
+           throws IOException
+    {
+        Set<TaskQueueEntry> entrySet = new HashSet<TaskQueueEntry>();
+        entrySet.add(entry);
+        enqueue(queueName, entrySet);
+    }
+
+    @Override
+    public void enqueue(String queueName, Set<TaskQueueEntry> entrySet)
+           throws IOException
+    {
+        Context context = null;
+        try
+        {
+            context = new Context();
+            for (TaskQueueEntry entry : entrySet)
+            {
+                TableRow row = DatabaseManager.row(TABLE);
+                row.setColumn("queue_name", queueName);
+                row.setColumn("eperson_id", entry.getEpersonId());
+                row.setColumn("submit_time", entry.getSubmitTime());
+                row.setColumn("tasks", StringUtils.join(entry.getTaskNames(), ","));
+                row.setColumn("object_id", entry.getObjectId());
+                DatabaseManager.insert(context, row);
+            }
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+        finally
+        {
+            abort(context);
+        }
+    }
+
+    @Override
+    public Set<TaskQueueEntry> dequeue(String queueName, long ticket)
+           throws IOException
+    {
+        Context context = null;
+        try
+        {
+            context = new Context();
+            long now = System.currentTimeMillis();
+            DatabaseManager.updateQuery(context, CLAIM_ALL, ticket,
+                    new Timestamp(now), queueName, getClaimExpiration(now));
+            Set<TaskQueueEntry> entrySet = findClaimed(context, queueName, ticket);
+            context.complete();
+            return entrySet;
+        }
+        catch (SQLException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+        finally
+        {
+            abort(context);
+        }
+    }
+
+    @Override
+    public Set<TaskQueueEntry> dequeue(String queueName, long ticket, int max)
+           throws IOException
+    {
+        Context context = null;
+        TableRowIterator tri = null;
+        try
+        {
+            context = new Context();
+            long now = System.currentTimeMillis();
+            String dbms = DatabaseManager.getDbKeyword();
+            String query = FIND_CLAIMABLE;
+            if (DatabaseManager.DBMS_ORACLE.equals(dbms))
+            {
+                // ROWNUM is applied before the ordering, the oldest entries
+                // are not guaranteed to be claimed first
+                query += " AND ROWNUM <= ? ORDER BY id";
+            }
+            else
+            {
+                query += " ORDER BY id LIMIT ?";
+            }
+            Object[] params = new Object[] { queueName,
+                    getClaimExpiration(now), max };
+            query += getLockClause();
+
+            // lock the candidate rows, skipping the ones locked by other readers
+            List<Integer> ids = new ArrayList<Integer>();
+            tri = DatabaseManager.query(context, query, params);
+            while (tri.hasNext() && ids.size() < max)
+            {
+                ids.add(tri.next().getIntColumn("id"));
+            }
+            tri.close();
+            tri = null;
+
+            Set<TaskQueueEntry> entrySet = new HashSet<TaskQueueEntry>();
+            if (!ids.isEmpty())
+            {
+                List<Object> updateParams = new ArrayList<Object>();
+                updateParams.add(ticket);
+                updateParams.add(new Timestamp(now));
+                StringBuilder update = new StringBuilder(
+                        "UPDATE curation_task_queue SET ticket = ?, claimed_date = ? WHERE id IN (");
+                for (int i = 0; i < ids.size(); i++)
+                {
+                    update.append(i == 0 ? "?" : ", ?");
+                    updateParams.add(ids.get(i));
+                }
+                update.append(")");
+                DatabaseManager.updateQuery(context, update.toString(),
+                        updateParams.toArray());
+                entrySet = findClaimed(context, queueName, ticket);
+            }
+            context.complete();
+            return entrySet;
+        }
+        catch (SQLException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+        finally
+        {
+            if (tri != null)
+            {
+                tri.close();
+            }
+            abort(context);
+        }
+    }
+
+    @Override
+    public void release(String queueName, long ticket, boolean removeEntries)
+    {
+        Context context = null;
+        try
+        {
+            context = new Context();
+            DatabaseManager.updateQuery(context,
+                    removeEntries ? DELETE_CLAIMED : UNCLAIM, queueName, ticket);
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to release the entries of queue " + queueName
+                    + " claimed with ticket " + ticket, e);
+        }
+        finally
+        {
+            abort(context);
+        }
+    }
+
+    private Set<TaskQueueEntry> findClaimed(Context context, String queueName,
+            long ticket) throws SQLException
+    {
+        Set<TaskQueueEntry> entrySet = new HashSet<TaskQueueEntry>();
+        TableRowIterator tri = DatabaseManager.query(context, FIND_CLAIMED,
+                queueName, ticket);
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                entrySet.add(new TaskQueueEntry(row.getStringColumn("eperson_id"),
+                        row.getLongColumn("submit_time"),
+                        Arrays.asList(row.getStringColumn("tasks").split(",")),
+                        row.getStringColumn("object_id")));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return entrySet;
+    }
+
+    /**
+     * @return the clause to lock the claimed rows. SKIP LOCKED requires
+     *         PostgreSQL 9.5+, it can be disabled with
+     *         taskqueue.db.skip-locked = false: the readers will then wait for
+     *         each other but still claim distinct entries.
+     */
+    private String getLockClause()
+    {
+        String dbms = DatabaseManager.getDbKeyword();
+        if ((DatabaseManager.DBMS_POSTGRES.equals(dbms) || DatabaseManager.DBMS_ORACLE.equals(dbms))
+                && ConfigurationManager.getBooleanProperty("curate",
+                        "taskqueue.db.skip-locked", true))
+        {
+            return " FOR UPDATE SKIP LOCKED";
+        }
+        return " FOR UPDATE";
+    }
+
+    private Timestamp getClaimExpiration(long now)
+    {
+        return new Timestamp(now - ConfigurationManager.getIntProperty("curate",
+                "taskqueue.db.claim-timeout", 3600) * 1000L);
+    }
+
+    private void abort(Context context)
+    {
+        if (context != null && context.isValid())
+        {
+            context.abort();
+        }
+    }
+}
@@ -39,6 +39,13 @@ public class DiscoverQuery
     }
     private String sortField;
     private SORT_ORDER sortOrder;
+    private boolean sortByUniqueKey = false;
+
+    /** Solr cursor to page through the results instead of a start offset **/
+    private String cursorMark;
+
+    /** Whether the results are read from the stored fields, without loading them from the database **/
+    private boolean projection = false;
 
     /** Attributes required for the faceting of values **/
     private List<DiscoverFacetField> facetFields;
@@ -113,6 +120,59 @@ public class DiscoverQuery
         return sortOrder;
     }
 
+    /**
+     * Sort the results with the same sort value by their unique key, so that
+     * the order does not change between two queries
+     * 
+     * @param sortByUniqueKey
+     */
+    public void setSortByUniqueKey(boolean sortByUniqueKey)
+    {
+        this.sortByUniqueKey = sortByUniqueKey;
+    }
+
+    public boolean isSortByUniqueKey()
+    {
+        return sortByUniqueKey;
+    }
+
+    /**
+     * Sets the cursor to start the results from: "*" for the first result or
+     * the next cursor returned with a previous page (see
+     * {@link DiscoverResult#getNextCursorMark()}). The start offset is ignored
+     * and the results are sorted by their unique key after the sort field.
+     * 
+     * @param cursorMark the cursor, null to use the start offset
+     */
+    public void setCursorMark(String cursorMark)
+    {
+        this.cursorMark = cursorMark;
+    }
+
+    public String getCursorMark()
+    {
+        return cursorMark;
+    }
+
+    /**
+     * Read the results from the stored fields of the index instead of loading
+     * each DSpace object from the database. The objects are then only loaded
+     * by {@link DiscoverResult#getDspaceObjects()} and for the metadata that
+     * are not in <code>discovery.index.projection</code>, see
+     * {@link DiscoverResult#getProjectedObjects()}.
+     *
+     * @param projection true to read the results from the index
+     */
+    public void setProjection(boolean projection)
+    {
+        this.projection = projection;
+    }
+
+    public boolean isProjection()
+    {
+        return projection;
+    }
+
     /**
      * Sets the DSpace object filter, must be an DSpace Object type integer
      * can be used to only return objects from a certain DSpace Object type
@@ -21,6 +21,7 @@ public class DiscoverResult {
     private long totalSearchResults;
     private int start;
     private List<DSpaceObject> dspaceObjects;
+    private List<ProjectedDSpaceObject> projectedObjects;
     private Map<String, List<FacetResult>> facetResults;
     private Map<String, List<FacetResult>> facetQueryResults;
     private Map<String, List<FacetResult>> facetFieldResults;
@@ -32,15 +33,19 @@ public class DiscoverResult {
     private Map<String, DSpaceObjectHighlightResult> highlightedResults;
     private String spellCheckQuery;
     private Map<String, List<DSpaceObject>> collapsingResults;     
+    private Map<String, List<ProjectedDSpaceObject>> collapsingProjections;
+    private String nextCursorMark;
 
     public DiscoverResult() {
         dspaceObjects = new ArrayList<DSpaceObject>();
+        projectedObjects = new ArrayList<ProjectedDSpaceObject>();
         facetResults = new LinkedHashMap<String, List<FacetResult>>();
         facetQueryResults = new LinkedHashMap<String, List<FacetResult>>();
         facetFieldResults = new LinkedHashMap<String, List<FacetResult>>();
         searchDocuments = new LinkedHashMap<String, List<SearchDocument>>();
         highlightedResults = new HashMap<String, DSpaceObjectHighlightResult>();
         collapsingResults = new LinkedHashMap<String, List<DSpaceObject>>();
+        collapsingProjections = new LinkedHashMap<String, List<ProjectedDSpaceObject>>();
     }
 
 
@@ -48,10 +53,51 @@ public class DiscoverResult {
         this.dspaceObjects.add(dso);
     }
 
+    /**
+     * @return the DSpace objects of the results; with a projection query (see
+     *         {@link DiscoverQuery#setProjection(boolean)}) they are loaded
+     *         from the database by the first call
+     */
     public List<DSpaceObject> getDspaceObjects() {
+        if (dspaceObjects.isEmpty() && !projectedObjects.isEmpty())
+        {
+            for (ProjectedDSpaceObject projected : projectedObjects)
+            {
+                DSpaceObject dso = projected.getDSpaceObject();
+                if (dso != null)
+                {
+                    dspaceObjects.add(dso);
+                }
+            }
+        }
         return dspaceObjects;
     }
 
+    public void addProjectedObject(ProjectedDSpaceObject projected){
+        this.projectedObjects.add(projected);
+    }
+
+    /**
+     * @return the results as read from the index, which only load their
+     *         DSpace object when needed; empty unless the query is a
+     *         projection query
+     */
+    public List<ProjectedDSpaceObject> getProjectedObjects() {
+        return projectedObjects;
+    }
+
+    /**
+     * @return the cursor of the result following this page, if the query used
+     *         a cursor (see {@link DiscoverQuery#setCursorMark(String)})
+     */
+    public String getNextCursorMark() {
+        return nextCursorMark;
+    }
+
+    public void setNextCursorMark(String nextCursorMark) {
+        this.nextCursorMark = nextCursorMark;
+    }
+
     public long getTotalSearchResults() {
         return totalSearchResults;
     }
@@ -140,12 +186,12 @@ public class DiscoverResult {
         return facetResults.get(facet) == null ? new ArrayList<FacetResult>() : facetResults.get(facet);
     }
 
-    public DSpaceObjectHighlightResult getHighlightedResults(DSpaceObject dso)
+    public DSpaceObjectHighlightResult getHighlightedResults(IGlobalSearchResult dso)
     {
         return highlightedResults.get(dso.getHandle());
     }
 
-    public void addHighlightedResult(DSpaceObject dso, DSpaceObjectHighlightResult highlightedResult)
+    public void addHighlightedResult(IGlobalSearchResult dso, DSpaceObjectHighlightResult highlightedResult)
     {
         this.highlightedResults.put(dso.getHandle(), highlightedResult);
     }
@@ -210,6 +256,7 @@ public class DiscoverResult {
     public static final class DSpaceObjectHighlightResult
     {
         private DSpaceObject dso;
+        private ProjectedDSpaceObject projected;
         private Map<String, List<String>> highlightResults;
         private Map<String, List<String[]>> highlightResultsWithAuthority;
         
@@ -220,8 +267,18 @@ public class DiscoverResult {
             this.highlightResultsWithAuthority = highlightResultsWithAuthority;
         }
 
+        public DSpaceObjectHighlightResult(ProjectedDSpaceObject projected, Map<String, List<String>> highlightResults, Map<String, List<String[]>> highlightResultsWithAuthority)
+        {
+            this((DSpaceObject) null, highlightResults, highlightResultsWithAuthority);
+            this.projected = projected;
+        }
+
         public DSpaceObject getDso()
         {
+            if (dso == null && projected != null)
+            {
+                return projected.getDSpaceObject();
+            }
             return dso;
         }
 
@@ -236,7 +293,7 @@ public class DiscoverResult {
         }
     }
 
-    public void addSearchDocument(DSpaceObject dso, SearchDocument searchDocument){
+    public void addSearchDocument(IGlobalSearchResult dso, SearchDocument searchDocument){
         String dsoString = SearchDocument.getDspaceObjectStringRepresentation(dso);
         List<SearchDocument> docs = searchDocuments.get(dsoString);
         if(docs == null){
@@ -251,7 +308,7 @@ public class DiscoverResult {
      * @param dso the dspace object we want our search documents for
      * @return the search documents list
      */
-    public List<SearchDocument> getSearchDocument(DSpaceObject dso){
+    public List<SearchDocument> getSearchDocument(IGlobalSearchResult dso){
         String dsoString = SearchDocument.getDspaceObjectStringRepresentation(dso);
         List<SearchDocument> result = searchDocuments.get(dsoString);
         if(result == null){
@@ -261,10 +318,34 @@ public class DiscoverResult {
         }
     }
 
+    /**
+     * @return the DSpace objects of the collapsed groups; with a projection
+     *         query they are loaded from the database by the first call
+     */
     public Map<String, List<DSpaceObject>> getCollapsingResults() {
+        if (collapsingResults.isEmpty() && !collapsingProjections.isEmpty())
+        {
+            for (Map.Entry<String, List<ProjectedDSpaceObject>> group : collapsingProjections.entrySet())
+            {
+                List<DSpaceObject> dsos = new ArrayList<DSpaceObject>();
+                for (ProjectedDSpaceObject projected : group.getValue())
+                {
+                    DSpaceObject dso = projected.getDSpaceObject();
+                    if (dso != null)
+                    {
+                        dsos.add(dso);
+                    }
+                }
+                collapsingResults.put(group.getKey(), dsos);
+            }
+        }
 		return collapsingResults;
 	}
 
+    public Map<String, List<ProjectedDSpaceObject>> getCollapsingProjections() {
+        return collapsingProjections;
+    }
+
 
 	public void setCollapsingResults(Map<String, List<DSpaceObject>> collapsingResults) {
 		this.collapsingResults = collapsingResults;
@@ -300,7 +381,7 @@ public class DiscoverResult {
                 return searchFields.get(field);
         }
 
-        public static String getDspaceObjectStringRepresentation(DSpaceObject dso){
+        public static String getDspaceObjectStringRepresentation(IGlobalSearchResult dso){
             return dso.getType() + ":" + dso.getID();
         }
     }
@@ -313,4 +394,13 @@ public class DiscoverResult {
 		added.add(dso);
 		this.collapsingResults.put(name, added);
 	}
+
+	public void addCollapsingProjection(String name, ProjectedDSpaceObject projected) {
+		List<ProjectedDSpaceObject> added = this.collapsingProjections.get(name);
+		if (added == null) {
+			added = new ArrayList<ProjectedDSpaceObject>();
+			this.collapsingProjections.put(name, added);
+		}
+		added.add(projected);
+	}
 }
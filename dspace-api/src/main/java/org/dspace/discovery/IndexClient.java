@@ -55,6 +55,7 @@ public class IndexClient {
 
         Context context = new Context();
         context.turnOffAuthorisationSystem();
+        context.setBatchMode(true);
 
         String usage = "org.dspace.discovery.IndexClient [-cbhf[r <item handle>]] or nothing to update/clean an existing index.";
         Options options = new Options();
@@ -0,0 +1,125 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.Arrays;
+
+/**
+ * The time at which each item was last indexed, by item ID. Keys and values
+ * are kept in primitive arrays with open addressing, so that the timestamps of
+ * millions of items can be held while looking for the stale ones, see
+ * {@link SolrServiceImpl#findStaleItemIDs}.
+ */
+class IndexTimestamps
+{
+    /** Returned by {@link #get} for the items that are not in the index */
+    static final long MISSING = Long.MIN_VALUE;
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+
+    private long[] values;
+
+    private int size;
+
+    IndexTimestamps(int expectedSize)
+    {
+        allocate(capacityFor(Math.max(16, expectedSize)));
+    }
+
+    /**
+     * @param id
+     *            The ID of the item, not negative
+     * @param timestamp
+     *            The time at which it was last indexed, in milliseconds
+     */
+    void put(int id, long timestamp)
+    {
+        if (id < 0)
+        {
+            throw new IllegalArgumentException("Negative item ID: " + id);
+        }
+        if ((size + 1) * 2 > keys.length)
+        {
+            rehash(keys.length * 2);
+        }
+        int slot = slot(id);
+        if (keys[slot] == FREE)
+        {
+            keys[slot] = id;
+            size++;
+        }
+        values[slot] = timestamp;
+    }
+
+    /**
+     * @return the time at which the item was last indexed, or
+     *         {@link #MISSING}
+     */
+    long get(int id)
+    {
+        if (id < 0)
+        {
+            return MISSING;
+        }
+        int slot = slot(id);
+        return keys[slot] == FREE ? MISSING : values[slot];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the slot of the key, or the free slot where it would be stored
+     */
+    private int slot(int id)
+    {
+        int mask = keys.length - 1;
+        // spread the consecutive IDs over the table
+        int slot = (id * 0x9E3779B9) & mask;
+        while (keys[slot] != FREE && keys[slot] != id)
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != FREE)
+            {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new long[capacity];
+    }
+
+    /**
+     * @return the power of two holding the entries at most half full
+     */
+    private static int capacityFor(int entries)
+    {
+        return Integer.highestOneBit(entries * 2 - 1) << 1;
+    }
+}
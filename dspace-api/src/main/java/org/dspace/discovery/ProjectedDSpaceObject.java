@@ -0,0 +1,371 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.common.SolrDocument;
+import org.dspace.browse.BrowsableDSpaceObject;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.Metadatum;
+import org.dspace.content.authority.Choices;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.util.ItemUtils;
+import org.dspace.utils.DSpace;
+
+/**
+ * A search result read from the stored fields of its Solr document. The
+ * metadata of the items listed in <code>discovery.index.projection</code> are
+ * read from their <code>_stored</code> fields; anything else loads the
+ * DSpace object from the database, once, see {@link #getDSpaceObject()}.
+ * <p/>
+ * The projected metadata are the ones indexed: the values of the ignored
+ * metadata fields and the placeholders of the nested metadata are not
+ * projected.
+ */
+public class ProjectedDSpaceObject implements BrowsableDSpaceObject
+{
+    private static final Logger log = Logger.getLogger(ProjectedDSpaceObject.class);
+
+    private static final String STORED_SUFFIX = "_stored";
+
+    private final Context context;
+
+    private final SolrServiceImpl searchService;
+
+    private final SolrDocument document;
+
+    private final int type;
+
+    private final int id;
+
+    private final String handle;
+
+    private final List<String> projection;
+
+    private final Map<String, Object> extraInfo = new HashMap<String, Object>();
+
+    private DSpaceObject dso;
+
+    private boolean hydrated;
+
+    private List<Metadatum> metadata;
+
+    /**
+     * @param context
+     *            the context to load the DSpace object with, if needed
+     * @param searchService
+     *            the service which found the document
+     * @param document
+     *            the Solr document of the result
+     * @param projection
+     *            the projected metadata fields, see
+     *            {@link #getProjectionFields()}
+     */
+    ProjectedDSpaceObject(Context context, SolrServiceImpl searchService,
+            SolrDocument document, List<String> projection)
+    {
+        this.context = context;
+        this.searchService = searchService;
+        this.document = document;
+        this.projection = projection;
+        Object typeValue = document.getFirstValue(SolrServiceImpl.RESOURCE_TYPE_FIELD);
+        Object idValue = document.getFirstValue(SolrServiceImpl.RESOURCE_ID_FIELD);
+        this.type = typeValue instanceof Integer ? (Integer) typeValue : -1;
+        this.id = idValue instanceof Integer ? (Integer) idValue : -1;
+        this.handle = (String) document.getFirstValue(SolrServiceImpl.HANDLE_FIELD);
+        for (String f : document.getFieldNames())
+        {
+            extraInfo.put(f, document.getFirstValue(f));
+        }
+    }
+
+    /**
+     * @return the DSpace object of the result, loaded from the database on
+     *         the first call, or null if it does not exist anymore
+     */
+    public DSpaceObject getDSpaceObject()
+    {
+        if (!hydrated)
+        {
+            hydrated = true;
+            try
+            {
+                dso = searchService.findDSpaceObject(context, document);
+            }
+            catch (SQLException e)
+            {
+                log.error("Error while retrieving DSpace object " + type + "-" + id, e);
+            }
+        }
+        return dso;
+    }
+
+    /**
+     * @return true if the DSpace object was loaded from the database
+     */
+    public boolean isHydrated()
+    {
+        return hydrated;
+    }
+
+    /**
+     * @return the Solr document of the result
+     */
+    public SolrDocument getDocument()
+    {
+        return document;
+    }
+
+    /**
+     * @return the id of the thumbnail of the item (the first bitstream of its
+     *         BRANDED_PREVIEW bundle), or -1 if it has none
+     */
+    public int getPreviewBitstreamID()
+    {
+        Object preview = document.getFirstValue(SolrServiceImpl.PREVIEW_BITSTREAM_ID_FIELD);
+        return preview != null ? Integer.parseInt(String.valueOf(preview)) : -1;
+    }
+
+    /**
+     * @return the name of the thumbnail of the item, or null if it has none
+     */
+    public String getPreviewBitstreamName()
+    {
+        return (String) document.getFirstValue(SolrServiceImpl.PREVIEW_BITSTREAM_NAME_FIELD);
+    }
+
+    @Override
+    public int getType()
+    {
+        return type;
+    }
+
+    @Override
+    public int getID()
+    {
+        return id;
+    }
+
+    @Override
+    public String getHandle()
+    {
+        return handle;
+    }
+
+    @Override
+    public String getTypeText()
+    {
+        if (type >= 0 && type < Constants.typeText.length)
+        {
+            return Constants.typeText[type];
+        }
+        DSpaceObject o = getDSpaceObject();
+        return o != null ? o.getTypeText() : null;
+    }
+
+    @Override
+    public Map<String, Object> getExtraInfo()
+    {
+        return extraInfo;
+    }
+
+    @Override
+    public boolean isWithdrawn()
+    {
+        Object withdrawn = document.getFirstValue("withdrawn");
+        if (withdrawn != null)
+        {
+            return Boolean.valueOf(String.valueOf(withdrawn));
+        }
+        DSpaceObject o = getDSpaceObject();
+        return o != null && o.isWithdrawn();
+    }
+
+    @Override
+    public boolean isArchived()
+    {
+        if (type == Constants.ITEM)
+        {
+            // only the archived and withdrawn items are indexed
+            return !isWithdrawn();
+        }
+        DSpaceObject o = getDSpaceObject();
+        return o instanceof BrowsableDSpaceObject && ((BrowsableDSpaceObject) o).isArchived();
+    }
+
+    @Override
+    public boolean isDiscoverable()
+    {
+        Object discoverable = document.getFirstValue("discoverable");
+        if (discoverable != null)
+        {
+            return Boolean.valueOf(String.valueOf(discoverable));
+        }
+        DSpaceObject o = getDSpaceObject();
+        return o instanceof BrowsableDSpaceObject && ((BrowsableDSpaceObject) o).isDiscoverable();
+    }
+
+    @Override
+    public Metadatum[] getMetadata(String schema, String element,
+            String qualifier, String lang)
+    {
+        if (!isProjected(schema, element, qualifier))
+        {
+            DSpaceObject o = getDSpaceObject();
+            if (o instanceof BrowsableDSpaceObject)
+            {
+                return ((BrowsableDSpaceObject) o).getMetadata(schema, element, qualifier, lang);
+            }
+            return o != null ? o.getMetadata(schema, element, qualifier, lang) : new Metadatum[0];
+        }
+
+        List<Metadatum> values = new ArrayList<Metadatum>();
+        for (Metadatum dcv : getProjectedMetadata())
+        {
+            if (schema.equals(dcv.schema)
+                    && ItemUtils.match(schema, element, qualifier, lang, dcv))
+            {
+                values.add(dcv);
+            }
+        }
+        return values.toArray(new Metadatum[values.size()]);
+    }
+
+    /**
+     * @param mdString
+     *            the metadata field, as schema.element[.qualifier|.*]
+     */
+    @Override
+    public Metadatum[] getMetadataValueInDCFormat(String mdString)
+    {
+        String[] tokens = { "", "", "" };
+        String[] split = mdString.split("\\.");
+        for (int i = 0; i < split.length && i < tokens.length; i++)
+        {
+            tokens[i] = split[i].trim();
+        }
+        String qualifier = tokens[2];
+        if ("".equals(qualifier))
+        {
+            qualifier = null;
+        }
+        return getMetadata(tokens[0], tokens[1], qualifier, Item.ANY);
+    }
+
+    @Override
+    public List<String> getMetadataValue(String mdString)
+    {
+        List<String> results = new ArrayList<String>();
+        for (Metadatum dcValue : getMetadataValueInDCFormat(mdString))
+        {
+            results.add(dcValue.value);
+        }
+        return results;
+    }
+
+    /**
+     * @return true if all the values of the field are stored in the index,
+     *         see <code>discovery.index.projection</code>
+     */
+    protected boolean isProjected(String schema, String element, String qualifier)
+    {
+        if (type != Constants.ITEM || StringUtils.isBlank(schema) || StringUtils.isBlank(element)
+                || Item.ANY.equals(schema) || Item.ANY.equals(element))
+        {
+            return false;
+        }
+        String field = schema + "." + element;
+        if (projection.contains(field + "." + Item.ANY))
+        {
+            return true;
+        }
+        if (qualifier == null)
+        {
+            return projection.contains(field);
+        }
+        return !Item.ANY.equals(qualifier) && projection.contains(field + "." + qualifier);
+    }
+
+    /**
+     * Parse the <code>_stored</code> fields of the document, written by
+     * {@link SolrServiceImpl} as value, preferred label, variants, authority
+     * and language.
+     */
+    private List<Metadatum> getProjectedMetadata()
+    {
+        if (metadata != null)
+        {
+            return metadata;
+        }
+        metadata = new ArrayList<Metadatum>();
+        for (String name : document.getFieldNames())
+        {
+            if (!name.endsWith(STORED_SUFFIX))
+            {
+                continue;
+            }
+            String[] field = name.substring(0, name.length() - STORED_SUFFIX.length()).split("\\.", 3);
+            if (field.length < 2)
+            {
+                continue;
+            }
+            Collection<Object> stored = document.getFieldValues(name);
+            for (Object value : stored)
+            {
+                String[] parts = StringUtils.splitByWholeSeparatorPreserveAllTokens(
+                        String.valueOf(value), SolrServiceImpl.STORE_SEPARATOR);
+                Metadatum dcv = new Metadatum();
+                dcv.schema = field[0];
+                dcv.element = field[1];
+                dcv.qualifier = field.length > 2 ? field[2] : null;
+                dcv.value = parts[0];
+                dcv.authority = parts.length > 3 ? nullable(parts[3]) : null;
+                dcv.language = parts.length > 4 ? nullable(parts[4]) : null;
+                if (dcv.authority != null)
+                {
+                    dcv.confidence = Choices.CF_ACCEPTED;
+                }
+                metadata.add(dcv);
+            }
+        }
+        return metadata;
+    }
+
+    private static String nullable(String stored)
+    {
+        return "null".equals(stored) || stored.length() == 0 ? null : stored;
+    }
+
+    /**
+     * @return the metadata fields listed in
+     *         <code>discovery.index.projection</code>
+     */
+    static List<String> getProjectionFields()
+    {
+        List<String> fields = new ArrayList<String>();
+        String projection = new DSpace().getConfigurationService().getProperty("discovery.index.projection");
+        if (projection != null)
+        {
+            for (String field : projection.split(","))
+            {
+                fields.add(field.trim());
+            }
+        }
+        return fields;
+    }
+}
@@ -9,10 +9,13 @@ package org.dspace.discovery;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -30,6 +33,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -48,7 +52,6 @@ import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
 import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.Group;
@@ -60,6 +63,7 @@ import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.FacetParams;
 import org.apache.solr.common.params.HighlightParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -100,7 +104,10 @@ import org.dspace.discovery.configuration.DiscoverySortConfiguration;
 import org.dspace.discovery.configuration.DiscoverySortFieldConfiguration;
 import org.dspace.discovery.configuration.HierarchicalSidebarFacetConfiguration;
 import org.dspace.handle.HandleManager;
+import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.DatabaseUtils;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
 import org.dspace.util.MultiFormatDateParser;
 import org.dspace.utils.DSpace;
 import org.springframework.stereotype.Service;
@@ -134,6 +141,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     protected static final String HANDLE_FIELD = "handle";
     protected static final String RESOURCE_TYPE_FIELD = "search.resourcetype";
     protected static final String RESOURCE_ID_FIELD = "search.resourceid";
+    protected static final String PREVIEW_BITSTREAM_ID_FIELD = "preview.bitstream.id";
+    protected static final String PREVIEW_BITSTREAM_NAME_FIELD = "preview.bitstream.name";
 
     public static final String FILTER_SEPARATOR = "\n|||\n";
     public static final String ESCAPED_FILTER_SEPARATOR = "\n\\|\\|\\|\n";
@@ -149,6 +158,31 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      */
     private HttpSolrServer solr = null;
 
+    /**
+     * Documents waiting to be sent to Solr in a single request, guarded by
+     * itself. Documents are only buffered during a bulk run, see
+     * {@link #beginBulk()}.
+     */
+    private final List<SolrInputDocument> pendingDocuments = new ArrayList<SolrInputDocument>();
+
+    /** Characters of full text of the pending documents, guarded by pendingDocuments */
+    private long pendingChars;
+
+    /** Number of batches taken from pendingDocuments, guarded by pendingDocuments */
+    private long batchesTaken;
+
+    /**
+     * Number of batches sent to Solr, guarded by sendOrder. The batches are
+     * sent one at a time, in the order they were taken, so that an older
+     * version of a document never overwrites a newer one.
+     */
+    private long batchesSent;
+
+    private final Object sendOrder = new Object();
+
+    /** Number of bulk runs in progress */
+    private final AtomicInteger bulkRuns = new AtomicInteger();
+
 
     protected HttpSolrServer getSolr()
     {
@@ -306,6 +340,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 return;
             }
             String uniqueID = dso.getType()+"-"+dso.getID();
+            // a buffered add must not be applied after the deletion
+            flushPendingDocuments();
             getSolr().deleteById(uniqueID);
             if(commit)
             {
@@ -342,6 +378,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         try {
             if(getSolr() != null){
+                flushPendingDocuments();
                 getSolr().deleteByQuery(HANDLE_FIELD + ":\"" + handle + "\"");
                 if(commit)
                 {
@@ -417,9 +454,17 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     @Override
     public void updateIndex(Context context, boolean force)
     {
-        updateIndex(context, force, Constants.ITEM);
-        updateIndex(context, force, Constants.COLLECTION);
-        updateIndex(context, force, Constants.COMMUNITY);
+        beginBulk();
+        try
+        {
+            updateIndex(context, force, Constants.ITEM);
+            updateIndex(context, force, Constants.COLLECTION);
+            updateIndex(context, force, Constants.COMMUNITY);
+        }
+        finally
+        {
+            endBulkAndCommit();
+        }
     }
 
     
@@ -427,19 +472,41 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         if(type!=Constants.ITEM) {
             throw new RuntimeException("Only ITEM is supported in this mode - type founded: " + type);
         }
-        startMultiThreadIndex(force, ids);
+        beginBulk();
+        try
+        {
+            startMultiThreadIndex(force, ids);
+        }
+        finally
+        {
+            endBulkAndCommit();
+        }
     }
     
     @Override
     public void updateIndex(Context context, boolean force, int type)
     {
+        beginBulk();
         try
         {
             switch (type)
             {
             case Constants.ITEM:
-                List<Integer> ids = Item.findAllItemIDsUnfiltered(context);
-                startMultiThreadIndex(force, ids);
+                List<Integer> ids = null;
+                if (!force && ConfigurationManager.getBooleanProperty("discovery", "indexer.bulk-freshness-check", true))
+                {
+                    ids = findStaleItemIDs(context);
+                }
+                if (ids != null)
+                {
+                    // already known to be stale, skip the check of each item
+                    startMultiThreadIndex(true, ids);
+                }
+                else
+                {
+                    ids = Item.findAllItemIDsUnfiltered(context);
+                    startMultiThreadIndex(force, ids);
+                }
                 break;
             case Constants.COLLECTION:
             Collection[] collections = Collection.findAll(context);
@@ -461,12 +528,45 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             default:
                 new RuntimeException("No type known: " + type);
             }
+        }
+        catch (Exception e)
+        {
+            log.error(e.getMessage(), e);
+        }
+        finally
+        {
+            endBulkAndCommit();
+        }
+    }
 
+    /**
+     * Start a bulk run: until the matching {@link #endBulkAndCommit()}, the
+     * written documents are sent to Solr by batches of
+     * <code>discovery.indexer.batch-size</code> documents and are not
+     * committed. Bulk runs can be nested, only the outermost one commits.
+     */
+    protected void beginBulk()
+    {
+        bulkRuns.incrementAndGet();
+    }
+
+    /**
+     * End a bulk run started by {@link #beginBulk()}. If it is the outermost
+     * one, send the buffered documents and commit them at once.
+     */
+    protected void endBulkAndCommit()
+    {
+        if (bulkRuns.decrementAndGet() > 0)
+        {
+            return;
+        }
+        try
+        {
             if(getSolr() != null)
             {
-            	getSolr().commit();
+                flushPendingDocuments();
+                getSolr().commit();
             }
-
         }
         catch (Exception e)
         {
@@ -738,6 +838,115 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     }
 
 
+    /**
+     * Find the archived and withdrawn items which are not in the index or were
+     * modified since they were indexed, as {@link #requiresIndexing} does for
+     * one item, with one pass over the index and one over the item table.
+     *
+     * @param context the dspace context
+     * @return the IDs of the stale items, or null if the index could not be
+     *         read
+     * @throws SQLException sql exception
+     */
+    protected List<Integer> findStaleItemIDs(Context context) throws SQLException
+    {
+        long start = System.currentTimeMillis();
+        IndexTimestamps indexed;
+        try
+        {
+            indexed = loadItemTimestamps();
+        }
+        catch (Exception e)
+        {
+            log.warn("Unable to read the index timestamps, checking the items one by one", e);
+            return null;
+        }
+        if (indexed == null)
+        {
+            return null;
+        }
+
+        List<Integer> stale = new ArrayList<Integer>();
+        int checked = 0;
+        TableRowIterator rows = DatabaseManager.query(context,
+                "SELECT item_id, last_modified FROM item WHERE in_archive='1' OR withdrawn='1'");
+        try
+        {
+            while (rows.hasNext())
+            {
+                TableRow row = rows.next();
+                int id = row.getIntColumn("item_id");
+                long lastIndexed = indexed.get(id);
+                Date lastModified = row.getDateColumn("last_modified");
+                if (lastIndexed == IndexTimestamps.MISSING
+                        || (lastModified != null && lastIndexed < lastModified.getTime()))
+                {
+                    stale.add(id);
+                }
+                checked++;
+            }
+        }
+        finally
+        {
+            rows.close();
+        }
+
+        String report = stale.size() + " of " + checked + " items require indexing ("
+                + indexed.size() + " items in the index), checked in "
+                + (System.currentTimeMillis() - start) + " ms";
+        log.info(report);
+        System.out.println(report);
+        return stale;
+    }
+
+    /**
+     * Read the time at which each item was last indexed, paging through the
+     * index with a cursor.
+     *
+     * @return the timestamps by item ID, or null if Solr is not available
+     */
+    protected IndexTimestamps loadItemTimestamps() throws SolrServerException
+    {
+        if (getSolr() == null)
+        {
+            return null;
+        }
+        SolrQuery query = new SolrQuery(RESOURCE_TYPE_FIELD + ":" + Constants.ITEM);
+        query.setFields(RESOURCE_ID_FIELD, LAST_INDEXED_FIELD);
+        query.setRows(ConfigurationManager.getIntProperty("discovery", "indexer.bulk-freshness-check.rows", 10000));
+        query.setSort("search.uniqueid", SolrQuery.ORDER.asc);
+
+        IndexTimestamps indexed = null;
+        String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        while (true)
+        {
+            query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            QueryResponse rsp = getSolr().query(query);
+            if (indexed == null)
+            {
+                indexed = new IndexTimestamps((int) Math.min(Integer.MAX_VALUE / 4,
+                        rsp.getResults().getNumFound()));
+            }
+            for (SolrDocument doc : rsp.getResults())
+            {
+                Object id = doc.getFirstValue(RESOURCE_ID_FIELD);
+                Object value = doc.getFieldValue(LAST_INDEXED_FIELD);
+                if (id instanceof Integer)
+                {
+                    // a document without timestamp is always stale
+                    indexed.put((Integer) id, value instanceof Date ? ((Date) value).getTime() : Long.MIN_VALUE + 1);
+                }
+            }
+            String next = rsp.getNextCursorMark();
+            if (next == null || next.equals(cursorMark))
+            {
+                break;
+            }
+            cursorMark = next;
+        }
+        return indexed;
+    }
+
     /**
      * @param myitem the item for which our locations are to be retrieved
      * @return a list containing the identifiers of the communities & collections
@@ -801,9 +1010,19 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     
     /**
      * Write the document to the index under the appropriate handle.
+     * <p/>
+     * The text of the streams, which are the bitstreams of the TEXT bundle
+     * extracted by the MediaFilterManager, is read here and added to the
+     * <code>fulltext</code> field, up to
+     * <code>discovery.indexer.fulltext.max-chars</code> characters per
+     * document. The document is not committed: it is made visible by Solr
+     * within <code>discovery.solr.commit-within</code> milliseconds, or by the
+     * commit ending the bulk run. The former extraction by Tika inside Solr
+     * is used if <code>discovery.indexer.fulltext.extract-in-solr</code> is
+     * true.
      *
      * @param doc the solr document to be written to the server
-     * @param streams
+     * @param streams the full text of the document, may be null
      * @throws IOException IO exception
      */
     protected void writeDocument(SolrInputDocument doc, List<BitstreamContentStream> streams) throws IOException {
@@ -811,7 +1030,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         try {
             if(getSolr() != null)
             {
-                if(CollectionUtils.isNotEmpty(streams))
+                if(CollectionUtils.isNotEmpty(streams)
+                        && ConfigurationManager.getBooleanProperty("discovery", "indexer.fulltext.extract-in-solr", false))
                 {
                     ContentStreamUpdateRequest req = new ContentStreamUpdateRequest("/update/extract");
 
@@ -835,12 +1055,18 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     req.setParam(ExtractingParams.UNKNOWN_FIELD_PREFIX, "attr_");
                     req.setParam(ExtractingParams.MAP_PREFIX + "content", "fulltext");
                     req.setParam(ExtractingParams.EXTRACT_FORMAT, "text");
-                    req.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+                    req.setCommitWithin(getCommitWithin());
+                    // the extracted documents are not buffered, keep the order
+                    flushPendingDocuments();
                     req.process(getSolr());
                 }
                 else
                 {
-                    getSolr().add(doc);
+                    if(CollectionUtils.isNotEmpty(streams))
+                    {
+                        addFulltext(doc, streams);
+                    }
+                    addDocument(doc);
                 }
             }
         } catch (SolrServerException e)
@@ -849,6 +1075,177 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         }
     }
 
+    /**
+     * Add the text of the streams to the <code>fulltext</code> field of the
+     * document, one value per stream.
+     */
+    protected void addFulltext(SolrInputDocument doc, List<BitstreamContentStream> streams)
+    {
+        int remaining = ConfigurationManager.getIntProperty("discovery", "indexer.fulltext.max-chars", 1000000);
+        char[] buffer = new char[8192];
+        for (BitstreamContentStream stream : streams)
+        {
+            if (remaining <= 0)
+            {
+                log.warn("Full text of " + doc.getFieldValue(HANDLE_FIELD) + " truncated, "
+                        + "see discovery.indexer.fulltext.max-chars");
+                break;
+            }
+            StringBuilder text = new StringBuilder();
+            Reader reader = null;
+            try
+            {
+                reader = new InputStreamReader(stream.getStream(), StandardCharsets.UTF_8);
+                int read;
+                while (remaining > 0
+                        && (read = reader.read(buffer, 0, Math.min(buffer.length, remaining))) != -1)
+                {
+                    text.append(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            catch (IOException e)
+            {
+                log.error("Error reading the full text " + stream.getName() + " of "
+                        + doc.getFieldValue(HANDLE_FIELD), e);
+            }
+            finally
+            {
+                if (reader != null)
+                {
+                    try
+                    {
+                        reader.close();
+                    }
+                    catch (IOException e)
+                    {
+                        log.error(e.getMessage(), e);
+                    }
+                }
+            }
+            if (text.length() > 0)
+            {
+                doc.addField("fulltext", text.toString());
+            }
+        }
+    }
+
+    /**
+     * Send a document to Solr, or buffer it during a bulk run. The buffered
+     * documents are sent once they are <code>discovery.indexer.batch-size</code>
+     * or their full text reaches <code>discovery.indexer.batch-max-chars</code>
+     * characters.
+     */
+    protected void addDocument(SolrInputDocument doc) throws SolrServerException, IOException
+    {
+        if (bulkRuns.get() <= 0)
+        {
+            getSolr().add(doc, getCommitWithin());
+            return;
+        }
+        long chars = 0;
+        java.util.Collection<Object> fulltext = doc.getFieldValues("fulltext");
+        if (fulltext != null)
+        {
+            for (Object text : fulltext)
+            {
+                chars += String.valueOf(text).length();
+            }
+        }
+        List<SolrInputDocument> batch = null;
+        long ticket = -1;
+        synchronized (pendingDocuments)
+        {
+            pendingDocuments.add(doc);
+            pendingChars += chars;
+            if (pendingDocuments.size() >= ConfigurationManager.getIntProperty("discovery", "indexer.batch-size", 100)
+                    || pendingChars >= ConfigurationManager.getLongProperty("discovery", "indexer.batch-max-chars", 10000000))
+            {
+                batch = new ArrayList<SolrInputDocument>(pendingDocuments);
+                pendingDocuments.clear();
+                pendingChars = 0;
+                ticket = batchesTaken++;
+            }
+        }
+        if (batch != null)
+        {
+            sendBatch(batch, ticket);
+        }
+    }
+
+    /**
+     * Send the documents buffered by {@link #addDocument}.
+     */
+    protected void flushPendingDocuments() throws SolrServerException, IOException
+    {
+        List<SolrInputDocument> batch;
+        long ticket;
+        synchronized (pendingDocuments)
+        {
+            if (pendingDocuments.isEmpty())
+            {
+                return;
+            }
+            batch = new ArrayList<SolrInputDocument>(pendingDocuments);
+            pendingDocuments.clear();
+            pendingChars = 0;
+            ticket = batchesTaken++;
+        }
+        sendBatch(batch, ticket);
+    }
+
+    /**
+     * Send a batch once all the batches taken before it are sent.
+     *
+     * @param ticket
+     *            the order in which the batch was taken from the pending
+     *            documents
+     */
+    private void sendBatch(List<SolrInputDocument> batch, long ticket) throws SolrServerException, IOException
+    {
+        boolean interrupted = false;
+        synchronized (sendOrder)
+        {
+            while (batchesSent != ticket)
+            {
+                try
+                {
+                    sendOrder.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    // the following batches wait for this one, send it anyway
+                    interrupted = true;
+                }
+            }
+        }
+        try
+        {
+            getSolr().add(batch, getCommitWithin());
+        }
+        finally
+        {
+            synchronized (sendOrder)
+            {
+                batchesSent++;
+                sendOrder.notifyAll();
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return the milliseconds within which Solr commits the added documents,
+     *         -1 to leave it to the autoCommit of Solr
+     */
+    protected int getCommitWithin()
+    {
+        return ConfigurationManager.getIntProperty("discovery", "solr.commit-within", 10000);
+    }
+
     /**
      * Build a solr document for a DSpace Community.
      *
@@ -1013,6 +1410,18 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         doc.addField("withdrawn", item.isWithdrawn());
         doc.addField("discoverable", item.isDiscoverable());
         doc.addField("lastModified", item.getLastModified());
+
+        // the thumbnail shown in the result lists, see ProjectedDSpaceObject
+        Bundle[] previews = item.getBundles("BRANDED_PREVIEW");
+        if (previews.length > 0)
+        {
+            Bitstream[] bitstreams = previews[0].getBitstreams();
+            if (bitstreams.length > 0)
+            {
+                doc.addField(PREVIEW_BITSTREAM_ID_FIELD, String.valueOf(bitstreams[0].getID()));
+                doc.addField(PREVIEW_BITSTREAM_NAME_FIELD, bitstreams[0].getName());
+            }
+        }
         
         //Keep a list of our sort values which we added, sort values can only be added once
         List<String> sortFieldsAdded = new ArrayList<String>();
@@ -1816,7 +2225,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrQuery.addFilterQuery(filterQuery + ":[* TO *]");
         }
 
-        if(discoveryQuery.getStart() != -1)
+        if(discoveryQuery.getCursorMark() != null)
+        {
+            // a cursor cannot be combined with a start offset
+            solrQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, discoveryQuery.getCursorMark());
+        }
+        else if(discoveryQuery.getStart() != -1)
         {
             solrQuery.setStart(discoveryQuery.getStart());
         }
@@ -1835,6 +2249,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             solrQuery.addSortField(discoveryQuery.getSortField(), order);
         }
 
+        if(discoveryQuery.isSortByUniqueKey() || discoveryQuery.getCursorMark() != null)
+        {
+            // cursors require a total order, the unique key breaks the ties
+            solrQuery.addSortField("search.uniqueid", SolrQuery.ORDER.asc);
+        }
+
         for(String property : discoveryQuery.getProperties().keySet())
         {
             List<String> values = discoveryQuery.getProperties().get(property);
@@ -1977,6 +2397,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             result.setSearchTime(solrQueryResponse.getQTime());
             result.setStart(query.getStart());
             
+            List<String> projection = query.isProjection()
+                    ? ProjectedDSpaceObject.getProjectionFields() : null;
             GroupResponse collapsing = solrQueryResponse.getGroupResponse();
             SolrDocumentList results = new SolrDocumentList();
             int groupTotal = 0;
@@ -1987,8 +2409,16 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             		for(Group group : groupCommand.getValues()) {          			
                         for (SolrDocument doc : group.getResult())
                         {
-                            DSpaceObject dso = findDSpaceObject(context, doc);
-                            result.addCollapsingResults(group.getGroupValue(),dso);
+                            if (query.isProjection())
+                            {
+                                result.addCollapsingProjection(group.getGroupValue(),
+                                        new ProjectedDSpaceObject(context, this, doc, projection));
+                            }
+                            else
+                            {
+                                DSpaceObject dso = findDSpaceObject(context, doc);
+                                result.addCollapsingResults(group.getGroupValue(),dso);
+                            }
                             results.add(doc);
                         }
             		}
@@ -2000,18 +2430,31 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             	result.setTotalSearchResults(solrQueryResponse.getResults().getNumFound());
             	results = solrQueryResponse.getResults();
             }            
+            result.setNextCursorMark(solrQueryResponse.getNextCursorMark());
 
             List<String> searchFields = query.getSearchFields();
             for (SolrDocument doc : results)
             {
-                DSpaceObject dso = findDSpaceObject(context, doc);
-
-                if(dso != null)
+                IGlobalSearchResult dso;
+                ProjectedDSpaceObject projected = null;
+                if (query.isProjection())
                 {
-                    result.addDSpaceObject(dso);
-                } else {
-                    log.error(LogManager.getHeader(context, "Error while retrieving DSpace object from discovery index", "Handle: " + doc.getFirstValue(HANDLE_FIELD)));
-                    continue;
+                    projected = new ProjectedDSpaceObject(context, this, doc, projection);
+                    result.addProjectedObject(projected);
+                    dso = projected;
+                }
+                else
+                {
+                    DSpaceObject found = findDSpaceObject(context, doc);
+
+                    if(found != null)
+                    {
+                        result.addDSpaceObject(found);
+                    } else {
+                        log.error(LogManager.getHeader(context, "Error while retrieving DSpace object from discovery index", "Handle: " + doc.getFirstValue(HANDLE_FIELD)));
+                        continue;
+                    }
+                    dso = found;
                 }
 
                 DiscoverResult.SearchDocument resultDoc = new DiscoverResult.SearchDocument();
@@ -2049,7 +2492,9 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                             resultMapWithAuthority.put(key.substring(0, key.lastIndexOf("_hl")), resultHighlightOriginalValue);
                         }
 
-                        result.addHighlightedResult(dso, new DiscoverResult.DSpaceObjectHighlightResult(dso, resultMap, resultMapWithAuthority));
+                        result.addHighlightedResult(dso, dso instanceof DSpaceObject
+                                ? new DiscoverResult.DSpaceObjectHighlightResult((DSpaceObject) dso, resultMap, resultMapWithAuthority)
+                                : new DiscoverResult.DSpaceObjectHighlightResult(projected, resultMap, resultMapWithAuthority));
                     }
                 }
             }
@@ -2568,6 +3013,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 		try {
             if(getSolr() != null)
             {
+                flushPendingDocuments();
                 getSolr().commit();
             }
 		} catch (Exception e) {
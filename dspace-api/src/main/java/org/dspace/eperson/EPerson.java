@@ -1653,4 +1653,10 @@ public class EPerson extends DSpaceObject
 
         return 0;
     }
+
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
@@ -1556,4 +1556,10 @@ public class Group extends DSpaceObject
     public boolean isNotRelevant() {
         return getMetadataFirstValue(MetadataSchema.GROUP_SCHEMA, "notrelevant", null, Item.ANY)!=null;
     }
+
+    @Override
+    public boolean isModified()
+    {
+        return modified || super.isModified();
+    }
 }
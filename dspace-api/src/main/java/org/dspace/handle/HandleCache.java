@@ -0,0 +1,318 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * JVM wide cache of the bindings between the handles and the DSpace objects,
+ * in both directions: from a handle to the type and ID of its object, and from
+ * an object to its handle. The misses are never cached: a handle or an object
+ * without a handle in the database is looked up again, so a handle created by
+ * another JVM is found at once.
+ * <P>
+ * The entries of a handle and of an object are dropped by the
+ * {@link HandleManager} when a handle is created or unbound, and again by the
+ * {@link HandleCacheConsumer} once the transaction is committed; a binding
+ * read while an invalidation is in progress is not cached. The changes made by
+ * other JVMs to existing handles are seen only when the entries expire after
+ * <code>handle.cache.ttl</code> seconds.
+ * <P>
+ * The cache is disabled by default, it is enabled by
+ * <code>handle.cache.enabled = true</code> and bounded by
+ * <code>handle.cache.max-entries</code> per direction. The handles of some
+ * prefixes can be loaded at once with {@link #preload}, the handle server
+ * does so for the prefixes of <code>handle.cache.preload</code>.
+ */
+class HandleCache
+{
+    private static final Logger log = Logger.getLogger(HandleCache.class);
+
+    private static HandleCache instance;
+
+    private final int maxEntries;
+
+    private final long ttl;
+
+    /** Bindings by handle, guarded by this */
+    private final Map<String, Binding> byHandle;
+
+    /** Bindings by object, guarded by this */
+    private final Map<String, Binding> byObject;
+
+    /** Incremented by every invalidation, see {@link #put} */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param maxEntries
+     *            Maximum number of cached entries per direction
+     * @param ttl
+     *            Milliseconds after which an entry expires, 0 for never
+     */
+    HandleCache(int maxEntries, long ttl)
+    {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl;
+        this.byHandle = new Lru(this.maxEntries);
+        this.byObject = new Lru(this.maxEntries);
+    }
+
+    /**
+     * @return the shared instance, or null if the cache is disabled
+     */
+    static synchronized HandleCache getInstance()
+    {
+        if (!ConfigurationManager.getBooleanProperty("handle.cache.enabled", false))
+        {
+            return null;
+        }
+        if (instance == null)
+        {
+            instance = new HandleCache(
+                    ConfigurationManager.getIntProperty("handle.cache.max-entries", 10000),
+                    ConfigurationManager.getLongProperty("handle.cache.ttl", 300) * 1000L);
+        }
+        return instance;
+    }
+
+    /**
+     * @return the binding of a handle, or null if it is not cached
+     */
+    synchronized Binding get(String handle)
+    {
+        return fresh(byHandle, handle);
+    }
+
+    /**
+     * @return the handle of an object, or null if it is not cached
+     */
+    synchronized String getHandle(int type, int id)
+    {
+        Binding binding = fresh(byObject, key(type, id));
+        return binding == null ? null : binding.getHandle();
+    }
+
+    /**
+     * @return the value to pass to {@link #put} and {@link #putHandle} for
+     *         the bindings about to be read from the database
+     */
+    long getGeneration()
+    {
+        return generation.get();
+    }
+
+    /**
+     * Cache the binding of a handle, unless an invalidation happened since it
+     * was read from the database: it could be older than the invalidation.
+     */
+    synchronized void put(Binding binding, long expected)
+    {
+        if (binding.getHandle() != null && generation.get() == expected)
+        {
+            byHandle.put(binding.getHandle(), binding);
+        }
+    }
+
+    /**
+     * Cache the handle of an object, as {@link #put}. A null handle, for an
+     * object without handle, is not cached.
+     */
+    synchronized void putHandle(int type, int id, String handle, long expected)
+    {
+        if (handle != null && generation.get() == expected)
+        {
+            byObject.put(key(type, id), new Binding(handle, type, id));
+        }
+    }
+
+    /**
+     * Drop the binding of a handle.
+     */
+    synchronized void invalidate(String handle)
+    {
+        generation.incrementAndGet();
+        byHandle.remove(handle);
+    }
+
+    /**
+     * Drop the handle of an object.
+     */
+    synchronized void invalidate(int type, int id)
+    {
+        generation.incrementAndGet();
+        byObject.remove(key(type, id));
+    }
+
+    /**
+     * Drop all the cached bindings.
+     */
+    synchronized void clear()
+    {
+        generation.incrementAndGet();
+        byHandle.clear();
+        byObject.clear();
+    }
+
+    synchronized int size()
+    {
+        return byHandle.size() + byObject.size();
+    }
+
+    /**
+     * Load the bindings of all the handles of a prefix, as long as the cache
+     * is not full.
+     *
+     * @param context
+     *            DSpace context
+     * @param prefix
+     *            The handle prefix, i.e. 123456789
+     * @return the number of loaded bindings
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    int preload(Context context, String prefix) throws SQLException
+    {
+        long expected = getGeneration();
+        String sql = "SELECT handle, resource_type_id, resource_id FROM handle WHERE handle LIKE ? ";
+        TableRowIterator iterator = DatabaseManager.query(context, sql,
+                prefix + (prefix.endsWith("/") ? "%" : "/%"));
+        int loaded = 0;
+        try
+        {
+            while (iterator.hasNext())
+            {
+                synchronized (this)
+                {
+                    if (byHandle.size() >= maxEntries)
+                    {
+                        log.warn("Handle cache full after loading " + loaded
+                                + " handles of prefix " + prefix);
+                        break;
+                    }
+                }
+                put(Binding.of(iterator.next()), expected);
+                loaded++;
+            }
+        }
+        finally
+        {
+            iterator.close();
+        }
+        log.info("Loaded " + loaded + " handles of prefix " + prefix + " in the handle cache");
+        return loaded;
+    }
+
+    private Binding fresh(Map<String, Binding> map, String key)
+    {
+        Binding binding = map.get(key);
+        if (binding != null && ttl > 0
+                && System.currentTimeMillis() - binding.loaded > ttl)
+        {
+            map.remove(key);
+            return null;
+        }
+        return binding;
+    }
+
+    private static String key(int type, int id)
+    {
+        return type + ":" + id;
+    }
+
+    /**
+     * The object a handle is bound to
+     */
+    static class Binding
+    {
+        private final String handle;
+
+        private final int type;
+
+        private final int id;
+
+        private final long loaded = System.currentTimeMillis();
+
+        /**
+         * @param type
+         *            The type of the object, -1 if unknown
+         * @param id
+         *            The ID of the object, -1 if the handle is unbound
+         */
+        Binding(String handle, int type, int id)
+        {
+            this.handle = handle;
+            this.type = type;
+            this.id = id;
+        }
+
+        /**
+         * @return the binding stored in a row of the handle table
+         */
+        static Binding of(TableRow row)
+        {
+            return new Binding(row.getStringColumn("handle"),
+                    row.isColumnNull("resource_type_id") ? -1 : row.getIntColumn("resource_type_id"),
+                    row.isColumnNull("resource_id") ? -1 : row.getIntColumn("resource_id"));
+        }
+
+        String getHandle()
+        {
+            return handle;
+        }
+
+        int getType()
+        {
+            return type;
+        }
+
+        int getID()
+        {
+            return id;
+        }
+
+        /**
+         * @return false if the handle was allocated but is not associated
+         *         with an object anymore (see
+         *         {@link HandleManager#unbindHandle})
+         */
+        boolean isBound()
+        {
+            return type >= 0 && id >= 0;
+        }
+    }
+
+    /**
+     * Evicts the least recently used entry when full
+     */
+    private static class Lru extends LinkedHashMap<String, Binding>
+    {
+        private final int maxEntries;
+
+        Lru(int maxEntries)
+        {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Binding> eldest)
+        {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Drops the handles of the created, installed and deleted objects from the
+ * {@link HandleCache} once the transaction is committed. The handles are
+ * already dropped when they are created or unbound, but another context could
+ * have cached the committed bindings between the change and the commit.
+ */
+public class HandleCacheConsumer implements Consumer
+{
+    public void initialize() throws Exception
+    {
+    }
+
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        if ((event.getEventType() & (Event.CREATE | Event.INSTALL | Event.DELETE)) == 0)
+        {
+            return;
+        }
+        // the detail of a deletion is the handle of the deleted object
+        String handle = event.getEventType() == Event.DELETE ? event.getDetail() : null;
+        HandleManager.invalidate(handle, event.getSubjectType(), event.getSubjectID());
+    }
+
+    public void end(Context ctx) throws Exception
+    {
+    }
+
+    public void finish(Context ctx) throws Exception
+    {
+    }
+}
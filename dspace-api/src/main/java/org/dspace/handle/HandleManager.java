@@ -9,6 +9,7 @@ package org.dspace.handle;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -67,9 +68,9 @@ public class HandleManager
     public static String resolveToURL(Context context, String handle)
             throws SQLException
     {
-        TableRow dbhandle = findHandleInternal(context, handle);
+        HandleCache.Binding binding = findBinding(context, handle);
 
-        if (dbhandle == null)
+        if (binding == null)
         {
             return null;
         }
@@ -85,6 +86,24 @@ public class HandleManager
         return url;
     }
     
+    /**
+     * Return the local URL for a handle found in the handle cache, without
+     * querying the database.
+     *
+     * @param handle
+     *            The handle
+     * @return The local URL, or null if the handle is not cached
+     */
+    public static String resolveCachedURL(String handle)
+    {
+        HandleCache cache = HandleCache.getInstance();
+        if (cache == null || handle == null || cache.get(handle) == null)
+        {
+            return null;
+        }
+        return ConfigurationManager.getProperty("dspace.url") + "/handle/" + handle;
+    }
+
     /**
      * Try to detect a handle in a URL.
      * @param context DSpace context
@@ -122,9 +141,9 @@ public class HandleManager
         {
             handle = handle.substring(1);
         }
-        TableRow dbhandle = findHandleInternal(context, handle);
+        HandleCache.Binding binding = findBinding(context, handle);
         
-        return (null == dbhandle) ? null : handle;
+        return (null == binding) ? null : handle;
     }
 
     /**
@@ -187,6 +206,7 @@ public class HandleManager
         handle.setColumn("resource_type_id", dso.getType());
         handle.setColumn("resource_id", dso.getID());
         DatabaseManager.update(context, handle);
+        invalidate(handleId, dso.getType(), dso.getID());
 
         if (log.isDebugEnabled())
         {
@@ -255,6 +275,7 @@ public class HandleManager
         handle.setColumn("resource_type_id", dso.getType());
         handle.setColumn("resource_id", dso.getID());
         DatabaseManager.update(context, handle);
+        invalidate(suppliedHandle, dso.getType(), dso.getID());
 
         if (log.isDebugEnabled())
         {
@@ -287,7 +308,13 @@ public class HandleManager
                 // can verify during a restore whether the same *type* of resource
                 // is reusing this handle!
                 row.setColumnNull("resource_id");
+                if (row.hasColumn("unbind_date"))
+                {
+                    // read by the incremental runs of the network index
+                    row.setColumn("unbind_date", new Date());
+                }
                 DatabaseManager.update(context, row);
+                invalidate(row.getStringColumn("handle"), dso.getType(), dso.getID());
 
                 if(log.isDebugEnabled())
                 {
@@ -319,9 +346,9 @@ public class HandleManager
     public static DSpaceObject resolveToObject(Context context, String handle)
             throws IllegalStateException, SQLException
     {
-        TableRow dbhandle = findHandleInternal(context, handle);
+        HandleCache.Binding binding = findBinding(context, handle);
 
-        if (dbhandle == null)
+        if (binding == null)
         {
             //If this is the Site-wide Handle, return Site object
             if (handle.equals(Site.getSiteHandle()))
@@ -335,16 +362,15 @@ public class HandleManager
         // check if handle was allocated previously, but is currently not
         // associated with a DSpaceObject
         // (this may occur when 'unbindHandle()' is called for an obj that was removed)
-        if ((dbhandle.isColumnNull("resource_type_id"))
-                || (dbhandle.isColumnNull("resource_id")))
+        if (!binding.isBound())
         {
             //if handle has been unbound, just return null (as this will result in a PageNotFound)
             return null;
         }
 
         // What are we looking at here?
-        int handletypeid = dbhandle.getIntColumn("resource_type_id");
-        int resourceID = dbhandle.getIntColumn("resource_id");
+        int handletypeid = binding.getType();
+        int resourceID = binding.getID();
 
         if (handletypeid == Constants.ITEM)
         {
@@ -401,8 +427,19 @@ public class HandleManager
     public static String findHandle(Context context, DSpaceObject dso)
             throws SQLException
     {
-        TableRowIterator rows = getInternalHandles(context, dso.getType(), dso.getID());
-        if (rows == null || !rows.hasNext())
+        HandleCache cache = getCache(context);
+        if (cache != null)
+        {
+            String handle = cache.getHandle(dso.getType(), dso.getID());
+            if (handle != null)
+            {
+                return handle;
+            }
+        }
+        long expected = cache == null ? 0 : cache.getGeneration();
+
+        List<TableRow> rows = getInternalHandles(context, dso.getType(), dso.getID()).toList();
+        if (rows.isEmpty())
         {
             if (dso.getType() == Constants.SITE)
             {
@@ -417,10 +454,9 @@ public class HandleManager
         {
             //TODO: Move this code away from the HandleManager & into the Identifier provider
             //Attempt to retrieve a handle that does NOT look like {handle.part}/{handle.part}.{version}
-            String result = rows.next().getStringColumn("handle");
-            while (rows.hasNext())
+            String result = rows.get(0).getStringColumn("handle");
+            for (TableRow row : rows.subList(1, rows.size()))
             {
-                TableRow row = rows.next();
                 //Ensure that the handle doesn't look like this 12346/213.{version}
                 //If we find a match that indicates that we have a proper handle
                 if(!row.getStringColumn("handle").matches(".*/.*\\.\\d+"))
@@ -429,6 +465,10 @@ public class HandleManager
                 }
             }
 
+            if (cache != null)
+            {
+                cache.putHandle(dso.getType(), dso.getID(), result, expected);
+            }
             return result;
         }
     }
@@ -487,10 +527,125 @@ public class HandleManager
         return prefix;
     }
 
+    /**
+     * Load the bindings of all the handles of some prefixes in the handle
+     * cache, so that they are resolved without querying the database.
+     *
+     * @param context
+     *            DSpace context
+     * @param prefixes
+     *            The handle prefixes
+     * @return the number of loaded handles, 0 if the cache is disabled
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static int preloadCache(Context context, String... prefixes)
+            throws SQLException
+    {
+        HandleCache cache = HandleCache.getInstance();
+        int loaded = 0;
+        if (cache != null)
+        {
+            for (String prefix : prefixes)
+            {
+                loaded += cache.preload(context, prefix.trim());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop all the handles from the handle cache, i.e. after the handles were
+     * modified with SQL.
+     */
+    public static void clearCache()
+    {
+        HandleCache cache = HandleCache.getInstance();
+        if (cache != null)
+        {
+            cache.clear();
+        }
+    }
+
     ////////////////////////////////////////
     // Internal methods
     ////////////////////////////////////////
 
+    /**
+     * Return the handle cache if the context may use it: a context that has
+     * written to the database and not yet committed reads its own changes
+     * from the database.
+     */
+    private static HandleCache getCache(Context context)
+    {
+        if (context != null && context.hasPendingWrites())
+        {
+            return null;
+        }
+        return HandleCache.getInstance();
+    }
+
+    /**
+     * Find the binding of a handle in the handle cache or in the database.
+     *
+     * @param context
+     *            DSpace context
+     * @param handle
+     *            The handle to resolve
+     * @return The binding of the handle, or null if it is not in the database
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static HandleCache.Binding findBinding(Context context, String handle)
+            throws SQLException
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("Handle is null");
+        }
+
+        HandleCache cache = getCache(context);
+        if (cache != null)
+        {
+            HandleCache.Binding binding = cache.get(handle);
+            if (binding != null)
+            {
+                return binding;
+            }
+        }
+        long expected = cache == null ? 0 : cache.getGeneration();
+        TableRow dbhandle = findHandleInternal(context, handle);
+        if (dbhandle == null)
+        {
+            return null;
+        }
+        HandleCache.Binding binding = HandleCache.Binding.of(dbhandle);
+        if (cache != null)
+        {
+            cache.put(binding, expected);
+        }
+        return binding;
+    }
+
+    /**
+     * Drop a handle and the object it is bound to from the handle cache.
+     */
+    static void invalidate(String handle, int type, int id)
+    {
+        HandleCache cache = HandleCache.getInstance();
+        if (cache != null)
+        {
+            if (handle != null)
+            {
+                cache.invalidate(handle);
+            }
+            if (type >= 0 && id >= 0)
+            {
+                cache.invalidate(type, id);
+            }
+        }
+    }
+
     /**
      * Return the handle for an Object, or null if the Object has no handle.
      *
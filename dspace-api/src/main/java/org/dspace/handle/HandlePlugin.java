@@ -60,14 +60,35 @@ public class HandlePlugin implements HandleStorage
     ////////////////////////////////////////
 
     /**
-     * HandleStorage interface method - not implemented.
+     * HandleStorage interface method - loads the handles of the prefixes
+     * listed in <code>handle.cache.preload</code> in the handle cache.
      */
     public void init(StreamTable st) throws Exception
     {
-        // Not implemented
-        if (log.isInfoEnabled())
+        String preload = ConfigurationManager.getProperty("handle.cache.preload");
+        if (preload == null || preload.trim().length() == 0)
+        {
+            return;
+        }
+
+        Context context = null;
+        try
+        {
+            context = new Context();
+            int loaded = HandleManager.preloadCache(context, preload.split(","));
+            log.info("Loaded " + loaded + " handles in the handle cache");
+        }
+        catch (SQLException sqle)
         {
-            log.info("Called init (not implemented)");
+            // the handles are still resolved from the database
+            log.error("Unable to load the handle cache", sqle);
+        }
+        finally
+        {
+            if (context != null)
+            {
+                context.abort();
+            }
         }
     }
 
@@ -222,9 +243,14 @@ public class HandlePlugin implements HandleStorage
 
             String handle = Util.decodeString(theHandle);
 
-            context = new Context();
+            // resolve a cached handle without a database connection
+            String url = HandleManager.resolveCachedURL(handle);
+            if (url == null)
+            {
+                context = new Context();
 
-            String url = HandleManager.resolveToURL(context, handle);
+                url = HandleManager.resolveToURL(context, handle);
+            }
 
             if (url == null)
             {
@@ -115,6 +115,7 @@ public class UpdateHandlePrefix
 
                         // Commit the changes
                         context.complete();
+                        HandleManager.clearCache();
 
                         log.info(
                           "Done with updating handle prefix. " +
@@ -11,8 +11,17 @@ package org.dspace.identifier.doi;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -40,6 +49,12 @@ import org.dspace.utils.DSpace;
 
 
 /**
+ * Performs the online operations of the DOIs queued in the database. The
+ * queued DOIs can be processed by several threads concurrently (see
+ * {@code doi.organiser.threads}), each with its own Context. The requests
+ * to the registration agency are limited by the DOIConnector (see
+ * {@code identifier.doi.requests-per-second}). Requests that failed for a transient reason, an internal error of the registration
+ * agency or a network failure, are retried after an exponential backoff.
  *
  * @author Marsa Haoua
  * @author Pascal-Nicolas Becker
@@ -48,15 +63,88 @@ public class DOIOrganiser {
 
     private static final Logger LOG = Logger.getLogger(DOIOrganiser.class);
 
+    /**
+     * The online operations performed on queued DOIs.
+     */
+    public enum Action
+    {
+        RESERVE, REGISTER, UPDATE, DELETE
+    }
+
     private DOIIdentifierProvider provider;
     private Context context;
     private boolean quiet;
 
+    /** Number of threads processing the queued DOIs. */
+    private int threads;
+    /** Number of retries of a request that failed for a transient reason. */
+    private int maxRetries;
+    /** Delay before the first retry in milliseconds, doubled on each retry. */
+    private long retryDelay;
+    /** Number of processed DOIs after which the changes are committed. */
+    private int commitBatch;
+    /** Number of DOIs processed since the last commit. */
+    private int uncommitted;
+
     public DOIOrganiser(Context context, DOIIdentifierProvider provider)
     {
         this.context = context;
         this.provider = provider;
         this.quiet = false;
+        this.threads = Math.max(1,
+                ConfigurationManager.getIntProperty("doi.organiser.threads", 1));
+        this.maxRetries = Math.max(0,
+                ConfigurationManager.getIntProperty("doi.organiser.retries", 3));
+        this.retryDelay = Math.max(0,
+                ConfigurationManager.getLongProperty("doi.organiser.retry-delay", 1000));
+        this.commitBatch = Math.max(1,
+                ConfigurationManager.getIntProperty("doi.organiser.commit-batch", 100));
+        this.uncommitted = 0;
+    }
+
+    /**
+     * Creates an organiser for another thread, with its own Context and the
+     * settings of this one.
+     */
+    private DOIOrganiser copyFor(Context context)
+    {
+        DOIOrganiser copy = new DOIOrganiser(context, provider);
+        copy.quiet = quiet;
+        copy.threads = 1;
+        copy.maxRetries = maxRetries;
+        copy.retryDelay = retryDelay;
+        copy.commitBatch = commitBatch;
+        return copy;
+    }
+
+    /**
+     * Set the number of threads processing the queued DOIs.
+     * @param threads 1 to process them sequentially.
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set how the requests that failed for a transient reason are retried.
+     * @param maxRetries Number of retries, 0 to not retry.
+     * @param retryDelay Delay before the first retry in milliseconds, doubled
+     *                   on each retry.
+     */
+    public void setRetries(int maxRetries, long retryDelay)
+    {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelay = Math.max(0, retryDelay);
+    }
+
+    /**
+     * Set the number of processed DOIs after which the changes are committed.
+     * @param commitBatch
+     */
+    public void setCommitBatch(int commitBatch)
+    {
+        this.commitBatch = Math.max(1, commitBatch);
     }
 
     public static void main(String[] args)
@@ -113,6 +201,10 @@ public class DOIOrganiser {
         options.addOption("q", "quiet", false,
                 "Turn the command line output off.");
         
+        options.addOption("t", "threads", true,
+                "Number of DOIs to process concurrently with the options -r, -s, -u and -d. "
+                + "Defaults to doi.organiser.threads.");
+        
         Option registerDoi = OptionBuilder.withArgName("DOI|ItemID|handle")
                 .withLongOpt("register-doi")
                 .hasArgs(1)
@@ -177,6 +269,20 @@ public class DOIOrganiser {
             organiser.setQuiet();
         }
         
+        if (line.hasOption('t'))
+        {
+            try
+            {
+                organiser.setThreads(Integer.parseInt(line.getOptionValue('t')));
+            }
+            catch (NumberFormatException ex)
+            {
+                System.err.println("The number of threads must be an integer: "
+                        + line.getOptionValue('t'));
+                System.exit(1);
+            }
+        }
+        
         if (line.hasOption('l'))
         {
             organiser.list("reservation", null, null, DOIIdentifierProvider.TO_BE_RESERVED);
@@ -200,15 +306,7 @@ public class DOIOrganiser {
                             + "that could be reserved.");
                 }
                 
-                while (it.hasNext())
-                {
-                    TableRow doiRow = it.next();
-                    DSpaceObject dso = DSpaceObject.find(
-                            context, 
-                            doiRow.getIntColumn("resource_type_id"), 
-                            doiRow.getIntColumn("resource_id"));
-                    organiser.reserve(doiRow, dso);
-                }
+                organiser.process(Action.RESERVE, it);
             } catch (SQLException ex) {
                 System.err.println("Error in database connection:" + ex.getMessage());
                 ex.printStackTrace(System.err);
@@ -226,15 +324,7 @@ public class DOIOrganiser {
                     System.err.println("There are no objects in the database "
                             + "that could be registered.");
                 }
-                while (it.hasNext())
-                {
-                    TableRow doiRow = it.next();
-                    DSpaceObject dso = DSpaceObject.find(
-                            context, 
-                            doiRow.getIntColumn("resource_type_id"), 
-                            doiRow.getIntColumn("resource_id"));
-                    organiser.register(doiRow, dso);
-                }
+                organiser.process(Action.REGISTER, it);
             } catch (SQLException ex) {
                 System.err.println("Error in database connection:" + ex.getMessage());
                 ex.printStackTrace(System.err);
@@ -255,15 +345,7 @@ public class DOIOrganiser {
                             + "whose metadata needs an update.");
                 }
                 
-                while (it.hasNext())
-                {
-                    TableRow doiRow = it.next();
-                    DSpaceObject dso = DSpaceObject.find(
-                            context, 
-                            doiRow.getIntColumn("resource_type_id"), 
-                            doiRow.getIntColumn("resource_id"));
-                    organiser.update(doiRow, dso);
-                }
+                organiser.process(Action.UPDATE, it);
             } catch (SQLException ex) {
                 System.err.println("Error in database connection:" + ex.getMessage());
                 ex.printStackTrace(System.err);
@@ -282,11 +364,7 @@ public class DOIOrganiser {
                             + "that could be deleted.");
                 }
                 
-                while (it.hasNext())
-                {
-                    TableRow doiRow = it.next();
-                    organiser.delete(doiRow.getStringColumn("doi"));
-                }
+                organiser.process(Action.DELETE, it);
             } catch (SQLException ex) {
                 System.err.println("Error in database connection:" + ex.getMessage());
                 ex.printStackTrace(System.err);
@@ -409,6 +487,232 @@ public class DOIOrganiser {
     }
     
 
+    /**
+     * Performs an online operation for all DOIs of an iterator, which is
+     * closed afterwards. With several threads, each thread uses its own
+     * Context. The changes are committed every {@code commitBatch} DOIs and
+     * at the end, even if the processing of a DOI failed: the registration
+     * agency already knows about the DOIs processed before.
+     * @param action The operation to perform.
+     * @param it Rows of the Doi table.
+     * @throws SQLException
+     * @throws IllegalArgumentException If a DOI does not belong to an Item.
+     * @throws IllegalStateException If the Doi table contains an invalid DOI.
+     */
+    public void process(final Action action, TableRowIterator it)
+            throws SQLException
+    {
+        if (threads <= 1)
+        {
+            try
+            {
+                while (it.hasNext())
+                {
+                    dispatch(action, it.next());
+                }
+            }
+            finally
+            {
+                it.close();
+                context.commit();
+                uncommitted = 0;
+            }
+            return;
+        }
+
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        final BlockingQueue<DOIOrganiser> idle = new ArrayBlockingQueue<DOIOrganiser>(threads);
+        List<DOIOrganiser> workers = new ArrayList<DOIOrganiser>(threads);
+        // bound the number of rows waiting for a thread
+        final Semaphore permits = new Semaphore(threads * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            for (int i = 0; i < threads; i++)
+            {
+                Context workerContext = new Context();
+                workerContext.setCurrentUser(context.getCurrentUser());
+                if (context.ignoreAuthorization())
+                {
+                    workerContext.turnOffAuthorisationSystem();
+                }
+                DOIOrganiser worker = copyFor(workerContext);
+                workers.add(worker);
+                idle.add(worker);
+            }
+
+            while (it.hasNext() && null == failure.get())
+            {
+                final TableRow doiRow = it.next();
+                permits.acquire();
+                executor.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        DOIOrganiser worker = idle.poll();
+                        try
+                        {
+                            worker.dispatch(action, doiRow);
+                        }
+                        catch (Exception ex)
+                        {
+                            failure.compareAndSet(null, ex);
+                        }
+                        finally
+                        {
+                            idle.add(worker);
+                            permits.release();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            failure.compareAndSet(null, ex);
+        }
+        finally
+        {
+            executor.shutdownNow();
+            it.close();
+            for (DOIOrganiser worker : workers)
+            {
+                try
+                {
+                    worker.context.complete();
+                }
+                catch (SQLException ex)
+                {
+                    LOG.error("Cannot save the changes of a thread to the database.", ex);
+                    worker.context.abort();
+                    failure.compareAndSet(null, ex);
+                }
+            }
+        }
+
+        Exception ex = failure.get();
+        if (ex instanceof SQLException)
+        {
+            throw (SQLException) ex;
+        }
+        if (ex instanceof RuntimeException)
+        {
+            throw (RuntimeException) ex;
+        }
+        if (null != ex)
+        {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Performs an online operation for one row of the Doi table and commits
+     * the changes if enough DOIs were processed since the last commit.
+     */
+    private void dispatch(Action action, TableRow doiRow) throws SQLException
+    {
+        if (Action.DELETE == action)
+        {
+            delete(doiRow.getStringColumn("doi"));
+        }
+        else
+        {
+            DSpaceObject dso = DSpaceObject.find(context,
+                    doiRow.getIntColumn("resource_type_id"),
+                    doiRow.getIntColumn("resource_id"));
+            if (null == dso)
+            {
+                LOG.error("Cannot find the object of DOI " + DOI.SCHEME
+                        + doiRow.getStringColumn("doi") + ", skipping it.");
+                if (!quiet)
+                {
+                    System.err.println("Cannot find the object of DOI "
+                            + DOI.SCHEME + doiRow.getStringColumn("doi"));
+                }
+                return;
+            }
+            switch (action)
+            {
+                case RESERVE:
+                    reserve(doiRow, dso);
+                    break;
+                case REGISTER:
+                    register(doiRow, dso);
+                    break;
+                default:
+                    update(doiRow, dso);
+                    break;
+            }
+            // drop the Item from the cache of the context
+            ((Item) dso).decache();
+        }
+
+        if (++uncommitted >= commitBatch)
+        {
+            context.commit();
+            uncommitted = 0;
+        }
+    }
+
+    /**
+     * A request to the registration agency, see {@link #online(OnlineOperation)}.
+     */
+    private interface OnlineOperation
+    {
+        void run() throws IdentifierException, SQLException;
+    }
+
+    /**
+     * Sends a request to the registration agency and retries it if it failed
+     * for a transient reason: an internal error of the registration agency or
+     * an IOException.
+     */
+    private void online(OnlineOperation operation)
+            throws IdentifierException, SQLException
+    {
+        for (int attempt = 0; ; attempt++)
+        {
+            try
+            {
+                operation.run();
+                return;
+            }
+            catch (DOIIdentifierException ex)
+            {
+                if (DOIIdentifierException.INTERNAL_ERROR != ex.getCode()
+                        || attempt >= maxRetries)
+                {
+                    throw ex;
+                }
+                LOG.warn("Request to the registration agency failed, retrying: "
+                        + ex.getMessage());
+            }
+            catch (RuntimeException ex)
+            {
+                if (!(ex.getCause() instanceof IOException) || attempt >= maxRetries)
+                {
+                    throw ex;
+                }
+                LOG.warn("Request to the registration agency failed, retrying: "
+                        + ex.getCause().getMessage());
+            }
+
+            try
+            {
+                Thread.sleep(retryDelay << Math.min(attempt, 16));
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     public TableRowIterator getDOIsByStatus(Integer ... status)
     {
         try 
@@ -493,7 +797,7 @@ public class DOIOrganiser {
         }
     }
 
-    public void register(TableRow doiRow, DSpaceObject dso) throws SQLException
+    public void register(final TableRow doiRow, final DSpaceObject dso) throws SQLException
     {
         if (Constants.ITEM != dso.getType())
         {
@@ -501,8 +805,15 @@ public class DOIOrganiser {
         }
         
         try {
-            provider.registerOnline(context, dso,
-                    DOI.SCHEME + doiRow.getStringColumn("doi"));
+            online(new OnlineOperation()
+            {
+                @Override
+                public void run() throws IdentifierException, SQLException
+                {
+                    provider.registerOnline(context, dso,
+                            DOI.SCHEME + doiRow.getStringColumn("doi"));
+                }
+            });
             
             if(!quiet)
             {
@@ -575,7 +886,7 @@ public class DOIOrganiser {
         }
     }
     
-    public void reserve(TableRow doiRow, DSpaceObject dso) throws SQLException
+    public void reserve(final TableRow doiRow, final DSpaceObject dso) throws SQLException
     {
         if (Constants.ITEM != dso.getType())
         {
@@ -584,8 +895,15 @@ public class DOIOrganiser {
         
         try 
         {
-            provider.reserveOnline(context, dso, 
-                    DOI.SCHEME + doiRow.getStringColumn("doi"));
+            online(new OnlineOperation()
+            {
+                @Override
+                public void run() throws IdentifierException, SQLException
+                {
+                    provider.reserveOnline(context, dso,
+                            DOI.SCHEME + doiRow.getStringColumn("doi"));
+                }
+            });
             
             if(!quiet)
             {
@@ -656,7 +974,7 @@ public class DOIOrganiser {
         }
     }
     
-    public void update(TableRow doiRow, DSpaceObject dso)
+    public void update(final TableRow doiRow, final DSpaceObject dso)
     {
         if (Constants.ITEM != dso.getType())
         {
@@ -666,8 +984,15 @@ public class DOIOrganiser {
         
         try 
         {
-            provider.updateMetadataOnline(context, dso,
-                    DOI.SCHEME + doiRow.getStringColumn("doi"));
+            online(new OnlineOperation()
+            {
+                @Override
+                public void run() throws IdentifierException, SQLException
+                {
+                    provider.updateMetadataOnline(context, dso,
+                            DOI.SCHEME + doiRow.getStringColumn("doi"));
+                }
+            });
             
             if(!quiet)
             {
@@ -749,7 +1074,15 @@ public class DOIOrganiser {
                 throw new IllegalStateException("You specified a valid DOI,"
                         + " that is not stored in our database.");
             }
-            provider.deleteOnline(context, doi);
+            final String doiToDelete = doi;
+            online(new OnlineOperation()
+            {
+                @Override
+                public void run() throws IdentifierException, SQLException
+                {
+                    provider.deleteOnline(context, doiToDelete);
+                }
+            });
              
             if (!quiet) 
             {
@@ -772,6 +1105,17 @@ public class DOIOrganiser {
                         + identifier);
             }
         } 
+        catch (IdentifierException ex)
+        {
+            LOG.error("It wasn't possible to delete this identifier: "
+                    + identifier + " online.", ex);
+
+            if (!quiet)
+            {
+                System.err.println("It wasn't possible to delete this identifier: "
+                        + identifier);
+            }
+        }
         catch (IllegalArgumentException ex) 
         {
             if (!quiet) 
@@ -13,7 +13,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -32,6 +35,7 @@ import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.util.EntityUtils;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
 import org.dspace.content.crosswalk.CrosswalkException;
 import org.dspace.content.crosswalk.DisseminationCrosswalk;
 import org.dspace.core.Context;
@@ -39,6 +43,7 @@ import org.dspace.core.PluginManager;
 import org.dspace.handle.HandleManager;
 import org.dspace.identifier.DOI;
 import org.dspace.services.ConfigurationService;
+import org.dspace.util.RateLimiter;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
@@ -65,6 +70,7 @@ implements DOIConnector
     static final String CFG_USER = "identifier.doi.user";
     static final String CFG_PASSWORD = "identifier.doi.password";
     static final String CFG_NAMESPACE = "crosswalk.dissemination.DataCite.namespace";
+    static final String CFG_REQUESTS_PER_SECOND = "identifier.doi.requests-per-second";
     
     /**
      * Stores the scheme used to connect to the DataCite server. It will be set
@@ -109,7 +115,34 @@ implements DOIConnector
      * DataCite Namespace used with programmatic xml element 
      */
     protected String NAMESPACE;
+
+    /**
+     * Number of Items whose crosswalked metadata are kept, so that an Item is
+     * not crosswalked again for the reservation, the registration and the
+     * metadata updates of its DOI as long as it is not modified.
+     */
+    protected int metadataCacheSize = 100;
+
+    /**
+     * Crosswalked metadata by Item ID, in access order. Guarded by itself.
+     */
+    private final Map<Integer, CachedMetadata> metadataCache =
+            new LinkedHashMap<Integer, CachedMetadata>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CachedMetadata> eldest)
+        {
+            return size() > metadataCacheSize;
+        }
+    };
     
+    /**
+     * Limits the HTTP requests sent to the DataCite server, by all threads
+     * together. Each reservation, registration or metadata update of a DOI
+     * sends several requests.
+     */
+    private RateLimiter rateLimiter;
+
     public DataCiteConnector()
     {
         this.xwalk = null;
@@ -198,7 +231,42 @@ implements DOIConnector
         this.CROSSWALK_NAME = CROSSWALK_NAME;
     }
     
-    protected void prepareXwalk()
+    /**
+     * Set the number of Items whose crosswalked metadata are cached, 0 to
+     * disable the cache. Defaults to 100.
+     * @param metadataCacheSize
+     */
+    public void setMetadataCacheSize(int metadataCacheSize)
+    {
+        this.metadataCacheSize = metadataCacheSize;
+        synchronized (metadataCache)
+        {
+            metadataCache.clear();
+        }
+    }
+    
+    /**
+     * Set the limiter of the HTTP requests sent to the DataCite server. Used
+     * by spring dependency injection, defaults to
+     * identifier.doi.requests-per-second requests per second.
+     * @param rateLimiter
+     */
+    public synchronized void setRateLimiter(RateLimiter rateLimiter)
+    {
+        this.rateLimiter = rateLimiter;
+    }
+
+    protected synchronized RateLimiter getRateLimiter()
+    {
+        if (null == this.rateLimiter)
+        {
+            this.rateLimiter = new RateLimiter(this.configurationService
+                    .getPropertyAsType(CFG_REQUESTS_PER_SECOND, 0d));
+        }
+        return this.rateLimiter;
+    }
+
+    protected synchronized void prepareXwalk()
     {
         if (null != this.xwalk)
             return;
@@ -493,7 +561,7 @@ implements DOIConnector
         Element root = null;
         try
         {
-            root = xwalk.disseminateElement(dso);
+            root = disseminateElement(dso);
         }
         catch (AuthorizeException ae)
         {
@@ -691,6 +759,43 @@ implements DOIConnector
         this.reserveDOI(context, dso, doi);
     }
     
+    /**
+     * Crosswalk the metadata of a DSpaceObject. The result for an Item is
+     * cached until the Item is modified.
+     * @return a copy of the metadata, that the caller may change.
+     */
+    protected Element disseminateElement(DSpaceObject dso)
+            throws CrosswalkException, IOException, SQLException, AuthorizeException
+    {
+        Date lastModified = null;
+        if (dso instanceof Item && metadataCacheSize > 0)
+        {
+            lastModified = ((Item) dso).getLastModified();
+        }
+        if (null != lastModified)
+        {
+            synchronized (metadataCache)
+            {
+                CachedMetadata cached = metadataCache.get(dso.getID());
+                if (null != cached && cached.lastModified.equals(lastModified))
+                {
+                    return (Element) cached.root.clone();
+                }
+            }
+        }
+
+        Element root = xwalk.disseminateElement(dso);
+        if (null != lastModified)
+        {
+            synchronized (metadataCache)
+            {
+                metadataCache.put(dso.getID(), 
+                        new CachedMetadata(lastModified, (Element) root.clone()));
+            }
+        }
+        return root;
+    }
+    
     protected DataCiteResponse sendDOIPostRequest(String doi, String url)
             throws DOIIdentifierException
     {
@@ -869,6 +974,16 @@ implements DOIConnector
     protected DataCiteResponse sendHttpRequest(HttpUriRequest req, String doi)
             throws DOIIdentifierException
     {
+        try
+        {
+            getRateLimiter().acquire();
+        }
+        catch (InterruptedException ex)
+        {
+            // send the request anyway, the caller checks the interrupt
+            Thread.currentThread().interrupt();
+        }
+
         DefaultHttpClient httpclient = new DefaultHttpClient();
         httpclient.getCredentialsProvider().setCredentials(
                 new AuthScope(HOST, 443),
@@ -1067,6 +1182,18 @@ implements DOIConnector
         NAMESPACE = nAMESPACE;
     }
     
+    private static class CachedMetadata
+    {
+        private final Date lastModified;
+        private final Element root;
+
+        private CachedMetadata(Date lastModified, Element root)
+        {
+            this.lastModified = lastModified;
+            this.root = root;
+        }
+    }
+
     protected class DataCiteResponse
     {
         private final int statusCode;
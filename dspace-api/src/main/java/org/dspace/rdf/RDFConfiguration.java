@@ -94,6 +94,28 @@ public class RDFConfiguration {
      * SPARQL endpoint is required.
      */
     public static final String STORAGE_SPARQL_PASSWORD_KEY = "rdf.storage.sparql.password";
+    /**
+     * Property key to load the address of the SPARQL 1.1 Update endpoint. If
+     * it is set, batches of graphs are stored with a single update request
+     * (using the credentials of the Graph Store HTTP Protocol endpoint),
+     * otherwise with one Graph Store HTTP Protocol request per graph.
+     */
+    public static final String STORAGE_SPARQL_UPDATE_ENDPOINT_KEY = "rdf.storage.sparql.update.endpoint";
+    /**
+     * Property key to load the maximal number of graphs stored or deleted in
+     * one batch.
+     */
+    public static final String STORAGE_BATCH_SIZE_KEY = "rdf.storage.batch.size";
+    /**
+     * Property key to load whether the RDFConsumer converts the changed
+     * DSpaceObjects in background threads, after the end of the request.
+     */
+    public static final String CONSUMER_ASYNC_KEY = "rdf.consumer.async";
+    /**
+     * Property key to load the number of background threads of the 
+     * RDFConsumer.
+     */
+    public static final String CONSUMER_THREADS_KEY = "rdf.consumer.async.threads";
     
     /**
      * Property key to load the URL of the dspace-rdf module. This is necessary
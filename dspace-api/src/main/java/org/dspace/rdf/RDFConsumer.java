@@ -8,13 +8,10 @@
 
 package org.dspace.rdf;
 
-import com.hp.hpl.jena.rdf.model.Model;
 import java.sql.SQLException;
 import java.util.Deque;
 import java.util.LinkedList;
-import java.util.NoSuchElementException;
 import org.apache.log4j.Logger;
-import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.DSpaceObject;
@@ -25,6 +22,8 @@ import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.event.Consumer;
 import org.dspace.event.Event;
+import org.dspace.services.ConfigurationService;
+import org.dspace.utils.DSpace;
 
 /**
  *
@@ -36,6 +35,7 @@ public class RDFConsumer implements Consumer
     
     protected Deque<DSOIdentifier> toConvert;
     protected Deque<DSOIdentifier> toDelete;
+    protected boolean async;
 
     @Override
     public void consume(Context ctx, Event event)
@@ -294,147 +294,50 @@ public class RDFConsumer implements Consumer
     @Override
     public void end(Context ctx) throws Exception {
         log.debug("Started processing of queued events.");
-        // create a new context, to be sure to work as anonymous user
-        // we don't want to store private data in a triplestore with public
-        // SPARQL endpoint.
-        ctx = new Context(Context.READ_ONLY);
         if (toDelete == null) 
         {
             log.debug("Deletion queue does not exists, creating empty queue.");
             this.toDelete = new LinkedList<>();
         }
-        if (toConvert != null)
+        if (toConvert == null)
         {
-            log.debug("Starting conversion of DSpaceObjects.");
-            while (true)
-            {
-                DSOIdentifier id;
-                try { id = toConvert.removeFirst(); }
-                catch (NoSuchElementException ex) { break; }
-
-                if (toDelete.contains(id))
-                {
-                    log.debug("Skipping " + Constants.typeText[id.type] + " " 
-                            + Integer.toString(id.id) + " as it is marked for "
-                            + "deletion as well.");
-                    continue;
-                }
-                log.debug("Converting " + Constants.typeText[id.type] + " " 
-                            + Integer.toString(id.id) + ".");
-                convert(ctx, id);
-            }
-            log.debug("Conversion ended.");
-        }
-        log.debug("Starting to delete data from the triple store...");
-        while (true)
-        {
-            DSOIdentifier id;
-            try { id = toDelete.removeFirst(); }
-            catch (NoSuchElementException ex) { break; }
-            
-            log.debug("Going to delete data from " +
-                    Constants.typeText[id.type] + " " 
-                    + Integer.toString(id.id) + ".");
-            delete(ctx, id);
+            this.toConvert = new LinkedList<>();
         }
-        ctx.abort();
-        log.debug("Deletion finished.");
-    }
-
-    void convert(Context ctx, DSOIdentifier id) throws SQLException
-    {
-        Model m = null;
         try
         {
-            if (id.type == Constants.SITE)
-            {
-                m = RDFUtil.convertAndStore(ctx, Site.find(ctx, 0));
-                return;
-            }
-
-            DSpaceObject dso = DSpaceObject.find(ctx, id.type, id.id);
-            if (dso == null)
+            if (async)
             {
-                log.error("Cannot find " + Constants.typeText[id.type] 
-                        + " " + id.id + " unexpectedly! Will delete all "
-                        + "information about it in the triple store.");
-                toDelete.add(id);
-                return;
+                // the conversion happens in background threads, after the
+                // end of the request
+                RDFSynchronizer.getInstance().enqueue(toConvert, toDelete);
+            } else {
+                // the conversion uses a new context, to be sure to work as
+                // anonymous user: we don't want to store private data in a 
+                // triplestore with public SPARQL endpoint.
+                RDFSynchronizer.synchronize(toConvert, toDelete);
             }
-            m = RDFUtil.convertAndStore(ctx, dso);
-        }
-        catch(AuthorizeException ex)
-        {
-            log.debug(Constants.typeText[id.type] + " " + 
-                    Integer.toString(id.id) + " couldn't be converted: "
-                    + "anonymous user doesn't have read permsission. " 
-                    + ex.getMessage());
-            toDelete.add(id);
-        }
-        catch (IllegalArgumentException ex)
-        {
-            log.error("Ignoring an unexpected IllegalArgumentException: " 
-                    + ex.getMessage(), ex);
-        }
-        catch (ItemNotArchivedException ex)
-        {
-            log.info("Anonymous user cannot read " 
-                    + Constants.typeText[id.type] + " " 
-                    + Integer.toString(id.id) 
-                    + ": deleting it from the triplestore.");
-            toDelete.add(id);
-        }
-        catch (ItemNotDiscoverableException ex)
-        {
-            log.info("Item " + Integer.toString(id.id) + " is not "
-                    + "discoverable: deleting it from the triplestore.");
-            toDelete.add(id);
-        }
-        catch (ItemWithdrawnException ex)
-        {
-            log.info("Item " + Integer.toString(id.id) + " is withdrawn: "
-                    + "deleting it from the triplestore.");
-            toDelete.add(id);
-        }
-        catch (RDFMissingIdentifierException ex)
-        {
-            log.warn("Cannot convert " + Constants.typeText[id.type] 
-                    + " " + Integer.toString(id.id) + ", as no RDF "
-                    + "identifier could be generated: "
-                    + ex.getMessage(), ex);
         }
         finally
         {
-            if (m != null)
-            {
-                m.close();
-            }
-        }
-    }
-    
-    void delete(Context context, DSOIdentifier id)
-            throws SQLException {
-        try
-        {
-            RDFUtil.delete(context, id.type, id.id, id.handle, id.identifiers);
-        }
-        catch (RDFMissingIdentifierException ex)
-        {
-            log.warn("Cannot delete " + Constants.typeText[id.type] + " " 
-                    + Integer.toString(id.id) + ": " 
-                    + ex.getMessage(), ex);
+            toConvert.clear();
+            toDelete.clear();
         }
+        log.debug("Processing of queued events finished.");
     }
-    
+
     @Override
     public void finish(Context ctx) throws Exception {
     }
 
     @Override
     public void initialize() throws Exception {
+        ConfigurationService configurationService = 
+                new DSpace().getConfigurationService();
+        this.async = configurationService.getPropertyAsType(
+                RDFConfiguration.CONSUMER_ASYNC_KEY, false);
     }
     
-    class DSOIdentifier
+    static class DSOIdentifier
     {
         int type;
         int id;
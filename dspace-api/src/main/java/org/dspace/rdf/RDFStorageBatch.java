@@ -0,0 +1,139 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.dspace.rdf.storage.BatchRDFStorage;
+import org.dspace.rdf.storage.RDFStorage;
+import org.dspace.services.ConfigurationService;
+import org.dspace.utils.DSpace;
+
+/**
+ * Collects the graphs to store in and to delete from the triple store and
+ * sends them in batches. Only the last change of a graph is sent: storing a
+ * graph replaces its pending deletion and the other way round. The batch
+ * takes ownership of the stored models and closes them once they were sent.
+ * <p>
+ * This class is thread safe.
+ */
+class RDFStorageBatch
+{
+    private final RDFStorage storage;
+    private final int size;
+    private final Map<String, Model> toStore;
+    private final Set<String> toDelete;
+
+    /**
+     * @param storage The storage to send the graphs to.
+     * @param size Maximal number of pending graphs, the batch is sent when it
+     *             is reached.
+     */
+    RDFStorageBatch(RDFStorage storage, int size)
+    {
+        this.storage = storage;
+        this.size = Math.max(1, size);
+        this.toStore = new LinkedHashMap<>();
+        this.toDelete = new LinkedHashSet<>();
+    }
+
+    /**
+     * Creates a batch for the configured storage and batch size.
+     */
+    RDFStorageBatch()
+    {
+        this(RDFConfiguration.getRDFStorage(), getConfiguredSize());
+    }
+
+    static int getConfiguredSize()
+    {
+        ConfigurationService configurationService =
+                new DSpace().getConfigurationService();
+        return configurationService.getPropertyAsType(
+                RDFConfiguration.STORAGE_BATCH_SIZE_KEY, 50);
+    }
+
+    synchronized void store(String uri, Model model)
+    {
+        toDelete.remove(uri);
+        Model previous = toStore.put(uri, model);
+        if (previous != null && previous != model)
+        {
+            previous.close();
+        }
+        flushIfFull();
+    }
+
+    synchronized void delete(String uri)
+    {
+        Model previous = toStore.remove(uri);
+        if (previous != null)
+        {
+            previous.close();
+        }
+        toDelete.add(uri);
+        flushIfFull();
+    }
+
+    synchronized int getPending()
+    {
+        return toStore.size() + toDelete.size();
+    }
+
+    /**
+     * Sends the pending graphs. The pending graphs are discarded even if the
+     * storage fails, the failure is thrown to the caller.
+     */
+    synchronized void flush()
+    {
+        try
+        {
+            if (storage instanceof BatchRDFStorage)
+            {
+                if (!toDelete.isEmpty())
+                {
+                    ((BatchRDFStorage) storage).deleteAll(toDelete);
+                }
+                if (!toStore.isEmpty())
+                {
+                    ((BatchRDFStorage) storage).storeAll(toStore);
+                }
+            } else {
+                for (String uri : toDelete)
+                {
+                    storage.delete(uri);
+                }
+                for (Map.Entry<String, Model> entry : toStore.entrySet())
+                {
+                    storage.store(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        finally
+        {
+            for (Model model : toStore.values())
+            {
+                model.close();
+            }
+            toStore.clear();
+            toDelete.clear();
+        }
+    }
+
+    private void flushIfFull()
+    {
+        if (toStore.size() + toDelete.size() >= size)
+        {
+            flush();
+        }
+    }
+}
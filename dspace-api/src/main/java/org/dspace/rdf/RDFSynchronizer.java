@@ -0,0 +1,359 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Site;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.rdf.RDFConsumer.DSOIdentifier;
+import org.dspace.services.ConfigurationService;
+import org.dspace.utils.DSpace;
+
+/**
+ * Synchronizes the triple store with the DSpaceObjects changed in DSpace: the
+ * objects are converted with the context of an anonymous user and their graphs
+ * are sent in batches (see {@link RDFStorageBatch}).
+ * <p>
+ * The {@link RDFConsumer} either synchronizes the objects changed by a request
+ * at its end ({@link #synchronize(Collection, Collection)}), or, if
+ * {@code rdf.consumer.async} is set, hands them over to the shared instance
+ * ({@link #getInstance()}): its background threads convert them after the
+ * request. Pending changes of the same object are coalesced, only the last one
+ * is processed.
+ */
+public class RDFSynchronizer
+{
+    private static final Logger log = Logger.getLogger(RDFSynchronizer.class);
+
+    /** How long to wait for the pending changes at shutdown, in seconds. */
+    private static final int SHUTDOWN_TIMEOUT = 60;
+
+    private static RDFSynchronizer instance;
+
+    /** Pending changes by object, guarded by this */
+    private final Map<DSOIdentifier, Boolean> pending;
+    /** Objects being converted by a thread, guarded by this */
+    private final Set<DSOIdentifier> inProgress;
+    private final int threads;
+    private int running;
+    private final ExecutorService executor;
+
+    protected RDFSynchronizer(int threads)
+    {
+        this.pending = new LinkedHashMap<>();
+        this.inProgress = new HashSet<>();
+        this.threads = Math.max(1, threads);
+        this.running = 0;
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.threads,
+                new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "rdf-synchronizer-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the shared instance, starting it on first call. Its threads
+     * are configured by {@code rdf.consumer.async.threads}. The pending
+     * changes are processed before the JVM exits.
+     */
+    public static synchronized RDFSynchronizer getInstance()
+    {
+        if (instance == null)
+        {
+            ConfigurationService configurationService =
+                    new DSpace().getConfigurationService();
+            instance = new RDFSynchronizer(configurationService.getPropertyAsType(
+                    RDFConfiguration.CONSUMER_THREADS_KEY, 2));
+            Runtime.getRuntime().addShutdownHook(new Thread("rdf-synchronizer-shutdown") {
+                @Override
+                public void run()
+                {
+                    instance.shutdown(SHUTDOWN_TIMEOUT);
+                }
+            });
+        }
+        return instance;
+    }
+
+    /**
+     * Queues changed objects for a background conversion.
+     * @param toConvert Objects to convert and store.
+     * @param toDelete Objects to delete from the triple store.
+     */
+    public synchronized void enqueue(Collection<DSOIdentifier> toConvert,
+            Collection<DSOIdentifier> toDelete)
+    {
+        for (DSOIdentifier id : toConvert)
+        {
+            if (!toDelete.contains(id))
+            {
+                // remove first, to move it to the end of the queue
+                pending.remove(id);
+                pending.put(id, Boolean.FALSE);
+            }
+        }
+        for (DSOIdentifier id : toDelete)
+        {
+            pending.remove(id);
+            pending.put(id, Boolean.TRUE);
+        }
+        while (running < threads && running < pending.size())
+        {
+            running++;
+            executor.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    work();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the number of objects waiting to be processed.
+     */
+    public synchronized int getPending()
+    {
+        return pending.size();
+    }
+
+    /**
+     * Stops the background threads, after they processed the pending
+     * changes or the timeout.
+     * @param timeout Timeout in seconds.
+     */
+    public void shutdown(int timeout)
+    {
+        executor.shutdown();
+        try
+        {
+            if (!executor.awaitTermination(timeout, TimeUnit.SECONDS))
+            {
+                log.warn("Stopped the synchronization of the triple store "
+                        + "with " + getPending() + " pending DSpaceObjects.");
+                executor.shutdownNow();
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void work()
+    {
+        int size = RDFStorageBatch.getConfiguredSize();
+        List<DSOIdentifier> toConvert = new ArrayList<>();
+        List<DSOIdentifier> toDelete = new ArrayList<>();
+        while (true)
+        {
+            synchronized (this)
+            {
+                inProgress.removeAll(toConvert);
+                inProgress.removeAll(toDelete);
+                toConvert.clear();
+                toDelete.clear();
+                // take the next batch, skipping the objects converted by
+                // another thread to keep the changes of an object in order
+                Iterator<Map.Entry<DSOIdentifier, Boolean>> it =
+                        pending.entrySet().iterator();
+                while (it.hasNext() && toConvert.size() + toDelete.size() < size)
+                {
+                    Map.Entry<DSOIdentifier, Boolean> entry = it.next();
+                    if (inProgress.add(entry.getKey()))
+                    {
+                        (entry.getValue() ? toDelete : toConvert).add(entry.getKey());
+                        it.remove();
+                    }
+                }
+                if (toConvert.isEmpty() && toDelete.isEmpty())
+                {
+                    running--;
+                    return;
+                }
+            }
+            try
+            {
+                synchronize(toConvert, toDelete);
+            }
+            catch (Exception ex)
+            {
+                log.error("Cannot synchronize " + toConvert.size()
+                        + " DSpaceObjects to convert and " + toDelete.size()
+                        + " to delete with the triple store.", ex);
+            }
+        }
+    }
+
+    /**
+     * Converts and deletes DSpaceObjects and sends the changes to the triple
+     * store in batches. The objects are read with the context of an anonymous
+     * user, as we don't want to store private data in a triplestore with
+     * public SPARQL endpoint.
+     * @param toConvert Objects to convert and store.
+     * @param toDelete Objects to delete from the triple store.
+     * @throws SQLException
+     */
+    public static void synchronize(Collection<DSOIdentifier> toConvert,
+            Collection<DSOIdentifier> toDelete)
+            throws SQLException
+    {
+        Context ctx = new Context(Context.READ_ONLY);
+        try
+        {
+            RDFStorageBatch batch = new RDFStorageBatch();
+            Set<DSOIdentifier> deletions = new LinkedHashSet<>(toDelete);
+            log.debug("Starting conversion of DSpaceObjects.");
+            for (DSOIdentifier id : toConvert)
+            {
+                if (deletions.contains(id))
+                {
+                    log.debug("Skipping " + Constants.typeText[id.type] + " "
+                            + Integer.toString(id.id) + " as it is marked for "
+                            + "deletion as well.");
+                    continue;
+                }
+                log.debug("Converting " + Constants.typeText[id.type] + " "
+                            + Integer.toString(id.id) + ".");
+                convert(ctx, id, batch, deletions);
+            }
+            log.debug("Conversion ended.");
+
+            log.debug("Starting to delete data from the triple store...");
+            for (DSOIdentifier id : deletions)
+            {
+                log.debug("Going to delete data from " +
+                        Constants.typeText[id.type] + " "
+                        + Integer.toString(id.id) + ".");
+                String uri = RDFUtil.generateIdentifier(ctx, id.type, id.id,
+                        id.handle, id.identifiers);
+                if (uri == null)
+                {
+                    log.warn("Cannot delete " + Constants.typeText[id.type] + " "
+                            + Integer.toString(id.id) + ": no RDF identifier "
+                            + "could be generated.");
+                    continue;
+                }
+                batch.delete(uri);
+            }
+            batch.flush();
+            log.debug("Deletion finished.");
+        }
+        finally
+        {
+            ctx.abort();
+        }
+    }
+
+    static void convert(Context ctx, DSOIdentifier id, RDFStorageBatch batch,
+            Set<DSOIdentifier> deletions) throws SQLException
+    {
+        try
+        {
+            DSpaceObject dso;
+            if (id.type == Constants.SITE)
+            {
+                dso = Site.find(ctx, 0);
+            } else {
+                dso = DSpaceObject.find(ctx, id.type, id.id);
+            }
+            if (dso == null)
+            {
+                log.error("Cannot find " + Constants.typeText[id.type]
+                        + " " + id.id + " unexpectedly! Will delete all "
+                        + "information about it in the triple store.");
+                deletions.add(id);
+                return;
+            }
+
+            Model m = RDFUtil.convert(ctx, dso);
+            String identifier = RDFUtil.generateIdentifier(ctx, dso);
+            if (StringUtils.isEmpty(identifier))
+            {
+                if (m != null) m.close();
+                throw new RDFMissingIdentifierException(dso.getType(), dso.getID());
+            }
+            if (m == null)
+            {
+                // if data about this dso is stored in the triplestore already,
+                // we should remove it as a conversion currently result in no data
+                batch.delete(identifier);
+            } else {
+                batch.store(identifier, m);
+            }
+        }
+        catch(AuthorizeException ex)
+        {
+            log.debug(Constants.typeText[id.type] + " " +
+                    Integer.toString(id.id) + " couldn't be converted: "
+                    + "anonymous user doesn't have read permsission. "
+                    + ex.getMessage());
+            deletions.add(id);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            log.error("Ignoring an unexpected IllegalArgumentException: "
+                    + ex.getMessage(), ex);
+        }
+        catch (ItemNotArchivedException ex)
+        {
+            log.info("Anonymous user cannot read "
+                    + Constants.typeText[id.type] + " "
+                    + Integer.toString(id.id)
+                    + ": deleting it from the triplestore.");
+            deletions.add(id);
+        }
+        catch (ItemNotDiscoverableException ex)
+        {
+            log.info("Item " + Integer.toString(id.id) + " is not "
+                    + "discoverable: deleting it from the triplestore.");
+            deletions.add(id);
+        }
+        catch (ItemWithdrawnException ex)
+        {
+            log.info("Item " + Integer.toString(id.id) + " is withdrawn: "
+                    + "deleting it from the triplestore.");
+            deletions.add(id);
+        }
+        catch (RDFMissingIdentifierException ex)
+        {
+            log.warn("Cannot convert " + Constants.typeText[id.type]
+                    + " " + Integer.toString(id.id) + ", as no RDF "
+                    + "identifier could be generated: "
+                    + ex.getMessage(), ex);
+        }
+    }
+}
@@ -8,11 +8,23 @@
 
 package org.dspace.rdf;
 
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -22,6 +34,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jena.riot.RDFDataMgr;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Collection;
@@ -32,6 +45,7 @@ import org.dspace.content.ItemIterator;
 import org.dspace.content.Site;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.core.ContextExecutor;
 import org.dspace.handle.HandleManager;
 import org.dspace.services.ConfigurationService;
 import org.dspace.utils.DSpace;
@@ -54,6 +68,8 @@ public class RDFizer {
     protected boolean dryrun;
     protected String lang;
     protected Context context;
+    protected int threads;
+    protected OutputStream nquads;
 
     /**
      * Set to remember with DSpaceObject were converted or deleted from the 
@@ -70,7 +86,9 @@ public class RDFizer {
         this.verbose = false;
         this.dryrun = false;
         this.lang = "TURTLE";
-        this.processed = new CopyOnWriteArraySet<String>();
+        this.threads = 1;
+        this.processed = Collections.newSetFromMap(
+                new ConcurrentHashMap<String, Boolean>());
         this.context = new Context(Context.READ_ONLY);
     }
     
@@ -149,6 +167,34 @@ public class RDFizer {
         this.dryrun = dryrun;
     }
     
+    /**
+     * Returns the number of threads converting Items.
+     * @return 
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads converting Items. With more than one thread
+     * the Items of each Collection are converted in parallel, each thread
+     * using its own context.
+     * @param threads 
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set a stream to write all converted data to, as N-Quads: every
+     * DSpaceObject is written in the named graph it is stored in. The data 
+     * are streamed while converting, the stream is not closed.
+     * @param nquads The stream or null.
+     */
+    public void setNQuads(OutputStream nquads) {
+        this.nquads = nquads;
+    }
+
     /**
      * Deletes all data stored in the triplestore (drops all named graphs and
      * cleans the default graph).
@@ -235,68 +281,151 @@ public class RDFizer {
                     + " is currently not supported as independent entity.");
         }
         
+        // the converted graphs are sent to the triple store in batches
+        final RDFStorageBatch batch = dryrun ? null : new RDFStorageBatch();
+        final ItemConverter itemConverter = threads > 1 
+                ? new ItemConverter(batch) : null;
+        
         Callback callback = new Callback() {
             @Override
             protected void callback(DSpaceObject dso)
                     throws SQLException
             {
-                Model converted = null;
-                try
+                if (itemConverter != null && dso instanceof Item)
                 {
-                    if (dryrun)
-                    {
-                        converted = RDFUtil.convert(context, dso);
-                    } else {
-                        converted = RDFUtil.convertAndStore(context, dso);
-                    }
-                } catch (ItemNotArchivedException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is not "
-                            + "archived.");
-                    return;
-                } catch (ItemWithdrawnException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is "
-                            + "withdrawn.");
-                    return;
-                } catch (ItemNotDiscoverableException ex) {
-                    if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
-                    report("Skipping conversion of Item " + dso.getID() 
-                            + " (handle " + dso.getHandle() + "): Item is not "
-                            + "discoverable.");
-                    return;
-                } catch (AuthorizeException ex) {
-                    report("Skipping conversion of " + dso.getTypeText() + " " 
-                            + dso.getID() + " (handle " + dso.getHandle() + ")" 
-                            + ", not authorized: " + ex.getMessage());
-                    return;
-                } catch (RDFMissingIdentifierException ex) {
-                    String errormessage = "Skipping conversion of " 
-                            + dso.getTypeText() + " " + dso.getID() 
-                            + " (handle " + dso.getHandle() + ").";
-                    log.error(errormessage, ex);
-                    System.err.println(errormessage 
-                            + " Error while converting: " + ex.getMessage());
-                    
-                    return;
-                }
-                    
-                if (stdout) {
-                    if (converted == null)
-                    {
-                        System.err.println("Conversion of " + dso.getTypeText() 
-                                + " " + dso.getID() + " resulted in no data.");
-                    } else {
-                        converted.write(System.out, lang);
-                    }
+                    itemConverter.submit(dso.getID());
+                } else {
+                    convert(context, dso, batch);
                 }
-                if (converted != null) converted.close();
             }
         };
         
-        this.dspaceDFS(dso, callback, true, reset);
+        try
+        {
+            this.dspaceDFS(dso, callback, true, reset);
+            if (itemConverter != null)
+            {
+                itemConverter.finish();
+            }
+        }
+        finally
+        {
+            if (itemConverter != null)
+            {
+                itemConverter.close();
+            }
+            if (batch != null)
+            {
+                batch.flush();
+            }
+        }
+    }
+    
+    /**
+     * Converts a DSpaceObject, prints it if requested and adds it to the batch
+     * of graphs to store.
+     */
+    protected void convert(Context context, DSpaceObject dso, RDFStorageBatch batch)
+            throws SQLException
+    {
+        Model converted = null;
+        String identifier = null;
+        try
+        {
+            converted = RDFUtil.convert(context, dso);
+            if (batch != null || nquads != null)
+            {
+                identifier = RDFUtil.generateIdentifier(context, dso);
+                if (StringUtils.isEmpty(identifier))
+                {
+                    if (converted != null) converted.close();
+                    throw new RDFMissingIdentifierException(dso.getType(), dso.getID());
+                }
+            }
+        } catch (ItemNotArchivedException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is not "
+                    + "archived.");
+            return;
+        } catch (ItemWithdrawnException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is "
+                    + "withdrawn.");
+            return;
+        } catch (ItemNotDiscoverableException ex) {
+            if (!(dso instanceof Item)) throw new IllegalStateException(ex.getMessage(), ex);
+            report("Skipping conversion of Item " + dso.getID() 
+                    + " (handle " + dso.getHandle() + "): Item is not "
+                    + "discoverable.");
+            return;
+        } catch (AuthorizeException ex) {
+            report("Skipping conversion of " + dso.getTypeText() + " " 
+                    + dso.getID() + " (handle " + dso.getHandle() + ")" 
+                    + ", not authorized: " + ex.getMessage());
+            return;
+        } catch (RDFMissingIdentifierException ex) {
+            String errormessage = "Skipping conversion of " 
+                    + dso.getTypeText() + " " + dso.getID() 
+                    + " (handle " + dso.getHandle() + ").";
+            log.error(errormessage, ex);
+            System.err.println(errormessage 
+                    + " Error while converting: " + ex.getMessage());
+            
+            return;
+        }
+            
+        if (stdout) {
+            if (converted == null)
+            {
+                System.err.println("Conversion of " + dso.getTypeText() 
+                        + " " + dso.getID() + " resulted in no data.");
+            } else {
+                synchronized (System.out)
+                {
+                    converted.write(System.out, lang);
+                }
+            }
+        }
+        if (nquads != null && converted != null)
+        {
+            writeNQuads(identifier, converted);
+        }
+        
+        if (batch == null)
+        {
+            if (converted != null) converted.close();
+        } else if (converted == null) {
+            // if data about this dso is stored in the triplestore already, we 
+            // should remove it as a conversion currently result in no data
+            batch.delete(identifier);
+        } else {
+            batch.store(identifier, converted);
+        }
+    }
+    
+    protected void writeNQuads(String graph, Model model)
+    {
+        Node graphNode = NodeFactory.createURI(graph);
+        List<Quad> quads = new ArrayList<>();
+        ExtendedIterator<Triple> triples = model.getGraph().find(Node.ANY, 
+                Node.ANY, Node.ANY);
+        try
+        {
+            while (triples.hasNext())
+            {
+                quads.add(new Quad(graphNode, triples.next()));
+            }
+        }
+        finally
+        {
+            triples.close();
+        }
+        synchronized (nquads)
+        {
+            RDFDataMgr.writeQuads(nquads, quads.iterator());
+        }
     }
     
     protected void dspaceDFS(DSpaceObject dso, Callback callback, boolean check, boolean reset)
@@ -502,6 +631,36 @@ public class RDFizer {
         {
             setStdout(true);
         }
+
+        if (line.hasOption("threads"))
+        {
+            try
+            {
+                setThreads(Integer.parseInt(line.getOptionValue("threads")));
+            }
+            catch (NumberFormatException ex)
+            {
+                usage(options);
+                System.err.println("\n\nThe number of threads must be an "
+                        + "integer.");
+                System.exit(1);
+            }
+        }
+        
+        if (line.hasOption("nquads"))
+        {
+            String file = line.getOptionValue("nquads");
+            try
+            {
+                setNQuads("-".equals(file) ? System.out 
+                        : new BufferedOutputStream(new FileOutputStream(file)));
+            }
+            catch (IOException ex)
+            {
+                System.err.println("Cannot open " + file + ": " + ex.getMessage());
+                System.exit(1);
+            }
+        }
                 
         // check mutual exclusive arguments
         if (line.hasOption("delete") && line.hasOption("delete-all"))
@@ -528,12 +687,12 @@ public class RDFizer {
                     + "together with --delete or --delete-all.");
             System.exit(1);
         }
-        if (line.hasOption("stdout") 
+        if ((line.hasOption("stdout") || line.hasOption("nquads"))
                 && (line.hasOption("delete") || line.hasOption("delete-all")))
         {
             usage(options);
-            System.err.println("\n\nYou cannot use the option --stdout together "
-                    + "with --delete or --deleta-all.");
+            System.err.println("\n\nYou cannot use the options --stdout or "
+                    + "--nquads together with --delete or --deleta-all.");
             System.exit(1);
         }
 
@@ -633,6 +792,7 @@ public class RDFizer {
                 }
             }
             report("Conversion ended.");
+            closeNQuads();
             System.exit(0);
         }
 
@@ -640,6 +800,7 @@ public class RDFizer {
         {
             try {
                 this.convertAll();
+                closeNQuads();
             }
             catch (SQLException ex)
             {
@@ -657,6 +818,29 @@ public class RDFizer {
         System.exit(0);
     }
 
+    protected void closeNQuads()
+    {
+        if (nquads == null)
+        {
+            return;
+        }
+        try
+        {
+            if (nquads == System.out)
+            {
+                nquads.flush();
+            } else {
+                nquads.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            log.error(ex);
+            System.err.println("Cannot write the N-Quads: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
     protected DSpaceObject resolveHandle(String handle)
     {
         DSpaceObject dso = null;
@@ -721,6 +905,12 @@ public class RDFizer {
                 "depending on the number of stored communties, collections and " +
                 "items. Existing information in the triple store will be updated.");
 
+        options.addOption("t", "threads", true, "Number of threads " +
+                "converting the Items of each Collection in parallel (default 1).");
+        options.addOption("q", "nquads", true, "Stream all converted data " +
+                "as N-Quads to this file, or to stdout if it is '-'. Every " +
+                "DSpace Object is written in its named graph.");
+
         Option optIdentifiers = OptionBuilder.withLongOpt("identifiers")
             .hasArgs()
             .withArgName("handle")
@@ -811,6 +1001,101 @@ public class RDFizer {
         context.abort();
     }
     
+    /**
+     * Converts Items in parallel, each thread using its own context with the
+     * user of the RDFizer context. At most a few Items per thread are waiting
+     * to be converted, so that the Items are converted while the repository
+     * is traversed. Any failure of a conversion stops the run.
+     */
+    protected class ItemConverter
+    {
+        private final RDFStorageBatch batch;
+        private final ContextExecutor<Context> executor;
+        
+        protected ItemConverter(RDFStorageBatch batch)
+        {
+            this.batch = batch;
+            this.executor = new ContextExecutor<Context>("rdfizer", threads) {
+                @Override
+                protected Context createContext()
+                        throws SQLException
+                {
+                    Context c = new Context(Context.READ_ONLY);
+                    c.setCurrentUser(context.getCurrentUser());
+                    return c;
+                }
+                
+                @Override
+                protected Context createWorker(Context c)
+                {
+                    return c;
+                }
+            };
+        }
+        
+        protected void submit(final int itemID)
+                throws SQLException
+        {
+            checkFailure();
+            executor.execute(new ContextExecutor.WorkerTask<Context>() {
+                @Override
+                public void run(Context c)
+                        throws SQLException
+                {
+                    try
+                    {
+                        Item item = Item.find(c, itemID);
+                        if (item != null)
+                        {
+                            convert(c, item, ItemConverter.this.batch);
+                            item.decache();
+                        }
+                    }
+                    catch (SQLException | RuntimeException ex)
+                    {
+                        log.error("Unable to convert Item " + itemID, ex);
+                        throw ex;
+                    }
+                }
+            });
+        }
+        
+        /**
+         * Waits for the conversion of all submitted Items.
+         */
+        protected void finish()
+                throws SQLException
+        {
+            report("Waiting for the conversion of the remaining Items...");
+            executor.shutdown();
+            checkFailure();
+            executor.close();
+        }
+        
+        protected void close()
+        {
+            executor.close();
+        }
+        
+        private void checkFailure()
+                throws SQLException
+        {
+            Exception ex = executor.getFailure();
+            if (ex instanceof SQLException)
+            {
+                throw (SQLException) ex;
+            }
+            if (ex instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex;
+            }
+            if (ex != null)
+            {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+    }
+    
     protected abstract class Callback
     {
         protected abstract void callback(DSpaceObject dso)
@@ -0,0 +1,31 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf.storage;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An {@link RDFStorage} able to store and delete several named graphs in one
+ * request. Storages that don't implement it get one request per graph.
+ */
+public interface BatchRDFStorage extends RDFStorage {
+    /**
+     * Replace the content of several named graphs.
+     * @param models The models to store, by the URI of their named graph.
+     */
+    public void storeAll(Map<String, Model> models);
+
+    /**
+     * Delete several named graphs.
+     * @param uris The URIs of the named graphs to delete.
+     */
+    public void deleteAll(Collection<String> uris);
+}
@@ -11,6 +11,7 @@ package org.dspace.rdf.storage;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.DatasetFactory;
 import com.hp.hpl.jena.query.QueryExecution;
@@ -19,11 +20,21 @@ import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.sparql.core.DatasetGraph;
+import com.hp.hpl.jena.sparql.core.Quad;
+import com.hp.hpl.jena.sparql.modify.request.QuadDataAcc;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDataInsert;
+import com.hp.hpl.jena.sparql.modify.request.UpdateDrop;
 import com.hp.hpl.jena.update.GraphStore;
 import com.hp.hpl.jena.update.GraphStoreFactory;
+import com.hp.hpl.jena.update.UpdateExecutionFactory;
+import com.hp.hpl.jena.update.UpdateProcessor;
+import com.hp.hpl.jena.update.UpdateRequest;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.apache.jena.atlas.web.auth.HttpAuthenticator;
 import org.apache.jena.atlas.web.auth.SimpleAuthenticator;
@@ -39,7 +50,7 @@ import org.dspace.utils.DSpace;
  * @author Pascal-Nicolas Becker (dspace -at- pascal -hyphen- becker -dot- de)
  */
 public class RDFStorageImpl
-implements RDFStorage
+implements BatchRDFStorage
 {
     private static final Logger log = Logger.getLogger(RDFStorageImpl.class);
     
@@ -49,6 +60,7 @@ implements RDFStorage
     private final String SPARQL_ENDPOINT;
     private final String SPARQL_LOGIN;
     private final String SPARQL_PASSWORD;
+    private final String UPDATE_ENDPOINT;
     
     private ConfigurationService configurationService;
     
@@ -121,6 +133,11 @@ implements RDFStorage
             this.SPARQL_LOGIN = sparql_login;
             this.SPARQL_PASSWORD = sparql_password;
         }
+
+        String update_endpoint = this.configurationService.getProperty(
+                RDFConfiguration.STORAGE_SPARQL_UPDATE_ENDPOINT_KEY);
+        this.UPDATE_ENDPOINT = StringUtils.isEmpty(update_endpoint) ? null 
+                : update_endpoint;
     }
     
     @Override
@@ -134,6 +151,87 @@ implements RDFStorage
         accessor.httpPut(graphNode, g);
     }
     
+    @Override
+    public void storeAll(Map<String, Model> models)
+    {
+        if (models.isEmpty())
+        {
+            return;
+        }
+        if (this.UPDATE_ENDPOINT == null)
+        {
+            for (Map.Entry<String, Model> entry : models.entrySet())
+            {
+                this.store(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        
+        // replace all graphs with one update request
+        UpdateRequest request = new UpdateRequest();
+        QuadDataAcc quads = new QuadDataAcc();
+        for (Map.Entry<String, Model> entry : models.entrySet())
+        {
+            Node graphNode = NodeFactory.createURI(entry.getKey());
+            request.add(new UpdateDrop(graphNode, true));
+            ExtendedIterator<Triple> triples = entry.getValue().getGraph()
+                    .find(Node.ANY, Node.ANY, Node.ANY);
+            try
+            {
+                while (triples.hasNext())
+                {
+                    quads.addQuad(new Quad(graphNode, triples.next()));
+                }
+            }
+            finally
+            {
+                triples.close();
+            }
+        }
+        request.add(new UpdateDataInsert(quads));
+        this.execute(request);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> uris)
+    {
+        if (uris.isEmpty())
+        {
+            return;
+        }
+        if (this.UPDATE_ENDPOINT == null)
+        {
+            for (String uri : uris)
+            {
+                this.delete(uri);
+            }
+            return;
+        }
+        
+        UpdateRequest request = new UpdateRequest();
+        for (String uri : uris)
+        {
+            request.add(new UpdateDrop(NodeFactory.createURI(uri), true));
+        }
+        this.execute(request);
+    }
+    
+    protected void execute(UpdateRequest request)
+    {
+        UpdateProcessor processor;
+        if (this.GRAPHSTORE_LOGIN != null)
+        {
+            HttpAuthenticator httpAuthenticator = new SimpleAuthenticator(
+                    GRAPHSTORE_LOGIN, GRAPHSTORE_PASSWORD.toCharArray());
+            processor = UpdateExecutionFactory.createRemote(request,
+                    UPDATE_ENDPOINT, httpAuthenticator);
+        } else {
+            processor = UpdateExecutionFactory.createRemote(request,
+                    UPDATE_ENDPOINT);
+        }
+        processor.execute();
+    }
+    
     public Model load(String uri)
     {
         Node graphNode = NodeFactory.createURI(uri);
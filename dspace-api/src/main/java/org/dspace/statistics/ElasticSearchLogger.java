@@ -14,11 +14,16 @@ import java.net.InetAddress;
 import java.net.URL;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.HttpServletRequest;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 import com.maxmind.geoip2.DatabaseReader;
+import com.maxmind.geoip2.exception.GeoIp2Exception;
 import com.maxmind.geoip2.model.CityResponse;
 
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -29,6 +34,7 @@ import org.dspace.content.*;
 import org.dspace.content.Collection;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
+import org.dspace.core.Context;
 import org.dspace.eperson.EPerson;
 import org.dspace.statistics.util.DnsLookup;
 import org.dspace.statistics.util.LocationUtils;
@@ -38,12 +44,18 @@ import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequestBuilder;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
-import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -54,21 +66,42 @@ public class ElasticSearchLogger {
 
     private static Logger log = Logger.getLogger(ElasticSearchLogger.class);
 
-    private static boolean useProxies;
+    private static final String MODULE = "elastic-search-statistics";
+
+    /** Maximal number of usage events completed with the same Context */
+    private static final int INDEXER_BATCH = 100;
+
+    private boolean useProxies;
 
     public static final String DATE_FORMAT_8601 = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
 
     public static final String DATE_FORMAT_DCDATE = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
-    public static String clusterName = "dspacestatslogging";
-    public static String indexName = "dspaceindex";
-    public static String indexType = "stats";
-    public static String address = "127.0.0.1";
-    public static int port = 9300;
+    private String clusterName = "dspacestatslogging";
+    private String indexName = "dspaceindex";
+    private String indexType = "stats";
+    private String address = "127.0.0.1";
+    private int port = 9300;
+
+    private Client client;
+
+    protected DatabaseReader locationService;
+
+    /** The usage events waiting to be completed and sent to Elastic Search */
+    private volatile BlockingQueue<UsageRecord> queue;
 
-    private static Client client;
+    /** Whether the indexer is stopped: the usage events are dropped */
+    private volatile boolean closed = false;
 
-    protected static DatabaseReader locationService;
+    /** Sends the queued usage events by bulk */
+    private Thread indexer;
+
+    /** Stops the indexer when the JVM exits without {@link #shutdown()} */
+    private Thread shutdownHook;
+
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
 
     public static enum ClientType {
         NODE, LOCAL, TRANSPORT
@@ -77,6 +110,7 @@ public class ElasticSearchLogger {
 
     public ElasticSearchLogger() {
         // nobody should be instantiating this...
+        loadConfiguration();
     }
 
     public ElasticSearchLogger(boolean doInitialize) {
@@ -87,9 +121,26 @@ public class ElasticSearchLogger {
         return ElasticSearchLoggerSingletonHolder.instance;
     }
 
+    /**
+     * Stop the singleton, see {@link #shutdown()}, if it was ever created:
+     * the client and the index are not created just to be stopped.
+     */
+    public static void shutdownInstance() {
+        if (instanceCreated) {
+            getInstance().shutdown();
+        }
+    }
+
+    /** Whether the singleton was created */
+    private static volatile boolean instanceCreated = false;
+
     // Singleton Pattern of "Initialization on demand holder idiom"
     private static class ElasticSearchLoggerSingletonHolder {
         public static final ElasticSearchLogger instance = new ElasticSearchLogger(true);
+
+        static {
+            instanceCreated = true;
+        }
     }
 
     public void initializeElasticSearch() {
@@ -127,12 +178,7 @@ public class ElasticSearchLogger {
 
         log.info("useProxies=" + useProxies);
         
-        // Configurable values for all elasticsearch connection constants
-        clusterName = getConfigurationStringWithFallBack("elastic-search-statistics", "clusterName", clusterName);
-        indexName   = getConfigurationStringWithFallBack("elastic-search-statistics", "indexName", indexName);
-        indexType   = getConfigurationStringWithFallBack("elastic-search-statistics", "indexType", indexType);
-        address     = getConfigurationStringWithFallBack("elastic-search-statistics", "address", address);
-        port        = ConfigurationManager.getIntProperty("elastic-search-statistics", "port", port);
+        loadConfiguration();
 
         //Initialize the connection to Elastic Search, and ensure our index is available.
         client = getClient();
@@ -197,6 +243,8 @@ public class ElasticSearchLogger {
             log.info("DS ES index already exists");
         }
 
+        startIndexer();
+
         log.info("DSpace ElasticSearchLogger Initialized Successfully (I suppose)");
 
         } catch (Exception e) {
@@ -207,8 +255,6 @@ public class ElasticSearchLogger {
     public void post(DSpaceObject dspaceObject, HttpServletRequest request, EPerson currentUser) {
         //log.info("DS-ES post for type:"+dspaceObject.getType() + " -- " + dspaceObject.getName());
 
-        client = ElasticSearchLogger.getInstance().getClient();
-
         boolean isSpiderBot = SpiderDetector.isSpider(request);
 
         try {
@@ -235,102 +281,20 @@ public class ElasticSearchLogger {
                 }
             }
 
-            XContentBuilder docBuilder = null;
-
-
-            docBuilder = XContentFactory.jsonBuilder().startObject();
-
-
-            docBuilder.field("ip", ip);
-
-            docBuilder.field("id", dspaceObject.getID());
-
-            // The numerical constant that represents the DSpaceObject TYPE. i.e. 0=bitstream, 2=item, ...
-            docBuilder.field("typeIndex", dspaceObject.getType());
-
-            // The text that represent the DSpaceObject TYPE. i.e. BITSTREAM, ITEM, COLLECTION, COMMUNITY
-            docBuilder.field("type", Constants.typeText[dspaceObject.getType()]);
-
-            // Save the current time
-            docBuilder.field("time", DateFormatUtils.format(new Date(), DATE_FORMAT_8601));
-            if (currentUser != null) {
-                docBuilder.field("epersonid", currentUser.getID());
-            }
-
-            try {
-                String dns = DnsLookup.reverseDns(ip);
-                docBuilder.field("dns", dns.toLowerCase());
-            } catch (Exception e) {
-                log.error("Failed DNS Lookup for IP:" + ip);
-                log.debug(e.getMessage(), e);
-            }
-
-            // Save the location information if valid, save the event without
-            // location information if not valid
-            InetAddress ipAddress = InetAddress.getByName(ip);
-            CityResponse location = locationService.city(ipAddress);
-            String countryCode = location.getCountry().getIsoCode();
-            double latitude = location.getLocation().getLatitude();
-            double longitude = location.getLocation().getLongitude();
-            if (!("--".equals(countryCode)
-                    && latitude == -180 && longitude == -180)) {
-                try {
-                    docBuilder.field("continent", LocationUtils
-                            .getContinentCode(countryCode));
-                } catch (IOException e) {
-                    System.out
-                            .println("COUNTRY ERROR: " + countryCode);
-                }
-                docBuilder.field("countryCode", countryCode);
-                docBuilder.field("city", location.getCity().getName());
-                docBuilder.field("latitude", latitude);
-                docBuilder.field("longitude", longitude);
-                docBuilder.field("isBot", isSpiderBot);
-
-                if (request.getHeader("User-Agent") != null) {
-                    docBuilder.field("userAgent", request.getHeader("User-Agent"));
-                }
-            }
-
-            if (dspaceObject instanceof Bitstream) {
-                Bitstream bit = (Bitstream) dspaceObject;
-                Bundle[] bundles = bit.getBundles();
-                docBuilder.field("bundleName").startArray();
-                for (Bundle bundle : bundles) {
-                    docBuilder.value(bundle.getName());
-                }
-                docBuilder.endArray();
-            }
-
-            storeParents(docBuilder, getParents(dspaceObject));
-
-            docBuilder.endObject();
-
-            if (docBuilder != null) {
-                IndexRequestBuilder irb = client.prepareIndex(indexName, indexType)
-                        .setSource(docBuilder);
-                //log.info("Executing document insert into index");
-                if(client == null) {
-                    log.error("Hey, client is null");
-                }
-                irb.execute().actionGet();
-            }
+            queue(new UsageRecord(dspaceObject, ip, request.getHeader("User-Agent"), isSpiderBot, currentUser),
+                    dspaceObject);
 
         } catch (RuntimeException re) {
             log.error("RunTimer in ESL:\n" + ExceptionUtils.getStackTrace(re));
             throw re;
         } catch (Exception e) {
             log.error(e.getMessage());
-        } finally {
-            client.close();
         }
     }
 
     public void post(DSpaceObject dspaceObject, String ip, String userAgent, String xforwardedfor, EPerson currentUser) {
         //log.info("DS-ES post for type:"+dspaceObject.getType() + " -- " + dspaceObject.getName());
 
-        client = ElasticSearchLogger.getInstance().getClient();
-
         boolean isSpiderBot = SpiderDetector.isSpider(ip);
 
         try {
@@ -355,136 +319,373 @@ public class ElasticSearchLogger {
                 }
             }
 
-            XContentBuilder docBuilder = null;
+            queue(new UsageRecord(dspaceObject, ip, userAgent, isSpiderBot, currentUser), dspaceObject);
 
+        } catch (RuntimeException re) {
+            log.error("RunTimer in ESL:\n" + ExceptionUtils.getStackTrace(re));
+            throw re;
+        } catch (Exception e) {
+            log.error(e.getMessage());
+        }
+    }
 
-            docBuilder = XContentFactory.jsonBuilder().startObject();
+    /**
+     * What the request thread knows about a usage event. The reverse DNS, the
+     * location and the parents of the object are looked up by the indexer
+     * thread, see {@link #buildDocument(UsageRecord, DSpaceObject)}.
+     */
+    private static class UsageRecord {
+        private final int type;
+        private final int id;
+        private final String ip;
+        private final String userAgent;
+        private final boolean isSpiderBot;
+        private final Integer epersonId;
+        private final Date time = new Date();
+
+        private UsageRecord(DSpaceObject dspaceObject, String ip, String userAgent, boolean isSpiderBot,
+                EPerson currentUser) {
+            this.type = dspaceObject.getType();
+            this.id = dspaceObject.getID();
+            this.ip = ip;
+            this.userAgent = userAgent;
+            this.isSpiderBot = isSpiderBot;
+            this.epersonId = currentUser == null ? null : currentUser.getID();
+        }
+    }
 
+    /**
+     * Build the Elastic Search document of a usage event.
+     *
+     * @param record the usage event
+     * @param dspaceObject the object used, null if it was deleted meanwhile
+     */
+    private XContentBuilder buildDocument(UsageRecord record, DSpaceObject dspaceObject)
+            throws IOException, SQLException, GeoIp2Exception {
+        XContentBuilder docBuilder = null;
 
-            docBuilder.field("ip", ip);
 
-            docBuilder.field("id", dspaceObject.getID());
+        docBuilder = XContentFactory.jsonBuilder().startObject();
 
-            // The numerical constant that represents the DSpaceObject TYPE. i.e. 0=bitstream, 2=item, ...
-            docBuilder.field("typeIndex", dspaceObject.getType());
 
-            // The text that represent the DSpaceObject TYPE. i.e. BITSTREAM, ITEM, COLLECTION, COMMUNITY
-            docBuilder.field("type", Constants.typeText[dspaceObject.getType()]);
+        docBuilder.field("ip", record.ip);
 
-            // Save the current time
-            docBuilder.field("time", DateFormatUtils.format(new Date(), DATE_FORMAT_8601));
-            if (currentUser != null) {
-                docBuilder.field("epersonid", currentUser.getID());
-            }
+        docBuilder.field("id", record.id);
 
-            try {
-                String dns = DnsLookup.reverseDns(ip);
-                docBuilder.field("dns", dns.toLowerCase());
-            } catch (Exception e) {
-                log.error("Failed DNS Lookup for IP:" + ip);
-                log.debug(e.getMessage(), e);
-            }
+        // The numerical constant that represents the DSpaceObject TYPE. i.e. 0=bitstream, 2=item, ...
+        docBuilder.field("typeIndex", record.type);
 
-            // Save the location information if valid, save the event without
-            // location information if not valid.
-            InetAddress ipAddress = InetAddress.getByName(ip);
-            CityResponse location = locationService.city(ipAddress);
-            String countryCode = location.getCountry().getIsoCode();
-            double latitude = location.getLocation().getLatitude();
-            double longitude = location.getLocation().getLongitude();
-            if (!("--".equals(countryCode)
-                    && latitude == -180 && longitude == -180)) {
-                try {
-                    docBuilder.field("continent", LocationUtils
-                            .getContinentCode(countryCode));
-                } catch (IOException e) {
-                    System.out
-                            .println("COUNTRY ERROR: " + countryCode);
-                }
-                docBuilder.field("countryCode", countryCode);
-                docBuilder.field("city", location.getCity().getName());
-                docBuilder.field("latitude", latitude);
-                docBuilder.field("longitude", longitude);
-                docBuilder.field("isBot", isSpiderBot);
-
-                if (userAgent != null) {
-                    docBuilder.field("userAgent", userAgent);
-                }
-            }
+        // The text that represent the DSpaceObject TYPE. i.e. BITSTREAM, ITEM, COLLECTION, COMMUNITY
+        docBuilder.field("type", Constants.typeText[record.type]);
 
-            if (dspaceObject instanceof Bitstream) {
-                Bitstream bit = (Bitstream) dspaceObject;
-                Bundle[] bundles = bit.getBundles();
-                docBuilder.field("bundleName").startArray();
-                for (Bundle bundle : bundles) {
-                    docBuilder.value(bundle.getName());
-                }
-                docBuilder.endArray();
-            }
+        // Save the time of the usage event
+        docBuilder.field("time", DateFormatUtils.format(record.time, DATE_FORMAT_8601));
+        if (record.epersonId != null) {
+            docBuilder.field("epersonid", record.epersonId);
+        }
 
-            storeParents(docBuilder, getParents(dspaceObject));
+        try {
+            String dns = DnsLookup.reverseDns(record.ip);
+            docBuilder.field("dns", dns.toLowerCase());
+        } catch (Exception e) {
+            log.error("Failed DNS Lookup for IP:" + record.ip);
+            log.debug(e.getMessage(), e);
+        }
 
-            docBuilder.endObject();
+        // Save the location information if valid, save the event without
+        // location information if not valid
+        InetAddress ipAddress = InetAddress.getByName(record.ip);
+        CityResponse location = locationService.city(ipAddress);
+        String countryCode = location.getCountry().getIsoCode();
+        double latitude = location.getLocation().getLatitude();
+        double longitude = location.getLocation().getLongitude();
+        if (!("--".equals(countryCode)
+                && latitude == -180 && longitude == -180)) {
+            try {
+                docBuilder.field("continent", LocationUtils
+                        .getContinentCode(countryCode));
+            } catch (IOException e) {
+                System.out
+                        .println("COUNTRY ERROR: " + countryCode);
+            }
+            docBuilder.field("countryCode", countryCode);
+            docBuilder.field("city", location.getCity().getName());
+            docBuilder.field("latitude", latitude);
+            docBuilder.field("longitude", longitude);
+            docBuilder.field("isBot", record.isSpiderBot);
+
+            if (record.userAgent != null) {
+                docBuilder.field("userAgent", record.userAgent);
+            }
+        }
 
-            if (docBuilder != null) {
-                IndexRequestBuilder irb = client.prepareIndex(indexName, indexType)
-                        .setSource(docBuilder);
-                //log.info("Executing document insert into index");
-                if(client == null) {
-                    log.error("Hey, client is null");
-                }
-                irb.execute().actionGet();
+        if (dspaceObject instanceof Bitstream) {
+            Bitstream bit = (Bitstream) dspaceObject;
+            Bundle[] bundles = bit.getBundles();
+            docBuilder.field("bundleName").startArray();
+            for (Bundle bundle : bundles) {
+                docBuilder.value(bundle.getName());
             }
+            docBuilder.endArray();
+        }
 
-        } catch (RuntimeException re) {
-            log.error("RunTimer in ESL:\n" + ExceptionUtils.getStackTrace(re));
-            throw re;
-        } catch (Exception e) {
-            log.error(e.getMessage());
-        } finally {
-            client.close();
+        if (dspaceObject != null) {
+            storeParents(docBuilder, getParents(dspaceObject));
         }
+
+        docBuilder.endObject();
+        return docBuilder;
     }
 
     
-    public static String getClusterName() {
+    public String getClusterName() {
         return clusterName;
     }
 
-    public static void setClusterName(String clusterName) {
-        ElasticSearchLogger.clusterName = clusterName;
+    public void setClusterName(String clusterName) {
+        this.clusterName = clusterName;
     }
 
-    public static String getIndexName() {
+    public String getIndexName() {
         return indexName;
     }
 
-    public static void setIndexName(String indexName) {
-        ElasticSearchLogger.indexName = indexName;
+    public void setIndexName(String indexName) {
+        this.indexName = indexName;
     }
 
-    public static String getIndexType() {
+    public String getIndexType() {
         return indexType;
     }
 
-    public static void setIndexType(String indexType) {
-        ElasticSearchLogger.indexType = indexType;
+    public void setIndexType(String indexType) {
+        this.indexType = indexType;
     }
 
-    public static String getAddress() {
+    public String getAddress() {
         return address;
     }
 
-    public static void setAddress(String address) {
-        ElasticSearchLogger.address = address;
+    public void setAddress(String address) {
+        this.address = address;
     }
 
-    public static int getPort() {
+    public int getPort() {
         return port;
     }
 
-    public static void setPort(int port) {
-        ElasticSearchLogger.port = port;
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * @return the number of usage events indexed since the start
+     */
+    public long getIndexedCount() {
+        return indexed.get();
+    }
+
+    /**
+     * @return the number of usage events rejected by Elastic Search since the
+     *         start
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of usage events dropped because the queue was full
+     *         or the logger was stopped
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Queue a usage event, to be completed and sent with the next bulk request
+     * by the indexer thread. The request thread waits at most
+     * <code>queue.offer-timeout</code> milliseconds for a free place when the
+     * queue is full, then the event is dropped and counted.
+     *
+     * @param record the usage event
+     * @param dspaceObject the object used
+     */
+    private void queue(UsageRecord record, DSpaceObject dspaceObject) throws Exception {
+        BlockingQueue<UsageRecord> events = queue;
+        if (events == null && !closed) {
+            // not initialized, e.g. from the command line
+            getClient().index(new IndexRequest(indexName, indexType).source(buildDocument(record, dspaceObject)))
+                    .actionGet();
+            indexed.incrementAndGet();
+            return;
+        }
+        long timeout = ConfigurationManager.getLongProperty(MODULE, "queue.offer-timeout", 0);
+        if (events == null || !events.offer(record, timeout, TimeUnit.MILLISECONDS)) {
+            long count = dropped.incrementAndGet();
+            // do not flood the log while Elastic Search is falling behind
+            if (Long.bitCount(count) == 1) {
+                log.warn("The usage event queue is full, " + count + " usage events dropped so far");
+            }
+        }
+    }
+
+    /**
+     * Complete queued usage events and add them to the bulk processor. The
+     * objects used are loaded with a Context of the indexer thread, the
+     * events whose document cannot be built are counted as failed.
+     *
+     * @param records the usage events
+     * @param bulkProcessor the bulk processor of the indexer
+     */
+    private void indexAll(List<UsageRecord> records, BulkProcessor bulkProcessor) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Context context = null;
+        try {
+            context = new Context();
+            for (UsageRecord record : records) {
+                try {
+                    DSpaceObject dspaceObject = DSpaceObject.find(context, record.type, record.id);
+                    bulkProcessor.add(new IndexRequest(indexName, indexType)
+                            .source(buildDocument(record, dspaceObject)));
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("Unable to index the usage event of " + Constants.typeText[record.type]
+                            + " " + record.id + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            failed.addAndGet(records.size());
+            log.error("Unable to index " + records.size() + " usage events", e);
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Create a bulk processor sending index requests to the index, flushed
+     * after <code>bulk.actions</code> requests, <code>bulk.size-mb</code> MB or
+     * <code>bulk.flush-interval</code> seconds, whichever comes first, with at
+     * most <code>bulk.concurrent-requests</code> bulk requests in flight.
+     * Adding a request blocks while they are all in flight.
+     *
+     * @param client the client to send the requests with
+     * @param name the name of the processor, for its thread
+     */
+    public BulkProcessor createBulkProcessor(Client client, String name) {
+        return BulkProcessor.builder(client, new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                int failures = 0;
+                if (response.hasFailures()) {
+                    for (BulkItemResponse item : response.getItems()) {
+                        if (item.isFailed()) {
+                            failures++;
+                        }
+                    }
+                    log.error("Bulk request partially failed: " + response.buildFailureMessage());
+                }
+                indexed.addAndGet(request.numberOfActions() - failures);
+                failed.addAndGet(failures);
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                log.error("Bulk request of " + request.numberOfActions() + " usage events failed", failure);
+                failed.addAndGet(request.numberOfActions());
+            }
+        })
+                .setName(name)
+                .setBulkActions(ConfigurationManager.getIntProperty(MODULE, "bulk.actions", 1000))
+                .setBulkSize(new ByteSizeValue(ConfigurationManager.getIntProperty(MODULE, "bulk.size-mb", 5), ByteSizeUnit.MB))
+                .setFlushInterval(TimeValue.timeValueSeconds(ConfigurationManager.getIntProperty(MODULE, "bulk.flush-interval", 5)))
+                .setConcurrentRequests(ConfigurationManager.getIntProperty(MODULE, "bulk.concurrent-requests", 1))
+                .build();
+    }
+
+    /**
+     * Start the thread completing the queued usage events and moving them to a
+     * bulk processor, so that the request threads never wait for the reverse
+     * DNS, the location lookup, the database or Elastic Search. It is stopped
+     * by {@link #shutdown()}, or by a shutdown hook when the JVM exits.
+     */
+    private synchronized void startIndexer() {
+        if (indexer != null || closed) {
+            return;
+        }
+        final BlockingQueue<UsageRecord> events = new ArrayBlockingQueue<UsageRecord>(
+                ConfigurationManager.getIntProperty(MODULE, "queue.size", 10000));
+        final BulkProcessor bulkProcessor = createBulkProcessor(client, "dspace-usage-events");
+        indexer = new Thread("ElasticSearchLogger indexer") {
+            @Override
+            public void run() {
+                List<UsageRecord> records = new ArrayList<UsageRecord>();
+                try {
+                    while (!isInterrupted()) {
+                        records.add(events.take());
+                        events.drainTo(records, INDEXER_BATCH - 1);
+                        indexAll(records, bulkProcessor);
+                        records.clear();
+                    }
+                } catch (InterruptedException e) {
+                    // shutting down
+                } finally {
+                    // let the lookups of the remaining events run
+                    Thread.interrupted();
+                    events.drainTo(records);
+                    indexAll(records, bulkProcessor);
+                    bulkProcessor.close();
+                }
+            }
+        };
+        indexer.setDaemon(true);
+        queue = events;
+        indexer.start();
+
+        shutdownHook = new Thread("ElasticSearchLogger shutdown") {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Send the queued usage events and stop the indexer thread. The usage
+     * events posted afterwards are dropped. This is called by the destroy
+     * method of {@link ElasticSearchLoggerEventListener} when the web
+     * application stops, else by a shutdown hook.
+     */
+    public synchronized void shutdown() {
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is exiting, the hook waits for this call
+            }
+        }
+        shutdownHook = null;
+        closed = true;
+        queue = null;
+        if (indexer != null) {
+            indexer.interrupt();
+            try {
+                indexer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            indexer = null;
+        }
+        log.info("ElasticSearchLogger stopped: " + indexed.get() + " usage events indexed, "
+                + failed.get() + " failed, " + dropped.get() + " dropped");
     }
 
     public void buildParents(DSpaceObject dso, HashMap<String, ArrayList<Integer>> parents)
@@ -556,16 +757,17 @@ public class ElasticSearchLogger {
         return useProxies;
     }
 
+    // Configurable values for all elasticsearch connection constants
+    private void loadConfiguration() {
+        clusterName = getConfigurationStringWithFallBack(MODULE, "clusterName", clusterName);
+        indexName   = getConfigurationStringWithFallBack(MODULE, "indexName", indexName);
+        indexType   = getConfigurationStringWithFallBack(MODULE, "indexType", indexType);
+        address     = getConfigurationStringWithFallBack(MODULE, "address", address);
+        port        = ConfigurationManager.getIntProperty(MODULE, "port", port);
+    }
+
     // Transport Client will talk to server on 9300
     public void createTransportClient() {
-        // Configurable values for all elasticsearch connection constants
-        // Can't guarantee that these values are already loaded, since this can be called by a different JVM
-        clusterName = getConfigurationStringWithFallBack("elastic-search-statistics", "clusterName", clusterName);
-        indexName   = getConfigurationStringWithFallBack("elastic-search-statistics", "indexName", indexName);
-        indexType   = getConfigurationStringWithFallBack("elastic-search-statistics", "indexType", indexType);
-        address     = getConfigurationStringWithFallBack("elastic-search-statistics", "address", address);
-        port        = ConfigurationManager.getIntProperty("elastic-search-statistics", "port", port);
-
         log.info("Creating TransportClient to [Address:" + address + "] [Port:" + port + "] [cluster.name:" + clusterName + "]");
 
         Settings settings = ImmutableSettings.settingsBuilder().put("cluster.name", clusterName).build();
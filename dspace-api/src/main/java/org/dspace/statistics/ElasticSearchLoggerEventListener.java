@@ -37,4 +37,13 @@ public class ElasticSearchLoggerEventListener extends AbstractUsageEventListener
             }
         }
     }
+
+    /**
+     * Send the queued usage events and stop the indexer of the logger, if it
+     * was used, when the web application stops: the destroy-method of the
+     * bean.
+     */
+    public void destroy() {
+        ElasticSearchLogger.shutdownInstance();
+    }
 }
@@ -7,67 +7,52 @@
  */
 package org.dspace.statistics;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateFormatUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrServer;
-import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
-import org.apache.solr.client.solrj.request.ContentStreamUpdateRequest;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.FacetField;
 import org.apache.solr.client.solrj.response.LukeResponse;
 import org.apache.solr.client.solrj.response.QueryResponse;
-import org.apache.solr.client.solrj.response.RangeFacet;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.luke.FieldFlag;
-import org.apache.solr.common.params.CommonParams;
-import org.apache.solr.common.params.FacetParams;
-import org.apache.solr.common.params.MapSolrParams;
-import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.dspace.app.statistics.StoreParentsAdditionalStatisticsData;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
-import org.dspace.content.DCDate;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.core.ConfigurationManager;
@@ -80,8 +65,6 @@ import org.dspace.statistics.util.SpiderDetector;
 import org.dspace.usage.UsageWorkflowEvent;
 import org.dspace.utils.DSpace;
 
-import au.com.bytecode.opencsv.CSVReader;
-import au.com.bytecode.opencsv.CSVWriter;
 
 /**
  * Static holder for a HttpSolrClient connection pool to issue
@@ -100,7 +83,6 @@ public class SolrLogger
     
     private static final Logger log = Logger.getLogger(SolrLogger.class);
 	
-    private static final String MULTIPLE_VALUES_SPLITTER = "|";
     
     private HttpSolrServer solr;
 
@@ -114,6 +96,9 @@ public class SolrLogger
 
     private List<String> statisticYearCores = new ArrayList<String>();
 
+    /** The year cores, by name */
+    private Map<String, HttpSolrServer> statisticYearServers = new LinkedHashMap<String, HttpSolrServer>();
+
     public static enum StatisticsType {
    		VIEW ("view"),
    		SEARCH ("search"),
@@ -183,7 +168,7 @@ public class SolrLogger
                     for (File solrCoreFile : solrCoreFiles) {
                         log.info("Loading core with name: " + solrCoreFile.getName());
 
-                        createCore(server, solrCoreFile.getName());
+                        statisticYearServers.put(solrCoreFile.getName(), createCore(server, solrCoreFile.getName()));
                         //Add it to our cores list so we can query it !
                         statisticYearCores.add(baseSolrUrl.replace("http://", "").replace("https://", "") + solrCoreFile.getName());
                     }
@@ -379,6 +364,45 @@ public class SolrLogger
 	}
     
 
+    /**
+     * Returns the document of a view of a DSpace object at a given time, to be
+     * added later with {@link #addDocuments(List)}, e.g. when importing the
+     * usage events of old log files.
+     * @param dspaceObject the object viewed.
+     * @param ip the final IP address of the client.
+     * @param dns the host name of the client, or null.
+     * @param currentUser the user, or null.
+     * @param time the time of the view.
+     * @return a solr input document, or null if the view is not logged
+     * @throws SQLException in case of a database exception
+     */
+    public SolrInputDocument createViewDocument(DSpaceObject dspaceObject, String ip, String dns,
+            EPerson currentUser, Date time) throws SQLException {
+        SolrInputDocument doc1 = getCommonSolrDocByFinalIP(dspaceObject, ip, dns, null, currentUser);
+        if (doc1 == null)
+        {
+            return null;
+        }
+        doc1.setField("time", DateFormatUtils.format(time, DATE_FORMAT_8601));
+        doc1.addField("statistics_type", StatisticsType.VIEW.text());
+        return doc1;
+    }
+
+    /**
+     * Add documents to the statistics core in one request.
+     * @param docs the documents, see {@link #createViewDocument}.
+     * @throws IOException in case of a connection failure
+     * @throws SolrServerException in case of a Solr failure
+     */
+    public void addDocuments(List<SolrInputDocument> docs) throws IOException, SolrServerException {
+        if (getSolr() == null || docs.isEmpty())
+        {
+            return;
+        }
+        // commits are executed automatically using the solr autocommit
+        solr.add(docs);
+    }
+
     /**
      * Returns a solr input document containing common information about the statistics
      * regardless if we are logging a search or a view of a DSpace object
@@ -687,30 +711,38 @@ public class SolrLogger
     public class ResultProcessor
     {
 
+        /**
+         * Pass the matching documents of the statistics core and of the year
+         * cores to {@link #process(List)}, page after page with a cursor.
+         */
         public void execute(String query) throws SolrServerException, IOException {
-            Map<String, String> params = new HashMap<String, String>();
-            params.put("q", query);
-            params.put("rows", "10");
-            if(0 < statisticYearCores.size()){
-                params.put(ShardParams.SHARDS, StringUtils.join(statisticYearCores.iterator(), ','));
+            SolrQuery solrQuery = new SolrQuery(query);
+            addAdditionalSolrYearCores(solrQuery);
+            long numbFound = getSolr().query(solrQuery.getCopy().setRows(0)).getResults().getNumFound();
+            try
+            {
+                new StatisticsStream("update", "statistics", getSolr(), solrQuery, numbFound)
+                        .run(new StatisticsStream.PageHandler()
+                        {
+                            @Override
+                            void process(List<SolrDocument> docs) throws Exception
+                            {
+                                ResultProcessor.this.process(docs);
+                            }
+                        }, false);
             }
-            MapSolrParams solrParams = new MapSolrParams(params);
-            QueryResponse response = getSolr().query(solrParams);
-            
-            long numbFound = response.getResults().getNumFound();
-
-            // process the first batch
-            process(response.getResults());
-
-            // Run over the rest
-            for (int i = 10; i < numbFound; i += 10)
+            catch (SolrServerException e)
             {
-                params.put("start", String.valueOf(i));
-                solrParams = new MapSolrParams(params);
-                response = getSolr().query(solrParams);
-                process(response.getResults());
+                throw e;
+            }
+            catch (IOException e)
+            {
+                throw e;
+            }
+            catch (Exception e)
+            {
+                throw new SolrServerException(e);
             }
-
         }
 
         public void commit() throws IOException, SolrServerException {
@@ -746,12 +778,15 @@ public class SolrLogger
 
                 /* Result Process to alter record to be identified as a bot */
                 ResultProcessor processor = new ResultProcessor(){
-                    public void process(SolrDocument doc) throws IOException, SolrServerException {
-                        doc.removeFields("isBot");
-                        doc.addField("isBot", true);
-                        SolrInputDocument newInput = ClientUtils.toSolrInputDocument(doc);
-                        getSolr().add(newInput);
-                        log.info("Marked " + doc.getFieldValue("ip") + " as bot");
+                    public void process(List<SolrDocument> docs) throws IOException, SolrServerException {
+                        List<SolrInputDocument> newInputs = new ArrayList<SolrInputDocument>(docs.size());
+                        for (SolrDocument doc : docs) {
+                            doc.removeFields("isBot");
+                            doc.addField("isBot", true);
+                            newInputs.add(toSolrInputDocument(doc));
+                        }
+                        getSolr().add(newInputs);
+                        log.info("Marked " + docs.size() + " events of " + docs.get(0).getFieldValue("ip") + " as bot");
                     }
                 };
 
@@ -774,11 +809,14 @@ public class SolrLogger
 
                 /* Result Process to alter record to be identified as a bot */
                 ResultProcessor processor = new ResultProcessor(){
-                    public void process(SolrDocument doc) throws IOException, SolrServerException {
-                        doc.removeFields("isBot");
-                        doc.addField("isBot", true);
-                        SolrInputDocument newInput = ClientUtils.toSolrInputDocument(doc);
-                        getSolr().add(newInput);
+                    public void process(List<SolrDocument> docs) throws IOException, SolrServerException {
+                        List<SolrInputDocument> newInputs = new ArrayList<SolrInputDocument>(docs.size());
+                        for (SolrDocument doc : docs) {
+                            doc.removeFields("isBot");
+                            doc.addField("isBot", true);
+                            newInputs.add(toSolrInputDocument(doc));
+                        }
+                        getSolr().add(newInputs);
                     }
                 };
 
@@ -825,8 +863,8 @@ public class SolrLogger
      * List<Object> oldvals = new ArrayList<Object>(); oldvals.add(fieldValue);
      * update(query, addField, fieldName, vals, oldvals); }
      */
-    public void update(String query, String action,
-            List<String> fieldNames, List<List<Object>> fieldValuesList)
+    public void update(String query, final String action,
+            final List<String> fieldNames, final List<List<Object>> fieldValuesList)
             throws SolrServerException, IOException
     {
         // Since there is NO update
@@ -834,64 +872,76 @@ public class SolrLogger
         // QueryResponse queryResponse = solr.query()//query(query, null, -1,
         // null, null, null);
 
-        final List<SolrDocument> docsToUpdate = new ArrayList<SolrDocument>();
-
+        // The documents keep their uid: adding them back replaces the old
+        // ones, one page at a time
         ResultProcessor processor = new ResultProcessor(){
                 public void process(List<SolrDocument> docs) throws IOException, SolrServerException {
-                    docsToUpdate.addAll(docs);
+                    List<SolrInputDocument> newInputs = new ArrayList<SolrInputDocument>(docs.size());
+                    for (SolrDocument solrDocument : docs) {
+                        updateDocument(solrDocument, action, fieldNames, fieldValuesList);
+                        newInputs.add(toSolrInputDocument(solrDocument));
+                    }
+                    getSolr().add(newInputs);
                 }
             };
 
         processor.execute(query);
+        getSolr().commit();
+    }
 
-        // We have all the docs delete the ones we don't need
-        getSolr().deleteByQuery(query);
-
-        // Add the new (updated onces
-        for (int i = 0; i < docsToUpdate.size(); i++)
+    private static void updateDocument(SolrDocument solrDocument, String action,
+            List<String> fieldNames, List<List<Object>> fieldValuesList)
+    {
+        // Now loop over our fieldname actions
+        for (int j = 0; j < fieldNames.size(); j++)
         {
-            SolrDocument solrDocument = docsToUpdate.get(i);
-            // Now loop over our fieldname actions
-            for (int j = 0; j < fieldNames.size(); j++)
-            {
-                String fieldName = fieldNames.get(j);
-                List<Object> fieldValues = fieldValuesList.get(j);
+            String fieldName = fieldNames.get(j);
+            List<Object> fieldValues = fieldValuesList.get(j);
 
-                if (action.equals("addOne") || action.equals("replace"))
+            if (action.equals("addOne") || action.equals("replace"))
+            {
+                if (action.equals("replace"))
                 {
-                    if (action.equals("replace"))
-                    {
-                        solrDocument.removeFields(fieldName);
-                    }
+                    solrDocument.removeFields(fieldName);
+                }
 
-                    for (Object fieldValue : fieldValues)
-                    {
-                        solrDocument.addField(fieldName, fieldValue);
-                    }
+                for (Object fieldValue : fieldValues)
+                {
+                    solrDocument.addField(fieldName, fieldValue);
                 }
-                else if (action.equals("remOne"))
+            }
+            else if (action.equals("remOne"))
+            {
+                // Remove the field
+                java.util.Collection<Object> values = solrDocument
+                        .getFieldValues(fieldName);
+                solrDocument.removeFields(fieldName);
+                if (values == null)
                 {
-                    // Remove the field
-                    java.util.Collection<Object> values = solrDocument
-                            .getFieldValues(fieldName);
-                    solrDocument.removeFields(fieldName);
-                    for (Object value : values)
+                    continue;
+                }
+                for (Object value : values)
+                {
+                    // Keep all the values besides the one we need to remove
+                    if (!fieldValues.contains((value)))
                     {
-                        // Keep all the values besides the one we need to remove
-                        if (!fieldValues.contains((value)))
-                        {
-                            solrDocument.addField(fieldName, value);
-                        }
+                        solrDocument.addField(fieldName, value);
                     }
                 }
             }
-            SolrInputDocument newInput = ClientUtils
-                    .toSolrInputDocument(solrDocument);
-            getSolr().add(newInput);
         }
-        getSolr().commit();
-        // System.out.println("SolrLogger.update(\""+query+"\"):"+(new
-        // Date().getTime() - start)+"ms,"+numbFound+"records");
+    }
+
+    /**
+     * @return the document to add back to the core, without its
+     *         <code>_version_</code> so that it is not rejected as a
+     *         conflicting update
+     */
+    private static SolrInputDocument toSolrInputDocument(SolrDocument doc)
+    {
+        SolrInputDocument newInput = ClientUtils.toSolrInputDocument(doc);
+        newInput.removeField("_version_");
+        return newInput;
     }
 
     public void query(String query, int max) throws SolrServerException
@@ -1278,118 +1328,66 @@ public class SolrLogger
         }
     }
 
-    public void shardSolrIndex() throws IOException, SolrServerException {
+    /**
+     * Move the usage events of the past years from the statistics core to a
+     * core per year. The years are moved in parallel, page after page.
+     *
+     * @param resume
+     *            whether an interrupted run resumes where it stopped, instead
+     *            of starting again from the first year
+     */
+    public void shardSolrIndex(boolean resume) throws IOException, SolrServerException {
         /*
         Start by faceting by year so we can include each year in a separate core !
+        We DO NOT include the current year, nor the events before 2000
          */
-        SolrQuery yearRangeQuery = new SolrQuery();
-        yearRangeQuery.setQuery("*:*");
-        yearRangeQuery.setRows(0);
-        yearRangeQuery.setFacet(true);
-        yearRangeQuery.add(FacetParams.FACET_RANGE, "time");
-        //We go back to 2000 the year 2000, this is a bit overkill but this way we ensure we have everything
-        //The alternative would be to sort but that isn't recommended since it would be a very costly query !
-        yearRangeQuery.add(FacetParams.FACET_RANGE_START, "NOW/YEAR-" + (Calendar.getInstance().get(Calendar.YEAR) - 2000) + "YEARS");
-        //Add the +0year to ensure that we DO NOT include the current year
-        yearRangeQuery.add(FacetParams.FACET_RANGE_END, "NOW/YEAR+0YEARS");
-        yearRangeQuery.add(FacetParams.FACET_RANGE_GAP, "+1YEAR");
-        yearRangeQuery.add(FacetParams.FACET_MINCOUNT, String.valueOf(1));
-
-        //Create a temp directory to store our files in !
-        File tempDirectory = new File(ConfigurationManager.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-        tempDirectory.mkdirs();
-
-
-        QueryResponse queryResponse = getSolr().query(yearRangeQuery);
-        //We only have one range query !
-        List<RangeFacet.Count> yearResults = queryResponse.getFacetRanges().get(0).getCounts();
-        for (RangeFacet.Count count : yearResults) {
-            long totalRecords = count.getCount();
-
-            //Create a range query from this !
-            //We start with out current year
-            DCDate dcStart = new DCDate(count.getValue());
-            Calendar endDate = Calendar.getInstance();
-            //Advance one year for the start of the next one !
-            endDate.setTime(dcStart.toDate());
-            endDate.add(Calendar.YEAR, 1);
-            DCDate dcEndDate = new DCDate(endDate.getTime());
-
-
-            StringBuilder filterQuery = new StringBuilder();
-            filterQuery.append("time:([");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcStart.toString()));
-            filterQuery.append(" TO ");
-            filterQuery.append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append("]");
-            //The next part of the filter query excludes the content from midnight of the next year !
-            filterQuery.append(" NOT ").append(ClientUtils.escapeQueryChars(dcEndDate.toString()));
-            filterQuery.append(")");
-
-
-            Map<String, String> yearQueryParams = new HashMap<String, String>();
-            yearQueryParams.put(CommonParams.Q, "*:*");
-            yearQueryParams.put(CommonParams.ROWS, String.valueOf(10000));
-            yearQueryParams.put(CommonParams.FQ, filterQuery.toString());
-            yearQueryParams.put(CommonParams.WT, "csv");
-
-            //Tell SOLR how to escape and separate the values of multi-valued fields
-            yearQueryParams.put("csv.escape", "\\");
-            yearQueryParams.put("csv.mv.separator", MULTIPLE_VALUES_SPLITTER);
-            
-            //Start by creating a new core
-            String coreName = "statistics-" + dcStart.getYearUTC();
-            HttpSolrServer statisticsYearServer = createCore(solr, coreName);
-
-            System.out.println("Moving: " + totalRecords + " into core " + coreName);
-            log.info("Moving: " + totalRecords + " records into core " + coreName);
-
-            List<File> filesToUpload = new ArrayList<File>();
-            for(int i = 0; i < totalRecords; i+=10000){
-                String solrRequestUrl = solr.getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, yearQueryParams);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-                InputStream csvInputstream = response.getEntity().getContent();
-                //Write the csv ouput to a file !
-                File csvFile = new File(tempDirectory.getPath() + File.separatorChar + "temp." + dcStart.getYearUTC() + "." + i + ".csv");
-                FileUtils.copyInputStreamToFile(csvInputstream, csvFile);
-                filesToUpload.add(csvFile);
-
-                //Add 10000 & start over again
-                yearQueryParams.put(CommonParams.START, String.valueOf((i + 10000)));
-            }
-
-            Set<String> multivaluedFields = getMultivaluedFieldNames();
-            
-            for (File tempCsv : filesToUpload) {
-                //Upload the data in the csv files to our new solr core
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-                contentStreamUpdateRequest.setParam("escape", "\\");
-                contentStreamUpdateRequest.setParam("skip", "_version_");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
-
-                //Add parsing directives for the multivalued fields so that they are stored as separate values instead of one value
-                for (String multivaluedField : multivaluedFields) {
-                    contentStreamUpdateRequest.setParam("f." + multivaluedField + ".split", Boolean.TRUE.toString());
-                    contentStreamUpdateRequest.setParam("f." + multivaluedField + ".separator", MULTIPLE_VALUES_SPLITTER);
-                }
-                statisticsYearServer.request(contentStreamUpdateRequest);
+        List<StatisticsStream> years = new ArrayList<StatisticsStream>();
+        for (StatisticsStream year : StatisticsStream.byYear("shard", "statistics", getSolr(), new SolrQuery("*:*"), false)) {
+            if (!year.getName().endsWith("-before")) {
+                years.add(year);
             }
-            statisticsYearServer.commit(true, true);
+        }
 
+        try {
+            StatisticsStream.runAll("shard", years, new StatisticsStream.PageHandlerFactory() {
+                @Override
+                public StatisticsStream.PageHandler create(final StatisticsStream year) throws Exception {
+                    //Start by creating a new core
+                    final String coreName = year.getName();
+                    final HttpSolrServer statisticsYearServer = createCore(solr, coreName);
+                    log.info("Moving records into core " + coreName);
+
+                    return new StatisticsStream.PageHandler() {
+                        @Override
+                        void process(List<SolrDocument> docs) throws Exception {
+                            List<SolrInputDocument> newInputs = new ArrayList<SolrInputDocument>(docs.size());
+                            for (SolrDocument doc : docs) {
+                                newInputs.add(toSolrInputDocument(doc));
+                            }
+                            statisticsYearServer.add(newInputs);
+                        }
 
-            //Delete contents of this year from our year query !
-            getSolr().deleteByQuery(filterQuery.toString());
-            getSolr().commit(true, true);
+                        @Override
+                        void finish() throws Exception {
+                            statisticsYearServer.commit(true, true);
 
-            log.info("Moved " + totalRecords + " records into core: " + coreName);
+                            //Delete contents of this year from our year query !
+                            for (String filterQuery : year.getQuery().getFilterQueries()) {
+                                getSolr().deleteByQuery(filterQuery);
+                            }
+                            getSolr().commit(true, true);
+                            log.info("Moved records into core: " + coreName);
+                        }
+                    };
+                }
+            }, resume);
+        } catch (IOException e) {
+            throw e;
+        } catch (SolrServerException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SolrServerException(e);
         }
-
-        FileUtils.deleteDirectory(tempDirectory);
     }
 
     private HttpSolrServer createCore(HttpSolrServer solr, String coreName) throws IOException, SolrServerException {
@@ -1440,179 +1438,175 @@ public class SolrLogger
         return multivaluedFields;
     }
     
-    public void reindexBitstreamHits(boolean removeDeletedBitstreams) throws Exception {
-        Context context = new Context();
-
+    /**
+     * Add the name of their bundle to the bitstream usage events which do not
+     * have one, in the statistics core and in the year cores. The events are
+     * processed in parallel by year, page after page.
+     *
+     * @param removeDeletedBitstreams
+     *            whether the events of the deleted bitstreams are removed,
+     *            instead of being given the BITSTREAM_DELETED bundle name
+     * @param resume
+     *            whether an interrupted run resumes where it stopped, instead
+     *            of starting again from the first year
+     */
+    public void reindexBitstreamHits(final boolean removeDeletedBitstreams, boolean resume) throws Exception {
         try {
-            //First of all retrieve the total number of records to be updated
             SolrQuery query = new SolrQuery();
             query.setQuery("*:*");
             query.addFilterQuery("type:" + Constants.BITSTREAM);
             //Only retrieve records which do not have a bundle name
             query.addFilterQuery("-bundleName:[* TO *]");
-            query.setRows(0);
-            addAdditionalSolrYearCores(query);
-            long totalRecords = getSolr().query(query).getResults().getNumFound();
-
-            File tempDirectory = new File(ConfigurationManager.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
-            tempDirectory.mkdirs();
-            List<File> tempCsvFiles = new ArrayList<File>();
-            for(int i = 0; i < totalRecords; i+=10000){
-                Map<String, String> params = new HashMap<String, String>();
-                params.put(CommonParams.Q, "*:*");
-                params.put(CommonParams.FQ, "-bundleName:[* TO *] AND type:" + Constants.BITSTREAM);
-                params.put(CommonParams.WT, "csv");
-                params.put(CommonParams.ROWS, String.valueOf(10000));
-                params.put(CommonParams.START, String.valueOf(i));
-
-                String solrRequestUrl = getSolr().getBaseURL() + "/select";
-                solrRequestUrl = generateURL(solrRequestUrl, params);
-
-                HttpGet get = new HttpGet(solrRequestUrl);
-                HttpResponse response = new DefaultHttpClient().execute(get);
-
-                InputStream  csvOutput = response.getEntity().getContent();
-                Reader csvReader = new InputStreamReader(csvOutput);
-                List<String[]> rows = new CSVReader(csvReader).readAll();
-                String[][] csvParsed = rows.toArray(new String[rows.size()][]);
-                String[] header = csvParsed[0];
-                //Attempt to find the bitstream id index !
-                int idIndex = 0;
-                for (int j = 0; j < header.length; j++) {
-                    if(header[j].equals("id")){
-                        idIndex = j;
-                    }
-                }
 
-                File tempCsv = new File(tempDirectory.getPath() + File.separatorChar + "temp." + i + ".csv");
-                tempCsvFiles.add(tempCsv);
-                CSVWriter csvp = new CSVWriter(new FileWriter(tempCsv));
-                //csvp.setAlwaysQuote(false);
-
-                //Write the header !
-                csvp.writeNext((String[]) ArrayUtils.add(header, "bundleName"));
-                Map<Integer, String> bitBundleCache = new HashMap<Integer, String>();
-                //Loop over each line (skip the headers though)!
-                for (int j = 1; j < csvParsed.length; j++){
-                    String[] csvLine = csvParsed[j];
-                    //Write the default line !
-                    int bitstreamId = Integer.parseInt(csvLine[idIndex]);
-                    //Attempt to retrieve our bundle name from the cache !
-                    String bundleName = bitBundleCache.get(bitstreamId);
-                    if(bundleName == null){
-                        //Nothing found retrieve the bitstream
-                        Bitstream bitstream = Bitstream.find(context, bitstreamId);
-                        //Attempt to retrieve our bitstream !
-                        if (bitstream != null){
-                            Bundle[] bundles = bitstream.getBundles();
-                            if(bundles != null && 0 < bundles.length){
-                                Bundle bundle = bundles[0];
-                                bundleName = bundle.getName();
-                                context.removeCached(bundle, bundle.getID());
-                            }else{
-                                //No bundle found, we are either a collection or a community logo, check for it !
-                                DSpaceObject parentObject = bitstream.getParentObject();
-                                if(parentObject instanceof Collection){
-                                    bundleName = "LOGO-COLLECTION";
-                                }else
-                                if(parentObject instanceof Community){
-                                    bundleName = "LOGO-COMMUNITY";
-                                }
-                                if(parentObject != null){
-                                    context.removeCached(parentObject, parentObject.getID());
-                                }
+            StatisticsStream.runAll("reindex-bitstreams", getStreamsByYear("reindex-bitstreams", query),
+                    new StatisticsStream.PageHandlerFactory() {
+                @Override
+                public StatisticsStream.PageHandler create(final StatisticsStream stream) throws Exception {
+                    final Context context = new Context();
+                    final Map<Integer, String> bitBundleCache = new HashMap<Integer, String>();
 
+                    return new StatisticsStream.PageHandler() {
+                        @Override
+                        void process(List<SolrDocument> docs) throws Exception {
+                            List<SolrInputDocument> newInputs = new ArrayList<SolrInputDocument>(docs.size());
+                            List<String> deletedIds = new ArrayList<String>();
+                            for (SolrDocument doc : docs) {
+                                int bitstreamId = Integer.parseInt(doc.getFieldValue("id").toString());
+                                String bundleName = getBundleName(context, bitstreamId, bitBundleCache);
+                                //If we don't have a bundle name & we do not need to delete the deleted bitstreams ensure that a BITSTREAM_DELETED bundle name is given !
+                                if (bundleName == null && removeDeletedBitstreams) {
+                                    deletedIds.add(doc.getFieldValue("uid").toString());
+                                    continue;
+                                }
+                                doc.setField("bundleName", bundleName != null ? bundleName : "BITSTREAM_DELETED");
+                                newInputs.add(toSolrInputDocument(doc));
+                            }
+                            if (!newInputs.isEmpty()) {
+                                stream.getServer().add(newInputs);
+                            }
+                            if (!deletedIds.isEmpty()) {
+                                stream.getServer().deleteById(deletedIds);
                             }
-                            //Cache the bundle name
-                            bitBundleCache.put(bitstream.getID(), bundleName);
-                            //Remove the bitstream from cache
-                            context.removeCached(bitstream, bitstreamId);
-                        }
-                        //Check if we don't have a bundlename
-                        //If we don't have one & we do not need to delete the deleted bitstreams ensure that a BITSTREAM_DELETED bundle name is given !
-                        if(bundleName == null && !removeDeletedBitstreams){
-                            bundleName = "BITSTREAM_DELETED";
                         }
-                    }
-                    csvp.writeNext((String[]) ArrayUtils.add(csvLine, bundleName));
-                }
-
-                //Loop over our parsed csv
-                csvp.flush();
-                csvp.close();
-            }
-
-            //Add all the separate csv files
-            for (File tempCsv : tempCsvFiles) {
-                ContentStreamUpdateRequest contentStreamUpdateRequest = new ContentStreamUpdateRequest("/update/csv");
-                contentStreamUpdateRequest.setParam("stream.contentType", "text/plain;charset=utf-8");
-                contentStreamUpdateRequest.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
-                contentStreamUpdateRequest.addFile(tempCsv, "text/plain;charset=utf-8");
 
-                solr.request(contentStreamUpdateRequest);
-            }
+                        @Override
+                        void finish() throws Exception {
+                            stream.getServer().commit(true, true);
+                        }
 
-            //Now that all our new bitstream stats are in place, delete all the old ones !
-            solr.deleteByQuery("-bundleName:[* TO *] AND type:" + Constants.BITSTREAM);
-            //Commit everything to wrap up
-            solr.commit(true, true);
-            //Clean up our directory !
-            FileUtils.deleteDirectory(tempDirectory);
+                        @Override
+                        void close() throws Exception {
+                            context.abort();
+                        }
+                    };
+                }
+            }, resume);
         } catch (Exception e) {
             log.error("Error while updating the bitstream statistics", e);
             throw e;
-        } finally {
-            context.abort();
         }
     }
 
+    /**
+     * @return the name of the first bundle of the bitstream, the
+     *         LOGO-COLLECTION or LOGO-COMMUNITY name for the logos, or null if
+     *         the bitstream does not exist anymore
+     */
+    private static String getBundleName(Context context, int bitstreamId, Map<Integer, String> bitBundleCache)
+            throws SQLException {
+        //Attempt to retrieve our bundle name from the cache !
+        if (bitBundleCache.containsKey(bitstreamId)) {
+            return bitBundleCache.get(bitstreamId);
+        }
+        String bundleName = null;
+        //Nothing found retrieve the bitstream
+        Bitstream bitstream = Bitstream.find(context, bitstreamId);
+        //Attempt to retrieve our bitstream !
+        if (bitstream != null){
+            Bundle[] bundles = bitstream.getBundles();
+            if(bundles != null && 0 < bundles.length){
+                Bundle bundle = bundles[0];
+                bundleName = bundle.getName();
+                context.removeCached(bundle, bundle.getID());
+            }else{
+                //No bundle found, we are either a collection or a community logo, check for it !
+                DSpaceObject parentObject = bitstream.getParentObject();
+                if(parentObject instanceof Collection){
+                    bundleName = "LOGO-COLLECTION";
+                }else
+                if(parentObject instanceof Community){
+                    bundleName = "LOGO-COMMUNITY";
+                }
+                if(parentObject != null){
+                    context.removeCached(parentObject, parentObject.getID());
+                }
+
+            }
+            //Remove the bitstream from cache
+            context.removeCached(bitstream, bitstreamId);
+        }
+        //Cache the bundle name
+        bitBundleCache.put(bitstreamId, bundleName);
+        return bundleName;
+    }
+
     /**
      * Export all SOLR usage statistics for viewing/downloading content to a flat text file.
      * The file goes to a series
      *
+     * @param resume
+     *            whether an interrupted run appends to the files of the years
+     *            it did not finish, instead of exporting all the years again
      * @throws Exception
      */
-    public void exportHits() throws Exception {
-        Context context = new Context();
-
-        File tempDirectory = new File(ConfigurationManager.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
+    public void exportHits(boolean resume) throws Exception {
+        final File tempDirectory = new File(ConfigurationManager.getProperty("dspace.dir") + File.separator + "temp" + File.separator);
         tempDirectory.mkdirs();
 
         try {
-            //First of all retrieve the total number of records to be updated
-            SolrQuery query = new SolrQuery();
-            query.setQuery("*:*");
-
-            ModifiableSolrParams solrParams = new ModifiableSolrParams();
-            solrParams.set(CommonParams.Q, "statistics_type:view OR (*:* AND -statistics_type:*)");
-            solrParams.set(CommonParams.WT, "javabin");
-            solrParams.set(CommonParams.ROWS, String.valueOf(10000));
-
-            addAdditionalSolrYearCores(query);
-            long totalRecords = solr.query(query).getResults().getNumFound();
-            System.out.println("There are " + totalRecords + " usage events in SOLR for download/view.");
-
-            for(int i = 0; i < totalRecords; i+=10000){
-                solrParams.set(CommonParams.START, String.valueOf(i));
-                QueryResponse queryResponse = solr.query(solrParams);
-                SolrDocumentList docs = queryResponse.getResults();
-
-                File exportOutput = new File(tempDirectory.getPath() + File.separatorChar + "usagestats_" + i + ".csv");
-                exportOutput.delete();
+            SolrQuery query = new SolrQuery("statistics_type:view OR (*:* AND -statistics_type:*)");
+            List<StatisticsStream> streams = getStreamsByYear("export", query);
+
+            long totalRecords = StatisticsStream.runAll("export", streams, new StatisticsStream.PageHandlerFactory() {
+                @Override
+                public StatisticsStream.PageHandler create(StatisticsStream stream) throws Exception {
+                    final Context context = new Context();
+                    final File exportOutput = new File(tempDirectory.getPath() + File.separatorChar + "usagestats_" + stream.getName() + ".csv");
+                    // Append to the file of an interrupted run, the years
+                    // already exported do not get here
+                    final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                            new FileOutputStream(exportOutput, stream.isResuming()), "UTF-8"));
+                    System.out.println("Export hits of " + stream.getName() + " to " + exportOutput.getCanonicalPath());
+
+                    return new StatisticsStream.PageHandler() {
+                        @Override
+                        void process(List<SolrDocument> docs) throws Exception {
+                            addDocumentsToFile(context, docs, writer);
+                            // the page is in the file before its cursor is saved
+                            writer.flush();
+                        }
 
-                //export docs
-                addDocumentsToFile(context, docs, exportOutput);
-                System.out.println("Export hits [" + i + " - " + String.valueOf(i+9999) + "] to " + exportOutput.getCanonicalPath());
-            }
+                        @Override
+                        void close() throws Exception {
+                            writer.close();
+                            context.abort();
+                        }
+                    };
+                }
+            }, resume);
+            System.out.println("There were " + totalRecords + " usage events in SOLR for download/view.");
         } catch (Exception e) {
             log.error("Error while exporting SOLR data", e);
             throw e;
-        } finally {
-            context.abort();
         }
     }
 
-    private static void addDocumentsToFile(Context context, SolrDocumentList docs, File exportOutput) throws SQLException, ParseException, IOException {
+    private static void addDocumentsToFile(Context context, List<SolrDocument> docs, Writer exportOutput) throws SQLException, ParseException, IOException {
+        //InputFormat: Mon May 19 07:21:27 EDT 2014
+        DateFormat inputDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
+        //OutputFormat: 2014-05-27T16:24:09
+        DateFormat outputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+
         for(SolrDocument doc : docs) {
             String ip = doc.get("ip").toString();
             if(ip.equals("::1")) {
@@ -1621,7 +1615,8 @@ public class SolrLogger
 
             String id = doc.get("id").toString();
             String type = doc.get("type").toString();
-            String time = doc.get("time").toString();
+            Object timeValue = doc.get("time");
+            String time = timeValue.toString();
 
             //20140527162409835,view_bitstream,1292,2014-05-27T16:24:09,anonymous,127.0.0.1
             DSpaceObject dso = DSpaceObject.find(context, Integer.parseInt(type), Integer.parseInt(id));
@@ -1630,38 +1625,23 @@ public class SolrLogger
                 continue;
             }
 
-            //InputFormat: Mon May 19 07:21:27 EDT 2014
-            DateFormat inputDateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss z yyyy");
-            Date solrDate = inputDateFormat.parse(time);
-
-            //OutputFormat: 2014-05-27T16:24:09
-            DateFormat outputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-
-            String out = time + "," + "view_" + dso.getTypeText().toLowerCase() + "," + id + ","  + outputDateFormat.format(solrDate) + ",anonymous," + ip + "\n";
-            FileUtils.writeStringToFile(exportOutput, out, true);
+            Date solrDate = timeValue instanceof Date ? (Date) timeValue : inputDateFormat.parse(time);
 
+            exportOutput.write(time + "," + "view_" + dso.getTypeText().toLowerCase() + "," + id + ","  + outputDateFormat.format(solrDate) + ",anonymous," + ip + "\n");
+            context.removeCached(dso, dso.getID());
         }
     }
 
-    private String generateURL(String baseURL, Map<String, String> parameters) throws UnsupportedEncodingException {
-        boolean first = true;
-        StringBuilder result = new StringBuilder(baseURL);
-        for (String key : parameters.keySet())
-        {
-            if (first)
-            {
-                result.append("?");
-                first = false;
-            }
-            else
-            {
-                result.append("&");
-            }
-
-            result.append(key).append("=").append(URLEncoder.encode(parameters.get(key), "UTF-8"));
+    /**
+     * @return the streams of the events matching the query, in the statistics
+     *         core and in each year core, by year
+     */
+    private List<StatisticsStream> getStreamsByYear(String job, SolrQuery query) throws SolrServerException {
+        List<StatisticsStream> streams = StatisticsStream.byYear(job, "statistics", getSolr(), query, true);
+        for (Map.Entry<String, HttpSolrServer> core : statisticYearServers.entrySet()) {
+            streams.addAll(StatisticsStream.byYear(job, core.getKey(), core.getValue(), query, true));
         }
-
-        return result.toString();
+        return streams;
     }
 
     private void addAdditionalSolrYearCores(SolrQuery solrQuery){
@@ -0,0 +1,456 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.RangeFacet;
+import org.apache.solr.client.solrj.util.ClientUtils;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.FacetParams;
+import org.dspace.content.DCDate;
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * Reads the usage events of a statistics core matching a query, page after
+ * page with a Solr cursor, so that the last page costs as much as the first
+ * one. The cursor of the last processed page is saved in a checkpoint file
+ * under <code>[dspace]/temp/statistics-cursors</code>: a job that was
+ * interrupted resumes after the last processed page when it is started again
+ * in resume mode, otherwise the checkpoints of the job are cleared first.
+ * <p>
+ * The events of a core can be split by year with {@link #byYear}, and the
+ * streams processed in parallel by {@link #runAll}, with
+ * <code>solr-statistics.maintenance.threads</code> threads and pages of
+ * <code>solr-statistics.maintenance.rows</code> events.
+ */
+class StatisticsStream
+{
+    private static final Logger log = Logger.getLogger(StatisticsStream.class);
+
+    /** The checkpoint of a fully processed stream */
+    private static final String DONE = "done";
+
+    /** Interval of the progress reports, in milliseconds */
+    private static final long REPORT_INTERVAL = 10000;
+
+    private final String job;
+
+    private final String name;
+
+    private final SolrServer server;
+
+    private final SolrQuery query;
+
+    private final long expected;
+
+    /**
+     * @param job
+     *            The name of the job, the checkpoints of a job are resumed by
+     *            the same job only
+     * @param name
+     *            The name of the stream, unique within the job
+     * @param server
+     *            The core to read
+     * @param query
+     *            The query of the events to read
+     * @param expected
+     *            The number of matching events, for the progress reports
+     */
+    StatisticsStream(String job, String name, SolrServer server, SolrQuery query, long expected)
+    {
+        this.job = job;
+        this.name = name;
+        this.server = server;
+        this.query = query;
+        this.expected = expected;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    SolrServer getServer()
+    {
+        return server;
+    }
+
+    SolrQuery getQuery()
+    {
+        return query;
+    }
+
+    /**
+     * @return true if the stream resumes an interrupted run
+     */
+    boolean isResuming() throws IOException
+    {
+        String checkpoint = readCheckpoint();
+        return checkpoint != null && !DONE.equals(checkpoint);
+    }
+
+    /**
+     * @return true if the stream was fully processed by an interrupted run
+     */
+    boolean isDone() throws IOException
+    {
+        return DONE.equals(readCheckpoint());
+    }
+
+    /**
+     * Pass all the pages of events to the handler, from the saved checkpoint
+     * if any, then call {@link PageHandler#finish()}.
+     *
+     * @return the number of processed events
+     */
+    long run(PageHandler handler) throws Exception
+    {
+        return run(handler, true);
+    }
+
+    /**
+     * Pass all the pages of events to the handler, then call
+     * {@link PageHandler#finish()}.
+     *
+     * @param checkpoint
+     *            Whether the run resumes from the saved checkpoint and saves
+     *            its own
+     * @return the number of processed events
+     */
+    long run(PageHandler handler, boolean checkpoint) throws Exception
+    {
+        String cursorMark = checkpoint ? readCheckpoint() : null;
+        if (DONE.equals(cursorMark))
+        {
+            report("already processed, skipped");
+            return 0;
+        }
+        if (cursorMark == null)
+        {
+            cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        }
+        else
+        {
+            report("resuming from the last checkpoint");
+        }
+
+        SolrQuery page = query.getCopy();
+        page.setRows(ConfigurationManager.getIntProperty(SolrLogger.CFG_STAT_MODULE, "maintenance.rows", 10000));
+        // a cursor needs a sort on the unique key
+        page.setSort("uid", SolrQuery.ORDER.asc);
+
+        long processed = 0;
+        long start = System.currentTimeMillis();
+        long lastReport = start;
+        while (true)
+        {
+            page.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            QueryResponse response = server.query(page);
+            SolrDocumentList docs = response.getResults();
+            if (!docs.isEmpty())
+            {
+                handler.process(docs);
+                processed += docs.size();
+            }
+            String next = response.getNextCursorMark();
+            if (next == null || next.equals(cursorMark))
+            {
+                break;
+            }
+            cursorMark = next;
+            if (checkpoint)
+            {
+                writeCheckpoint(cursorMark);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= REPORT_INTERVAL)
+            {
+                lastReport = now;
+                report(progress(processed, start));
+            }
+        }
+        handler.finish();
+        if (checkpoint)
+        {
+            writeCheckpoint(DONE);
+        }
+        report("done, " + progress(processed, start));
+        return processed;
+    }
+
+    private String progress(long processed, long start)
+    {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        return processed + " of " + expected + " events in " + (elapsed / 1000) + " s ("
+                + (processed * 1000 / elapsed) + " events/s)";
+    }
+
+    private void report(String message)
+    {
+        log.info(job + " " + name + ": " + message);
+        System.out.println(job + " " + name + ": " + message);
+    }
+
+    private File getCheckpointFile()
+    {
+        return new File(getCheckpointDirectory(), job + "-" + name + ".cursor");
+    }
+
+    private String readCheckpoint() throws IOException
+    {
+        File checkpoint = getCheckpointFile();
+        if (!checkpoint.exists())
+        {
+            return null;
+        }
+        return FileUtils.readFileToString(checkpoint, "UTF-8").trim();
+    }
+
+    private void writeCheckpoint(String cursorMark) throws IOException
+    {
+        File checkpoint = getCheckpointFile();
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        FileUtils.writeStringToFile(temp, cursorMark, "UTF-8");
+        if (!temp.renameTo(checkpoint))
+        {
+            // renameTo does not replace an existing file everywhere
+            FileUtils.deleteQuietly(checkpoint);
+            if (!temp.renameTo(checkpoint))
+            {
+                throw new IOException("Unable to write the checkpoint " + checkpoint);
+            }
+        }
+    }
+
+    private static File getCheckpointDirectory()
+    {
+        File directory = new File(ConfigurationManager.getProperty("dspace.dir")
+                + File.separator + "temp" + File.separator + "statistics-cursors");
+        directory.mkdirs();
+        return directory;
+    }
+
+    /**
+     * Split the events of a core matching a query by year of their time.
+     *
+     * @param job
+     *            The name of the job
+     * @param coreName
+     *            The name of the core, to name the streams
+     * @param server
+     *            The core
+     * @param query
+     *            The query of the events to read
+     * @param currentYear
+     *            Whether the events of the current year, and after, are read
+     * @return a stream for each year holding matching events, named
+     *         <code>coreName-year</code>, and for the events before 2000
+     */
+    static List<StatisticsStream> byYear(String job, String coreName, SolrServer server,
+            SolrQuery query, boolean currentYear) throws SolrServerException
+    {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        int endYear = calendar.get(Calendar.YEAR) + (currentYear ? 1 : 0);
+        String first = new DCDate(2000, 1, 1, 0, 0, 0).toString();
+        String end = new DCDate(endYear, 1, 1, 0, 0, 0).toString();
+
+        SolrQuery yearRangeQuery = query.getCopy();
+        yearRangeQuery.setRows(0);
+        yearRangeQuery.setFacet(true);
+        yearRangeQuery.add(FacetParams.FACET_RANGE, "time");
+        yearRangeQuery.add(FacetParams.FACET_RANGE_START, first);
+        yearRangeQuery.add(FacetParams.FACET_RANGE_END, end);
+        yearRangeQuery.add(FacetParams.FACET_RANGE_GAP, "+1YEAR");
+        yearRangeQuery.add(FacetParams.FACET_RANGE_OTHER, FacetParams.FacetRangeOther.BEFORE.toString());
+        yearRangeQuery.add(FacetParams.FACET_RANGE_OTHER, FacetParams.FacetRangeOther.AFTER.toString());
+        yearRangeQuery.add(FacetParams.FACET_MINCOUNT, String.valueOf(1));
+        RangeFacet<?, ?> years = server.query(yearRangeQuery).getFacetRanges().get(0);
+
+        List<StatisticsStream> streams = new ArrayList<StatisticsStream>();
+        if (years.getBefore() != null && years.getBefore().longValue() > 0)
+        {
+            streams.add(filtered(job, coreName + "-before", server, query,
+                    "time:[* TO " + ClientUtils.escapeQueryChars(first) + "}",
+                    years.getBefore().longValue()));
+        }
+        for (Object o : years.getCounts())
+        {
+            RangeFacet.Count count = (RangeFacet.Count) o;
+            DCDate yearStart = new DCDate(count.getValue());
+            String nextYear = new DCDate(yearStart.getYearUTC() + 1, 1, 1, 0, 0, 0).toString();
+            streams.add(filtered(job, coreName + "-" + yearStart.getYearUTC(), server, query,
+                    "time:[" + ClientUtils.escapeQueryChars(yearStart.toString()) + " TO "
+                            + ClientUtils.escapeQueryChars(nextYear) + "}",
+                    count.getCount()));
+        }
+        if (currentYear && years.getAfter() != null && years.getAfter().longValue() > 0)
+        {
+            streams.add(filtered(job, coreName + "-after", server, query,
+                    "time:[" + ClientUtils.escapeQueryChars(end) + " TO *]",
+                    years.getAfter().longValue()));
+        }
+        return streams;
+    }
+
+    private static StatisticsStream filtered(String job, String name, SolrServer server,
+            SolrQuery query, String filterQuery, long expected)
+    {
+        SolrQuery filtered = query.getCopy();
+        filtered.addFilterQuery(filterQuery);
+        return new StatisticsStream(job, name, server, filtered, expected);
+    }
+
+    /**
+     * Run the streams in parallel, each with its own handler. The checkpoints
+     * of the job are removed once all the streams are processed.
+     *
+     * @param resume
+     *            Whether the job resumes an interrupted run: the streams
+     *            already processed are skipped, without creating their
+     *            handler, and the others resume from their checkpoint.
+     *            Otherwise the checkpoints left by an interrupted run are
+     *            cleared and all the streams are processed from the start.
+     * @return the number of processed events
+     */
+    static long runAll(String job, List<StatisticsStream> streams, final PageHandlerFactory factory,
+            boolean resume) throws Exception
+    {
+        if (!resume)
+        {
+            for (StatisticsStream stream : streams)
+            {
+                FileUtils.deleteQuietly(stream.getCheckpointFile());
+            }
+        }
+        int threads = Math.max(1, ConfigurationManager.getIntProperty(SolrLogger.CFG_STAT_MODULE,
+                "maintenance.threads", 4));
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<Future<Long>>();
+        try
+        {
+            for (final StatisticsStream stream : streams)
+            {
+                results.add(executor.submit(new Callable<Long>()
+                {
+                    @Override
+                    public Long call() throws Exception
+                    {
+                        if (stream.isDone())
+                        {
+                            stream.report("already processed, skipped");
+                            return 0L;
+                        }
+                        PageHandler handler = factory.create(stream);
+                        try
+                        {
+                            return stream.run(handler);
+                        }
+                        finally
+                        {
+                            handler.close();
+                        }
+                    }
+                }));
+            }
+
+            long processed = 0;
+            Exception failure = null;
+            for (Future<Long> result : results)
+            {
+                try
+                {
+                    processed += result.get();
+                }
+                catch (ExecutionException e)
+                {
+                    log.error(job + " failed", e.getCause());
+                    if (failure == null)
+                    {
+                        failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    }
+                }
+            }
+            if (failure != null)
+            {
+                System.out.println(job + " failed, run it again with --resume to resume: " + failure.getMessage());
+                throw failure;
+            }
+
+            for (StatisticsStream stream : streams)
+            {
+                FileUtils.deleteQuietly(stream.getCheckpointFile());
+            }
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            String message = job + ": processed " + processed + " events in " + (elapsed / 1000)
+                    + " s (" + (processed * 1000 / elapsed) + " events/s)";
+            log.info(message);
+            System.out.println(message);
+            return processed;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Processes the pages of a stream, from one thread.
+     */
+    abstract static class PageHandler
+    {
+        /**
+         * Process a page of events.
+         */
+        abstract void process(List<SolrDocument> docs) throws Exception;
+
+        /**
+         * Called once all the pages are processed, before the stream is
+         * marked as done.
+         */
+        void finish() throws Exception
+        {
+        }
+
+        /**
+         * Release the resources of the handler, whether the stream failed or
+         * not.
+         */
+        void close() throws Exception
+        {
+        }
+    }
+
+    /**
+     * Creates the handler of each stream
+     */
+    interface PageHandlerFactory
+    {
+        PageHandler create(StatisticsStream stream) throws Exception;
+    }
+}
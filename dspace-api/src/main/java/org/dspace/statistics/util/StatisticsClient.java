@@ -70,6 +70,7 @@ public class StatisticsClient
         options.addOption("e", "export", false, "Export SOLR view statistics data to usage-statistics-intermediate-format");
         options.addOption("r", "remove-deleted-bitstreams", false, "While indexing the bundle names remove the statistics about deleted bitstreams");
         options.addOption("s", "shard-solr-index", false, "Split the data from the main Solr core into separate Solr cores per year");
+        options.addOption("c", "resume", false, "Resume the interrupted reindex, export or shard where it stopped, instead of starting again");
         options.addOption("h", "help", false, "help");
 
 		CommandLine line = parser.parse(options, args);
@@ -117,15 +118,15 @@ public class StatisticsClient
         }
         else if(line.hasOption('b'))
         {
-            statsService.reindexBitstreamHits(line.hasOption('r'));
+            statsService.reindexBitstreamHits(line.hasOption('r'), line.hasOption('c'));
         }
         else if(line.hasOption('e'))
         {
-        	statsService.exportHits();
+        	statsService.exportHits(line.hasOption('c'));
         }
         else if(line.hasOption('s'))
         {
-            statsService.shardSolrIndex();
+            statsService.shardSolrIndex(line.hasOption('c'));
         }
         else
         {
@@ -7,16 +7,10 @@
  */
 package org.dspace.statistics.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FilenameFilter;
-import java.io.InputStreamReader;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Random;
 
@@ -26,6 +20,7 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
+import org.apache.solr.common.SolrInputDocument;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
@@ -45,20 +40,19 @@ import org.dspace.utils.DSpace;
  *
  * @author Stuart Lewis
  */
-public class StatisticsImporter
+public class StatisticsImporter extends StatisticsLogLoader<StatisticsImporter.SolrWorker>
 {
     private static final Logger log = Logger.getLogger(StatisticsImporter.class);
 
-    /** Date format (for solr) */
-    private static SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-
-
-    /** Whether to skip the DNS reverse lookup or not */
-    private static boolean skipReverseDNS = false;
+    /** Whether to parse the log lines without sending them to solr */
+    private static boolean dryRun = false;
 
     /** the SolrLogger **/
     private static SolrLogger statsService;
-    
+
+    /** Picks the local objects */
+    private final Random rand = new Random();
+
     /** Local items */
     private List<Integer> localItems;
 
@@ -140,185 +134,167 @@ public class StatisticsImporter
     }
 
     /**
-     * Read lines from the statistics file and load their data into solr.
+     * Read lines from the statistics file and load their data into solr. The
+     * lines are read by the calling thread and parsed in parallel by chunks,
+     * each chunk being sent to solr in one request.
      *
      * @param filename The filename of the file to load
-     * @param context The DSpace Context
      * @param verbose Whether to display verbose output
      */
-    private void load(String filename, Context context, boolean verbose)
+    private void load(String filename, boolean verbose)
     {
-        // Item counter
-        int counter = 0;
-        int errors = 0;
-        int searchengines = 0;
+        Result result = loadFile(filename, verbose);
 
-        try
+        System.out.println("Processed " + result.lines + " log lines in " + (result.elapsed / 1000) + " s ("
+                + (result.lines * 1000L / result.elapsed) + " lines/s, " + threads + " threads)");
+        result.print(dryRun ? "parsed (dry run)" : "added to solr");
+        if (result.lines > 0 && !dryRun)
         {
-            BufferedReader input;
-            if (null == filename || "-".equals(filename))
-            {
-                input = new BufferedReader(new InputStreamReader(System.in));
-                filename = "standard input";
-            }
-            else
-                input = new BufferedReader(new FileReader(new File(filename)));
+            System.out.print("About to commit data to solr...");
 
-            // Print out the filename for confirmation
-            System.out.println("Processing file: " + filename);
+            // Optimize at the end because it takes a while
+            statsService.optimizeSOLR();
+        }
+        System.out.println(" done!");
+	}
 
-            String line;
-//            String uuid;
-            String action;
-            String id;
-            Date date;
-            String user;
-            String ip;
+    @Override
+    protected SolrWorker createWorker(Context context)
+    {
+        return new SolrWorker(context);
+    }
 
-            String dns;
+    /**
+     * Parses the log lines in one thread, the documents of a task being sent
+     * to solr in one request.
+     */
+    class SolrWorker extends StatisticsLogLoader.Worker
+    {
+        private final List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>(1000);
 
-            DNSCache dnsCache = new DNSCache(2500, 0.75f, 2500);
-            Object fromCache;
-            Random rand = new Random();
+        SolrWorker(Context context)
+        {
+            super(context);
+        }
 
-            while ((line = input.readLine()) != null)
+        @Override
+        int flush()
+        {
+            if (dryRun || docs.isEmpty())
             {
-                // Tokenise the line
-                String data = "";
-                counter++;
-                errors++;
-                if (verbose)
-                {
-                    System.out.println("Line:" + line);
-                }
-                String[] parts = line.split(",");
-//                uuid = parts[0];
-                action = parts[1];
-                id = parts[2];
-                date = dateFormat.parse(parts[3]);
-                user = parts[4];
-                ip = parts[5];
-
-                // Resolve the dns (if applicable) to get rid of search engine bots early on in the processing chain
-                dns = "";
-                if (!skipReverseDNS)
-                {
-                    // Is the IP address in the cache?
-                    fromCache = dnsCache.get(ip);
-                    if (fromCache != null)
-                    {
-                        dns = (String)fromCache;
-                    }
-                    else
-                    {
-                        try
-                        {
-                            dns = DnsLookup.reverseDns(ip);
-                            dnsCache.put(ip, dns);
-                        } catch (Exception e)
-                        {
-                            dns = "";
-                        }
-                    }
-                }
+                docs.clear();
+                return 0;
+            }
+            try
+            {
+                statsService.addDocuments(docs);
+                return 0;
+            }
+            catch (Exception e)
+            {
+                log.error("Unable to add " + docs.size() + " usage events to solr", e);
+                return docs.size();
+            }
+            finally
+            {
+                docs.clear();
+            }
+        }
 
-                data += ("ip addr = " + ip);
-                data += (", dns name = " + dns);
-                if ((dns.endsWith(".googlebot.com.")) ||
-                    (dns.endsWith(".crawl.yahoo.net.")) ||
-                    (dns.endsWith(".search.msn.com.")))
+        /**
+         * Parse a log line and add its usage event to the documents.
+         */
+        @Override
+        LineStatus load(String line, boolean verbose) throws Exception
+        {
+            // Tokenise the line
+            String data = "";
+            if (verbose)
+            {
+                System.out.println("Line:" + line);
+            }
+            String[] parts = line.split(",");
+//            uuid = parts[0];
+            String action = parts[1];
+            String id = parts[2];
+            Date date = dateFormat.parse(parts[3]);
+            String user = parts[4];
+            String ip = parts[5];
+
+            // Resolve the dns (if applicable) to get rid of search engine bots early on in the processing chain
+            String dns = reverseDns(ip);
+
+            data += ("ip addr = " + ip);
+            data += (", dns name = " + dns);
+            if (isSearchEngine(dns))
+            {
+                if (verbose)
                 {
-                    if (verbose)
-                    {
-                        System.out.println(data + ", IGNORE (search engine)");
-                    }
-                    errors--;
-                    searchengines++;
-                    continue;
+                    System.out.println(data + ", IGNORE (search engine)");
                 }
+                return LineStatus.SEARCH_ENGINE;
+            }
 
-                // Now find our dso
-                int type = 0;
-                if ("view_bitstream".equals(action))
+            // Now find our dso
+            int type = 0;
+            if ("view_bitstream".equals(action))
+            {
+                type = Constants.BITSTREAM;
+                if (useLocal)
                 {
-                    type = Constants.BITSTREAM;
-                    if (useLocal)
-                    {
-                        id = "" + localBitstreams.get(rand.nextInt(localBitstreams.size()));
-                    }
+                    id = "" + localBitstreams.get(rand.nextInt(localBitstreams.size()));
                 }
-                else if ("view_item".equals(action))
+            }
+            else if ("view_item".equals(action))
+            {
+                type = Constants.ITEM;
+                if (useLocal)
                 {
-                    type = Constants.ITEM;
-                    if (useLocal)
-                    {
-                        id = "" + localItems.get(rand.nextInt(localItems.size()));
-                    }
+                    id = "" + localItems.get(rand.nextInt(localItems.size()));
                 }
-                else if ("view_collection".equals(action))
+            }
+            else if ("view_collection".equals(action))
+            {
+                type = Constants.COLLECTION;
+                if (useLocal)
                 {
-                    type = Constants.COLLECTION;
-                    if (useLocal)
-                    {
-                        id = "" + localCollections.get(rand.nextInt(localCollections.size()));
-                    }
+                    id = "" + localCollections.get(rand.nextInt(localCollections.size()));
                 }
-                else if ("view_community".equals(action))
+            }
+            else if ("view_community".equals(action))
+            {
+                type = Constants.COMMUNITY;
+                if (useLocal)
                 {
-                    type = Constants.COMMUNITY;
-                    if (useLocal)
-                    {
-                        id = "" + localCommunities.get(rand.nextInt(localCommunities.size()));
-                    }
+                    id = "" + localCommunities.get(rand.nextInt(localCommunities.size()));
                 }
+            }
 
-                DSpaceObject dso = DSpaceObject.find(context, type, Integer.parseInt(id));
-                if (dso == null)
+            DSpaceObject dso = DSpaceObject.find(context, type, Integer.parseInt(id));
+            if (dso == null)
+            {
+                if (verbose)
                 {
-                    if (verbose)
-                    {
-                        System.err.println(" - DSO with ID '" + id + "' is no longer in the system");
-                    }
-                    continue;
+                    System.err.println(" - DSO with ID '" + id + "' is no longer in the system");
                 }
-
-                // Get the eperson details
-                EPerson eperson = EPerson.findByEmail(context, user);
-
-                // Save it in our server
-                statsService.postView(dso, ip, dns, eperson);
-                errors--;
+                return LineStatus.ERROR;
             }
 
-        }
-        catch (RuntimeException re)
-        {
-            throw re;
-        }
-        catch (Exception e)
-        {
-            System.err.println(e.getMessage());
-            log.error(e.getMessage(), e);
-        }
+            // Get the eperson details
+            EPerson eperson = EPerson.findByEmail(context, user);
 
-        DecimalFormat percentage = new DecimalFormat("##.###");
-        int committed = counter - errors - searchengines;
-        System.out.println("Processed " + counter + " log lines");
-        if (counter > 0)
-        {
-            Double committedpercentage = 100d * committed / counter;
-            System.out.println(" - " + committed + " entries added to solr: " + percentage.format(committedpercentage) + "%");
-            Double errorpercentage = 100d * errors / counter;
-            System.out.println(" - " + errors + " errors: " + percentage.format(errorpercentage) + "%");
-            Double sepercentage = 100d * searchengines / counter;
-            System.out.println(" - " + searchengines + " search engine activity skipped: " + percentage.format(sepercentage) + "%");
-            System.out.print("About to commit data to solr...");
+            // Save it in our server, at the time of the log line
+            SolrInputDocument doc = statsService.createViewDocument(dso, ip, dns, eperson, date);
+            if (doc != null)
+            {
+                docs.add(doc);
+            }
 
-            // Optimize at the end because it takes a while
-            statsService.optimizeSOLR();
+            // Do not keep the whole repository in the context cache
+            context.removeCached(dso, dso.getID());
+            return LineStatus.IMPORTED;
         }
-        System.out.println(" done!");
-	}
+    }
 
     /**
      * Print the help message
@@ -351,6 +327,8 @@ public class StatisticsImporter
         options.addOption("m", "multiple", false, "treat the input file as having a wildcard ending");
         options.addOption("s", "skipdns", false, "skip performing reverse DNS lookups on IP addresses");
         options.addOption("v", "verbose", false, "display verbose output (useful for debugging)");
+        options.addOption("t", "threads", true, "the number of threads parsing the log lines (default: the number of processors)");
+        options.addOption("d", "dry-run", false, "parse the log lines without adding them to solr, to measure the throughput");
         options.addOption("h", "help", false, "help");
 
 		CommandLine line = parser.parse(options, args);
@@ -361,18 +339,12 @@ public class StatisticsImporter
             printHelp(options, 0);
         }
 
-        if (line.hasOption('s'))
-        {
-            skipReverseDNS = true;
-        }
+        dryRun = line.hasOption('d');
 
         // Whether or not to convert handles to handles used in a local system
         // (useful if using someone else's log file for testing)
         boolean local = line.hasOption('l');
 
-		// We got all our parameters now get the rest
-		Context context = new Context();
-
         // Verbose option
         boolean verbose = line.hasOption('v');
 
@@ -383,6 +355,11 @@ public class StatisticsImporter
                 SolrLogger.class.getName(), SolrLogger.class);
 
         StatisticsImporter si = new StatisticsImporter(local);
+        si.skipReverseDNS = line.hasOption('s');
+        if (line.hasOption('t'))
+        {
+            si.threads = Math.max(1, Integer.parseInt(line.getOptionValue('t')));
+        }
         if (line.hasOption('m'))
         {
             // Convert all the files
@@ -400,36 +377,13 @@ public class StatisticsImporter
             for (String in : children)
             {
                 System.out.println(in);
-                si.load(dir.getAbsolutePath() + System.getProperty("file.separator") + in, context, verbose);
+                si.load(dir.getAbsolutePath() + System.getProperty("file.separator") + in, verbose);
             }
         }
         else
         {
             // Just convert the one file
-            si.load(line.getOptionValue('i'), context, verbose);
-        }
-    }
-
-
-    /**
-     * Inner class to hold a cache of reverse lookups of IP addresses
-     * @param <K>
-     * @param <V>
-     */
-    static class DNSCache<K,V> extends LinkedHashMap<K,V>
-    {
-        private int maxCapacity;
-
-        public DNSCache(int initialCapacity, float loadFactor, int maxCapacity)
-        {
-            super(initialCapacity, loadFactor, true);
-            this.maxCapacity = maxCapacity;
-        }
-
-        @Override
-        protected boolean removeEldestEntry(java.util.Map.Entry<K,V> eldest)
-        {
-            return size() >= this.maxCapacity;
+            si.load(line.getOptionValue('i'), verbose);
         }
     }
 }
@@ -26,19 +26,16 @@ import org.dspace.core.Context;
 import org.dspace.eperson.EPerson;
 import org.dspace.statistics.ElasticSearchLogger;
 import org.dspace.statistics.SolrLogger;
-import org.elasticsearch.action.bulk.BulkRequestBuilder;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to load intermediate statistics files (produced from log files by <code>ClassicDSpaceLogConverter</code>) into Elastic Search
@@ -47,63 +44,57 @@ import java.util.Random;
  *
  * @author Peter Dietz (pdietz84@gmail.com)
  */
-public class StatisticsImporterElasticSearch {
+public class StatisticsImporterElasticSearch
+        extends StatisticsLogLoader<StatisticsImporterElasticSearch.ElasticSearchWorker>
+{
     private static final Logger log = Logger.getLogger(StatisticsImporterElasticSearch.class);
 
-    /** Date format */
-    private static SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-
-    //TODO ES Client
-
-    /** GEOIP lookup service */
+    /** GEOIP lookup service, safe to share between the threads */
     private static DatabaseReader geoipLookup;
 
     /** Metadata storage information */
     private static Map<String, String> metadataStorageInfo;
 
-    /** Whether to skip the DNS reverse lookup or not */
-    private static boolean skipReverseDNS = false;
-
     private static ElasticSearchLogger elasticSearchLoggerInstance;
     private static Client client;
-    private static BulkRequestBuilder bulkRequest;
+    private static BulkProcessor bulkProcessor;
 
     /**
      * Read lines from the statistics file and load their data into Elastic Search.
+     * The lines are parsed in parallel, by chunks, and sent by bulk.
      *
      * @param filename The filename of the file to load
-     * @param context The DSpace Context
      * @param verbose Whether to display verbose output
      */
-    private void load(String filename, Context context, boolean verbose)
+    private void load(String filename, boolean verbose)
     {
-        // Item counter
-        int counter = 0;
-        int errors = 0;
-        int searchengines = 0;
+        Result result = loadFile(filename, verbose);
 
-        try
-        {
-            BufferedReader input;
-            if (null == filename || "-".equals(filename))
-            {
-                input = new BufferedReader(new InputStreamReader(System.in));
-                filename = "standard input";
-            }
-            else
-                input = new BufferedReader(new FileReader(new File(filename)));
+        System.out.println("Processed " + result.lines + " log lines");
+        result.print("added to ElasticSearch");
+        System.out.println(" done!");
+    }
 
-            // Print out the filename for confirmation
-            System.out.println("Processing file: " + filename);
+    @Override
+    protected ElasticSearchWorker createWorker(Context context)
+    {
+        return new ElasticSearchWorker(context);
+    }
 
-            String line;
-//            String uuid;
-            String action;
-            String id;
-            Date date;
-            String user;
-            String ip;
+    /**
+     * Parses the log lines in one thread, the usage events being sent by the
+     * bulk processor.
+     */
+    class ElasticSearchWorker extends StatisticsLogLoader.Worker
+    {
+        ElasticSearchWorker(Context context)
+        {
+            super(context);
+        }
 
+        @Override
+        LineStatus load(String line, boolean verbose) throws Exception
+        {
             String continent = "";
             String country = "";
             String countryCode = "";
@@ -112,214 +103,150 @@ public class StatisticsImporterElasticSearch {
             String city = "";
             String dns;
 
-            DNSCache dnsCache = new DNSCache(2500, 0.75f, 2500);
-            Object fromCache;
-            Random rand = new Random();
-
-            while ((line = input.readLine()) != null)
+            // Tokenise the line
+            if (verbose)
+            {
+                System.out.println("Line:" + line);
+            }
+            String[] parts = line.split(",");
+//            uuid = parts[0];
+            String action = parts[1];
+            String id = parts[2];
+            Date date = dateFormat.parse(parts[3]);
+            String user = parts[4];
+            String ip = parts[5];
+
+            // Resolve the dns (if applicable) to get rid of search engine bots early on in the processing chain
+            dns = reverseDns(ip);
+
+            String data = "";
+            data += ("ip addr = " + ip);
+            data += (", dns name = " + dns);
+            if (isSearchEngine(dns))
             {
-                // Tokenise the line
-                counter++;
-                errors++;
                 if (verbose)
                 {
-                    System.out.println("Line:" + line);
-                }
-                String[] parts = line.split(",");
-//                uuid = parts[0];
-                action = parts[1];
-                id = parts[2];
-                date = dateFormat.parse(parts[3]);
-                user = parts[4];
-                ip = parts[5];
-
-                // Resolve the dns (if applicable) to get rid of search engine bots early on in the processing chain
-                dns = "";
-                if (!skipReverseDNS)
-                {
-                    // Is the IP address in the cache?
-                    fromCache = dnsCache.get(ip);
-                    if (fromCache != null)
-                    {
-                        dns = (String)fromCache;
-                    }
-                    else
-                    {
-                        try
-                        {
-                            dns = DnsLookup.reverseDns(ip);
-                            dnsCache.put(ip, dns);
-                        } catch (Exception e)
-                        {
-                            dns = "";
-                        }
-                    }
+                    System.out.println(data + ", IGNORE (search engine)");
                 }
+                return LineStatus.SEARCH_ENGINE;
+            }
 
-
-                
-
-                String data = "";
-                data += ("ip addr = " + ip);
-                data += (", dns name = " + dns);
-                if ((dns.endsWith(".googlebot.com.")) ||
-                        (dns.endsWith(".crawl.yahoo.net.")) ||
-                        (dns.endsWith(".search.msn.com.")))
-                {
-                    if (verbose)
-                    {
-                        System.out.println(data + ", IGNORE (search engine)");
-                    }
-                    errors--;
-                    searchengines++;
-                    continue;
+            // Get the geo information for the user
+            try {
+                InetAddress ipAddress = InetAddress.getByName(ip);
+                CityResponse cityResponse = geoipLookup.city(ipAddress);
+                city = cityResponse.getCity().getName();
+                country = cityResponse.getCountry().getName();
+                countryCode = cityResponse.getCountry().getIsoCode();
+                longitude = cityResponse.getLocation().getLongitude();
+                latitude = cityResponse.getLocation().getLatitude();
+                if (verbose) {
+                    data += (", country = " + country);
+                    data += (", city = " + city);
+                    System.out.println(data);
                 }
-
-                // Get the geo information for the user
                 try {
-                    InetAddress ipAddress = InetAddress.getByName(ip);
-                    CityResponse cityResponse = geoipLookup.city(ipAddress);
-                    city = cityResponse.getCity().getName();
-                    country = cityResponse.getCountry().getName();
-                    countryCode = cityResponse.getCountry().getIsoCode();
-                    longitude = cityResponse.getLocation().getLongitude();
-                    latitude = cityResponse.getLocation().getLatitude();
-                    if (verbose) {
-                        data += (", country = " + country);
-                        data += (", city = " + city);
-                        System.out.println(data);
-                    }
-                    try {
-                        continent = LocationUtils.getContinentCode(countryCode);
-                    } catch (Exception e) {
-                        if (verbose)
-                        {
-                            System.out.println("Unknown country code: " + countryCode);
-                        }
-                        continue;
-                    }
-                } catch (GeoIp2Exception | IOException e) {
-                    // No problem - just can't look them up
-                }
-
-                // Now find our dso
-                int type = 0;
-                if ("view_bitstream".equals(action))
-                {
-                    type = Constants.BITSTREAM;
-                }
-                else if ("view_item".equals(action))
-                {
-                    type = Constants.ITEM;
-                }
-                else if ("view_collection".equals(action))
-                {
-                    type = Constants.COLLECTION;
-                }
-                else if ("view_community".equals(action))
-                {
-                    type = Constants.COMMUNITY;
-                }
-
-                DSpaceObject dso = DSpaceObject.find(context, type, Integer.parseInt(id));
-                if (dso == null)
-                {
+                    continent = LocationUtils.getContinentCode(countryCode);
+                } catch (Exception e) {
                     if (verbose)
                     {
-                        System.err.println(" - DSO with ID '" + id + "' is no longer in the system");
+                        System.out.println("Unknown country code: " + countryCode);
                     }
-                    continue;
+                    return LineStatus.ERROR;
                 }
+            } catch (GeoIp2Exception | IOException e) {
+                // No problem - just can't look them up
+            }
 
-                // Get the eperson details
-                EPerson eperson = EPerson.findByEmail(context, user);
-                int epersonId = 0;
-                if (eperson != null)
+            // Now find our dso
+            int type = 0;
+            if ("view_bitstream".equals(action))
+            {
+                type = Constants.BITSTREAM;
+            }
+            else if ("view_item".equals(action))
+            {
+                type = Constants.ITEM;
+            }
+            else if ("view_collection".equals(action))
+            {
+                type = Constants.COLLECTION;
+            }
+            else if ("view_community".equals(action))
+            {
+                type = Constants.COMMUNITY;
+            }
+
+            DSpaceObject dso = DSpaceObject.find(context, type, Integer.parseInt(id));
+            if (dso == null)
+            {
+                if (verbose)
                 {
-                    eperson.getID();
+                    System.err.println(" - DSO with ID '" + id + "' is no longer in the system");
                 }
+                return LineStatus.ERROR;
+            }
 
-                //TODO Is there any way to reuse ElasticSearchLogger.post() ?
+            // Get the eperson details
+            EPerson eperson = EPerson.findByEmail(context, user);
+            int epersonId = 0;
+            if (eperson != null)
+            {
+                epersonId = eperson.getID();
+            }
 
-                // Save it in our server
-                XContentBuilder postBuilder = XContentFactory.jsonBuilder().startObject()
-                        .field("id", dso.getID())
-                        .field("typeIndex", dso.getType())
-                        .field("type", dso.getTypeText())
+            //TODO Is there any way to reuse ElasticSearchLogger.post() ?
 
-                        .field("geo", new GeoPoint(latitude, longitude))
-                        .field("continent", continent)
-                        .field("countryCode", countryCode)
-                        .field("country", country)
-                        .field("city", city)
+            // Save it in our server
+            XContentBuilder postBuilder = XContentFactory.jsonBuilder().startObject()
+                    .field("id", dso.getID())
+                    .field("typeIndex", dso.getType())
+                    .field("type", dso.getTypeText())
 
-                        .field("ip", ip)
+                    .field("geo", new GeoPoint(latitude, longitude))
+                    .field("continent", continent)
+                    .field("countryCode", countryCode)
+                    .field("country", country)
+                    .field("city", city)
 
-                        .field("time", DateFormatUtils.format(date, SolrLogger.DATE_FORMAT_8601));
+                    .field("ip", ip)
 
-                // Unable to get UserAgent from logs. .field("userAgent")
+                    .field("time", DateFormatUtils.format(date, SolrLogger.DATE_FORMAT_8601));
 
-                if (dso instanceof Bitstream) {
-                    Bitstream bit = (Bitstream) dso;
-                    Bundle[] bundles = bit.getBundles();
-                    postBuilder = postBuilder.field("bundleName").startArray();
-                    for (Bundle bundle : bundles) {
-                        postBuilder = postBuilder.value(bundle.getName());
-                    }
-                    postBuilder = postBuilder.endArray();
-                }
+            // Unable to get UserAgent from logs. .field("userAgent")
 
-                if (epersonId > 0)
-                {
-                    postBuilder = postBuilder.field("epersonid", epersonId);
-                }
-                if (dns != null)
-                {
-                    postBuilder = postBuilder.field("dns", dns.toLowerCase());
+            if (dso instanceof Bitstream) {
+                Bitstream bit = (Bitstream) dso;
+                Bundle[] bundles = bit.getBundles();
+                postBuilder = postBuilder.field("bundleName").startArray();
+                for (Bundle bundle : bundles) {
+                    postBuilder = postBuilder.value(bundle.getName());
                 }
+                postBuilder = postBuilder.endArray();
+            }
 
+            if (epersonId > 0)
+            {
+                postBuilder = postBuilder.field("epersonid", epersonId);
+            }
+            if (dns != null)
+            {
+                postBuilder = postBuilder.field("dns", dns.toLowerCase());
+            }
 
-                //Save for later: .field("isBot")
-
-                elasticSearchLoggerInstance.storeParents(postBuilder, elasticSearchLoggerInstance.getParents(dso));
 
-                bulkRequest.add(client.prepareIndex(elasticSearchLoggerInstance.getIndexName(), elasticSearchLoggerInstance.getIndexType())
-                        .setSource(postBuilder.endObject()));
+            //Save for later: .field("isBot")
 
+            elasticSearchLoggerInstance.storeParents(postBuilder, elasticSearchLoggerInstance.getParents(dso));
 
-                errors--;
-            }
+            // Waits while all the bulk requests are in flight
+            bulkProcessor.add(new IndexRequest(elasticSearchLoggerInstance.getIndexName(), elasticSearchLoggerInstance.getIndexType())
+                    .source(postBuilder.endObject()));
 
-            if(bulkRequest.numberOfActions() > 0) {
-                BulkResponse bulkResponse = bulkRequest.execute().actionGet();
-                if(bulkResponse.hasFailures()) {
-                    log.error("Bulk Request Failed due to: " + bulkResponse.buildFailureMessage());
-                }
-            }
+            // Do not keep the whole repository in the context cache
+            context.removeCached(dso, dso.getID());
+            return LineStatus.IMPORTED;
         }
-        catch (RuntimeException re)
-        {
-            throw re;
-        }
-        catch (Exception e)
-        {
-            System.err.println(e.getMessage());
-            log.error(e.getMessage(), e);
-        }
-
-        DecimalFormat percentage = new DecimalFormat("##.###");
-        int committed = counter - errors - searchengines;
-        System.out.println("Processed " + counter + " log lines");
-        if (counter > 0)
-        {
-            Double committedpercentage = 100d * committed / counter;
-            System.out.println(" - " + committed + " entries added to ElasticSearch: " + percentage.format(committedpercentage) + "%");
-            Double errorpercentage = 100d * errors / counter;
-            System.out.println(" - " + errors + " errors: " + percentage.format(errorpercentage) + "%");
-            Double sepercentage = 100d * searchengines / counter;
-            System.out.println(" - " + searchengines + " search engine activity skipped: " + percentage.format(sepercentage) + "%");
-        }
-        System.out.println(" done!");
     }
 
 
@@ -354,6 +281,7 @@ public class StatisticsImporterElasticSearch {
         options.addOption("m", "multiple", false, "treat the input file as having a wildcard ending");
         options.addOption("s", "skipdns", false, "skip performing reverse DNS lookups on IP addresses");
         options.addOption("v", "verbose", false, "display verbose output (useful for debugging)");
+        options.addOption("t", "threads", true, "the number of threads parsing the log lines (default: the number of processors)");
         options.addOption("h", "help", false, "help");
 
         CommandLine line = parser.parse(options, args);
@@ -364,11 +292,6 @@ public class StatisticsImporterElasticSearch {
             printHelp(options, 0);
         }
 
-        if (line.hasOption('s'))
-        {
-            skipReverseDNS = true;
-        }
-
         elasticSearchLoggerInstance = new ElasticSearchLogger();
 
         log.info("Getting ElasticSearch Transport Client for StatisticsImporterElasticSearch...");
@@ -377,11 +300,8 @@ public class StatisticsImporterElasticSearch {
         // Need to get a NodeClient or TransportClient, but definitely do not want to get a local data storing client.
         client = elasticSearchLoggerInstance.getClient(ElasticSearchLogger.ClientType.TRANSPORT);
 
-        client.admin().indices().prepareRefresh(ElasticSearchLogger.getIndexName()).execute().actionGet();
-        bulkRequest = client.prepareBulk();
-
-        // We got all our parameters now get the rest
-        Context context = new Context();
+        client.admin().indices().prepareRefresh(elasticSearchLoggerInstance.getIndexName()).execute().actionGet();
+        bulkProcessor = elasticSearchLoggerInstance.createBulkProcessor(client, "stats-log-importer-elasticsearch");
 
         // Verbose option
         boolean verbose = line.hasOption('v');
@@ -404,6 +324,11 @@ public class StatisticsImporterElasticSearch {
         }
 
         StatisticsImporterElasticSearch elasticSearchImporter = new StatisticsImporterElasticSearch();
+        elasticSearchImporter.skipReverseDNS = line.hasOption('s');
+        if (line.hasOption('t'))
+        {
+            elasticSearchImporter.threads = Math.max(1, Integer.parseInt(line.getOptionValue('t')));
+        }
         if (line.hasOption('m'))
         {
             // Convert all the files
@@ -420,36 +345,19 @@ public class StatisticsImporterElasticSearch {
             for (String in : children)
             {
                 System.out.println(in);
-                elasticSearchImporter.load(dir.getAbsolutePath() + System.getProperty("file.separator") + in, context, verbose);
+                elasticSearchImporter.load(dir.getAbsolutePath() + System.getProperty("file.separator") + in, verbose);
             }
         }
         else
         {
             // Just convert the one file
-            elasticSearchImporter.load(line.getOptionValue('i'), context, verbose);
+            elasticSearchImporter.load(line.getOptionValue('i'), verbose);
         }
-    }
-
-
-    /**
-     * Inner class to hold a cache of reverse lookups of IP addresses
-     * @param <K> IP address
-     * @param <V> hostname looked up via DNS
-     */
-    static class DNSCache<K,V> extends LinkedHashMap<K,V>
-    {
-        private int maxCapacity;
 
-        public DNSCache(int initialCapacity, float loadFactor, int maxCapacity)
-        {
-            super(initialCapacity, loadFactor, true);
-            this.maxCapacity = maxCapacity;
-        }
-
-        @Override
-        protected boolean removeEldestEntry(java.util.Map.Entry<K,V> eldest)
-        {
-            return size() >= this.maxCapacity;
-        }
+        // Send the last bulk request and wait for the ones in flight
+        bulkProcessor.awaitClose(10, TimeUnit.MINUTES);
+        System.out.println("Indexed " + elasticSearchLoggerInstance.getIndexedCount() + " usage events, "
+                + elasticSearchLoggerInstance.getFailedCount() + " rejected by Elastic Search");
+        client.close();
     }
 }
@@ -0,0 +1,309 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.statistics.util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.core.ContextExecutor;
+
+/**
+ * Loads the lines of the intermediate statistics files (produced from log
+ * files by <code>ClassicDSpaceLogConverter</code>) with several threads. The
+ * lines are read by the calling thread and parsed by chunks, by workers each
+ * with its own context: a DSpace context is not thread safe. The contexts are
+ * closed once the lines of a file are loaded.
+ *
+ * @param <W>
+ *            the type of the workers parsing the lines
+ * @see StatisticsImporter
+ * @see StatisticsImporterElasticSearch
+ */
+abstract class StatisticsLogLoader<W extends StatisticsLogLoader.Worker>
+{
+    private static final Logger log = Logger.getLogger(StatisticsLogLoader.class);
+
+    /** Number of log lines parsed by each task */
+    private static final int LINES_PER_TASK = 1000;
+
+    /** Outcome of the load of a log line */
+    enum LineStatus { IMPORTED, SEARCH_ENGINE, ERROR }
+
+    /** Whether to skip the DNS reverse lookup or not */
+    protected boolean skipReverseDNS = false;
+
+    /** Number of threads parsing the log lines */
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Reverse lookups of the IP addresses, shared by the parsing threads */
+    private final Map<String, String> dnsCache = Collections.synchronizedMap(
+            new DNSCache<String, String>(10000, 0.75f, 10000));
+
+    /**
+     * Parses the log lines in one thread, with its own context and date
+     * format.
+     */
+    abstract static class Worker
+    {
+        protected final Context context;
+
+        /** Date format of the log lines */
+        protected final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+
+        Worker(Context context)
+        {
+            this.context = context;
+        }
+
+        /**
+         * Parse a log line and load its usage event.
+         */
+        abstract LineStatus load(String line, boolean verbose) throws Exception;
+
+        /**
+         * Complete the load of the lines of a task, for instance to send
+         * them by one request. The default does nothing.
+         *
+         * @return the number of lines which could not be loaded
+         */
+        int flush()
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * The number of lines of a file, by outcome.
+     */
+    static class Result
+    {
+        int lines = 0;
+
+        final AtomicInteger errors = new AtomicInteger();
+
+        final AtomicInteger searchEngines = new AtomicInteger();
+
+        long elapsed;
+
+        int getLoaded()
+        {
+            return lines - errors.get() - searchEngines.get();
+        }
+
+        /**
+         * Print the number of lines by outcome.
+         *
+         * @param loaded how the loaded lines are described
+         */
+        void print(String loaded)
+        {
+            if (lines == 0)
+            {
+                return;
+            }
+            DecimalFormat percentage = new DecimalFormat("##.###");
+            Double committedpercentage = 100d * getLoaded() / lines;
+            System.out.println(" - " + getLoaded() + " entries " + loaded + ": "
+                    + percentage.format(committedpercentage) + "%");
+            Double errorpercentage = 100d * errors.get() / lines;
+            System.out.println(" - " + errors.get() + " errors: " + percentage.format(errorpercentage) + "%");
+            Double sepercentage = 100d * searchEngines.get() / lines;
+            System.out.println(" - " + searchEngines.get() + " search engine activity skipped: "
+                    + percentage.format(sepercentage) + "%");
+        }
+    }
+
+    /**
+     * Create the worker of a parsing thread.
+     */
+    protected abstract W createWorker(Context context) throws Exception;
+
+    /**
+     * Read the lines of a statistics file and load them with the workers.
+     *
+     * @param filename The filename of the file to load, '-' or null for the
+     *            standard input
+     * @param verbose Whether to display verbose output
+     * @return the number of lines by outcome
+     */
+    protected Result loadFile(String filename, final boolean verbose)
+    {
+        final Result result = new Result();
+        long start = System.currentTimeMillis();
+
+        ContextExecutor<W> executor = new ContextExecutor<W>("statistics-import", threads)
+        {
+            @Override
+            protected W createWorker(Context context) throws Exception
+            {
+                return StatisticsLogLoader.this.createWorker(context);
+            }
+        };
+        try
+        {
+            BufferedReader input;
+            if (null == filename || "-".equals(filename))
+            {
+                input = new BufferedReader(new InputStreamReader(System.in, "UTF-8"), 1 << 20);
+                filename = "standard input";
+            }
+            else
+            {
+                input = new BufferedReader(new InputStreamReader(new FileInputStream(filename), "UTF-8"), 1 << 20);
+            }
+
+            // Print out the filename for confirmation
+            System.out.println("Processing file: " + filename);
+
+            try
+            {
+                String line;
+                List<String> lines = new ArrayList<String>(LINES_PER_TASK);
+                while ((line = input.readLine()) != null && !executor.isFailed())
+                {
+                    result.lines++;
+                    lines.add(line);
+                    if (lines.size() == LINES_PER_TASK)
+                    {
+                        executor.execute(createTask(lines, verbose, result));
+                        lines = new ArrayList<String>(LINES_PER_TASK);
+                    }
+                }
+                if (!lines.isEmpty())
+                {
+                    executor.execute(createTask(lines, verbose, result));
+                }
+            }
+            finally
+            {
+                input.close();
+            }
+            executor.finish();
+        }
+        catch (RuntimeException re)
+        {
+            throw re;
+        }
+        catch (Exception e)
+        {
+            System.err.println(e.getMessage());
+            log.error(e.getMessage(), e);
+        }
+        finally
+        {
+            executor.close();
+        }
+        result.elapsed = Math.max(1, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private ContextExecutor.WorkerTask<W> createTask(final List<String> lines, final boolean verbose,
+            final Result result)
+    {
+        return new ContextExecutor.WorkerTask<W>()
+        {
+            @Override
+            public void run(W worker)
+            {
+                for (String line : lines)
+                {
+                    LineStatus status;
+                    try
+                    {
+                        status = worker.load(line, verbose);
+                    }
+                    catch (Exception e)
+                    {
+                        log.error("Unable to load the line " + line, e);
+                        status = LineStatus.ERROR;
+                    }
+                    if (status == LineStatus.ERROR)
+                    {
+                        result.errors.incrementAndGet();
+                    }
+                    else if (status == LineStatus.SEARCH_ENGINE)
+                    {
+                        result.searchEngines.incrementAndGet();
+                    }
+                }
+                result.errors.addAndGet(worker.flush());
+            }
+        };
+    }
+
+    /**
+     * Look up the host name of an IP address, unless the lookups are
+     * skipped.
+     *
+     * @return the host name, or an empty string
+     */
+    protected String reverseDns(String ip)
+    {
+        if (skipReverseDNS)
+        {
+            return "";
+        }
+        // Is the IP address in the cache?
+        String dns = dnsCache.get(ip);
+        if (dns == null)
+        {
+            try
+            {
+                dns = DnsLookup.reverseDns(ip);
+                dnsCache.put(ip, dns);
+            }
+            catch (Exception e)
+            {
+                dns = "";
+            }
+        }
+        return dns;
+    }
+
+    /**
+     * @return true if the host name is the one of a search engine
+     */
+    protected static boolean isSearchEngine(String dns)
+    {
+        return dns.endsWith(".googlebot.com.") || dns.endsWith(".crawl.yahoo.net.")
+                || dns.endsWith(".search.msn.com.");
+    }
+
+    /**
+     * Inner class to hold a cache of reverse lookups of IP addresses
+     * @param <K> IP address
+     * @param <V> hostname looked up via DNS
+     */
+    static class DNSCache<K,V> extends LinkedHashMap<K,V>
+    {
+        private int maxCapacity;
+
+        public DNSCache(int initialCapacity, float loadFactor, int maxCapacity)
+        {
+            super(initialCapacity, loadFactor, true);
+            this.maxCapacity = maxCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(java.util.Map.Entry<K,V> eldest)
+        {
+            return size() >= this.maxCapacity;
+        }
+    }
+}
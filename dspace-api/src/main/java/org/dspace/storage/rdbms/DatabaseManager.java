@@ -509,6 +509,8 @@ public class DatabaseManager
         try
         {
 	        context.setAutoCommit(false);
+	        context.markPendingWrites();
+	        SharedRowCache.invalidateQuery(query);
         	statement = context.getDBConnection().prepareStatement(query);
         	loadParameters(statement, parameters);
 
@@ -557,7 +559,8 @@ public class DatabaseManager
 
     /**
      * Find a table row by its primary key. Returns the row, or null if no row
-     * with that primary key value exists.
+     * with that primary key value exists. The rows of the content objects are
+     * read through the {@link SharedRowCache}, when it is enabled.
      *
      * @param context
      *            Current DSpace context
@@ -575,6 +578,30 @@ public class DatabaseManager
     {
         String ctable = canonicalize(table);
 
+        if (SharedRowCache.isCachedTable(ctable))
+        {
+            return SharedRowCache.find(context, ctable, id);
+        }
+        return findUncached(context, ctable, id);
+    }
+
+    /**
+     * Find a table row by its primary key, bypassing the
+     * {@link SharedRowCache}.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param ctable
+     *            The canonicalized name of the table
+     * @param id
+     *            The primary key value
+     * @return The row resulting from the query, or null if no row with that
+     *         primary key value exists.
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static TableRow findUncached(Context context, String ctable, int id) throws SQLException
+    {
         try {
             return findByUnique(context, ctable, getPrimaryKeyColumn(context, ctable),
                     Integer.valueOf(id));
@@ -642,8 +669,15 @@ public class DatabaseManager
     {
         try {
             String ctable = canonicalize(table);
-            return deleteByValue(context, ctable, getPrimaryKeyColumn(context, ctable),
-                    Integer.valueOf(id));
+            try
+            {
+                return deleteByValue(context, ctable, getPrimaryKeyColumn(context, ctable),
+                        Integer.valueOf(id));
+            }
+            finally
+            {
+                SharedRowCache.invalidate(ctable, id);
+            }
         } catch (SQLException e) {
             log.error("SQL delete Error - ", e);
             throw e;
@@ -785,6 +819,7 @@ public class DatabaseManager
     {
         int newID;
 		context.setAutoCommit(false);
+        context.markPendingWrites();
         if (isPostgres)
         {
             newID = doInsertPostgres(context, row);
@@ -795,6 +830,7 @@ public class DatabaseManager
         }
 
         row.setColumn(getPrimaryKeyColumn(context, row), newID);
+        SharedRowCache.invalidate(row);
     }
 
     /**
@@ -842,7 +878,15 @@ public class DatabaseManager
             columns.add(pk);
 
 	    context.setAutoCommit(false);
-            return executeUpdate(context.getDBConnection(), sql.toString(), columns, row);
+            context.markPendingWrites();
+            try
+            {
+                return executeUpdate(context.getDBConnection(), sql.toString(), columns, row);
+            }
+            finally
+            {
+                SharedRowCache.invalidate(row);
+            }
         }
 
         return 1;
@@ -873,7 +917,14 @@ public class DatabaseManager
             throw new IllegalArgumentException("Primary key value is null");
         }
 
-        return delete(context, row.getTable(), row.getIntColumn(pk));
+        try
+        {
+            return delete(context, row.getTable(), row.getIntColumn(pk));
+        }
+        finally
+        {
+            SharedRowCache.invalidate(row);
+        }
     }
 
     /**
@@ -0,0 +1,754 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+
+/**
+ * JVM wide, read-through cache of the database rows of the content objects
+ * (items, bundles, bitstreams, collections and communities) and of the rows
+ * loaded with them: the bundles of an item, the bitstreams of a bundle and
+ * the metadata values of an object. The handles have their own cache, in the
+ * HandleManager.
+ * <P>
+ * The cached rows are private snapshots: every lookup returns new copies, so
+ * the callers can modify them as usual. The cache is bounded: when it is full
+ * the least recently used entries are evicted. The entries of an object are
+ * dropped when the object is written through the {@link DatabaseManager} or
+ * when an event is raised for it, and again by the {@link SharedRowCacheConsumer}
+ * once the transaction is committed; a row read while an invalidation of the
+ * same object, or a SQL update of its table, is in progress is not cached.
+ * The writes made by other JVMs (i.e. the command
+ * line tools) are not seen, so the entries expire after
+ * <code>db.rowcache.ttl</code> seconds.
+ * <P>
+ * A context that has written to the database and not yet committed bypasses
+ * the cache, so that it always reads its own changes.
+ * <P>
+ * The cache is disabled by default, it is enabled by
+ * <code>db.rowcache.enabled = true</code> and bounded by
+ * <code>db.rowcache.max-entries</code>.
+ */
+public class SharedRowCache
+{
+    private static final Logger log = Logger.getLogger(SharedRowCache.class);
+
+    /** Kind of the cached list of the bundles of an item */
+    public static final String BUNDLES = "bundles";
+
+    /** Kind of the cached list of the bitstreams of a bundle */
+    public static final String BITSTREAMS = "bitstreams";
+
+    /** Kind of the cached list of the metadata values of an object */
+    public static final String METADATA = "metadata";
+
+    private static final String[] LIST_KINDS = { BUNDLES, BITSTREAMS, METADATA };
+
+    /** The tables cached by {@link #find}, with the type of their objects */
+    private static final Map<String, Integer> TABLES = new HashMap<String, Integer>();
+
+    static
+    {
+        TABLES.put("item", Constants.ITEM);
+        TABLES.put("bundle", Constants.BUNDLE);
+        TABLES.put("bitstream", Constants.BITSTREAM);
+        TABLES.put("collection", Constants.COLLECTION);
+        TABLES.put("community", Constants.COMMUNITY);
+    }
+
+    /**
+     * The table whose writes modify each kind of cached entry: the cached
+     * tables themselves and the tables of the lists
+     */
+    private static final Map<String, String> TABLE_OF_KIND = new HashMap<String, String>();
+
+    /** Incremented by the writes of each table in {@link #TABLE_OF_KIND} */
+    private static final Map<String, AtomicLong> tableGenerations = new HashMap<String, AtomicLong>();
+
+    static
+    {
+        for (String table : TABLES.keySet())
+        {
+            TABLE_OF_KIND.put(table, table);
+        }
+        TABLE_OF_KIND.put(BUNDLES, "item2bundle");
+        TABLE_OF_KIND.put(BITSTREAMS, "bundle2bitstream");
+        TABLE_OF_KIND.put(METADATA, "metadatavalue");
+        for (String table : TABLE_OF_KIND.values())
+        {
+            tableGenerations.put(table, new AtomicLong());
+        }
+    }
+
+    /** The table written by an INSERT, UPDATE or DELETE statement */
+    private static final Pattern WRITTEN_TABLE = Pattern.compile(
+            "^\\s*(?:UPDATE|DELETE\\s+FROM|INSERT\\s+INTO)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private static final int SEGMENTS = 16;
+
+    /** Minimal size of a segment, smaller caches have fewer segments */
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private static volatile Segment[] segments;
+
+    /** The configured db.rowcache.ttl in milliseconds, read with the segments */
+    private static volatile long ttl;
+
+    /**
+     * Incremented by the invalidation of the keys hashed to each stripe, see
+     * {@link #put}
+     */
+    private static final AtomicLongArray keyGenerations = new AtomicLongArray(1024);
+
+    /** Incremented by the writes whose table is not known, see {@link #put} */
+    private static final AtomicLong generation = new AtomicLong();
+
+    /** Incremented by every invalidation, see {@link #putChild} */
+    private static final AtomicLong invalidations = new AtomicLong();
+
+    private static final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+    private SharedRowCache()
+    {
+    }
+
+    /**
+     * @return true if the cache is enabled
+     */
+    public static boolean isEnabled()
+    {
+        return ConfigurationManager.getBooleanProperty("db.rowcache.enabled", false);
+    }
+
+    /**
+     * @return true if the rows of the table are cached by {@link #find}
+     */
+    static boolean isCachedTable(String table)
+    {
+        return table != null && TABLES.containsKey(table.toLowerCase());
+    }
+
+    /**
+     * Find a row of one of the cached tables by its primary key.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param table
+     *            The canonicalized name of the table
+     *            (see {@link #isCachedTable})
+     * @param id
+     *            The primary key value
+     * @return a copy of the row, or null if no row with that primary key
+     *         value exists
+     */
+    static TableRow find(Context context, String table, int id)
+            throws SQLException
+    {
+        if (!isUsable(context))
+        {
+            return DatabaseManager.findUncached(context, table, id);
+        }
+        String name = table.toLowerCase();
+        String key = key(TABLES.get(name), id, name);
+        Entry entry = get(key);
+        if (entry != null)
+        {
+            count(name, true);
+            return ((TableRow) entry.value).copy();
+        }
+        count(name, false);
+        long expected = getGeneration(key);
+        TableRow row = DatabaseManager.findUncached(context, table, id);
+        if (row != null)
+        {
+            put(key, row.copy(), expected);
+        }
+        return row;
+    }
+
+    /**
+     * Run a query returning rows that belong to an object, i.e. the metadata
+     * values of an item, or return the rows cached by a previous call. The
+     * rows must be modified only together with their object: the cached rows
+     * are dropped when the object is invalidated.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param type
+     *            The type of the object the rows belong to
+     * @param id
+     *            The ID of the object the rows belong to
+     * @param kind
+     *            The kind of rows, one of the constants of this class
+     * @param table
+     *            The table of the rows, as in
+     *            {@link DatabaseManager#queryTable}
+     * @param query
+     *            The SQL query to run when the rows are not cached
+     * @param parameters
+     *            The parameters of the query
+     * @return copies of the rows
+     */
+    @SuppressWarnings("unchecked")
+    public static List<TableRow> query(Context context, int type, int id,
+            String kind, String table, String query, Object... parameters)
+            throws SQLException
+    {
+        if (!isUsable(context))
+        {
+            return DatabaseManager.queryTable(context, table, query, parameters).toList();
+        }
+        String key = key(type, id, kind);
+        Entry entry = get(key);
+        if (entry != null)
+        {
+            count(kind, true);
+            return copy((List<TableRow>) entry.value);
+        }
+        count(kind, false);
+        long expected = getGeneration(key);
+        List<TableRow> rows = DatabaseManager.queryTable(context, table, query, parameters).toList();
+        put(key, Collections.unmodifiableList(copy(rows)), expected);
+        return rows;
+    }
+
+    /**
+     * Run a query returning the rows of the children of an object, i.e. the
+     * bundles of an item, or return the rows cached by a previous call. Only
+     * the IDs of the children are cached with the parent, the rows are cached
+     * as the ones returned by {@link #find}: so a child modified on its own is
+     * invalidated in all its parents.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param type
+     *            The type of the parent object
+     * @param id
+     *            The ID of the parent object
+     * @param kind
+     *            The kind of rows, one of the constants of this class
+     * @param childTable
+     *            The table of the children, one of the tables cached by
+     *            {@link #find}
+     * @param query
+     *            The SQL query to run when the rows are not cached, it must
+     *            select all the columns of the child table
+     * @param parameters
+     *            The parameters of the query
+     * @return copies of the rows, in the order returned by the query, with
+     *         the child table as table
+     */
+    public static List<TableRow> queryChildren(Context context, int type, int id,
+            String kind, String childTable, String query, Object... parameters)
+            throws SQLException
+    {
+        String name = childTable.toLowerCase();
+        String key = key(type, id, kind);
+        if (isUsable(context))
+        {
+            Entry entry = get(key);
+            if (entry != null)
+            {
+                List<TableRow> rows = resolve(context, name, (int[]) entry.value);
+                if (rows != null)
+                {
+                    count(kind, true);
+                    return rows;
+                }
+            }
+            count(kind, false);
+        }
+        long expected = getGeneration(key);
+        long childrenExpected = invalidations.get();
+        List<TableRow> rows = DatabaseManager.query(context, query, parameters).toList();
+        int[] ids = new int[rows.size()];
+        for (int i = 0; i < ids.length; i++)
+        {
+            TableRow row = rows.get(i);
+            row.setTable(childTable);
+            ids[i] = row.getIntColumn(name + "_id");
+        }
+        if (isUsable(context))
+        {
+            // the keys of the children were not known before the query: their
+            // rows are only cached if nothing at all was invalidated since,
+            // otherwise find loads them again
+            for (int i = 0; i < ids.length; i++)
+            {
+                putChild(key(TABLES.get(name), ids[i], name), rows.get(i).copy(), childrenExpected);
+            }
+            put(key, ids, expected);
+        }
+        return rows;
+    }
+
+    /**
+     * Drop all the cached rows of an object.
+     *
+     * @param type
+     *            The type of the object
+     * @param id
+     *            The ID of the object
+     */
+    public static void invalidate(int type, int id)
+    {
+        if (type < 0 || id < 0)
+        {
+            return;
+        }
+        Segment[] current = segments;
+        for (Map.Entry<String, Integer> table : TABLES.entrySet())
+        {
+            if (table.getValue().intValue() == type)
+            {
+                remove(current, key(type, id, table.getKey()));
+            }
+        }
+        for (String kind : LIST_KINDS)
+        {
+            remove(current, key(type, id, kind));
+        }
+    }
+
+    /**
+     * Drop the cached rows of the object stored in a row of a table.
+     *
+     * @param table
+     *            The name of the table
+     * @param id
+     *            The primary key value
+     */
+    static void invalidate(String table, int id)
+    {
+        Integer type = table == null ? null : TABLES.get(table.toLowerCase());
+        if (type == null)
+        {
+            invalidateTable(table);
+        }
+        else
+        {
+            invalidate(type.intValue(), id);
+        }
+    }
+
+    /**
+     * Drop the cached rows of the object a modified row belongs to.
+     *
+     * @param row
+     *            A row that has been inserted, updated or deleted
+     */
+    static void invalidate(TableRow row)
+    {
+        String table = row.getTable() == null ? null : row.getTable().toLowerCase();
+        if (table == null)
+        {
+            invalidations.incrementAndGet();
+            generation.incrementAndGet();
+        }
+        else if (isCachedTable(table) && row.hasColumn(table + "_id"))
+        {
+            invalidate(table, row.getIntColumn(table + "_id"));
+        }
+        else if ("metadatavalue".equals(table)
+                && row.hasColumn("resource_type_id") && row.hasColumn("resource_id"))
+        {
+            invalidate(row.getIntColumn("resource_type_id"), row.getIntColumn("resource_id"));
+        }
+        else if ("item2bundle".equals(table) && row.hasColumn("item_id"))
+        {
+            invalidate(Constants.ITEM, row.getIntColumn("item_id"));
+        }
+        else if ("bundle2bitstream".equals(table) && row.hasColumn("bundle_id"))
+        {
+            invalidate(Constants.BUNDLE, row.getIntColumn("bundle_id"));
+        }
+        else
+        {
+            invalidateTable(table);
+        }
+    }
+
+    /**
+     * Record a SQL update, whose rows are not known: the rows of its table
+     * being read are not cached. The cached rows are dropped by the events
+     * of the modified objects.
+     *
+     * @param query
+     *            The INSERT, UPDATE or DELETE statement
+     */
+    static void invalidateQuery(String query)
+    {
+        Matcher matcher = WRITTEN_TABLE.matcher(query);
+        if (matcher.find())
+        {
+            invalidateTable(matcher.group(1));
+        }
+        else
+        {
+            invalidations.incrementAndGet();
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a write of a table whose rows are not known: the rows of the
+     * table being read are not cached. The tables whose rows are not cached
+     * are ignored.
+     */
+    private static void invalidateTable(String table)
+    {
+        if (table == null)
+        {
+            invalidations.incrementAndGet();
+            generation.incrementAndGet();
+            return;
+        }
+        AtomicLong tableGeneration = tableGenerations.get(table.toLowerCase());
+        if (tableGeneration != null)
+        {
+            invalidations.incrementAndGet();
+            tableGeneration.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop all the cached rows. The cache is sized again with the configured
+     * <code>db.rowcache.max-entries</code> when next used.
+     */
+    public static void clear()
+    {
+        invalidations.incrementAndGet();
+        generation.incrementAndGet();
+        Segment[] current = segments;
+        segments = null;
+        if (current != null)
+        {
+            for (Segment segment : current)
+            {
+                synchronized (segment)
+                {
+                    segment.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public static int size()
+    {
+        int size = 0;
+        Segment[] current = segments;
+        if (current != null)
+        {
+            for (Segment segment : current)
+            {
+                synchronized (segment)
+                {
+                    size += segment.size();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the hits and the misses of the cache, by kind of row (the table
+     *         name or one of the constants of this class)
+     */
+    public static Map<String, Statistics> getStatistics()
+    {
+        return new TreeMap<String, Statistics>(statistics);
+    }
+
+    /**
+     * Log the hit ratio of each kind of row.
+     */
+    public static void logStatistics()
+    {
+        for (Map.Entry<String, Statistics> entry : getStatistics().entrySet())
+        {
+            log.info("Row cache " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    private static boolean isUsable(Context context)
+    {
+        return context != null && !context.hasPendingWrites() && isEnabled();
+    }
+
+    /**
+     * @return the rows of the children, or null if one of them is not found:
+     *         the list is stale
+     */
+    private static List<TableRow> resolve(Context context, String childTable, int[] ids)
+            throws SQLException
+    {
+        List<TableRow> rows = new ArrayList<TableRow>(ids.length);
+        for (int childId : ids)
+        {
+            TableRow row = find(context, childTable, childId);
+            if (row == null)
+            {
+                return null;
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static List<TableRow> copy(List<TableRow> rows)
+    {
+        List<TableRow> copies = new ArrayList<TableRow>(rows.size());
+        for (TableRow row : rows)
+        {
+            copies.add(row.copy());
+        }
+        return copies;
+    }
+
+    static String key(int type, int id, String kind)
+    {
+        return type + ":" + id + ":" + kind;
+    }
+
+    private static Segment segment(Segment[] current, String key)
+    {
+        return current[(key.hashCode() & 0x7fffffff) % current.length];
+    }
+
+    private static Segment[] getSegments()
+    {
+        Segment[] current = segments;
+        if (current == null)
+        {
+            synchronized (SharedRowCache.class)
+            {
+                current = segments;
+                if (current == null)
+                {
+                    int maxEntries = Math.max(1,
+                            ConfigurationManager.getIntProperty("db.rowcache.max-entries", 10000));
+                    int count = Math.max(1, Math.min(SEGMENTS, maxEntries / MIN_SEGMENT_ENTRIES));
+                    current = new Segment[count];
+                    for (int i = 0; i < count; i++)
+                    {
+                        current[i] = new Segment(Math.max(1, maxEntries / count));
+                    }
+                    ttl = ConfigurationManager.getLongProperty("db.rowcache.ttl", 300) * 1000L;
+                    segments = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the number of the invalidations so far which concern the key,
+     *         to pass to {@link #put}: the ones of the key itself, of the
+     *         table of its kind of entry and of the unknown tables. They
+     *         only grow, so does their sum.
+     */
+    static long getGeneration(String key)
+    {
+        String kind = key.substring(key.lastIndexOf(':') + 1);
+        String table = TABLE_OF_KIND.get(kind);
+        AtomicLong tableGeneration = table == null ? null : tableGenerations.get(table);
+        return generation.get() + keyGenerations.get(stripe(key))
+                + (tableGeneration == null ? 0 : tableGeneration.get());
+    }
+
+    private static int stripe(String key)
+    {
+        return (key.hashCode() & 0x7fffffff) % keyGenerations.length();
+    }
+
+    static Entry get(String key)
+    {
+        Segment segment = segment(getSegments(), key);
+        Entry entry;
+        synchronized (segment)
+        {
+            entry = segment.get(key);
+        }
+        if (entry == null)
+        {
+            return null;
+        }
+        if (ttl > 0 && System.currentTimeMillis() - entry.loaded > ttl)
+        {
+            synchronized (segment)
+            {
+                segment.remove(key);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Cache a value, unless an invalidation of the key happened since the
+     * value was read from the database: the value could be older than the
+     * invalidation.
+     *
+     * @param expected
+     *            the generation of the key (see {@link #getGeneration})
+     *            read before the value was read from the database
+     */
+    static void put(String key, Object value, long expected)
+    {
+        Segment segment = segment(getSegments(), key);
+        synchronized (segment)
+        {
+            if (getGeneration(key) == expected)
+            {
+                segment.put(key, new Entry(value));
+            }
+        }
+    }
+
+    /**
+     * Cache a value unless any invalidation happened since the value was read
+     * from the database.
+     *
+     * @param expected
+     *            the number of invalidations read before the value was read
+     *            from the database
+     */
+    private static void putChild(String key, Object value, long expected)
+    {
+        Segment segment = segment(getSegments(), key);
+        synchronized (segment)
+        {
+            if (invalidations.get() == expected)
+            {
+                segment.put(key, new Entry(value));
+            }
+        }
+    }
+
+    private static void remove(Segment[] current, String key)
+    {
+        invalidations.incrementAndGet();
+        keyGenerations.incrementAndGet(stripe(key));
+        if (current == null)
+        {
+            return;
+        }
+        Segment segment = segment(current, key);
+        synchronized (segment)
+        {
+            segment.remove(key);
+        }
+    }
+
+    private static void count(String kind, boolean hit)
+    {
+        Statistics stats = statistics.get(kind);
+        if (stats == null)
+        {
+            Statistics created = new Statistics();
+            stats = statistics.putIfAbsent(kind, created);
+            if (stats == null)
+            {
+                stats = created;
+            }
+        }
+        (hit ? stats.hits : stats.misses).incrementAndGet();
+    }
+
+    /**
+     * The hits and the misses of a kind of row
+     */
+    public static class Statistics
+    {
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        public long getHits()
+        {
+            return hits.get();
+        }
+
+        public long getMisses()
+        {
+            return misses.get();
+        }
+
+        /**
+         * @return the ratio of the lookups that found the rows in the cache,
+         *         0 if there were no lookups
+         */
+        public double getHitRatio()
+        {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "hits=" + getHits() + ", misses=" + getMisses()
+                    + ", ratio=" + String.format("%.3f", getHitRatio());
+        }
+    }
+
+    static class Entry
+    {
+        private final Object value;
+
+        private final long loaded = System.currentTimeMillis();
+
+        Entry(Object value)
+        {
+            this.value = value;
+        }
+    }
+
+    /**
+     * A part of the cache with its own lock, evicting the least recently used
+     * entry when full
+     */
+    private static class Segment extends LinkedHashMap<String, Entry>
+    {
+        private final int maxEntries;
+
+        Segment(int maxEntries)
+        {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Drops the rows of the modified objects from the {@link SharedRowCache} once
+ * the transaction is committed. The rows are already dropped when the events
+ * are raised, but another context could have cached the committed rows between
+ * the event and the commit.
+ */
+public class SharedRowCacheConsumer implements Consumer
+{
+    public void initialize() throws Exception
+    {
+    }
+
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        SharedRowCache.invalidate(event.getSubjectType(), event.getSubjectID());
+        SharedRowCache.invalidate(event.getObjectType(), event.getObjectID());
+    }
+
+    public void end(Context ctx) throws Exception
+    {
+    }
+
+    public void finish(Context ctx) throws Exception
+    {
+    }
+}
@@ -8,6 +8,7 @@
 package org.dspace.storage.rdbms;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -681,7 +682,33 @@ public class TableRow
             changed.put(column, Boolean.FALSE);
         }
     }
-    
+
+    /**
+     * package private method to make an independent copy of this row, with
+     * the same values and the same flags of the updated columns. The mutable
+     * values (dates and binary data) are copied too, so that changing the
+     * copy never affects this row. It is used by the {@link SharedRowCache}.
+     */
+    TableRow copy()
+    {
+        TableRow copy = new TableRow(table, Collections.<String>emptyList());
+        for (Map.Entry<String, Object> entry : data.entrySet())
+        {
+            Object value = entry.getValue();
+            if (value instanceof java.util.Date)
+            {
+                value = ((java.util.Date) value).clone();
+            }
+            else if (value instanceof byte[])
+            {
+                value = ((byte[]) value).clone();
+            }
+            copy.data.put(entry.getKey(), value);
+            copy.changed.put(entry.getKey(), changed.get(entry.getKey()));
+        }
+        return copy;
+    }
+
     public byte[] getBinaryData(String column)
     {
         if (!hasColumn(column))
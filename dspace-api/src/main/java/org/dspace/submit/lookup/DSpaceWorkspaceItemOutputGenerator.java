@@ -21,8 +21,8 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputSet;
-import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.AdditionalMetadataUpdateProcessPlugin;
 import org.dspace.content.Collection;
@@ -351,7 +351,8 @@ public class DSpaceWorkspaceItemOutputGenerator implements OutputGenerator
     private DCInput getDCInput(String collHandle, String schema, String element,
             String qualifier) throws DCInputsReaderException
     {
-        DCInputSet dcinputset = new DCInputsReader().getInputs(collHandle);
+        DCInputSet dcinputset = SubmissionConfigRegistry.getInputsReader()
+                .getInputs(collHandle);
         return ItemUtils.getDCInput(schema, element, qualifier, dcinputset);
     }
 
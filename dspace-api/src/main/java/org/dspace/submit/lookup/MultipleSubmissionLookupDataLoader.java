@@ -10,11 +10,22 @@ package org.dspace.submit.lookup;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 
 import gr.ekt.bte.core.DataLoader;
@@ -50,6 +61,12 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
     private static final String IDENTIFIERS_ORIGINAL_RECORD = "identifiersOriginal";
     private static final String FILE_ORIGINAL_RECORD = "fileOriginal";
 
+    /**
+     * Pool shared by all the lookups to query the providers concurrently, the
+     * threads are daemon so that they don't prevent the JVM shutdown
+     */
+    private static ExecutorService executor;
+
     Map<String, DataLoader> dataloadersMap;
 
     // Depending on these values, the multiple data loader loads data from the
@@ -75,17 +92,37 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
 
         RecordSet recordSet = new RecordSet();
 
-        // KSTA:ToDo: Support timeout (problematic) providers
-        // List<String> timeoutProviders = new ArrayList<String>();
-        for (String providerName : filterProviders().keySet())
+        // query all the providers concurrently, the records are collected in
+        // the providers order. Providers that don't answer in time are skipped
+        Map<String, Future<List<Record>>> futures = new LinkedHashMap<String, Future<List<Record>>>();
+        for (final Map.Entry<String, DataLoader> entry : filterProviders()
+                .entrySet())
+        {
+            futures.put(entry.getKey(),
+                    getExecutor().submit(new Callable<List<Record>>()
+                    {
+                        @Override
+                        public List<Record> call() throws Exception
+                        {
+                            return loadRecords(entry.getKey(),
+                                    entry.getValue());
+                        }
+                    }));
+        }
+        long deadline = System.currentTimeMillis() + getTimeout();
+        for (String providerName : futures.keySet())
         {
-            DataLoader provider = dataloadersMap.get(providerName);
-            RecordSet subRecordSet = provider.getRecords();
-            recordSet.addAll(subRecordSet);
+            List<Record> subRecords = waitFor(providerName,
+                    futures.get(providerName), deadline);
+            if (subRecords == null)
+            {
+                continue;
+            }
             // Add in each record the provider name... a new provider doesn't
             // need to know about it!
-            for (Record record : subRecordSet.getRecords())
+            for (Record record : subRecords)
             {
+                recordSet.addRecord(record);
                 if (record.isMutable())
                 {
                     record.makeMutable().addValue(
@@ -159,6 +196,7 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
                         provider2foundAdsbibcodes, foundAdsbibcodes, "adsbibcode", NOT_FOUND_ADSBIBCODE);
             }
 
+            Map<String, Future<List<Record>>> enrichFutures = new LinkedHashMap<String, Future<List<Record>>>();
             for (String providerName : dataloadersMap.keySet())
             {
                 DataLoader genProvider = dataloadersMap.get(providerName);
@@ -248,33 +286,26 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
 
                 if (!keys.isEmpty())
                 {
-                    List<Record> pPublications = null;
-                    Context context = null;
-                    try
-                    {
-                        context = new Context();
-                        pPublications = provider.getByIdentifier(context, keys);
-                    }
-                    catch (Exception e)
-                    {
-                        log.error(e.getMessage(), e);
-                    }
-                    finally {
-                        if(context!=null && context.isValid()) {
-                            context.abort();
-                        }
-                    }
-                    if (pPublications != null)
+                    enrichFutures.put(providerName, getExecutor().submit(
+                            new IdentifierLookup(providerName, provider, keys)));
+                }
+            }
+
+            deadline = System.currentTimeMillis() + getTimeout();
+            for (String providerName : enrichFutures.keySet())
+            {
+                List<Record> pPublications = waitFor(providerName,
+                        enrichFutures.get(providerName), deadline);
+                if (pPublications != null)
+                {
+                    for (Record rec : pPublications)
                     {
-                        for (Record rec : pPublications)
+                        recordSet.addRecord(rec);
+                        if (rec.isMutable())
                         {
-                            recordSet.addRecord(rec);
-                            if (rec.isMutable())
-                            {
-                                rec.makeMutable().addValue(
-                                        SubmissionLookupService.PROVIDER_NAME_FIELD,
-                                        new StringValue(providerName));
-                            }
+                            rec.makeMutable().addValue(
+                                    SubmissionLookupService.PROVIDER_NAME_FIELD,
+                                    new StringValue(providerName));
                         }
                     }
                 }
@@ -386,6 +417,148 @@ public class MultipleSubmissionLookupDataLoader implements DataLoader
         }
     }
 
+    /**
+     * Lookup by identifiers in the enrichment phase
+     */
+    private static class IdentifierLookup implements Callable<List<Record>>
+    {
+        private final String providerName;
+
+        private final SubmissionLookupDataLoader provider;
+
+        private final Map<String, Set<String>> keys;
+
+        IdentifierLookup(String providerName,
+                SubmissionLookupDataLoader provider,
+                Map<String, Set<String>> keys)
+        {
+            this.providerName = providerName;
+            this.provider = provider;
+            this.keys = keys;
+        }
+
+        @Override
+        public List<Record> call() throws Exception
+        {
+            String cacheKey = SubmissionLookupCache.buildKey(providerName,
+                    "identifiers", keys);
+            List<Record> pPublications = SubmissionLookupCache.get(cacheKey);
+            if (pPublications != null)
+            {
+                return pPublications;
+            }
+            Context context = null;
+            try
+            {
+                context = new Context();
+                pPublications = provider.getByIdentifier(context, keys);
+            }
+            finally {
+                if(context!=null && context.isValid()) {
+                    context.abort();
+                }
+            }
+            SubmissionLookupCache.put(cacheKey, pPublications);
+            return pPublications;
+        }
+    }
+
+    /**
+     * Retrieve the records from a provider in the first phase, the responses
+     * of the online providers are cached
+     */
+    private List<Record> loadRecords(String providerName, DataLoader provider)
+            throws MalformedSourceException
+    {
+        String cacheKey = null;
+        if (provider instanceof NetworkSubmissionLookupDataLoader)
+        {
+            cacheKey = identifiers != null ? SubmissionLookupCache.buildKey(
+                    providerName, "identifiers", identifiers)
+                    : SubmissionLookupCache.buildKey(providerName, "search",
+                            searchTerms);
+            List<Record> cached = SubmissionLookupCache.get(cacheKey);
+            if (cached != null)
+            {
+                return cached;
+            }
+        }
+        List<Record> records = new ArrayList<Record>(provider.getRecords()
+                .getRecords());
+        if (cacheKey != null)
+        {
+            SubmissionLookupCache.put(cacheKey, records);
+        }
+        return records;
+    }
+
+    /**
+     * Wait for the response of a provider until the deadline. Timeouts and
+     * errors of a provider are logged and return null so that the records of
+     * the other providers are still used.
+     */
+    private List<Record> waitFor(String providerName,
+            Future<List<Record>> future, long deadline)
+            throws MalformedSourceException
+    {
+        try
+        {
+            return future.get(
+                    Math.max(0, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            future.cancel(true);
+            log.warn("The lookup provider " + providerName
+                    + " didn't answer in " + getTimeout()
+                    + " ms, its records are skipped");
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof MalformedSourceException)
+            {
+                throw (MalformedSourceException) e.getCause();
+            }
+            log.error(e.getCause().getMessage(), e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static long getTimeout()
+    {
+        return ConfigurationManager.getLongProperty("submission.lookup.timeout",
+                30000);
+    }
+
+    private static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            final AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(
+                    ConfigurationManager.getIntProperty(
+                            "submission.lookup.threads", 10),
+                    new ThreadFactory()
+                    {
+                        @Override
+                        public Thread newThread(Runnable r)
+                        {
+                            Thread t = new Thread(r, "submission-lookup-"
+                                    + counter.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        return executor;
+    }
+
     public Map<String, DataLoader> filterProviders()
     {
         Map<String, DataLoader> result = new HashMap<String, DataLoader>();
@@ -0,0 +1,206 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.submit.lookup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dspace.core.ConfigurationManager;
+import org.dspace.submit.util.SubmissionLookupPublication;
+
+import gr.ekt.bte.core.Record;
+import gr.ekt.bte.core.Value;
+
+/**
+ * Short lived, JVM wide cache of the records returned by the online lookup
+ * providers. It avoids to query again the remote services when the user
+ * retries the same lookup. The keys are built from the normalized
+ * identifiers or search terms, the cached records are copied both when stored
+ * and when returned as they are modified by the transformation workflow.
+ *
+ * Configuration (dspace.cfg):
+ * <ul>
+ * <li>submission.lookup.cache.ttl: seconds, 0 disables the cache (default
+ * 300)</li>
+ * <li>submission.lookup.cache.max-entries: (default 500)</li>
+ * </ul>
+ */
+public class SubmissionLookupCache
+{
+    private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
+
+    private static class CacheEntry
+    {
+        private final long expiration;
+
+        private final List<Record> records;
+
+        CacheEntry(long expiration, List<Record> records)
+        {
+            this.expiration = expiration;
+            this.records = records;
+        }
+    }
+
+    private SubmissionLookupCache()
+    {
+    }
+
+    private static long getTTL()
+    {
+        return ConfigurationManager.getIntProperty("submission.lookup.cache.ttl",
+                300) * 1000L;
+    }
+
+    /**
+     * Build the cache key for a lookup
+     *
+     * @param providerName
+     *            the provider
+     * @param mode
+     *            the kind of lookup (search, identifiers, etc.)
+     * @param terms
+     *            the identifiers or search terms
+     * @return the key, lower case and ordered so that equivalent lookups share
+     *         the same entry
+     */
+    public static String buildKey(String providerName, String mode,
+            Map<String, Set<String>> terms)
+    {
+        Map<String, Set<String>> normalized = new TreeMap<String, Set<String>>();
+        if (terms != null)
+        {
+            for (String type : terms.keySet())
+            {
+                Set<String> values = new TreeSet<String>();
+                if (terms.get(type) != null)
+                {
+                    for (String value : terms.get(type))
+                    {
+                        if (value == null)
+                        {
+                            continue;
+                        }
+                        if (SubmissionLookupDataLoader.DOI.equals(type))
+                        {
+                            value = SubmissionLookupUtils.normalizeDOI(value);
+                        }
+                        values.add(value.trim().toLowerCase());
+                    }
+                }
+                normalized.put(type, values);
+            }
+        }
+        return providerName + "|" + mode + "|" + normalized;
+    }
+
+    /**
+     * @return a copy of the cached records or null if the key is not cached or
+     *         expired
+     */
+    public static List<Record> get(String key)
+    {
+        if (getTTL() <= 0)
+        {
+            return null;
+        }
+        CacheEntry entry = cache.get(key);
+        if (entry == null)
+        {
+            return null;
+        }
+        if (entry.expiration < System.currentTimeMillis())
+        {
+            cache.remove(key);
+            return null;
+        }
+        return copy(entry.records);
+    }
+
+    /**
+     * Cache the records returned by a provider. Only records of type
+     * {@link SubmissionLookupPublication} can be copied, the other responses
+     * are not cached.
+     */
+    public static void put(String key, List<Record> records)
+    {
+        long ttl = getTTL();
+        if (ttl <= 0 || records == null)
+        {
+            return;
+        }
+        List<Record> copy = copy(records);
+        if (copy == null)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int maxEntries = ConfigurationManager.getIntProperty(
+                "submission.lookup.cache.max-entries", 500);
+        if (cache.size() >= maxEntries)
+        {
+            purge(now);
+            if (cache.size() >= maxEntries)
+            {
+                return;
+            }
+        }
+        cache.put(key, new CacheEntry(now + ttl, copy));
+    }
+
+    public static void clear()
+    {
+        cache.clear();
+    }
+
+    private static void purge(long now)
+    {
+        Iterator<CacheEntry> iterator = cache.values().iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().expiration < now)
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static List<Record> copy(List<Record> records)
+    {
+        List<Record> result = new ArrayList<Record>(records.size());
+        for (Record record : records)
+        {
+            if (!(record instanceof SubmissionLookupPublication))
+            {
+                return null;
+            }
+            SubmissionLookupPublication original = (SubmissionLookupPublication) record;
+            SubmissionLookupPublication copy = new SubmissionLookupPublication(
+                    original.getProviderName());
+            for (String field : original.getFields())
+            {
+                List<Value> values = original.getValues(field);
+                if (values != null)
+                {
+                    for (Value value : values)
+                    {
+                        copy.add(field, value.getAsString());
+                    }
+                }
+            }
+            result.add(copy);
+        }
+        return result;
+    }
+}
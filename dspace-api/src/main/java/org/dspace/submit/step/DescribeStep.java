@@ -22,6 +22,7 @@ import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.util.SubmissionInfo;
 import org.dspace.app.util.Util;
 import org.dspace.authorize.AuthorizeException;
@@ -65,9 +66,6 @@ public class DescribeStep extends AbstractProcessingStep
     /** log4j logger */
     private static Logger log = Logger.getLogger(DescribeStep.class);
 
-    /** hash of all submission forms details */
-    private static DCInputsReader inputsReader = null;
-
     /***************************************************************************
      * STATUS / ERROR FLAGS (returned by doProcessing() if an error occurs or
      * additional user interaction may be required)
@@ -105,12 +103,12 @@ public class DescribeStep extends AbstractProcessingStep
             // lookup applicable inputs
             Collection c = subInfo.getSubmissionItem().getCollection();
             
-            String customHeading = inputsReader.getInputs(c.getHandle()).getHeading(pageNumber);
+            String customHeading = getInputsReader().getInputs(c.getHandle()).getHeading(pageNumber);
             if (StringUtils.isNotBlank(customHeading)) {
                 return customHeading;
             }
         }
-        catch (DCInputsReaderException | NullPointerException e)
+        catch (DCInputsReaderException | ServletException | NullPointerException e)
         {
             return heading;
         }
@@ -161,7 +159,7 @@ public class DescribeStep extends AbstractProcessingStep
         DCInput[] inputs = null;
         try
         {
-            inputs = inputsReader.getInputs(c.getHandle()).getPageRows(
+            inputs = getInputsReader().getInputs(c.getHandle()).getPageRows(
                     currentPage - 1,
                     subInfo.getSubmissionItem().hasMultipleTitles(),
                     subInfo.getSubmissionItem().isPublishedBefore());
@@ -512,21 +510,15 @@ public class DescribeStep extends AbstractProcessingStep
      */
     public static DCInputsReader getInputsReader() throws ServletException
     {
-        // load inputsReader only the first time
-        if (inputsReader == null)
+        // read configurable submissions forms data
+        try
         {
-            // read configurable submissions forms data
-            try
-            {
-                inputsReader = new DCInputsReader();
-            }
-            catch (DCInputsReaderException e)
-            {
-                throw new ServletException(e);
-            }
+            return SubmissionConfigRegistry.getInputsReader();
+        }
+        catch (DCInputsReaderException e)
+        {
+            throw new ServletException(e);
         }
-        
-        return inputsReader;
     }
     
     /**
@@ -538,13 +530,12 @@ public class DescribeStep extends AbstractProcessingStep
     {
         try
         {
-            inputsReader = new DCInputsReader(filename);
+            return SubmissionConfigRegistry.getInputsReader(filename);
         }
         catch (DCInputsReaderException e)
         {
             throw new ServletException(e);
         }
-        return inputsReader;
     }
     
     /**
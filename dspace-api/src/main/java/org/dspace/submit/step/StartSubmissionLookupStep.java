@@ -29,7 +29,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInputSet;
-import org.dspace.app.util.DCInputsReader;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.util.SubmissionInfo;
 import org.dspace.app.util.Util;
 import org.dspace.authorize.AuthorizeException;
@@ -194,7 +194,8 @@ public class StartSubmissionLookupStep extends AbstractProcessingStep
             DCInputSet inputSet = null;
             try
             {
-                inputSet = new DCInputsReader().getInputs(col.getHandle());
+                inputSet = SubmissionConfigRegistry.getInputsReader().getInputs(
+                        col.getHandle());
             }
             catch (Exception e)
             {
@@ -15,6 +15,7 @@ import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputSet;
 import org.dspace.app.util.DCInputsReader;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Collection;
 import org.dspace.content.InProgressSubmission;
@@ -83,8 +84,8 @@ public class ItemUtils
             }
 
             // Read the input form file for the specific collection
-            DCInputsReader inputsReader = new DCInputsReader(
-                    formFileName);
+            DCInputsReader inputsReader = SubmissionConfigRegistry
+                    .getInputsReader(formFileName);
 
             return inputsReader.getInputs(col_handle);
         }
@@ -0,0 +1,137 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket respecting the quota of a remote service, whatever the number
+ * of threads calling it. The bucket is refilled with
+ * <code>permitsPerSecond</code> tokens per second up to <code>burst</code>
+ * tokens, and each call to the service consumes a token. Unlike a fixed sleep
+ * between the calls, it allows concurrent requests as long as the quota is
+ * not exceeded.
+ * <P>
+ * It can be configured as a Spring bean, through its setters. This class is
+ * thread safe.
+ */
+public class RateLimiter
+{
+    /** Tokens added per second, 0 for no limit */
+    private double permitsPerSecond;
+
+    private double burst;
+
+    /** Tokens available, negative until the first call */
+    private double tokens = -1;
+
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * A limiter of one call per second, without burst.
+     */
+    public RateLimiter()
+    {
+        this(1, 1);
+    }
+
+    /**
+     * @param permitsPerSecond
+     *            Maximal number of calls per second, 0 or less for no limit
+     */
+    public RateLimiter(double permitsPerSecond)
+    {
+        this(permitsPerSecond, 1);
+    }
+
+    /**
+     * @param permitsPerSecond
+     *            Maximal number of calls per second, 0 or less for no limit
+     * @param burst
+     *            Maximal number of calls at once after an idle period, at
+     *            least one
+     */
+    public RateLimiter(double permitsPerSecond, double burst)
+    {
+        setPermitsPerSecond(permitsPerSecond);
+        setBurst(burst);
+    }
+
+    /**
+     * Wait until a token is available and consume it.
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException
+    {
+        while (true)
+        {
+            long waitNanos;
+            synchronized (this)
+            {
+                if (permitsPerSecond <= 0)
+                {
+                    return;
+                }
+                refill();
+                if (tokens >= 1)
+                {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(1, waitNanos));
+        }
+    }
+
+    private void refill()
+    {
+        long now = System.nanoTime();
+        if (tokens < 0)
+        {
+            // first call, the bucket starts full
+            tokens = burst;
+        }
+        else
+        {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * @param permitsPerSecond
+     *            Maximal number of calls per second, 0 or less for no limit
+     */
+    public synchronized void setPermitsPerSecond(double permitsPerSecond)
+    {
+        this.permitsPerSecond = Math.max(0, permitsPerSecond);
+    }
+
+    public synchronized double getPermitsPerSecond()
+    {
+        return permitsPerSecond;
+    }
+
+    /**
+     * @param burst
+     *            Maximal number of calls at once after an idle period, at
+     *            least one
+     */
+    public synchronized void setBurst(double burst)
+    {
+        this.burst = Math.max(1, burst);
+    }
+
+    public synchronized double getBurst()
+    {
+        return burst;
+    }
+}
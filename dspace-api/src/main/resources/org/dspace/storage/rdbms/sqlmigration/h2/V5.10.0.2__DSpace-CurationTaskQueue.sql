@@ -0,0 +1,27 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+------------------------------------------------------
+-- Table of the database backed curation task queue (DBTaskQueue)
+------------------------------------------------------
+
+CREATE SEQUENCE curation_task_queue_seq;
+
+CREATE TABLE curation_task_queue
+(
+  id INTEGER PRIMARY KEY,
+  queue_name VARCHAR(128) NOT NULL,
+  eperson_id VARCHAR(256),
+  submit_time BIGINT NOT NULL,
+  tasks VARCHAR(1024) NOT NULL,
+  object_id VARCHAR(256) NOT NULL,
+  ticket BIGINT,
+  claimed_date TIMESTAMP
+);
+
+CREATE INDEX curation_task_queue_name_idx ON curation_task_queue(queue_name, ticket);
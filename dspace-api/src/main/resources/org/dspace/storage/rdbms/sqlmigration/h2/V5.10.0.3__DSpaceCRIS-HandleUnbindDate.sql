@@ -0,0 +1,16 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+------------------------------------------------------
+-- Date on which a handle was unbound from its deleted object, read by the
+-- incremental runs of the network index
+------------------------------------------------------
+
+ALTER TABLE handle ADD COLUMN unbind_date TIMESTAMP;
+
+CREATE INDEX handle_unbind_date_idx ON handle(unbind_date);
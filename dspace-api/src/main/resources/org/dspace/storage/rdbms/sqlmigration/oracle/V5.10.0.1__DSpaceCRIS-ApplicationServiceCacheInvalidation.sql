@@ -0,0 +1,44 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+BEGIN
+
+BEGIN
+	EXECUTE IMMEDIATE
+    'CREATE TABLE cris_cache_invalidation (
+	"ID" NUMBER(*,0) NOT NULL ENABLE,
+	uuid VARCHAR2(255) NOT NULL,
+	node_id VARCHAR2(255) NOT NULL,
+	invalidation_date TIMESTAMP NOT NULL,
+ 	CONSTRAINT cris_cache_invalidation_pkey PRIMARY KEY ("ID")	
+)';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+BEGIN
+	EXECUTE IMMEDIATE
+    	'CREATE INDEX cris_cache_inv_date_idx ON cris_cache_invalidation(invalidation_date)';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+BEGIN
+	EXECUTE IMMEDIATE
+    	'CREATE SEQUENCE cris_cache_invalidation_seq START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+END;
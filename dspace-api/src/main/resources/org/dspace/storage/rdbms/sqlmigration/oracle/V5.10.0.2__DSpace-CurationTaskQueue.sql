@@ -0,0 +1,48 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+BEGIN
+
+BEGIN
+	EXECUTE IMMEDIATE
+    'CREATE TABLE curation_task_queue (
+	"ID" NUMBER(*,0) NOT NULL ENABLE,
+	queue_name VARCHAR2(128) NOT NULL,
+	eperson_id VARCHAR2(256),
+	submit_time NUMBER(19,0) NOT NULL,
+	tasks VARCHAR2(1024) NOT NULL,
+	object_id VARCHAR2(256) NOT NULL,
+	ticket NUMBER(19,0),
+	claimed_date TIMESTAMP,
+ 	CONSTRAINT curation_task_queue_pkey PRIMARY KEY ("ID")	
+)';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+BEGIN
+	EXECUTE IMMEDIATE
+    	'CREATE INDEX curation_task_queue_name_idx ON curation_task_queue(queue_name, ticket)';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+BEGIN
+	EXECUTE IMMEDIATE
+    	'CREATE SEQUENCE curation_task_queue_seq START WITH 1 INCREMENT BY 1 NOCACHE NOCYCLE';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+END;
@@ -0,0 +1,34 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+------------------------------------------------------
+-- Date on which a handle was unbound from its deleted object, read by the
+-- incremental runs of the network index
+------------------------------------------------------
+
+BEGIN
+
+BEGIN
+	EXECUTE IMMEDIATE
+    'ALTER TABLE handle ADD unbind_date TIMESTAMP';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+BEGIN
+	EXECUTE IMMEDIATE
+    	'CREATE INDEX handle_unbind_date_idx ON handle(unbind_date)';
+	EXCEPTION
+	WHEN OTHERS
+    THEN
+       NULL;
+END;
+
+END;
@@ -0,0 +1,36 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+do $$
+begin
+
+CREATE TABLE cris_cache_invalidation
+(
+  id integer NOT NULL,
+  uuid character varying(255) NOT NULL,
+  node_id character varying(255) NOT NULL,
+  invalidation_date timestamp NOT NULL,
+  CONSTRAINT cris_cache_invalidation_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX cris_cache_invalidation_date_idx ON cris_cache_invalidation(invalidation_date);
+CREATE SEQUENCE cris_cache_invalidation_seq
+  INCREMENT 1
+  MINVALUE 1
+  MAXVALUE 9223372036854775807
+  START 1
+  CACHE 1;
+
+exception when others then
+ 
+    raise notice 'The transaction is in an uncommittable state. '
+                     'Transaction was rolled back';
+ 
+    raise notice 'Yo this is good! --> % %', SQLERRM, SQLSTATE;
+end;
+$$ language 'plpgsql';
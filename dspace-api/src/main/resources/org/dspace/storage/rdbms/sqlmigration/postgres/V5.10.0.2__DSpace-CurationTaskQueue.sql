@@ -0,0 +1,40 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+do $$
+begin
+
+CREATE TABLE curation_task_queue
+(
+  id integer NOT NULL,
+  queue_name character varying(128) NOT NULL,
+  eperson_id character varying(256),
+  submit_time bigint NOT NULL,
+  tasks character varying(1024) NOT NULL,
+  object_id character varying(256) NOT NULL,
+  ticket bigint,
+  claimed_date timestamp,
+  CONSTRAINT curation_task_queue_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX curation_task_queue_name_idx ON curation_task_queue(queue_name, ticket);
+CREATE SEQUENCE curation_task_queue_seq
+  INCREMENT 1
+  MINVALUE 1
+  MAXVALUE 9223372036854775807
+  START 1
+  CACHE 1;
+
+exception when others then
+ 
+    raise notice 'The transaction is in an uncommittable state. '
+                     'Transaction was rolled back';
+ 
+    raise notice 'Yo this is good! --> % %', SQLERRM, SQLSTATE;
+end;
+$$ language 'plpgsql';
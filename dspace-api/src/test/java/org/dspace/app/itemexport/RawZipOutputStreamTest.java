@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class RawZipOutputStream
+ */
+public class RawZipOutputStreamTest
+{
+    private File file;
+
+    @Before
+    public void init() throws IOException
+    {
+        file = File.createTempFile("rawzip", ".zip");
+    }
+
+    @After
+    public void destroy()
+    {
+        file.delete();
+    }
+
+    private static void write(RawZipOutputStream zip, String name, byte[] data, boolean stored)
+            throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] compressed = data;
+        if (!stored)
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+            DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater);
+            deflaterOut.write(data);
+            deflaterOut.close();
+            deflater.end();
+            compressed = out.toByteArray();
+        }
+        zip.writeEntry(name, stored ? RawZipOutputStream.STORED : RawZipOutputStream.DEFLATED,
+                crc.getValue(), data.length, new ByteArrayInputStream(compressed), compressed.length);
+    }
+
+    private static byte[] read(ZipFile zipFile, String name) throws IOException
+    {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertThat("entry " + name, entry, notNullValue());
+        InputStream in = zipFile.getInputStream(entry);
+        try
+        {
+            return IOUtils.toByteArray(in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Test that the stored and deflated entries are read back by ZipFile, of
+     * class RawZipOutputStream.
+     */
+    @Test
+    public void testWriteEntry() throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+        {
+            text.append("dc.title ").append(i).append('\n');
+        }
+        byte[] deflated = text.toString().getBytes("UTF-8");
+        byte[] stored = new byte[50000];
+        new java.util.Random(42).nextBytes(stored);
+
+        RawZipOutputStream zip = new RawZipOutputStream(new FileOutputStream(file));
+        write(zip, "1/dublin_core.xml", deflated, false);
+        write(zip, "1/image.jpg", stored, true);
+        write(zip, "1/empty", new byte[0], false);
+        write(zip, "1/th\u00e8se.pdf", stored, false);
+        zip.close();
+        assertThat("testWriteEntry 0", zip.getByteCount(), equalTo(file.length()));
+
+        ZipFile zipFile = new ZipFile(file);
+        try
+        {
+            assertThat("testWriteEntry 1", zipFile.size(), equalTo(4));
+            assertThat("testWriteEntry 2", read(zipFile, "1/dublin_core.xml"), equalTo(deflated));
+            assertThat("testWriteEntry 3", read(zipFile, "1/image.jpg"), equalTo(stored));
+            assertThat("testWriteEntry 4", zipFile.getEntry("1/image.jpg").getMethod(), equalTo(ZipEntry.STORED));
+            assertThat("testWriteEntry 5", read(zipFile, "1/empty").length, equalTo(0));
+            assertThat("testWriteEntry 6", read(zipFile, "1/th\u00e8se.pdf"), equalTo(stored));
+        }
+        finally
+        {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Test of the Zip64 end of central directory, written for more than
+     * 65535 entries, of class RawZipOutputStream.
+     */
+    @Test
+    public void testManyEntries() throws IOException
+    {
+        RawZipOutputStream zip = new RawZipOutputStream(new FileOutputStream(file));
+        for (int i = 0; i < 70000; i++)
+        {
+            write(zip, i + "/handle", ("123456789/" + i).getBytes("UTF-8"), i % 2 == 0);
+        }
+        zip.close();
+
+        ZipFile zipFile = new ZipFile(file);
+        try
+        {
+            assertThat("testManyEntries 0", zipFile.size(), equalTo(70000));
+            assertThat("testManyEntries 1", new String(read(zipFile, "69999/handle"), "UTF-8"),
+                    equalTo("123456789/69999"));
+        }
+        finally
+        {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * Test that an entry with a wrong compressed size is rejected, of class
+     * RawZipOutputStream.
+     */
+    @Test(expected = IOException.class)
+    public void testWrongSize() throws IOException
+    {
+        RawZipOutputStream zip = new RawZipOutputStream(new ByteArrayOutputStream());
+        zip.writeEntry("a", RawZipOutputStream.STORED, 0, 3, new ByteArrayInputStream(new byte[2]), 3);
+    }
+}
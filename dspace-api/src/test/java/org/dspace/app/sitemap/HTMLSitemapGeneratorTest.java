@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.sitemap;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for the incremental writing of the sitemap files, of class
+ * HTMLSitemapGenerator
+ */
+public class HTMLSitemapGeneratorTest extends AbstractUnitTest
+{
+    private File outputDir;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        outputDir = new File(System.getProperty("java.io.tmpdir"), "sitemaps-" + System.nanoTime());
+        outputDir.mkdirs();
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        FileUtils.deleteQuietly(outputDir);
+        super.destroy();
+    }
+
+    private HTMLSitemapGenerator generate(String lastURL) throws IOException
+    {
+        HTMLSitemapGenerator generator = new HTMLSitemapGenerator(outputDir, "http://localhost/htmlmap?map=",
+                null);
+        for (int i = 0; i < 599; i++)
+        {
+            generator.addURL("http://localhost/handle/123456789/" + i, null);
+        }
+        generator.addURL(lastURL, null);
+        generator.finish();
+        return generator;
+    }
+
+    /**
+     * Test of finish, of class HTMLSitemapGenerator.
+     */
+    @Test
+    public void testFinish() throws IOException
+    {
+        HTMLSitemapGenerator generator = generate("http://localhost/handle/123456789/a");
+
+        assertThat("testFinish 0", generator.fileCount, equalTo(2));
+        assertThat("testFinish 1", generator.getChangedCount(), equalTo(3));
+        assertThat("testFinish 2", new File(outputDir, "sitemap0.html").exists(), equalTo(true));
+        assertThat("testFinish 3", new File(outputDir, "sitemap1.html").exists(), equalTo(true));
+        assertThat("testFinish 4", new File(outputDir, "sitemap_index.html").exists(), equalTo(true));
+    }
+
+    /**
+     * Test that only the files whose contents changed are written again, of
+     * class HTMLSitemapGenerator.
+     */
+    @Test
+    public void testIncremental() throws IOException
+    {
+        generate("http://localhost/handle/123456789/a");
+
+        assertThat("testIncremental 0", generate("http://localhost/handle/123456789/a").getChangedCount(),
+                equalTo(0));
+        assertThat("testIncremental 1", generate("http://localhost/handle/123456789/b").getChangedCount(),
+                equalTo(1));
+        assertThat("testIncremental 2", FileUtils.readFileToString(new File(outputDir, "sitemap1.html"), "UTF-8")
+                .contains("123456789/b"), equalTo(true));
+
+        new File(outputDir, "sitemap0.html").delete();
+        assertThat("testIncremental 3", generate("http://localhost/handle/123456789/b").getChangedCount(),
+                equalTo(1));
+    }
+}
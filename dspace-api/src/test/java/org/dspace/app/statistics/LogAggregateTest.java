@@ -0,0 +1,100 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.statistics;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class LogAggregate
+ */
+public class LogAggregateTest
+{
+    private LogAggregate createAggregate()
+    {
+        LogAggregate aggregate = new LogAggregate();
+        LogAggregate.Day day = aggregate.getDay("2014-01-31");
+        day.lines = 3;
+        day.warnings = 1;
+        day.add(LogAggregate.ACTION, "view_item", 2);
+        day.add(LogAggregate.ACTION, "search", 1);
+        day.add(LogAggregate.SEARCH, "water", 1);
+        day = aggregate.getDay("2014-02-01");
+        day.lines = 1;
+        day.add(LogAggregate.ACTION, "view_item", 1);
+        day.add(LogAggregate.ITEM, "123456789/1", 1);
+        return aggregate;
+    }
+
+    /**
+     * Test of merge, of class LogAggregate.
+     */
+    @Test
+    public void testMerge()
+    {
+        LogAggregate aggregate = createAggregate();
+        aggregate.merge(createAggregate());
+
+        LogAggregate.Day day = aggregate.getDay("2014-01-31");
+        assertThat("testMerge 0", day.lines, equalTo(6));
+        assertThat("testMerge 1", day.warnings, equalTo(2));
+        assertThat("testMerge 2", day.getCounter(LogAggregate.ACTION).get("view_item")[0], equalTo(4));
+        assertThat("testMerge 3", day.getCounter(LogAggregate.SEARCH).get("water")[0], equalTo(2));
+        assertThat("testMerge 4", aggregate.getDay("2014-02-01").getCounter(LogAggregate.ITEM)
+                .get("123456789/1")[0], equalTo(2));
+    }
+
+    /**
+     * Test of getDays, of class LogAggregate.
+     */
+    @Test
+    public void testGetDays()
+    {
+        LogAggregate aggregate = createAggregate();
+
+        assertThat("testGetDays 0", aggregate.getDays(null, null).size(), equalTo(2));
+        assertThat("testGetDays 1", aggregate.getDays("2014-02-01", null).keySet().iterator().next(),
+                equalTo("2014-02-01"));
+        assertThat("testGetDays 2", aggregate.getDays(null, "2014-01-31").keySet().iterator().next(),
+                equalTo("2014-01-31"));
+        assertThat("testGetDays 3", aggregate.getDays(null, "2014-01-31").size(), equalTo(1));
+        assertThat("testGetDays 4", aggregate.getDays("2014-01-01", "2014-01-30").size(), equalTo(0));
+    }
+
+    /**
+     * Test of write and read, of class LogAggregate.
+     */
+    @Test
+    public void testWriteRead() throws IOException
+    {
+        File file = File.createTempFile("dstat", ".agg");
+        try
+        {
+            createAggregate().write(file, "header 1");
+
+            assertThat("testWriteRead 0", LogAggregate.read(file, "header 2"), nullValue());
+
+            LogAggregate aggregate = LogAggregate.read(file, "header 1");
+            assertThat("testWriteRead 1", aggregate, notNullValue());
+            LogAggregate.Day day = aggregate.getDay("2014-01-31");
+            assertThat("testWriteRead 2", day.lines, equalTo(3));
+            assertThat("testWriteRead 3", day.warnings, equalTo(1));
+            assertThat("testWriteRead 4", day.getCounter(LogAggregate.ACTION).get("search")[0], equalTo(1));
+            assertThat("testWriteRead 5", aggregate.getDay("2014-02-01").getCounter(LogAggregate.ITEM)
+                    .get("123456789/1")[0], equalTo(1));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
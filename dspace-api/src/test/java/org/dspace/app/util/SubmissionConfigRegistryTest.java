@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.util;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class SubmissionConfigRegistry
+ */
+public class SubmissionConfigRegistryTest extends AbstractUnitTest
+{
+    @After
+    @Override
+    public void destroy()
+    {
+        SubmissionConfigRegistry.clear();
+        super.destroy();
+    }
+
+    /**
+     * Test of getInputsReader method, of class SubmissionConfigRegistry.
+     */
+    @Test
+    public void testGetInputsReader() throws Exception
+    {
+        DCInputsReader reader = SubmissionConfigRegistry.getInputsReader();
+        assertThat("testGetInputsReader 0", reader, notNullValue());
+        assertThat("testGetInputsReader 1",
+                SubmissionConfigRegistry.getInputsReader(), sameInstance(reader));
+
+        // the input sets are built once and shared
+        DCInputSet inputSet = reader.getInputs(DCInputsReader.DEFAULT_COLLECTION);
+        assertThat("testGetInputsReader 2", inputSet, notNullValue());
+        assertThat("testGetInputsReader 3",
+                reader.getInputs("123456789/unmapped"), sameInstance(inputSet));
+    }
+
+    /**
+     * Test of clear method, of class SubmissionConfigRegistry.
+     */
+    @Test
+    public void testClear() throws Exception
+    {
+        DCInputsReader reader = SubmissionConfigRegistry.getInputsReader();
+        SubmissionConfigRegistry.clear();
+        DCInputsReader reloaded = SubmissionConfigRegistry.getInputsReader();
+        assertThat("testClear 0", reloaded, not(sameInstance(reader)));
+        assertThat("testClear 1",
+                reloaded.getInputs(DCInputsReader.DEFAULT_COLLECTION).getFormName(),
+                equalTo(reader.getInputs(DCInputsReader.DEFAULT_COLLECTION).getFormName()));
+    }
+
+    /**
+     * Test of getInputsReader method with a missing file.
+     */
+    @Test(expected = DCInputsReaderException.class)
+    public void testMissingFile() throws Exception
+    {
+        SubmissionConfigRegistry.getInputsReader("/nonexistent/input-forms.xml");
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content.packager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class PackageLedger
+ */
+public class PackageLedgerTest
+{
+    private File file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = File.createTempFile("ledger", ".txt");
+        file.delete();
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    /**
+     * Test of the record and get methods, of class PackageLedger.
+     */
+    @Test
+    public void testRecord() throws IOException
+    {
+        File collectionPkg = new File("collection.zip");
+        File itemPkg = new File("item.zip");
+
+        PackageLedger ledger = new PackageLedger(file);
+        assertThat("testRecord 0", ledger.get(collectionPkg), nullValue());
+        ledger.record(collectionPkg, "123456789/2", Arrays.asList("item.zip", "other.zip"));
+        ledger.record(itemPkg, null, null);
+        assertThat("testRecord 1", ledger.get(collectionPkg).getHandle(), equalTo("123456789/2"));
+        assertThat("testRecord 2", ledger.get(collectionPkg).getChildren(),
+                equalTo(Arrays.asList("item.zip", "other.zip")));
+        assertThat("testRecord 3", ledger.get(itemPkg).getHandle(), nullValue());
+        ledger.close();
+    }
+
+    /**
+     * Test of the loading of a ledger, of class PackageLedger.
+     */
+    @Test
+    public void testResume() throws IOException
+    {
+        PackageLedger ledger = new PackageLedger(file);
+        ledger.record(new File("collection.zip"), "123456789/2", Arrays.asList("item.zip"));
+        ledger.record(new File("item.zip"), "123456789/3", null);
+        ledger.close();
+
+        // a line truncated by a crash
+        OutputStream out = new FileOutputStream(file, true);
+        out.write((new File("other.zip").getAbsolutePath() + "\t123456789/4").getBytes("UTF-8"));
+        out.close();
+
+        ledger = new PackageLedger(file);
+        assertThat("testResume 0", ledger.get(new File("collection.zip")).getChildren(),
+                equalTo(Arrays.asList("item.zip")));
+        assertThat("testResume 1", ledger.get(new File("item.zip")).getHandle(), equalTo("123456789/3"));
+        assertThat("testResume 2", ledger.get(new File("item.zip")).getChildren().isEmpty(), equalTo(true));
+        assertThat("testResume 3", ledger.get(new File("other.zip")), nullValue());
+        ledger.record(new File("other.zip"), "123456789/4", null);
+        ledger.close();
+
+        ledger = new PackageLedger(file);
+        assertThat("testResume 4", ledger.get(new File("other.zip")).getHandle(), equalTo("123456789/4"));
+        ledger.close();
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Microbenchmark of contended configuration reads: it compares the lookup in
+ * the synchronized {@link Properties}, with the trimming and parsing done on
+ * every call, to the typed getters of {@link ConfigurationManager} reading a
+ * configuration file with the same properties.
+ * <P>
+ * It is not run by the test suite, run it from the test classpath with:
+ * <pre>
+ * java org.dspace.core.ConfigurationManagerBenchmark [threads] [reads per thread]
+ * </pre>
+ */
+public class ConfigurationManagerBenchmark
+{
+    private static final int KEYS = 2000;
+
+    public static void main(String[] argv) throws Exception
+    {
+        int threads = argv.length > 0 ? Integer.parseInt(argv[0])
+                : Runtime.getRuntime().availableProcessors();
+        final int reads = argv.length > 1 ? Integer.parseInt(argv[1]) : 2000000;
+
+        final Properties properties = new Properties();
+        for (int i = 0; i < KEYS; i++)
+        {
+            properties.setProperty("int.property." + i, " " + i + " ");
+            properties.setProperty("boolean.property." + i, i % 2 == 0 ? "true" : "no");
+            properties.setProperty("string.property." + i, " value " + i);
+        }
+        File config = File.createTempFile("dspace", ".cfg");
+        config.deleteOnExit();
+        OutputStream out = new FileOutputStream(config);
+        try
+        {
+            properties.store(out, null);
+        }
+        finally
+        {
+            out.close();
+        }
+        ConfigurationManager.loadConfig(config.getAbsolutePath());
+
+        Reader before = new Reader()
+        {
+            @Override
+            public long read(int i)
+            {
+                String intValue = properties.getProperty("int.property." + (i % KEYS));
+                String boolValue = properties.getProperty("boolean.property." + (i % KEYS));
+                String stringValue = properties.getProperty("string.property." + (i % KEYS));
+                boolean flag = boolValue.trim().equalsIgnoreCase("true")
+                        || boolValue.trim().equalsIgnoreCase("yes");
+                return Integer.parseInt(intValue.trim()) + (flag ? 1 : 0)
+                        + stringValue.trim().length();
+            }
+        };
+        Reader after = new Reader()
+        {
+            @Override
+            public long read(int i)
+            {
+                int intValue = ConfigurationManager.getIntProperty("int.property." + (i % KEYS));
+                boolean flag = ConfigurationManager.getBooleanProperty("boolean.property." + (i % KEYS));
+                String stringValue = ConfigurationManager.getProperty("string.property." + (i % KEYS));
+                return intValue + (flag ? 1 : 0) + stringValue.length();
+            }
+        };
+
+        // warm up both paths before measuring
+        run(before, threads, reads / 10);
+        run(after, threads, reads / 10);
+
+        long beforeNanos = run(before, threads, reads);
+        long afterNanos = run(after, threads, reads);
+        long total = (long) threads * reads;
+        System.out.println(threads + " threads, " + reads + " reads per thread");
+        System.out.println("Properties:           " + beforeNanos / 1000000 + " ms, "
+                + beforeNanos / total + " ns/read");
+        System.out.println("ConfigurationManager: " + afterNanos / 1000000 + " ms, "
+                + afterNanos / total + " ns/read");
+    }
+
+    private interface Reader
+    {
+        long read(int i);
+    }
+
+    private static long run(final Reader reader, int threads, final int reads)
+            throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+            for (int t = 0; t < threads; t++)
+            {
+                final int offset = t * 7919;
+                tasks.add(new Callable<Long>()
+                {
+                    @Override
+                    public Long call()
+                    {
+                        long sum = 0;
+                        for (int i = 0; i < reads; i++)
+                        {
+                            sum += reader.read(offset + i);
+                        }
+                        return sum;
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            long sum = 0;
+            for (Future<Long> result : executor.invokeAll(tasks))
+            {
+                sum += result.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (sum == 42)
+            {
+                // keep the reads from being optimized away
+                System.out.println();
+            }
+            return elapsed;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+}
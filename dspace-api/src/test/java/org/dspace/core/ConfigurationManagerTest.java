@@ -0,0 +1,81 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for the typed getters of class ConfigurationManager
+ */
+public class ConfigurationManagerTest
+{
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @Before
+    public void setUp()
+    {
+        // the typed getters must see the properties of the mock
+        new MockConfigurationManager(false);
+        MockConfigurationManager.setProperty("typed.int", " 42 ");
+        MockConfigurationManager.setProperty("typed.long", "12345678901");
+        MockConfigurationManager.setProperty("typed.boolean", "Yes");
+        MockConfigurationManager.setProperty("typed.string", "some value");
+    }
+
+    /**
+     * Test of getIntProperty method, of class ConfigurationManager.
+     */
+    @Test
+    public void testGetIntProperty()
+    {
+        assertThat("testGetIntProperty 0", ConfigurationManager.getIntProperty("typed.int"), equalTo(42));
+        assertThat("testGetIntProperty 1", ConfigurationManager.getIntProperty("typed.string", 7), equalTo(7));
+        assertThat("testGetIntProperty 2", ConfigurationManager.getIntProperty("typed.long", 7), equalTo(7));
+        assertThat("testGetIntProperty 3", ConfigurationManager.getIntProperty("typed.missing", 7), equalTo(7));
+
+        MockConfigurationManager.setProperty("typed.int", "43");
+        assertThat("testGetIntProperty 4", ConfigurationManager.getIntProperty("typed.int"), equalTo(43));
+    }
+
+    /**
+     * Test of getLongProperty method, of class ConfigurationManager.
+     */
+    @Test
+    public void testGetLongProperty()
+    {
+        assertThat("testGetLongProperty 0", ConfigurationManager.getLongProperty("typed.long"), equalTo(12345678901L));
+        assertThat("testGetLongProperty 1", ConfigurationManager.getLongProperty("typed.int"), equalTo(42L));
+        assertThat("testGetLongProperty 2", ConfigurationManager.getLongProperty("typed.missing", 7), equalTo(7L));
+    }
+
+    /**
+     * Test of getBooleanProperty method, of class ConfigurationManager.
+     */
+    @Test
+    public void testGetBooleanProperty()
+    {
+        assertThat("testGetBooleanProperty 0", ConfigurationManager.getBooleanProperty("typed.boolean"), equalTo(true));
+        assertThat("testGetBooleanProperty 1", ConfigurationManager.getBooleanProperty("typed.string", true), equalTo(false));
+        assertThat("testGetBooleanProperty 2", ConfigurationManager.getBooleanProperty("typed.missing", true), equalTo(true));
+    }
+
+    /**
+     * Test of the typed getters of a module without configuration file, of
+     * class ConfigurationManager: the regular properties with the module name
+     * prepended are used.
+     */
+    @Test
+    public void testModuleProperty()
+    {
+        assertThat("testModuleProperty 0", ConfigurationManager.getIntProperty("typed", "int", 7), equalTo(42));
+        assertThat("testModuleProperty 1", ConfigurationManager.getBooleanProperty("typed", "boolean"), equalTo(true));
+        assertThat("testModuleProperty 2", ConfigurationManager.getProperty("typed", "string"), equalTo("some value"));
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ConfigurationSnapshot
+ */
+public class ConfigurationSnapshotTest
+{
+    private ConfigurationSnapshot build()
+    {
+        Properties properties = new Properties();
+        properties.setProperty("int", " 42 ");
+        properties.setProperty("long", "12345678901");
+        properties.setProperty("yes", "Yes");
+        properties.setProperty("string", " some value ");
+        properties.setProperty("empty", "");
+        return new ConfigurationSnapshot(properties);
+    }
+
+    /**
+     * Test of the typed values, of class ConfigurationSnapshot.
+     */
+    @Test
+    public void testTypedValues()
+    {
+        ConfigurationSnapshot snapshot = build();
+        assertThat("testTypedValues 0", snapshot.get("int").getIntValue(), equalTo(42));
+        assertThat("testTypedValues 1", snapshot.get("int").getLongValue(), equalTo(42L));
+        assertThat("testTypedValues 2", snapshot.get("long").getIntValue(), nullValue());
+        assertThat("testTypedValues 3", snapshot.get("long").getLongValue(), equalTo(12345678901L));
+        assertThat("testTypedValues 4", snapshot.get("yes").getBooleanValue(), equalTo(true));
+        assertThat("testTypedValues 5", snapshot.get("string").getBooleanValue(), equalTo(false));
+        assertThat("testTypedValues 6", snapshot.get("empty").getIntValue(), nullValue());
+    }
+
+    /**
+     * Test of getString method, of class ConfigurationSnapshot.
+     */
+    @Test
+    public void testGetString()
+    {
+        ConfigurationSnapshot snapshot = build();
+        assertThat("testGetString 0", snapshot.getString("string"), equalTo("some value"));
+        assertThat("testGetString 1", snapshot.getString("empty"), equalTo(""));
+        assertThat("testGetString 2", snapshot.getString("missing"), nullValue());
+        assertThat("testGetString 3", snapshot.size(), equalTo(5));
+    }
+}
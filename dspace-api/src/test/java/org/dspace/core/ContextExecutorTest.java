@@ -0,0 +1,171 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ContextExecutor
+ */
+public class ContextExecutorTest extends AbstractUnitTest
+{
+    /** The worker of the tests: its context and the number of its tasks */
+    private static class Worker
+    {
+        private final Context context;
+
+        private int tasks = 0;
+
+        private boolean finished = false;
+
+        Worker(Context context)
+        {
+            this.context = context;
+        }
+    }
+
+    private static class TestExecutor extends ContextExecutor<Worker>
+    {
+        private final List<Worker> created = Collections.synchronizedList(new ArrayList<Worker>());
+
+        TestExecutor(int threads)
+        {
+            super("test", threads);
+        }
+
+        @Override
+        protected Worker createWorker(Context context)
+        {
+            Worker worker = new Worker(context);
+            created.add(worker);
+            return worker;
+        }
+
+        @Override
+        protected void finishWorker(Worker worker)
+        {
+            worker.finished = true;
+        }
+    }
+
+    /**
+     * Test that each thread gets its own worker and context, of class
+     * ContextExecutor.
+     */
+    @Test
+    public void testWorkers() throws Exception
+    {
+        TestExecutor executor = new TestExecutor(4);
+        for (int i = 0; i < 200; i++)
+        {
+            executor.execute(new ContextExecutor.WorkerTask<Worker>()
+            {
+                @Override
+                public void run(Worker worker) throws Exception
+                {
+                    assertThat("testWorkers 0", worker.context.isValid(), equalTo(true));
+                    worker.tasks++;
+                    Thread.sleep(1);
+                }
+            });
+        }
+        executor.finish();
+
+        int tasks = 0;
+        assertThat("testWorkers 1", executor.created.size() <= 5, equalTo(true));
+        for (Worker worker : executor.created)
+        {
+            tasks += worker.tasks;
+            assertThat("testWorkers 2", worker.finished, equalTo(true));
+            assertThat("testWorkers 3", worker.context.isValid(), equalTo(false));
+        }
+        assertThat("testWorkers 4", tasks, equalTo(200));
+    }
+
+    /**
+     * Test that the first failure stops the tasks and is thrown once the
+     * contexts are closed, of class ContextExecutor.
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        TestExecutor executor = new TestExecutor(2);
+        final AtomicInteger done = new AtomicInteger();
+        final IllegalStateException failure = new IllegalStateException("task 10");
+        for (int i = 0; i < 1000; i++)
+        {
+            final int index = i;
+            executor.execute(new ContextExecutor.WorkerTask<Worker>()
+            {
+                @Override
+                public void run(Worker worker) throws Exception
+                {
+                    if (index == 10)
+                    {
+                        throw failure;
+                    }
+                    done.incrementAndGet();
+                    Thread.sleep(1);
+                }
+            });
+        }
+        try
+        {
+            executor.finish();
+            fail("testFailure 0");
+        }
+        catch (IllegalStateException e)
+        {
+            assertThat("testFailure 1", e, sameInstance(failure));
+        }
+        assertThat("testFailure 2", executor.isFailed(), equalTo(true));
+        assertThat("testFailure 3", done.get() < 999, equalTo(true));
+        for (Worker worker : executor.created)
+        {
+            assertThat("testFailure 4", worker.finished, equalTo(true));
+            assertThat("testFailure 5", worker.context.isValid(), equalTo(false));
+        }
+    }
+
+    /**
+     * Test that close aborts the contexts without finishing the workers, of
+     * class ContextExecutor.
+     */
+    @Test
+    public void testClose() throws Exception
+    {
+        TestExecutor executor = new TestExecutor(2);
+        for (int i = 0; i < 10; i++)
+        {
+            executor.execute(new ContextExecutor.WorkerTask<Worker>()
+            {
+                @Override
+                public void run(Worker worker)
+                {
+                    worker.tasks++;
+                }
+            });
+        }
+        executor.close();
+
+        assertThat("testClose 0", executor.isFailed(), equalTo(false));
+        for (Worker worker : executor.created)
+        {
+            assertThat("testClose 1", worker.finished, equalTo(false));
+            assertThat("testClose 2", worker.context.isValid(), equalTo(false));
+        }
+    }
+}
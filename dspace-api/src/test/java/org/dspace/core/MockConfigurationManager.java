@@ -52,11 +52,15 @@ public class MockConfigurationManager
     }
     
     
+    /**
+     * Mocks the single lookup of the regular properties, so that
+     * getProperty() and the typed getters all see the properties set here.
+     */
     @Mock
-    public static String getProperty(String key)
+    static ConfigurationSnapshot.Value getValue(String key)
     {
         String value = props.getProperty(key);
-        return (value != null) ? value.trim() : null;
+        return (value != null) ? new ConfigurationSnapshot.Value(value.trim()) : null;
     }
 
     public static void setProperty(String key, String value)
@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ObjectCache
+ */
+public class ObjectCacheTest
+{
+    /**
+     * Test of the put, get and remove methods, of class ObjectCache.
+     */
+    @Test
+    public void testPutGetRemove()
+    {
+        ObjectCache cache = new ObjectCache(0);
+        for (int id = 0; id < 1000; id++)
+        {
+            cache.put("string " + id, id * 31);
+        }
+        cache.put(Integer.valueOf(7), 31);
+        assertThat("testPutGetRemove 0", cache.size(), equalTo(1001));
+        assertThat("testPutGetRemove 1", (String) cache.get(String.class, 31), equalTo("string 1"));
+        assertThat("testPutGetRemove 2", (Integer) cache.get(Integer.class, 31), equalTo(7));
+        assertThat("testPutGetRemove 3", cache.get(String.class, 32), nullValue());
+
+        for (int id = 0; id < 1000; id += 2)
+        {
+            cache.remove(String.class, id * 31);
+        }
+        assertThat("testPutGetRemove 4", cache.size(), equalTo(501));
+        for (int id = 0; id < 1000; id++)
+        {
+            Object cached = cache.get(String.class, id * 31);
+            assertThat("testPutGetRemove 5", cached,
+                    id % 2 == 0 ? nullValue() : equalTo((Object) ("string " + id)));
+        }
+
+        cache.clear();
+        assertThat("testPutGetRemove 6", cache.size(), equalTo(0));
+        assertThat("testPutGetRemove 7", cache.get(Integer.class, 31), nullValue());
+    }
+
+    /**
+     * Test of the eviction of the least recently used objects, of class
+     * ObjectCache.
+     */
+    @Test
+    public void testEviction()
+    {
+        ObjectCache cache = new ObjectCache(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        // 1 is now the most recently used
+        cache.get(String.class, 1);
+        cache.put("d", 4);
+        assertThat("testEviction 0", cache.size(), equalTo(3));
+        assertThat("testEviction 1", cache.get(String.class, 2), nullValue());
+        assertThat("testEviction 2", (String) cache.get(String.class, 1), equalTo("a"));
+        assertThat("testEviction 3", cache.getEvictions(), equalTo(1L));
+
+        cache.setMaxSize(1);
+        assertThat("testEviction 4", cache.size(), equalTo(1));
+        assertThat("testEviction 5", (String) cache.get(String.class, 1), equalTo("a"));
+
+        assertThat("testEviction 6", cache.evictUnmodified(), equalTo(1));
+        assertThat("testEviction 7", cache.size(), equalTo(0));
+        assertThat("testEviction 8", cache.getEvictions(), equalTo(4L));
+    }
+}
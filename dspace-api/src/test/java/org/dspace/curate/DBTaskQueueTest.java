@@ -0,0 +1,98 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.curate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class DBTaskQueue
+ */
+public class DBTaskQueueTest extends AbstractUnitTest
+{
+    private static final String QUEUE = "dbtaskqueuetest";
+
+    private DBTaskQueue queue;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        queue = new DBTaskQueue();
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        // drain whatever a failed test left in the queue
+        try
+        {
+            queue.dequeue(QUEUE, 1L);
+        }
+        catch (Exception e)
+        {
+            // nothing to clean
+        }
+        queue.release(QUEUE, 1L, true);
+        queue = null;
+        super.destroy();
+    }
+
+    private Set<TaskQueueEntry> entries(int count)
+    {
+        Set<TaskQueueEntry> entries = new HashSet<TaskQueueEntry>();
+        for (int i = 0; i < count; i++)
+        {
+            entries.add(new TaskQueueEntry("test@email.com", i,
+                    Arrays.asList("checklinks", "vscan"), "123456789/" + i));
+        }
+        return entries;
+    }
+
+    /**
+     * Test of dequeue(String, long, int) method, of class DBTaskQueue.
+     */
+    @Test
+    public void testConcurrentClaims() throws Exception
+    {
+        queue.enqueue(QUEUE, entries(5));
+        assertThat("testConcurrentClaims 0",
+                Arrays.asList(queue.queueNames()).contains(QUEUE), equalTo(true));
+
+        Set<TaskQueueEntry> first = queue.dequeue(QUEUE, 10L, 3);
+        Set<TaskQueueEntry> second = queue.dequeue(QUEUE, 20L, 3);
+        assertThat("testConcurrentClaims 1", first.size(), equalTo(3));
+        assertThat("testConcurrentClaims 2", second.size(), equalTo(2));
+
+        // the tasks of the entry survive the round trip
+        TaskQueueEntry entry = first.iterator().next();
+        assertThat("testConcurrentClaims 3", entry.getTaskNames(),
+                equalTo(Arrays.asList("checklinks", "vscan")));
+
+        // nothing left to claim
+        assertThat("testConcurrentClaims 4",
+                queue.dequeue(QUEUE, 30L, 3).size(), equalTo(0));
+
+        // released without removal, the entries can be claimed again
+        queue.release(QUEUE, 10L, false);
+        queue.release(QUEUE, 20L, true);
+        assertThat("testConcurrentClaims 5",
+                queue.dequeue(QUEUE, 40L, 10).size(), equalTo(3));
+        queue.release(QUEUE, 40L, true);
+        assertThat("testConcurrentClaims 6",
+                queue.dequeue(QUEUE, 50L).size(), equalTo(0));
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class IndexTimestamps
+ */
+public class IndexTimestampsTest
+{
+    /**
+     * Test of put and get, of class IndexTimestamps.
+     */
+    @Test
+    public void testPutGet()
+    {
+        IndexTimestamps timestamps = new IndexTimestamps(4);
+        timestamps.put(1, 1000L);
+        timestamps.put(2, 2000L);
+        timestamps.put(1, 3000L);
+
+        assertThat("testPutGet 0", timestamps.size(), equalTo(2));
+        assertThat("testPutGet 1", timestamps.get(1), equalTo(3000L));
+        assertThat("testPutGet 2", timestamps.get(2), equalTo(2000L));
+        assertThat("testPutGet 3", timestamps.get(3), equalTo(IndexTimestamps.MISSING));
+        assertThat("testPutGet 4", timestamps.get(-1), equalTo(IndexTimestamps.MISSING));
+    }
+
+    /**
+     * Test of the growth of the table beyond the expected size, of class
+     * IndexTimestamps.
+     */
+    @Test
+    public void testGrowth()
+    {
+        IndexTimestamps timestamps = new IndexTimestamps(1);
+        for (int id = 0; id < 100000; id += 3)
+        {
+            timestamps.put(id, id * 10L);
+        }
+
+        assertThat("testGrowth 0", timestamps.size(), equalTo(33334));
+        for (int id = 0; id < 100000; id++)
+        {
+            long expected = id % 3 == 0 ? id * 10L : IndexTimestamps.MISSING;
+            assertThat("testGrowth 1", timestamps.get(id), equalTo(expected));
+        }
+    }
+}
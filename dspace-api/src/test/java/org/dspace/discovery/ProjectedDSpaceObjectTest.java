@@ -0,0 +1,178 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.sql.SQLException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.Metadatum;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ProjectedDSpaceObject
+ */
+public class ProjectedDSpaceObjectTest extends AbstractUnitTest
+{
+    /** Number of the DSpace objects loaded by the search service */
+    private int loaded;
+
+    private SolrServiceImpl searchService = new SolrServiceImpl()
+    {
+        @Override
+        protected DSpaceObject findDSpaceObject(Context context, SolrDocument doc)
+        {
+            loaded++;
+            return null;
+        }
+    };
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        loaded = 0;
+        kernelImpl.getConfigurationService().setProperty("discovery.index.projection",
+                "dc.title,dc.contributor.*,dc.date.issued");
+    }
+
+    private SolrDocument createDocument()
+    {
+        String sep = SolrServiceImpl.STORE_SEPARATOR;
+        SolrDocument doc = new SolrDocument();
+        doc.addField(SolrServiceImpl.RESOURCE_TYPE_FIELD, Constants.ITEM);
+        doc.addField(SolrServiceImpl.RESOURCE_ID_FIELD, 42);
+        doc.addField(SolrServiceImpl.HANDLE_FIELD, "123456789/42");
+        doc.addField("withdrawn", "false");
+        doc.addField("discoverable", "true");
+        doc.addField(SolrServiceImpl.PREVIEW_BITSTREAM_ID_FIELD, "7");
+        doc.addField(SolrServiceImpl.PREVIEW_BITSTREAM_NAME_FIELD, "cover.jpg");
+        doc.addField("dc.title_stored", "A Title" + sep + "A Title" + sep + "null" + sep + "null" + sep + "en");
+        doc.addField("dc.contributor.author_stored", "Smith, John" + sep + "Smith, John" + sep + "null"
+                + sep + "rp00001" + sep + "null");
+        doc.addField("dc.contributor.author_stored", "Doe, Jane" + sep + "Doe, Jane" + sep + "null"
+                + sep + "null" + sep + "null");
+        return doc;
+    }
+
+    /**
+     * Test of the projected metadata, of class ProjectedDSpaceObject.
+     */
+    @Test
+    public void testProjectedMetadata()
+    {
+        ProjectedDSpaceObject projected = new ProjectedDSpaceObject(context, searchService,
+                createDocument(), ProjectedDSpaceObject.getProjectionFields());
+
+        assertThat("testProjectedMetadata 0", projected.getID(), equalTo(42));
+        assertThat("testProjectedMetadata 1", projected.getHandle(), equalTo("123456789/42"));
+        assertThat("testProjectedMetadata 2", projected.isArchived(), equalTo(true));
+        assertThat("testProjectedMetadata 3", projected.isDiscoverable(), equalTo(true));
+
+        Metadatum[] titles = projected.getMetadata("dc", "title", null, Item.ANY);
+        assertThat("testProjectedMetadata 4", titles.length, equalTo(1));
+        assertThat("testProjectedMetadata 5", titles[0].value, equalTo("A Title"));
+        assertThat("testProjectedMetadata 6", titles[0].language, equalTo("en"));
+
+        Metadatum[] authors = projected.getMetadataValueInDCFormat("dc.contributor.*");
+        assertThat("testProjectedMetadata 7", authors.length, equalTo(2));
+        assertThat("testProjectedMetadata 8", authors[0].authority, equalTo("rp00001"));
+        assertThat("testProjectedMetadata 9", authors[1].authority, nullValue());
+        assertThat("testProjectedMetadata 10", projected.getMetadataValue("dc.contributor.author").size(),
+                equalTo(2));
+        assertThat("testProjectedMetadata 11", projected.getMetadata("dc", "date", "issued", Item.ANY).length,
+                equalTo(0));
+
+        assertThat("testProjectedMetadata 12", projected.getPreviewBitstreamID(), equalTo(7));
+        assertThat("testProjectedMetadata 13", projected.getPreviewBitstreamName(), equalTo("cover.jpg"));
+
+        assertThat("testProjectedMetadata 14", projected.isHydrated(), equalTo(false));
+        assertThat("testProjectedMetadata 15", loaded, equalTo(0));
+    }
+
+    /**
+     * Test of the loading of the DSpace object for the metadata which are not
+     * projected, of class ProjectedDSpaceObject.
+     */
+    @Test
+    public void testHydration()
+    {
+        ProjectedDSpaceObject projected = new ProjectedDSpaceObject(context, searchService,
+                createDocument(), ProjectedDSpaceObject.getProjectionFields());
+
+        assertThat("testHydration 0", projected.getMetadata("dc", "subject", null, Item.ANY).length,
+                equalTo(0));
+        assertThat("testHydration 1", projected.getMetadata("dc", Item.ANY, Item.ANY, Item.ANY).length,
+                equalTo(0));
+        assertThat("testHydration 2", projected.isHydrated(), equalTo(true));
+        assertThat("testHydration 3", loaded, equalTo(1));
+    }
+
+    /**
+     * A results page of 10 items, as returned by Solr.
+     */
+    private QueryResponse createResponse()
+    {
+        SolrDocumentList docs = new SolrDocumentList();
+        for (int i = 0; i < 10; i++)
+        {
+            docs.add(createDocument());
+        }
+        docs.setNumFound(docs.size());
+        NamedList<Object> header = new NamedList<Object>();
+        header.add("status", 0);
+        header.add("QTime", 1);
+        NamedList<Object> response = new NamedList<Object>();
+        response.add("responseHeader", header);
+        response.add("response", docs);
+        QueryResponse queryResponse = new QueryResponse();
+        queryResponse.setResponse(response);
+        return queryResponse;
+    }
+
+    /**
+     * Test of the number of DSpace objects loaded from the database to render
+     * a results page, with and without projection, of method retrieveResult
+     * of class SolrServiceImpl.
+     */
+    @Test
+    public void testResultPageHydration() throws SQLException
+    {
+        DiscoverQuery query = new DiscoverQuery();
+        query.setMaxResults(10);
+        searchService.retrieveResult(context, query, createResponse());
+        assertThat("testResultPageHydration 0", loaded, equalTo(10));
+
+        loaded = 0;
+        query.setProjection(true);
+        DiscoverResult result = searchService.retrieveResult(context, query, createResponse());
+        for (ProjectedDSpaceObject projected : result.getProjectedObjects())
+        {
+            // what the result list renders
+            projected.getHandle();
+            projected.getMetadata("dc", "title", null, Item.ANY);
+            projected.getMetadataValueInDCFormat("dc.contributor.*");
+            projected.getPreviewBitstreamID();
+        }
+        assertThat("testResultPageHydration 1", result.getProjectedObjects().size(), equalTo(10));
+        assertThat("testResultPageHydration 2", loaded, equalTo(0));
+
+        // a field which is not projected loads that result only
+        result.getProjectedObjects().get(0).getMetadata("dc", "subject", null, Item.ANY);
+        assertThat("testResultPageHydration 3", loaded, equalTo(1));
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import java.util.Arrays;
+
+import org.dspace.core.Constants;
+import org.dspace.storage.rdbms.TableRow;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class HandleCache
+ */
+public class HandleCacheTest
+{
+    /**
+     * Test of the lookups in both directions, of class HandleCache.
+     */
+    @Test
+    public void testGet()
+    {
+        HandleCache cache = new HandleCache(10, 0);
+        cache.put(new HandleCache.Binding("123456789/1", Constants.ITEM, 42), cache.getGeneration());
+        cache.putHandle(Constants.ITEM, 42, "123456789/1", cache.getGeneration());
+
+        HandleCache.Binding binding = cache.get("123456789/1");
+        assertThat("testGet 0", binding.getType(), equalTo(Constants.ITEM));
+        assertThat("testGet 1", binding.getID(), equalTo(42));
+        assertThat("testGet 2", binding.isBound(), equalTo(true));
+        assertThat("testGet 3", cache.getHandle(Constants.ITEM, 42), equalTo("123456789/1"));
+        assertThat("testGet 4", cache.get("123456789/2"), nullValue());
+        assertThat("testGet 5", cache.getHandle(Constants.COLLECTION, 42), nullValue());
+    }
+
+    /**
+     * Test that an object without handle is not cached, of class HandleCache.
+     */
+    @Test
+    public void testMissNotCached()
+    {
+        HandleCache cache = new HandleCache(10, 0);
+        cache.putHandle(Constants.ITEM, 42, null, cache.getGeneration());
+        cache.put(new HandleCache.Binding(null, Constants.ITEM, 42), cache.getGeneration());
+
+        assertThat("testMissNotCached 0", cache.getHandle(Constants.ITEM, 42), nullValue());
+        assertThat("testMissNotCached 1", cache.size(), equalTo(0));
+    }
+
+    /**
+     * Test of the binding of an unbound handle, of class HandleCache.
+     */
+    @Test
+    public void testUnbound()
+    {
+        TableRow row = new TableRow("handle", Arrays.asList("handle", "resource_type_id", "resource_id"));
+        row.setColumn("handle", "123456789/3");
+        row.setColumn("resource_type_id", Constants.ITEM);
+        row.setColumnNull("resource_id");
+
+        HandleCache.Binding binding = HandleCache.Binding.of(row);
+        assertThat("testUnbound 0", binding.getHandle(), equalTo("123456789/3"));
+        assertThat("testUnbound 1", binding.isBound(), equalTo(false));
+    }
+
+    /**
+     * Test of the invalidation, of class HandleCache.
+     */
+    @Test
+    public void testInvalidate()
+    {
+        HandleCache cache = new HandleCache(10, 0);
+        cache.put(new HandleCache.Binding("123456789/1", Constants.ITEM, 42), cache.getGeneration());
+        cache.putHandle(Constants.ITEM, 42, "123456789/1", cache.getGeneration());
+
+        long expected = cache.getGeneration();
+        cache.invalidate("123456789/1");
+        cache.invalidate(Constants.ITEM, 42);
+        assertThat("testInvalidate 0", cache.get("123456789/1"), nullValue());
+        assertThat("testInvalidate 1", cache.getHandle(Constants.ITEM, 42), nullValue());
+
+        // a binding read before the invalidation is not cached
+        cache.put(new HandleCache.Binding("123456789/1", Constants.ITEM, 42), expected);
+        assertThat("testInvalidate 2", cache.get("123456789/1"), nullValue());
+    }
+
+    /**
+     * Test of the eviction of the least recently used entries, of class
+     * HandleCache.
+     */
+    @Test
+    public void testEviction()
+    {
+        HandleCache cache = new HandleCache(2, 0);
+        cache.put(new HandleCache.Binding("123456789/1", Constants.ITEM, 1), cache.getGeneration());
+        cache.put(new HandleCache.Binding("123456789/2", Constants.ITEM, 2), cache.getGeneration());
+        cache.get("123456789/1");
+        cache.put(new HandleCache.Binding("123456789/3", Constants.ITEM, 3), cache.getGeneration());
+
+        assertThat("testEviction 0", cache.size(), equalTo(2));
+        assertThat("testEviction 1", cache.get("123456789/1"), notNullValue());
+        assertThat("testEviction 2", cache.get("123456789/2"), nullValue());
+    }
+
+    /**
+     * Test of the expiry of the entries, of class HandleCache.
+     */
+    @Test
+    public void testExpiry() throws InterruptedException
+    {
+        HandleCache cache = new HandleCache(10, 1);
+        cache.put(new HandleCache.Binding("123456789/1", Constants.ITEM, 1), cache.getGeneration());
+        Thread.sleep(10);
+        assertThat("testExpiry 0", cache.get("123456789/1"), nullValue());
+        assertThat("testExpiry 1", cache.size(), equalTo(0));
+    }
+}
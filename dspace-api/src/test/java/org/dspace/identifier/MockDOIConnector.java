@@ -7,8 +7,9 @@
  */
 package org.dspace.identifier;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import mockit.Mock;
 import mockit.MockUp;
 import org.dspace.content.DSpaceObject;
@@ -27,17 +28,75 @@ implements org.dspace.identifier.doi.DOIConnector
 
     public Map<String, Integer> reserved;
     public Map<String, Integer> registered;
+    /** Number of reservations, registrations and metadata updates. */
+    public AtomicInteger requests;
+    private AtomicInteger failures;
+    /** Simulated duration of a request in milliseconds. */
+    private volatile long latency;
     
     public MockDOIConnector()
     {
-        reserved = new HashMap<String, Integer>();
-        registered = new HashMap<String, Integer>();
+        reserved = new ConcurrentHashMap<String, Integer>();
+        registered = new ConcurrentHashMap<String, Integer>();
+        requests = new AtomicInteger();
+        failures = new AtomicInteger();
     }
     
     public void reset()
     {
         reserved.clear();
         registered.clear();
+        requests.set(0);
+        failures.set(0);
+        latency = 0;
+    }
+    
+    /**
+     * Let the reservations, registrations and metadata updates take some
+     * time, like the requests to a remote registration agency.
+     * @param latency Duration of a request in milliseconds.
+     */
+    public void setLatency(long latency)
+    {
+        this.latency = latency;
+    }
+    
+    /**
+     * Let the next reservations, registrations or metadata updates fail with
+     * an internal error of the registration agency.
+     * @param count Number of requests to fail.
+     */
+    public void failNextRequests(int count)
+    {
+        failures.set(count);
+    }
+    
+    private void request()
+            throws DOIIdentifierException
+    {
+        requests.incrementAndGet();
+        if (latency > 0)
+        {
+            try
+            {
+                Thread.sleep(latency);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int count;
+        do
+        {
+            count = failures.get();
+            if (count <= 0)
+            {
+                return;
+            }
+        } while (!failures.compareAndSet(count, count - 1));
+        throw new DOIIdentifierException("Simulated internal error of the "
+                + "registration agency.", DOIIdentifierException.INTERNAL_ERROR);
     }
             
     @Override
@@ -100,6 +159,7 @@ implements org.dspace.identifier.doi.DOIConnector
     public void reserveDOI(Context context, DSpaceObject dso, String doi)
             throws DOIIdentifierException
     {
+        request();
         Integer itemId = reserved.get(doi);
         if (null != itemId)
         {
@@ -122,6 +182,7 @@ implements org.dspace.identifier.doi.DOIConnector
     public void registerDOI(Context context, DSpaceObject dso, String doi)
             throws DOIIdentifierException
     {
+        request();
         if (!reserved.containsKey(doi))
         {
             throw new DOIIdentifierException("Trying to register an unreserverd "
@@ -156,6 +217,7 @@ implements org.dspace.identifier.doi.DOIConnector
     public void updateMetadata(Context context, DSpaceObject dso, String doi)
             throws DOIIdentifierException
     {
+        request();
         if (!reserved.containsKey(doi))
         {
             throw new DOIIdentifierException("Trying to update a DOI that is not "
@@ -0,0 +1,230 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.identifier.doi;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.*;
+import org.dspace.identifier.DOI;
+import org.dspace.identifier.DOIIdentifierProvider;
+import org.dspace.identifier.MockDOIConnector;
+import org.dspace.services.ConfigurationService;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Tests for {@link DOIOrganiser}, against a mocked registration agency.
+ */
+public class DOIOrganiserTest
+        extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(DOIOrganiserTest.class);
+
+    private static final String PREFIX = "10.5072";
+    private static final String NAMESPACE_SEPARATOR = "dspaceUnitTests-";
+
+    private Collection collection;
+    private MockDOIConnector connector;
+    private DOIIdentifierProvider provider;
+    private DOIOrganiser organiser;
+    /** Start of the DOIs created by the current test. */
+    private String marker;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            Community community = Community.create(null, context);
+            community.setMetadata("name", "A Test Community");
+            community.update();
+            collection = community.createCollection();
+            collection.setMetadata("name", "A Test Collection");
+            collection.update();
+            context.restoreAuthSystemState();
+            context.commit();
+
+            ConfigurationService config = kernelImpl.getConfigurationService();
+            config.setProperty(DOIIdentifierProvider.CFG_PREFIX, PREFIX);
+            config.setProperty(DOIIdentifierProvider.CFG_NAMESPACE_SEPARATOR,
+                NAMESPACE_SEPARATOR);
+
+            connector = new MockDOIConnector();
+
+            provider = new DOIIdentifierProvider();
+            provider.setConfigurationService(config);
+            provider.setDOIConnector(connector);
+
+            context.turnOffAuthorisationSystem();
+            organiser = new DOIOrganiser(context, provider);
+            organiser.setRetries(3, 0);
+        }
+        catch (AuthorizeException ex)
+        {
+            log.error("Authorization Error in init", ex);
+            fail("Authorization Error in init: " + ex.getMessage());
+        }
+        catch (SQLException ex)
+        {
+            log.error("SQL Error in init", ex);
+            fail("SQL Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        context.restoreAuthSystemState();
+        collection = null;
+        connector.reset();
+        connector = null;
+        provider = null;
+        organiser = null;
+        super.destroy();
+    }
+
+    /**
+     * Create Items with a DOI queued for registration.
+     */
+    private List<String> createQueuedDOIs(int count)
+            throws SQLException, AuthorizeException, IOException
+    {
+        marker = PREFIX + "/" + NAMESPACE_SEPARATOR + "organiser-"
+                + System.nanoTime() + "-";
+        List<String> dois = new ArrayList<String>();
+        for (int i = 0; i < count; i++)
+        {
+            WorkspaceItem wsItem = WorkspaceItem.create(context, collection, false);
+            Item item = InstallItem.installItem(context, wsItem);
+            item.addMetadata("dc", "title", null, null, "A Test Object " + i);
+            item.update();
+            // remove the DOI the configured provider may have minted
+            DatabaseManager.updateQuery(context,
+                    "DELETE FROM Doi WHERE resource_type_id = ? AND resource_id = ?",
+                    item.getType(), item.getID());
+
+            String doi = marker + i;
+            TableRow doiRow = DatabaseManager.create(context, "Doi");
+            doiRow.setColumn("doi", doi);
+            doiRow.setColumn("resource_type_id", item.getType());
+            doiRow.setColumn("resource_id", item.getID());
+            doiRow.setColumn("status", DOIIdentifierProvider.TO_BE_REGISTERED);
+            DatabaseManager.update(context, doiRow);
+            dois.add(doi);
+        }
+        context.commit();
+        return dois;
+    }
+
+    /**
+     * The DOIs created by the current test, ignoring the ones other tests
+     * left in the database.
+     */
+    private TableRowIterator getCreatedDOIs() throws SQLException
+    {
+        return DatabaseManager.queryTable(context, "Doi",
+                "SELECT * FROM Doi WHERE doi LIKE ?", marker + "%");
+    }
+
+    private Integer getStatus(String doi) throws SQLException
+    {
+        TableRow doiRow = DatabaseManager.findByUnique(context, "Doi", "doi", doi);
+        return doiRow.getIntColumn("status");
+    }
+
+    /**
+     * Test of the concurrent registration of the queued DOIs, with transient
+     * failures of the registration agency.
+     */
+    @Test
+    public void testRegisterConcurrently() throws Exception
+    {
+        List<String> dois = createQueuedDOIs(6);
+        connector.failNextRequests(2);
+
+        organiser.setThreads(3);
+        organiser.setCommitBatch(2);
+        organiser.process(DOIOrganiser.Action.REGISTER, getCreatedDOIs());
+
+        for (String doi : dois)
+        {
+            assertThat("testRegisterConcurrently 0", getStatus(doi),
+                    equalTo(DOIIdentifierProvider.IS_REGISTERED));
+            assertThat("testRegisterConcurrently 1",
+                    connector.registered.containsKey(DOI.SCHEME + doi), equalTo(true));
+        }
+    }
+
+    /**
+     * Test of a registration failing more often than retried.
+     */
+    @Test
+    public void testRetriesExhausted() throws Exception
+    {
+        List<String> dois = createQueuedDOIs(1);
+        connector.failNextRequests(2);
+
+        organiser.setRetries(1, 0);
+        organiser.process(DOIOrganiser.Action.REGISTER, getCreatedDOIs());
+
+        assertThat("testRetriesExhausted 0", connector.requests.get(), equalTo(2));
+        assertThat("testRetriesExhausted 1", getStatus(dois.get(0)),
+                equalTo(DOIIdentifierProvider.TO_BE_REGISTERED));
+    }
+
+    /**
+     * Compares the time needed to register the queued DOIs sequentially and
+     * concurrently, against a registration agency answering slowly.
+     */
+    @Test
+    public void testConcurrentThroughput() throws Exception
+    {
+        connector.setLatency(50);
+
+        createQueuedDOIs(8);
+        organiser.setThreads(1);
+        long start = System.nanoTime();
+        organiser.process(DOIOrganiser.Action.REGISTER, getCreatedDOIs());
+        long sequential = System.nanoTime() - start;
+
+        createQueuedDOIs(8);
+        organiser.setThreads(4);
+        start = System.nanoTime();
+        organiser.process(DOIOrganiser.Action.REGISTER, getCreatedDOIs());
+        long concurrent = System.nanoTime() - start;
+
+        log.info("Registration of 8 DOIs: " + sequential / 1000000
+                + " ms with 1 thread, " + concurrent / 1000000
+                + " ms with 4 threads");
+        assertThat("testConcurrentThroughput 0", concurrent < sequential / 2,
+                equalTo(true));
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.rdf;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.dspace.rdf.storage.BatchRDFStorage;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class RDFStorageBatch, with an in-memory dataset
+ */
+public class RDFStorageBatchTest
+{
+    /**
+     * A storage in an in-memory dataset, counting the requests
+     */
+    private static class MemoryStorage implements BatchRDFStorage
+    {
+        private final Dataset dataset = DatasetFactory.createMem();
+        private int requests = 0;
+
+        @Override
+        public void storeAll(Map<String, Model> models)
+        {
+            requests++;
+            for (Map.Entry<String, Model> entry : models.entrySet())
+            {
+                Model copy = ModelFactory.createDefaultModel();
+                copy.add(entry.getValue());
+                dataset.replaceNamedModel(entry.getKey(), copy);
+            }
+        }
+
+        @Override
+        public void deleteAll(Collection<String> uris)
+        {
+            requests++;
+            for (String uri : uris)
+            {
+                delete(uri);
+            }
+        }
+
+        @Override
+        public void store(String uri, Model model)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Model load(String uri)
+        {
+            return dataset.containsNamedModel(uri) ? dataset.getNamedModel(uri) : null;
+        }
+
+        @Override
+        public void delete(String uri)
+        {
+            if (dataset.containsNamedModel(uri))
+            {
+                dataset.removeNamedModel(uri);
+            }
+        }
+
+        @Override
+        public void deleteAll()
+        {
+            for (String uri : getAllStoredGraphs())
+            {
+                delete(uri);
+            }
+        }
+
+        @Override
+        public List<String> getAllStoredGraphs()
+        {
+            List<String> graphs = new ArrayList<String>();
+            Iterator<String> names = dataset.listNames();
+            while (names.hasNext())
+            {
+                graphs.add(names.next());
+            }
+            return graphs;
+        }
+    }
+
+    private MemoryStorage storage;
+
+    @Before
+    public void setUp()
+    {
+        storage = new MemoryStorage();
+    }
+
+    private static Model model(String title)
+    {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource("http://localhost/item")
+                .addProperty(model.createProperty("http://purl.org/dc/terms/title"), title);
+        return model;
+    }
+
+    /**
+     * Test of the coalescing of the changes of a graph, of class RDFStorageBatch.
+     */
+    @Test
+    public void testCoalesce()
+    {
+        RDFStorageBatch batch = new RDFStorageBatch(storage, 10);
+        batch.store("http://localhost/g1", model("first"));
+        batch.store("http://localhost/g1", model("second"));
+        batch.store("http://localhost/g2", model("other"));
+        batch.delete("http://localhost/g2");
+        assertThat("testCoalesce 0", batch.getPending(), equalTo(2));
+        assertThat("testCoalesce 1", storage.requests, equalTo(0));
+
+        batch.flush();
+        assertThat("testCoalesce 2", batch.getPending(), equalTo(0));
+        assertThat("testCoalesce 3", storage.getAllStoredGraphs(),
+                equalTo(Arrays.asList("http://localhost/g1")));
+        assertThat("testCoalesce 4", storage.load("http://localhost/g1")
+                .listObjects().next().asLiteral().getString(), equalTo("second"));
+    }
+
+    /**
+     * Test of the sending of full batches, of class RDFStorageBatch.
+     */
+    @Test
+    public void testFlushWhenFull()
+    {
+        RDFStorageBatch batch = new RDFStorageBatch(storage, 3);
+        for (int i = 0; i < 7; i++)
+        {
+            batch.store("http://localhost/g" + i, model("item " + i));
+        }
+        // two full batches, sent with one request each
+        assertThat("testFlushWhenFull 0", storage.requests, equalTo(2));
+        assertThat("testFlushWhenFull 1", batch.getPending(), equalTo(1));
+        assertThat("testFlushWhenFull 2", storage.getAllStoredGraphs().size(), equalTo(6));
+
+        batch.flush();
+        assertThat("testFlushWhenFull 3", storage.getAllStoredGraphs().size(), equalTo(7));
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.core.Constants;
+import org.dspace.core.MockConfigurationManager;
+import org.junit.*;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class SharedRowCache
+ */
+public class SharedRowCacheTest extends AbstractUnitTest
+{
+    /** The query of the cached rows, the rows of the Dublin Core schema */
+    private static final String QUERY = "SELECT * FROM metadataschemaregistry WHERE short_id = ?";
+
+    @SuppressWarnings("ResultOfObjectAllocationIgnored")
+    @Before
+    public void setUp()
+    {
+        new MockConfigurationManager(true);
+        MockConfigurationManager.setProperty("db.rowcache.enabled", "true");
+        MockConfigurationManager.setProperty("db.rowcache.max-entries", "3");
+        // the cache is sized with the max-entries above
+        SharedRowCache.clear();
+    }
+
+    @After
+    public void tearDown()
+    {
+        SharedRowCache.clear();
+    }
+
+    /**
+     * Run the query of the test, caching its rows with an item.
+     */
+    private List<TableRow> query(int itemID) throws SQLException
+    {
+        return SharedRowCache.query(context, Constants.ITEM, itemID, SharedRowCache.METADATA,
+                "metadataschemaregistry", QUERY, "dc");
+    }
+
+    private static long hits()
+    {
+        SharedRowCache.Statistics stats = SharedRowCache.getStatistics().get(SharedRowCache.METADATA);
+        return stats == null ? 0 : stats.getHits();
+    }
+
+    private static long misses()
+    {
+        SharedRowCache.Statistics stats = SharedRowCache.getStatistics().get(SharedRowCache.METADATA);
+        return stats == null ? 0 : stats.getMisses();
+    }
+
+    /**
+     * Test that the rows are read from the cache once loaded, and only for
+     * the same object, of method query.
+     */
+    @Test
+    public void testHit() throws SQLException
+    {
+        long hits = hits();
+        long misses = misses();
+        List<TableRow> loaded = query(1);
+        assertThat("testHit 0", loaded.size(), equalTo(1));
+        assertThat("testHit 1", misses(), equalTo(misses + 1));
+
+        // the returned rows are copies, not the cached ones
+        loaded.get(0).setColumn("short_id", "changed");
+        List<TableRow> cached = query(1);
+        assertThat("testHit 2", hits(), equalTo(hits + 1));
+        assertThat("testHit 3", cached.get(0).getStringColumn("short_id"), equalTo("dc"));
+        assertThat("testHit 4", cached.get(0), not(sameInstance(loaded.get(0))));
+
+        // another object misses
+        query(2);
+        assertThat("testHit 5", hits(), equalTo(hits + 1));
+        assertThat("testHit 6", misses(), equalTo(misses + 2));
+        assertThat("testHit 7", SharedRowCache.size(), equalTo(2));
+    }
+
+    /**
+     * Test that the rows of an invalidated object are loaded again, of method
+     * invalidate.
+     */
+    @Test
+    public void testInvalidateCached() throws SQLException
+    {
+        query(1);
+        query(2);
+        SharedRowCache.invalidate(Constants.ITEM, 1);
+        assertThat("testInvalidateCached 0", SharedRowCache.size(), equalTo(1));
+
+        long hits = hits();
+        long misses = misses();
+        query(1);
+        query(2);
+        assertThat("testInvalidateCached 1", misses(), equalTo(misses + 1));
+        assertThat("testInvalidateCached 2", hits(), equalTo(hits + 1));
+    }
+
+    /**
+     * Test that rows read before an invalidation are not cached, of method
+     * put.
+     */
+    @Test
+    public void testStaleLoad()
+    {
+        String key = SharedRowCache.key(Constants.ITEM, 1, SharedRowCache.METADATA);
+        long expected = SharedRowCache.getGeneration(key);
+        // the object is modified while its rows are being read
+        SharedRowCache.invalidate(Constants.ITEM, 1);
+        SharedRowCache.put(key, new Object(), expected);
+        assertThat("testStaleLoad 0", SharedRowCache.get(key), nullValue());
+        assertThat("testStaleLoad 1", SharedRowCache.size(), equalTo(0));
+
+        SharedRowCache.put(key, new Object(), SharedRowCache.getGeneration(key));
+        assertThat("testStaleLoad 2", SharedRowCache.get(key), notNullValue());
+    }
+
+    /**
+     * Test that a SQL update only prevents the caching of the rows of its
+     * table, and the invalidation of an object the caching of its own rows,
+     * of method put.
+     */
+    @Test
+    public void testInvalidationScope()
+    {
+        String key = SharedRowCache.key(Constants.ITEM, 1, SharedRowCache.METADATA);
+        String other = SharedRowCache.key(Constants.ITEM, 2, SharedRowCache.BUNDLES);
+
+        long expected = SharedRowCache.getGeneration(key);
+        long otherExpected = SharedRowCache.getGeneration(other);
+        SharedRowCache.invalidateQuery("UPDATE eperson SET last_active = ? WHERE eperson_id = ?");
+        SharedRowCache.invalidate(Constants.ITEM, 2);
+        SharedRowCache.put(key, new Object(), expected);
+        SharedRowCache.put(other, new Object(), otherExpected);
+        assertThat("testInvalidationScope 0", SharedRowCache.get(key), notNullValue());
+        assertThat("testInvalidationScope 1", SharedRowCache.get(other), nullValue());
+
+        SharedRowCache.clear();
+        expected = SharedRowCache.getGeneration(key);
+        otherExpected = SharedRowCache.getGeneration(other);
+        SharedRowCache.invalidateQuery("delete from MetadataValue where resource_id = ?");
+        SharedRowCache.put(key, new Object(), expected);
+        SharedRowCache.put(other, new Object(), otherExpected);
+        assertThat("testInvalidationScope 2", SharedRowCache.get(key), nullValue());
+        assertThat("testInvalidationScope 3", SharedRowCache.get(other), notNullValue());
+    }
+
+    /**
+     * Test that a context with uncommitted writes bypasses the cache, of
+     * method query.
+     */
+    @Test
+    public void testPendingWrites() throws SQLException
+    {
+        query(1);
+        context.markPendingWrites();
+
+        long hits = hits();
+        long misses = misses();
+        assertThat("testPendingWrites 0", query(1).size(), equalTo(1));
+        assertThat("testPendingWrites 1", query(2).size(), equalTo(1));
+        assertThat("testPendingWrites 2", hits(), equalTo(hits));
+        assertThat("testPendingWrites 3", misses(), equalTo(misses));
+        assertThat("testPendingWrites 4", SharedRowCache.size(), equalTo(1));
+    }
+
+    /**
+     * Test that the least recently used entry is evicted when the cache is
+     * full, of class SharedRowCache.
+     */
+    @Test
+    public void testEviction() throws SQLException
+    {
+        query(1);
+        query(2);
+        query(3);
+        // 1 becomes the most recently used, 2 the least
+        query(1);
+        query(4);
+        assertThat("testEviction 0", SharedRowCache.size(), equalTo(3));
+
+        long hits = hits();
+        long misses = misses();
+        query(1);
+        query(3);
+        assertThat("testEviction 1", hits(), equalTo(hits + 2));
+        query(2);
+        assertThat("testEviction 2", misses(), equalTo(misses + 1));
+    }
+
+    /**
+     * Test of the copy of the cached rows, of class TableRow.
+     */
+    @Test
+    public void testCopy()
+    {
+        TableRow row = new TableRow("item", Arrays.asList("item_id", "last_modified", "in_archive"));
+        Date date = new Date(1000L);
+        row.setColumn("item_id", 42);
+        row.setColumn("last_modified", date);
+        row.resetChanged();
+        row.setColumn("in_archive", true);
+
+        TableRow copy = row.copy();
+        assertThat("testCopy 0", copy.getTable(), equalTo("item"));
+        assertThat("testCopy 1", copy.getIntColumn("item_id"), equalTo(42));
+        assertThat("testCopy 2", copy.getBooleanColumn("in_archive"), equalTo(true));
+        assertThat("testCopy 3", copy.hasColumnChanged("item_id"), equalTo(false));
+        assertThat("testCopy 4", copy.hasColumnChanged("in_archive"), equalTo(true));
+
+        // the copy is independent from the cached row
+        copy.getDateColumn("last_modified").setTime(2000L);
+        copy.setColumn("item_id", 43);
+        assertThat("testCopy 5", row.getDateColumn("last_modified").getTime(), equalTo(1000L));
+        assertThat("testCopy 6", row.getIntColumn("item_id"), equalTo(42));
+    }
+
+    /**
+     * Test of isCachedTable method, of class SharedRowCache.
+     */
+    @Test
+    public void testIsCachedTable()
+    {
+        assertThat("testIsCachedTable 0", SharedRowCache.isCachedTable("item"), equalTo(true));
+        assertThat("testIsCachedTable 1", SharedRowCache.isCachedTable("BITSTREAM"), equalTo(true));
+        assertThat("testIsCachedTable 2", SharedRowCache.isCachedTable("eperson"), equalTo(false));
+        assertThat("testIsCachedTable 3", SharedRowCache.isCachedTable(null), equalTo(false));
+    }
+
+    /**
+     * Test of invalidate method, of class SharedRowCache.
+     */
+    @Test
+    public void testInvalidate()
+    {
+        SharedRowCache.invalidate(Constants.ITEM, 42);
+        SharedRowCache.invalidate(-1, -1);
+        assertThat("testInvalidate 0", SharedRowCache.size(), equalTo(0));
+        assertThat("testInvalidate 1", new SharedRowCache.Statistics().getHitRatio(), equalTo(0.0));
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.submit.lookup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.submit.util.SubmissionLookupPublication;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+import gr.ekt.bte.core.Record;
+import gr.ekt.bte.core.StringValue;
+
+/**
+ * Unit Tests for class SubmissionLookupCache
+ */
+public class SubmissionLookupCacheTest extends AbstractUnitTest
+{
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        SubmissionLookupCache.clear();
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        SubmissionLookupCache.clear();
+        super.destroy();
+    }
+
+    private Map<String, Set<String>> doi(String... values)
+    {
+        Map<String, Set<String>> keys = new HashMap<String, Set<String>>();
+        Set<String> dois = new HashSet<String>();
+        for (String value : values)
+        {
+            dois.add(value);
+        }
+        keys.put(SubmissionLookupDataLoader.DOI, dois);
+        return keys;
+    }
+
+    /**
+     * Test of buildKey method, of class SubmissionLookupCache.
+     */
+    @Test
+    public void testBuildKeyNormalization()
+    {
+        String key1 = SubmissionLookupCache.buildKey("crossref", "identifiers",
+                doi("10.1000/ABC", "10.1000/xyz"));
+        String key2 = SubmissionLookupCache.buildKey("crossref", "identifiers",
+                doi(" doi:10.1000/xyz", "http://dx.doi.org/10.1000/abc"));
+        assertThat("testBuildKeyNormalization 0", key2, equalTo(key1));
+
+        String key3 = SubmissionLookupCache.buildKey("pubmed", "identifiers",
+                doi("10.1000/abc", "10.1000/xyz"));
+        assertThat("testBuildKeyNormalization 1", key3, not(equalTo(key1)));
+    }
+
+    /**
+     * Test of get and put methods, of class SubmissionLookupCache.
+     */
+    @Test
+    public void testGetReturnsCopy()
+    {
+        String key = SubmissionLookupCache.buildKey("crossref", "identifiers",
+                doi("10.1000/abc"));
+        assertNull("testGetReturnsCopy 0", SubmissionLookupCache.get(key));
+
+        SubmissionLookupPublication publication = new SubmissionLookupPublication(
+                "crossref");
+        publication.add("title", "A title");
+        List<Record> records = new ArrayList<Record>();
+        records.add(publication);
+        SubmissionLookupCache.put(key, records);
+
+        // changes to the original records don't affect the cache
+        publication.add("title", "Another title");
+
+        List<Record> cached = SubmissionLookupCache.get(key);
+        assertThat("testGetReturnsCopy 1", cached.size(), equalTo(1));
+        assertThat("testGetReturnsCopy 2",
+                cached.get(0).getValues("title").size(), equalTo(1));
+
+        // changes to the returned records don't affect the cache
+        cached.get(0).makeMutable().addValue("title",
+                new StringValue("Another title"));
+        assertThat("testGetReturnsCopy 3", SubmissionLookupCache.get(key)
+                .get(0).getValues("title").size(), equalTo(1));
+    }
+}
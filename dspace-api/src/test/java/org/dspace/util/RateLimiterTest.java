@@ -0,0 +1,133 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class RateLimiter
+ */
+public class RateLimiterTest
+{
+    private static long elapsedMillis(long start)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Test that a rate of 0 or less does not limit the calls, of method
+     * acquire.
+     */
+    @Test
+    public void testUnlimited() throws InterruptedException
+    {
+        RateLimiter limiter = new RateLimiter(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10000; i++)
+        {
+            limiter.acquire();
+        }
+        assertThat("testUnlimited 0", elapsedMillis(start) < 1000, equalTo(true));
+        assertThat("testUnlimited 1", new RateLimiter(-5).getPermitsPerSecond(), equalTo(0d));
+    }
+
+    /**
+     * Test that the burst is served at once and the next calls at the rate,
+     * of method acquire.
+     */
+    @Test
+    public void testRate() throws InterruptedException
+    {
+        RateLimiter limiter = new RateLimiter(20, 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++)
+        {
+            limiter.acquire();
+        }
+        assertThat("testRate 0", elapsedMillis(start) < 40, equalTo(true));
+
+        // 10 more calls at 20 per second take at least half a second
+        for (int i = 0; i < 10; i++)
+        {
+            limiter.acquire();
+        }
+        long elapsed = elapsedMillis(start);
+        assertThat("testRate 1", elapsed >= 450, equalTo(true));
+        assertThat("testRate 2", elapsed < 2000, equalTo(true));
+    }
+
+    /**
+     * Test that the rate holds for several threads, of method acquire.
+     */
+    @Test
+    public void testThreads() throws InterruptedException
+    {
+        final RateLimiter limiter = new RateLimiter(50);
+        Thread[] threads = new Thread[4];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i < 10; i++)
+                        {
+                            limiter.acquire();
+                        }
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        // 40 calls at 50 per second, the first one without waiting
+        assertThat("testThreads 0", elapsedMillis(start) >= 750, equalTo(true));
+    }
+
+    /**
+     * Test that a waiting thread can be interrupted, of method acquire.
+     */
+    @Test(expected = InterruptedException.class)
+    public void testInterrupt() throws InterruptedException
+    {
+        RateLimiter limiter = new RateLimiter(0.1);
+        limiter.acquire();
+        Thread.currentThread().interrupt();
+        limiter.acquire();
+    }
+
+    /**
+     * Test of the bounds of the setters, of class RateLimiter.
+     */
+    @Test
+    public void testSetters()
+    {
+        RateLimiter limiter = new RateLimiter();
+        assertThat("testSetters 0", limiter.getPermitsPerSecond(), equalTo(1d));
+        assertThat("testSetters 1", limiter.getBurst(), equalTo(1d));
+        limiter.setBurst(0);
+        assertThat("testSetters 2", limiter.getBurst(), equalTo(1d));
+        limiter.setPermitsPerSecond(2.5);
+        assertThat("testSetters 3", limiter.getPermitsPerSecond(), equalTo(2.5));
+    }
+}
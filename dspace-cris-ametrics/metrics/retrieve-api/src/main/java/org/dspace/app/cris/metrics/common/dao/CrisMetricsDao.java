@@ -25,4 +25,8 @@ public interface CrisMetricsDao extends PaginableObjectDao<CrisMetrics, Integer>
     public List<CrisMetrics> findLastMetricByResourceIdAndResourceTypeIdAndMetricsTypes(
             Integer resourceID, Integer resourceTypeId,
             List<String> metricsTypes);
+
+    public List<CrisMetrics> findLastMetricByResourceIdsAndResourceTypeIdAndMetricsType(
+            List<Integer> resourceIDs, Integer resourceTypeId,
+            String metricsType);
 }
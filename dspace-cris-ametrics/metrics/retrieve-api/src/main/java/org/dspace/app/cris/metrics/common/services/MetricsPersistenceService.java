@@ -8,7 +8,9 @@
 package org.dspace.app.cris.metrics.common.services;
 
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.dspace.app.cris.metrics.common.dao.CrisMetricsDao;
 import org.dspace.app.cris.metrics.common.dao.MetricsApplicationDao;
@@ -95,6 +97,54 @@ public class MetricsPersistenceService extends PersistenceService
         return metricsDao.findLastMetricByResourceIdAndResourceTypeIdAndMetricsTypes(resourceID, resourceTypeId, metricsTypes);
     }
 
+    /**
+     * Retrieve in a single query the last metric of the specified type for a
+     * set of resources
+     * 
+     * @param resourceIDs
+     * @param resourceTypeId
+     * @param metricsType
+     * @return a map resourceID -&gt; last metric, resources without metric are
+     *         not included
+     */
+    public Map<Integer, CrisMetrics> getLastMetricByResourceIDsAndResourceTypeAndMetricsType(
+            List<Integer> resourceIDs, Integer resourceTypeId,
+            String metricsType)
+    {
+        Map<Integer, CrisMetrics> result = new HashMap<Integer, CrisMetrics>();
+        if (resourceIDs == null || resourceIDs.isEmpty())
+        {
+            return result;
+        }
+        List<CrisMetrics> metrics = metricsDao
+                .findLastMetricByResourceIdsAndResourceTypeIdAndMetricsType(
+                        resourceIDs, resourceTypeId, metricsType);
+        for (CrisMetrics metric : metrics)
+        {
+            CrisMetrics previous = result.get(metric.getResourceId());
+            if (previous == null || previous.getTimeStampInfo()
+                    .getCreationTime().before(
+                            metric.getTimeStampInfo().getCreationTime()))
+            {
+                result.put(metric.getResourceId(), metric);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Save a list of metrics in a single transaction
+     * 
+     * @param metrics
+     */
+    public void saveOrUpdateMetrics(List<CrisMetrics> metrics)
+    {
+        for (CrisMetrics metric : metrics)
+        {
+            saveOrUpdate(CrisMetrics.class, metric);
+        }
+    }
+
     @Override
     public <T extends Identifiable> void saveOrUpdate(Class<T> modelClass, T transientObject) {
     	if (modelClass.isAssignableFrom(CrisMetrics.class)) {
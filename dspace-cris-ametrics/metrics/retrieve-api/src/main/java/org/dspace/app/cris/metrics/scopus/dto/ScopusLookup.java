@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.metrics.scopus.dto;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The identifiers of an item to lookup in a batched call to Scopus
+ */
+public class ScopusLookup
+{
+    private Integer itemID;
+
+    private String pmid;
+
+    private String doi;
+
+    private String eid;
+
+    public ScopusLookup(Integer itemID, List<String> pmids, List<String> dois,
+            List<String> eids)
+    {
+        this.itemID = itemID;
+        this.pmid = first(pmids);
+        this.doi = first(dois);
+        this.eid = first(eids);
+    }
+
+    private static String first(List<String> values)
+    {
+        if (values != null && values.size() > 0
+                && StringUtils.isNotBlank(values.get(0)))
+        {
+            return values.get(0).trim();
+        }
+        return null;
+    }
+
+    public boolean isEmpty()
+    {
+        return pmid == null && doi == null && eid == null;
+    }
+
+    /**
+     * @return true if the Scopus entry has been returned for this item
+     */
+    public boolean matches(ScopusResponse entry)
+    {
+        return (eid != null && eid.equalsIgnoreCase(entry.getEid()))
+                || (doi != null && doi.equalsIgnoreCase(entry.getDoi()))
+                || (pmid != null && pmid.equals(entry.getPmid()));
+    }
+
+    public Integer getItemID()
+    {
+        return itemID;
+    }
+
+    public String getPmid()
+    {
+        return pmid;
+    }
+
+    public String getDoi()
+    {
+        return doi;
+    }
+
+    public String getEid()
+    {
+        return eid;
+    }
+}
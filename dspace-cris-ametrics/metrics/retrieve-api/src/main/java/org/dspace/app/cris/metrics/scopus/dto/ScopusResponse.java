@@ -9,6 +9,7 @@ package org.dspace.app.cris.metrics.scopus.dto;
 
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -36,6 +37,12 @@ public class ScopusResponse {
 
 	private CrisMetrics scopusCitation;
 
+	private String eid;
+
+	private String doi;
+
+	private String pmid;
+
 	public ScopusResponse(String response, String label) {
 		this.error = true;
 		this.scopusCitation = new CrisMetrics();
@@ -46,69 +53,15 @@ public class ScopusResponse {
 
 	public ScopusResponse(InputStream xmlData) {
 		try {
-			
 			this.scopusCitation = new CrisMetrics();
-			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setValidating(false);
-			factory.setIgnoringComments(true);
-			factory.setIgnoringElementContentWhitespace(true);
-
-			DocumentBuilder db = factory.newDocumentBuilder();
-			Document inDoc = db.parse(xmlData);
-
-			if (log.isDebugEnabled())
-            {
-                DOMSource domSource = new DOMSource(inDoc);
-                StringWriter writer = new StringWriter();
-                StreamResult result = new StreamResult(writer);
-                TransformerFactory tf = TransformerFactory.newInstance();
-                Transformer transformer = tf.newTransformer();
-                transformer.transform(domSource, result);
-                log.debug(writer.toString());
-            }
-			
-			Element xmlRoot = inDoc.getDocumentElement();
+			Element xmlRoot = parse(xmlData);
 			Element dataRoot = XMLUtils.getSingleElement(xmlRoot, "entry");
-			Element errorScopusResp = XMLUtils.getSingleElement(dataRoot, "error");
-			if (dataRoot != null && errorScopusResp == null) {
-				String eid = XMLUtils.getElementValue(dataRoot, "eid");
-				String numCitations = XMLUtils.getElementValue(dataRoot, "citedby-count");
-				List<Element> citedByLinkElements = XMLUtils.getElementList(dataRoot, "link");
-				
-				for(Element element : citedByLinkElements) {
-					if(element.hasAttribute("ref")) {
-						if("scopus-citedby".equals(element.getAttribute("ref"))) {
-							scopusCitation.getTmpRemark().put("link", element.getAttribute("href"));
-							break;
-						}
-					}
-				}
-				
-				if (StringUtils.isNotBlank(eid)) {
-					scopusCitation.getTmpRemark().put("identifier", eid);
-				}
-				try {
-				    scopusCitation.setMetricCount(Double.parseDouble(numCitations));
-				}
-				catch(NullPointerException ex) {
-				    log.error("try to parse numCitations:" + numCitations);
-				    throw new Exception(ex);
-				}
-				scopusCitation.setEndDate(new Date());
-				scopusCitation.setMetricType(ConstantMetrics.STATS_INDICATOR_TYPE_SCOPUS);
-	            scopusCitation.setRemark(scopusCitation.buildMetricsRemark());
-				
-	            
+			if (dataRoot != null) {
+				parseEntry(dataRoot);
 			}
 			else {
 				error = true;
-				if (dataRoot == null) {
-					log.debug("No citation entry found in Scopus");
-				}
-				else {
-					log.debug("Error citation entry found in Scopus: " + errorScopusResp.getTextContent());
-				}
+				log.debug("No citation entry found in Scopus");
 			}
 		} catch (Exception e) {
 		    log.error(e.getMessage(), e);
@@ -116,6 +69,103 @@ public class ScopusResponse {
 		}
 	}
 
+	private ScopusResponse(Element entry) {
+		try {
+			parseEntry(entry);
+		} catch (Exception e) {
+		    log.error(e.getMessage(), e);
+			error = true;
+		}
+	}
+
+	/**
+	 * Parse a search response containing the entries of several documents
+	 * (batched lookup)
+	 * 
+	 * @param xmlData
+	 * @return the valid entries found in the response and the total number
+	 *         of results of the search
+	 * @throws Exception
+	 */
+	public static ScopusSearchResult parseEntries(InputStream xmlData) throws Exception {
+		List<ScopusResponse> responses = new ArrayList<ScopusResponse>();
+		Element xmlRoot = parse(xmlData);
+		List<Element> entries = XMLUtils.getElementList(xmlRoot, "entry");
+		for (Element entry : entries) {
+			ScopusResponse response = new ScopusResponse(entry);
+			if (!response.isError()) {
+				responses.add(response);
+			}
+		}
+		int totalResults = 0;
+		String total = XMLUtils.getElementValue(xmlRoot, "opensearch:totalResults");
+		if (StringUtils.isNotBlank(total)) {
+			totalResults = Integer.parseInt(total);
+		}
+		return new ScopusSearchResult(responses, entries.size(), totalResults);
+	}
+
+	private static Element parse(InputStream xmlData) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setValidating(false);
+		factory.setIgnoringComments(true);
+		factory.setIgnoringElementContentWhitespace(true);
+
+		DocumentBuilder db = factory.newDocumentBuilder();
+		Document inDoc = db.parse(xmlData);
+
+		if (log.isDebugEnabled())
+        {
+            DOMSource domSource = new DOMSource(inDoc);
+            StringWriter writer = new StringWriter();
+            StreamResult result = new StreamResult(writer);
+            TransformerFactory tf = TransformerFactory.newInstance();
+            Transformer transformer = tf.newTransformer();
+            transformer.transform(domSource, result);
+            log.debug(writer.toString());
+        }
+		return inDoc.getDocumentElement();
+	}
+
+	private void parseEntry(Element dataRoot) throws Exception {
+		this.scopusCitation = new CrisMetrics();
+		Element errorScopusResp = XMLUtils.getSingleElement(dataRoot, "error");
+		if (errorScopusResp == null) {
+			eid = XMLUtils.getElementValue(dataRoot, "eid");
+			doi = XMLUtils.getElementValue(dataRoot, "prism:doi");
+			pmid = XMLUtils.getElementValue(dataRoot, "pubmed-id");
+			String numCitations = XMLUtils.getElementValue(dataRoot, "citedby-count");
+			List<Element> citedByLinkElements = XMLUtils.getElementList(dataRoot, "link");
+			
+			for(Element element : citedByLinkElements) {
+				if(element.hasAttribute("ref")) {
+					if("scopus-citedby".equals(element.getAttribute("ref"))) {
+						scopusCitation.getTmpRemark().put("link", element.getAttribute("href"));
+						break;
+					}
+				}
+			}
+			
+			if (StringUtils.isNotBlank(eid)) {
+				scopusCitation.getTmpRemark().put("identifier", eid);
+			}
+			try {
+			    scopusCitation.setMetricCount(Double.parseDouble(numCitations));
+			}
+			catch(NullPointerException ex) {
+			    log.error("try to parse numCitations:" + numCitations);
+			    throw new Exception(ex);
+			}
+			scopusCitation.setEndDate(new Date());
+			scopusCitation.setMetricType(ConstantMetrics.STATS_INDICATOR_TYPE_SCOPUS);
+            scopusCitation.setRemark(scopusCitation.buildMetricsRemark());
+		}
+		else {
+			error = true;
+			log.debug("Error citation entry found in Scopus: " + errorScopusResp.getTextContent());
+		}
+	}
+
 	public CrisMetrics getCitation() {
 		return scopusCitation;
 	}
@@ -138,5 +188,20 @@ public class ScopusResponse {
         this.scopusCitation = scopusCitation;
     }
 
+    public String getEid()
+    {
+        return eid;
+    }
+
+    public String getDoi()
+    {
+        return doi;
+    }
+
+    public String getPmid()
+    {
+        return pmid;
+    }
+
 
 }
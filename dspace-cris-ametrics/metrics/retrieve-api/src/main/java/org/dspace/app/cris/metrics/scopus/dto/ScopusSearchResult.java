@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.metrics.scopus.dto;
+
+import java.util.List;
+
+/**
+ * A page of the response of a Scopus search (batched lookup)
+ */
+public class ScopusSearchResult
+{
+    private List<ScopusResponse> entries;
+
+    private int entryCount;
+
+    private int totalResults;
+
+    public ScopusSearchResult(List<ScopusResponse> entries, int entryCount,
+            int totalResults)
+    {
+        this.entries = entries;
+        this.entryCount = entryCount;
+        this.totalResults = totalResults;
+    }
+
+    /**
+     * @return the valid entries of the page
+     */
+    public List<ScopusResponse> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * @return the number of entries of the page, the invalid ones included
+     */
+    public int getEntryCount()
+    {
+        return entryCount;
+    }
+
+    /**
+     * @return the number of entries matching the query, all pages included
+     */
+    public int getTotalResults()
+    {
+        return totalResults;
+    }
+}
@@ -8,8 +8,15 @@
 package org.dspace.app.cris.metrics.scopus.script;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -22,6 +29,7 @@ import org.apache.log4j.Logger;
 import org.dspace.app.cris.metrics.common.model.ConstantMetrics;
 import org.dspace.app.cris.metrics.common.model.CrisMetrics;
 import org.dspace.app.cris.metrics.common.services.MetricsPersistenceService;
+import org.dspace.app.cris.metrics.scopus.dto.ScopusLookup;
 import org.dspace.app.cris.metrics.scopus.dto.ScopusResponse;
 import org.dspace.app.cris.metrics.scopus.services.ScopusService;
 import org.dspace.authorize.AuthorizeException;
@@ -67,6 +75,8 @@ public class ScriptRetrieveCitation {
 
 	private static boolean enrichMetadataItem = false;
 
+	private static int threads = 1;
+
 	public static void main(String[] args)
 			throws SearchServiceException, SQLException, AuthorizeException, ParseException {
 
@@ -88,6 +98,9 @@ public class ScriptRetrieveCitation {
 		options.addOption("q", "query", true,
 				"Override the default query to retrieve puntual publication (used for test scope, the default query will be deleted");
 
+		options.addOption("p", "parallel", true,
+				"Number of concurrent batched calls to scopus, the quota is still enforced by the configured rate limiter (default 1)");
+
 		CommandLine line = parser.parse(options, args);
 
 		if (line.hasOption('h')) {
@@ -129,6 +142,10 @@ public class ScriptRetrieveCitation {
 			enrichMetadataItem = true;
 		}
 
+		if (line.hasOption('p')) {
+			threads = Math.max(1, Integer.valueOf(line.getOptionValue('p').trim()));
+		}
+
 		ServiceManager serviceManager = dspace.getServiceManager();
 
 		searcher = serviceManager.getServiceByName(SearchService.class.getName(), SearchService.class);
@@ -140,6 +157,7 @@ public class ScriptRetrieveCitation {
 
 		Context context = null;
 		long resultsTot = -1;
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
 		try {
 			context = new Context();
 			context.turnOffAuthorisationSystem();
@@ -172,16 +190,19 @@ public class ScriptRetrieveCitation {
                 log.info(LogManager.getHeader(null, "retrieve_citation_scopus",
                         "Processing informations itemWorked:\""+itemWorked+"\" maxItemToWork: \"" + maxItemToWork + "\" - start:\"" + start + "\" - page:\"" + page + "\""));
 				// for each item check
+				Map<Integer, CrisMetrics> lastMetrics = getLastMetrics(qresp.getDspaceObjects());
+				Map<Integer, DSpaceObject> toScopusService = new HashMap<Integer, DSpaceObject>();
+				List<ScopusLookup> lookups = new ArrayList<ScopusLookup>();
 				for (DSpaceObject dso : qresp.getDspaceObjects()) {
 
 					List<SearchDocument> list = qresp.getSearchDocument(dso);
 					for (SearchDocument doc : list) {
 						if (maxItemToWork != 0 && itemWorked >= maxItemToWork  && itemForceWorked > 50)
-							break all;
+							break;
 
 						Integer itemID = dso.getID();
 
-						if (isCheckRequired(itemID)) {
+						if (isCheckRequired(itemID, lastMetrics)) {
 							itemWorked++;
 							List<String> pmids = doc.getSearchFieldValues(fieldPubmedID);
 							List<String> dois = doc.getSearchFieldValues(fieldDoiID);
@@ -190,15 +211,25 @@ public class ScriptRetrieveCitation {
 							log.debug(LogManager.getHeader(null, "retrieve_citation_scopus",
 									"lookup pmid:" + pmids + ", lookup doi:" + dois + ", lookup eid:" + eids));
 
-							ScopusResponse response = sService.getCitations(sleep, pmids, dois, eids);
+							lookups.add(new ScopusLookup(itemID, pmids, dois, eids));
+							toScopusService.put(itemID, dso);
+						}
+					}
+				}
 
-							boolean itWorks = buildCiting(dso, response);
-							if(itWorks) {
-							    itemForceWorked++;
-							}
+				Map<Integer, ScopusResponse> responses = retrieveCitations(executor, lookups);
+				List<CrisMetrics> toSave = new ArrayList<CrisMetrics>();
+				for (ScopusLookup lookup : lookups) {
+					ScopusResponse response = responses.get(lookup.getItemID());
+					if (response != null) {
+						boolean itWorks = buildCiting(toScopusService.get(lookup.getItemID()), response, toSave);
+						if(itWorks) {
+						    itemForceWorked++;
+						    citationRetrieved++;
 						}
 					}
 				}
+				pService.saveOrUpdateMetrics(toSave);
 
 				context.commit();
 				context.clearCache();
@@ -211,6 +242,9 @@ public class ScriptRetrieveCitation {
 			log.error(ex.getMessage(), ex);
 		} finally {
 
+			if (executor != null) {
+				executor.shutdownNow();
+			}
 			if (context != null && context.isValid()) {
 				context.abort();
 			}
@@ -219,7 +253,34 @@ public class ScriptRetrieveCitation {
 
 	}
 
-	private static boolean buildCiting(DSpaceObject dso, ScopusResponse response) throws SQLException, AuthorizeException {
+	/**
+	 * Retrieve the citations of the page with batched calls, split among the
+	 * available threads if the parallel option has been set
+	 */
+	private static Map<Integer, ScopusResponse> retrieveCitations(ExecutorService executor,
+			List<ScopusLookup> lookups) throws Exception {
+		if (executor == null || lookups.size() <= 1) {
+			return sService.getCitations(sleep, lookups);
+		}
+		int chunkSize = (lookups.size() + threads - 1) / threads;
+		List<Future<Map<Integer, ScopusResponse>>> futures = new ArrayList<Future<Map<Integer, ScopusResponse>>>();
+		for (int i = 0; i < lookups.size(); i += chunkSize) {
+			final List<ScopusLookup> chunk = lookups.subList(i, Math.min(lookups.size(), i + chunkSize));
+			futures.add(executor.submit(new Callable<Map<Integer, ScopusResponse>>() {
+				@Override
+				public Map<Integer, ScopusResponse> call() throws Exception {
+					return sService.getCitations(sleep, chunk);
+				}
+			}));
+		}
+		Map<Integer, ScopusResponse> responses = new HashMap<Integer, ScopusResponse>();
+		for (Future<Map<Integer, ScopusResponse>> future : futures) {
+			responses.putAll(future.get());
+		}
+		return responses;
+	}
+
+	private static boolean buildCiting(DSpaceObject dso, ScopusResponse response, List<CrisMetrics> toSave) throws SQLException, AuthorizeException {
         CrisMetrics citation = response.getCitation();
         if (!response.isError())
         {
@@ -228,7 +289,7 @@ public class ScriptRetrieveCitation {
                 citation.setResourceId(dso.getID());
                 citation.setResourceTypeId(dso.getType());
                 citation.setUuid(dso.getHandle());
-                pService.saveOrUpdate(CrisMetrics.class, citation);
+                toSave.add(citation);
                 if (enrichMetadataItem)
                 {
                     Item item = (Item) dso;
@@ -258,9 +319,25 @@ public class ScriptRetrieveCitation {
         return false;
 	}
 
-	private static boolean isCheckRequired(Integer itemID) {
+	/**
+	 * Retrieve with a single query the last Scopus metric of the items in the
+	 * page, it is not needed when the update of all the records is forced
+	 */
+	private static Map<Integer, CrisMetrics> getLastMetrics(List<DSpaceObject> dsos) {
+		if (timeElapsed == 0) {
+			return new HashMap<Integer, CrisMetrics>();
+		}
+		List<Integer> ids = new ArrayList<Integer>();
+		for (DSpaceObject dso : dsos) {
+			ids.add(dso.getID());
+		}
+		return pService.getLastMetricByResourceIDsAndResourceTypeAndMetricsType(ids, Constants.ITEM,
+				ConstantMetrics.STATS_INDICATOR_TYPE_SCOPUS);
+	}
+
+	private static boolean isCheckRequired(Integer itemID, Map<Integer, CrisMetrics> lastMetrics) {
 		if (timeElapsed != 0) {
-			CrisMetrics cit = pService.getLastMetricByResourceIDAndResourceTypeAndMetricsType(itemID, Constants.ITEM, ConstantMetrics.STATS_INDICATOR_TYPE_SCOPUS);
+			CrisMetrics cit = lastMetrics.get(itemID);
 			if (cit == null || cit.getMetricCount()==-1) {
 				if(cit!=null) {
 					pService.delete(CrisMetrics.class, cit.getId());
@@ -7,7 +7,10 @@
  */
 package org.dspace.app.cris.metrics.scopus.services;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntity;
@@ -21,8 +24,11 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.log4j.Logger;
 import org.dspace.app.cris.metrics.common.model.ConstantMetrics;
+import org.dspace.app.cris.metrics.scopus.dto.ScopusLookup;
 import org.dspace.app.cris.metrics.scopus.dto.ScopusResponse;
+import org.dspace.app.cris.metrics.scopus.dto.ScopusSearchResult;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.util.RateLimiter;
 
 public class ScopusService {
 
@@ -35,13 +41,17 @@ public class ScopusService {
 	private long sleepBetweenTimeouts;
 	private long sleepBetweenEachCall;
 	private int timeout;
+	private int batchSize = 25;
+	private RateLimiter rateLimiter;
+	private String endpoint;
+	private String apiKey;
 
 	public ScopusService() {
 		HttpClientBuilder custom = HttpClients.custom();
 		// httpclient 4.3+ doesn't appear to have any sensible defaults any
 		// more. Setting conservative defaults as not to hammer the Scopus
 		// service too much.
-		client = custom.disableAutomaticRetries().setMaxConnTotal(5)
+		client = custom.disableAutomaticRetries().setMaxConnTotal(5).setMaxConnPerRoute(5)
 				.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(timeout).build()).build();
 
 	}
@@ -64,15 +74,11 @@ public class ScopusService {
 			List<String> eids) {
 
 		if (activateSleep) {
-			try {
-				Thread.sleep(sleepBetweenEachCall);
-			} catch (Exception e) {
-				log.error(e.getMessage(), e);
-			}
+			waitForQuota();
 		}
 
-		String endpoint = ConfigurationManager.getProperty("cris", "ametrics.elsevier.scopus.endpoint");
-		String apiKey = ConfigurationManager.getProperty("cris", "ametrics.elsevier.scopus.apikey");
+		String endpoint = getEndpoint();
+		String apiKey = getApiKey();
 
 		HttpGet method = null;
 		ScopusResponse scopusResponse = null;
@@ -84,31 +90,9 @@ public class ScopusService {
 				Thread.sleep(sleepBetweenTimeouts * (numberOfTries - 1));
 
 				URIBuilder uriBuilder = new URIBuilder(endpoint);
-				String query = "";
-				if (pmids != null && pmids.size() > 0) {
-					String pmid = pmids.get(0);
-					if (StringUtils.isNotBlank(pmid)) {
-						query += "PMID(" + pmid + ")";
-					}
-				}
-				if (dois != null && dois.size() > 0) {
-					String doi = dois.get(0);
-					if (StringUtils.isNotBlank(doi)) {
-						if (StringUtils.isNotBlank(query)) {
-							query += " OR ";
-						}
-						query += "DOI(" + doi + ")";
-					}
-				}
-				if (eids != null && eids.size() > 0) {
-					String eid = eids.get(0);
-					if (StringUtils.isNotBlank(eid)) {
-						if (StringUtils.isNotBlank(query)) {
-							query += " OR ";
-						}
-						query += "EID(" + eid + ")";
-					}					
-				}
+				String query = buildQuery(pmids != null && pmids.size() > 0 ? pmids.get(0) : null,
+						dois != null && dois.size() > 0 ? dois.get(0) : null,
+						eids != null && eids.size() > 0 ? eids.get(0) : null);
 				uriBuilder.addParameter("query", query);
 
 				method = new HttpGet(uriBuilder.build());
@@ -139,6 +123,159 @@ public class ScopusService {
 		return scopusResponse;
 	}
 
+	/**
+	 * Batched version of the citation lookup: the identifiers of several items
+	 * are combined in a single OR query and the returned entries are mapped
+	 * back to the items by EID, DOI or PMID. The lookups are split in chunks of
+	 * <code>batchSize</code> items.
+	 * 
+	 * @param activateSleep
+	 * @param lookups
+	 * @return a map itemID -&gt; response, items not found in Scopus or included
+	 *         in a failed call are not included
+	 */
+	public Map<Integer, ScopusResponse> getCitations(boolean activateSleep, List<ScopusLookup> lookups) {
+		Map<Integer, ScopusResponse> result = new HashMap<Integer, ScopusResponse>();
+		List<ScopusLookup> batch = new ArrayList<ScopusLookup>();
+		for (ScopusLookup lookup : lookups) {
+			if (lookup.isEmpty()) {
+				continue;
+			}
+			batch.add(lookup);
+			if (batch.size() >= batchSize) {
+				result.putAll(getBatchCitations(activateSleep, batch));
+				batch = new ArrayList<ScopusLookup>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			result.putAll(getBatchCitations(activateSleep, batch));
+		}
+		return result;
+	}
+
+	private Map<Integer, ScopusResponse> getBatchCitations(boolean activateSleep, List<ScopusLookup> batch) {
+		Map<Integer, ScopusResponse> result = new HashMap<Integer, ScopusResponse>();
+
+		String query = "";
+		for (ScopusLookup lookup : batch) {
+			String subQuery = buildQuery(lookup.getPmid(), lookup.getDoi(), lookup.getEid());
+			if (StringUtils.isNotBlank(query)) {
+				query += " OR ";
+			}
+			query += subQuery;
+		}
+
+		// an identifier can match more documents, so the results can exceed
+		// the batch and are read page by page
+		int start = 0;
+		while (result.size() < batch.size()) {
+			ScopusSearchResult page = search(activateSleep, query, start, batch.size());
+			if (page == null) {
+				break;
+			}
+			for (ScopusResponse entry : page.getEntries()) {
+				for (ScopusLookup lookup : batch) {
+					if (!result.containsKey(lookup.getItemID()) && lookup.matches(entry)) {
+						result.put(lookup.getItemID(), entry);
+						break;
+					}
+				}
+			}
+			start += page.getEntryCount();
+			if (page.getEntryCount() == 0 || start >= page.getTotalResults()) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Read a page of the results of a search, retrying the call up to
+	 * <code>maxNumberOfTries</code> times
+	 * 
+	 * @return the page, null if all the calls failed
+	 */
+	private ScopusSearchResult search(boolean activateSleep, String query, int start, int count) {
+		ScopusSearchResult page = null;
+		int numberOfTries = 0;
+		while (numberOfTries < maxNumberOfTries && page == null) {
+			numberOfTries++;
+			HttpGet method = null;
+			try {
+				Thread.sleep(sleepBetweenTimeouts * (numberOfTries - 1));
+				if (activateSleep) {
+					waitForQuota();
+				}
+
+				URIBuilder uriBuilder = new URIBuilder(getEndpoint());
+				uriBuilder.addParameter("query", query);
+				uriBuilder.addParameter("start", String.valueOf(start));
+				uriBuilder.addParameter("count", String.valueOf(count));
+
+				method = new HttpGet(uriBuilder.build());
+				method.addHeader("Accept", "application/xml");
+				method.addHeader("X-ELS-APIKey", getApiKey());
+
+				HttpResponse response = client.execute(method);
+				int statusCode = response.getStatusLine().getStatusCode();
+				HttpEntity responseBody = response.getEntity();
+
+				if (statusCode != HttpStatus.SC_OK) {
+					log.warn("Scopus return not OK status: " + statusCode + " for the query " + query);
+				} else if (null != responseBody) {
+					page = ScopusResponse.parseEntries(responseBody.getContent());
+				} else {
+					log.warn("Scopus returned no response for the query " + query);
+				}
+			} catch (Exception e) {
+				log.error(e.getMessage(), e);
+			} finally {
+				if (method != null) {
+					method.releaseConnection();
+				}
+			}
+		}
+		return page;
+	}
+
+	private String buildQuery(String pmid, String doi, String eid) {
+		String query = "";
+		if (StringUtils.isNotBlank(pmid)) {
+			query += "PMID(" + pmid + ")";
+		}
+		if (StringUtils.isNotBlank(doi)) {
+			if (StringUtils.isNotBlank(query)) {
+				query += " OR ";
+			}
+			query += "DOI(" + doi + ")";
+		}
+		if (StringUtils.isNotBlank(eid)) {
+			if (StringUtils.isNotBlank(query)) {
+				query += " OR ";
+			}
+			query += "EID(" + eid + ")";
+		}
+		return query;
+	}
+
+	/**
+	 * Respect the Scopus quota using the configured rate limiter or, if
+	 * missing, the fixed sleep between each call
+	 */
+	private void waitForQuota() {
+		try {
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+			else {
+				Thread.sleep(sleepBetweenEachCall);
+			}
+		} catch (InterruptedException e) {
+			log.error(e.getMessage(), e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	public void setMaxNumberOfTries(int maxNumberOfTries) {
 		this.maxNumberOfTries = maxNumberOfTries;
 	}
@@ -158,4 +295,42 @@ public class ScopusService {
 	public void setSleepBetweenEachCall(long sleepBetweenEachCall) {
 		this.sleepBetweenEachCall = sleepBetweenEachCall;
 	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * @return the configured endpoint, by default the
+	 *         <code>ametrics.elsevier.scopus.endpoint</code> property
+	 */
+	public String getEndpoint() {
+		if (endpoint == null) {
+			return ConfigurationManager.getProperty("cris", "ametrics.elsevier.scopus.endpoint");
+		}
+		return endpoint;
+	}
+
+	public void setEndpoint(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * @return the configured API key, by default the
+	 *         <code>ametrics.elsevier.scopus.apikey</code> property
+	 */
+	public String getApiKey() {
+		if (apiKey == null) {
+			return ConfigurationManager.getProperty("cris", "ametrics.elsevier.scopus.apikey");
+		}
+		return apiKey;
+	}
+
+	public void setApiKey(String apiKey) {
+		this.apiKey = apiKey;
+	}
 }
@@ -10,7 +10,9 @@ package org.dspace.app.cris.metrics.wos.script;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -202,6 +204,8 @@ public class ScriptRetrieveCitation
                         "Processing informations itemWorked:\""+itemWorked+"\" maxItemToWork: \"" + maxItemToWork + "\" - start:\"" + start + "\" - page:\"" + page + "\""));
                 // for each item check
                 List<DSpaceObject> toWosService = new ArrayList<DSpaceObject>();
+                Map<Integer, CrisMetrics> lastMetrics = getLastMetrics(
+                        qresp.getDspaceObjects());
 
                 for (DSpaceObject dso : qresp.getDspaceObjects())
                 {
@@ -214,7 +218,7 @@ public class ScriptRetrieveCitation
 
                         Integer itemID = dso.getID();
 
-                        if (isCheckRequired(itemID))
+                        if (isCheckRequired(itemID, lastMetrics))
                         {
                             itemWorked++;
                             toWosService.add(dso);
@@ -225,7 +229,8 @@ public class ScriptRetrieveCitation
                 {
                     WosResponse response = wService.getCitations(context, sleep,
                             toWosService);
-                    boolean itWorks = buildCiting(context, response);
+                    boolean itWorks = buildCiting(context, response,
+                            toWosService);
                     if(itWorks) {
                         itemForceWorked++;
                     }
@@ -256,31 +261,46 @@ public class ScriptRetrieveCitation
 
     }
 
-    private static boolean buildCiting(Context context, WosResponse response)
+    private static boolean buildCiting(Context context, WosResponse response,
+            List<DSpaceObject> items)
             throws SQLException, AuthorizeException, SearchServiceException
     {
         List<CrisMetrics> citations = response.getCitations();
         boolean check = false;
         if (!response.isError())
         {
-            
+            Map<Integer, String> handles = new HashMap<Integer, String>();
+            for (DSpaceObject dso : items)
+            {
+                handles.put(dso.getID(), dso.getHandle());
+            }
+            List<CrisMetrics> toSave = new ArrayList<CrisMetrics>();
+
             for (CrisMetrics citation : citations)
                 
                 if (citation != null)
                 {
-                    SolrQuery query = new SolrQuery();
-                    query.setQuery("search.unique:" + Constants.ITEM + "-" + citation.getId());
-                    query.setRows(1);
-                    query.setFields("handle");
-                    query.addFilterQuery("search.resourcetype:" + Constants.ITEM);
-                    QueryResponse qresp = searcher.search(query);
-                    for (SolrDocument doc : qresp.getResults())
+                    String handle = handles.get(citation.getResourceId());
+                    if (handle != null)
                     {
-                        citation.setUuid((String)doc.getFirstValue("handle"));
-                        break;
+                        citation.setUuid(handle);
+                    }
+                    else
+                    {
+                        SolrQuery query = new SolrQuery();
+                        query.setQuery("search.unique:" + Constants.ITEM + "-" + citation.getResourceId());
+                        query.setRows(1);
+                        query.setFields("handle");
+                        query.addFilterQuery("search.resourcetype:" + Constants.ITEM);
+                        QueryResponse qresp = searcher.search(query);
+                        for (SolrDocument doc : qresp.getResults())
+                        {
+                            citation.setUuid((String)doc.getFirstValue("handle"));
+                            break;
+                        }
                     }
 
-                    pService.saveOrUpdate(CrisMetrics.class, citation);
+                    toSave.add(citation);
                     check = true;
                     if (enrichMetadataItem)
                     {
@@ -307,18 +327,37 @@ public class ScriptRetrieveCitation
                     }
 
                 }
+            pService.saveOrUpdateMetrics(toSave);
         }
         return check;
     }
 
-    private static boolean isCheckRequired(Integer itemID)
+    /**
+     * Retrieve with a single query the last WoS metric of the items in the
+     * page, it is not needed when the update of all the records is forced
+     */
+    private static Map<Integer, CrisMetrics> getLastMetrics(
+            List<DSpaceObject> dsos)
+    {
+        if (timeElapsed == 0)
+        {
+            return new HashMap<Integer, CrisMetrics>();
+        }
+        List<Integer> ids = new ArrayList<Integer>();
+        for (DSpaceObject dso : dsos)
+        {
+            ids.add(dso.getID());
+        }
+        return pService.getLastMetricByResourceIDsAndResourceTypeAndMetricsType(
+                ids, Constants.ITEM, ConstantMetrics.STATS_INDICATOR_TYPE_WOS);
+    }
+
+    private static boolean isCheckRequired(Integer itemID,
+            Map<Integer, CrisMetrics> lastMetrics)
     {
         if (timeElapsed != 0)
         {
-            CrisMetrics cit = pService
-                    .getLastMetricByResourceIDAndResourceTypeAndMetricsType(itemID,
-                            Constants.ITEM,
-                            ConstantMetrics.STATS_INDICATOR_TYPE_WOS);
+            CrisMetrics cit = lastMetrics.get(itemID);
             if (cit == null || cit.getMetricCount() == -1)
             {
                 if (cit != null)
@@ -36,6 +36,7 @@ import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
 import org.dspace.core.PluginManager;
+import org.dspace.util.RateLimiter;
 
 public class WosService {
 
@@ -48,6 +49,7 @@ public class WosService {
 	private long sleepBetweenTimeouts;
 	private long sleepBetweenEachCall;
 	private int timeout;
+	private RateLimiter rateLimiter;
 
 	public WosService() {
 		HttpClientBuilder custom = HttpClients.custom();
@@ -73,7 +75,12 @@ public class WosService {
                 "Retrieving citations from WOS for " + items.size() + " items"));
 		if (activateSleep) {
 			try {
-				Thread.sleep(sleepBetweenEachCall);
+				if (rateLimiter != null) {
+					rateLimiter.acquire();
+				}
+				else {
+					Thread.sleep(sleepBetweenEachCall);
+				}
 			} catch (Exception e) {
 				log.error(e.getMessage(), e);
 			}
@@ -159,4 +166,8 @@ public class WosService {
 	public void setSleepBetweenEachCall(long sleepBetweenEachCall) {
 		this.sleepBetweenEachCall = sleepBetweenEachCall;
 	}
+
+	public void setRateLimiter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
 }
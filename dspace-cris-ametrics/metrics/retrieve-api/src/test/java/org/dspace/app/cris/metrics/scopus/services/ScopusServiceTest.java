@@ -0,0 +1,181 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.metrics.scopus.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dspace.app.cris.metrics.scopus.dto.ScopusLookup;
+import org.dspace.app.cris.metrics.scopus.dto.ScopusResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit Tests for the batched lookup of class ScopusService, against a stub
+ * of the Scopus search API
+ */
+public class ScopusServiceTest
+{
+    private HttpServer server;
+
+    private ScopusService service;
+
+    /** The pages answered by the stub, by value of the start parameter */
+    private final Map<Integer, String> pages = new HashMap<Integer, String>();
+
+    /** The query strings received by the stub */
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void init() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/search", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+                requests.add(query);
+                int start = Integer.parseInt(parameter(query, "start"));
+                byte[] body = pages.get(start).getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/xml");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+
+        service = new ScopusService();
+        service.setEndpoint("http://localhost:" + server.getAddress().getPort() + "/search");
+        service.setApiKey("test");
+        service.setMaxNumberOfTries(1);
+    }
+
+    @After
+    public void destroy()
+    {
+        server.stop(0);
+    }
+
+    private static String parameter(String query, String name)
+    {
+        for (String parameter : query.split("&"))
+        {
+            if (parameter.startsWith(name + "="))
+            {
+                return parameter.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String entry(String eid, String doi, String pmid, int citations)
+    {
+        return "<entry><eid>" + eid + "</eid><prism:doi>" + doi + "</prism:doi>"
+                + "<pubmed-id>" + pmid + "</pubmed-id><citedby-count>" + citations
+                + "</citedby-count></entry>";
+    }
+
+    private static String page(int totalResults, int startIndex, String... entries)
+    {
+        StringBuilder page = new StringBuilder();
+        page.append("<search-results xmlns=\"http://www.w3.org/2005/Atom\" ")
+                .append("xmlns:opensearch=\"http://a9.com/-/spec/opensearch/1.1/\" ")
+                .append("xmlns:prism=\"http://prismstandard.org/namespaces/basic/2.0/\">")
+                .append("<opensearch:totalResults>").append(totalResults).append("</opensearch:totalResults>")
+                .append("<opensearch:startIndex>").append(startIndex).append("</opensearch:startIndex>");
+        for (String entry : entries)
+        {
+            page.append(entry);
+        }
+        return page.append("</search-results>").toString();
+    }
+
+    private static ScopusLookup lookup(int itemID, String pmid, String doi, String eid)
+    {
+        return new ScopusLookup(itemID, pmid == null ? null : Arrays.asList(pmid),
+                doi == null ? null : Arrays.asList(doi), eid == null ? null : Arrays.asList(eid));
+    }
+
+    /**
+     * Test that the results exceeding the batch are read from the next page,
+     * of method getCitations.
+     */
+    @Test
+    public void testPaging()
+    {
+        // the PMID of item 1 matches two documents, the DOI of item 2 is on
+        // the second page
+        pages.put(0, page(3, 0, entry("2-s2.0-1", "10.1000/one", "100", 5),
+                entry("2-s2.0-2", "10.1000/other", "100", 7)));
+        pages.put(2, page(3, 2, entry("2-s2.0-3", "10.1000/two", "200", 9)));
+
+        Map<Integer, ScopusResponse> result = service.getCitations(false,
+                Arrays.asList(lookup(1, "100", null, "2-s2.0-1"), lookup(2, null, "10.1000/two", null)));
+
+        assertThat("testPaging 0", result.size(), equalTo(2));
+        assertThat("testPaging 1", result.get(1).getEid(), equalTo("2-s2.0-1"));
+        assertThat("testPaging 2", result.get(2).getEid(), equalTo("2-s2.0-3"));
+        assertThat("testPaging 3", result.get(2).getCitation().getMetricCount(), equalTo(9d));
+        assertThat("testPaging 4", requests.size(), equalTo(2));
+        assertThat("testPaging 5", parameter(requests.get(0), "count"), equalTo("2"));
+        assertThat("testPaging 6", parameter(requests.get(1), "start"), equalTo("2"));
+        assertThat("testPaging 7", parameter(requests.get(0), "query"),
+                equalTo("PMID(100) OR EID(2-s2.0-1) OR DOI(10.1000/two)"));
+    }
+
+    /**
+     * Test that no further page is read once all the items are found, of
+     * method getCitations.
+     */
+    @Test
+    public void testAllFound()
+    {
+        pages.put(0, page(4, 0, entry("2-s2.0-1", "10.1000/one", "100", 5),
+                entry("2-s2.0-3", "10.1000/two", "200", 9)));
+
+        Map<Integer, ScopusResponse> result = service.getCitations(false,
+                Arrays.asList(lookup(1, null, null, "2-s2.0-1"), lookup(2, null, "10.1000/two", null)));
+
+        assertThat("testAllFound 0", result.size(), equalTo(2));
+        assertThat("testAllFound 1", requests.size(), equalTo(1));
+    }
+
+    /**
+     * Test of an empty result set, of method getCitations.
+     */
+    @Test
+    public void testNotFound()
+    {
+        pages.put(0, page(0, 0, "<entry><error>Result set was empty</error></entry>"));
+
+        Map<Integer, ScopusResponse> result = service.getCitations(false,
+                Arrays.asList(lookup(1, "100", null, null)));
+
+        assertThat("testNotFound 0", result.isEmpty(), equalTo(true));
+        assertThat("testNotFound 1", requests.size(), equalTo(1));
+    }
+}
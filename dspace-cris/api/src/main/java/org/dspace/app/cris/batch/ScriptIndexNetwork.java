@@ -8,9 +8,15 @@
 package org.dspace.app.cris.batch;
 
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -18,12 +24,16 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocumentList;
+import org.dspace.app.cris.network.AVisualizationGraph;
 import org.dspace.app.cris.network.ConstantNetwork;
 import org.dspace.app.cris.network.DepartmentNetworkPlugin;
+import org.dspace.app.cris.network.IncrementalNetworkPlugin;
 import org.dspace.app.cris.network.NetworkPlugin;
 import org.dspace.app.cris.network.VisualizationGraphSolrService;
 import org.dspace.core.ConfigurationManager;
@@ -62,6 +72,10 @@ public class ScriptIndexNetwork
                 "Work on single connection");
         options.addOption("d", "departments", false,
                 "At end index departmental network");
+        options.addOption("t", "threads", true,
+                "Number of connections to build in parallel (default 1)");
+        options.addOption("i", "incremental", false,
+                "Rebuild only the connections of the publications indexed since the last run, where supported by the connection");
 
         CommandLine line = parser.parse(options, args);
 
@@ -83,11 +97,13 @@ public class ScriptIndexNetwork
             log.error("Either a or s like parameters");
             System.exit(1);
         }
-        List<String> discardedConnection = new LinkedList<String>();
-        List<String[]> discardedNode = new LinkedList<String[]>();
+        final List<String> discardedConnection = Collections
+                .synchronizedList(new LinkedList<String>());
+        final List<String[]> discardedNode = Collections
+                .synchronizedList(new LinkedList<String[]>());
         List<String> connections = new LinkedList<String>();
-        Integer importedNodes = 0;
-        Boolean otherError = false;
+        final Integer importedNodes = 0;
+        final Boolean otherError = false;
         if (line.hasOption('a'))
         {
 
@@ -132,29 +148,86 @@ public class ScriptIndexNetwork
 
         }
 
-        external: for (String connection : connections)
+        int threads = 1;
+        if (line.hasOption('t'))
         {
-            // get plugin
-            try
-            {
-                VisualizationGraphSolrService.getSolr().deleteByQuery(
-                        "type:\"" + connection + "\"");
-
-                NetworkPlugin plugin = (NetworkPlugin) PluginManager
-                        .getNamedPlugin(NetworkPlugin.CFG_MODULE, NetworkPlugin.class, connection);
-                // load data from connection
-                plugin.load(discardedNode, importedNodes, otherError); // load
-                                                                       // all
-                                                                       // node
+            threads = Integer.parseInt(line.getOptionValue('t'));
+        }
 
+        String lastRunPath = ConfigurationManager.getProperty(
+                NetworkPlugin.CFG_MODULE, "network.incremental.lastrun-file");
+        if (StringUtils.isBlank(lastRunPath))
+        {
+            lastRunPath = ConfigurationManager.getProperty("dspace.dir")
+                    + File.separator + "var" + File.separator
+                    + "network-lastrun";
+        }
+        File lastRunFile = new File(lastRunPath);
+        Date startRun = new Date();
+        Date lastRun = null;
+        if (line.hasOption('i'))
+        {
+            lastRun = readLastRun(lastRunFile);
+            if (lastRun == null)
+            {
+                log.info("No previous run found, all the connections will be rebuilt");
             }
-            catch (Exception e)
+            else
             {
-                log.error(e.getMessage(), e);
-                discardedConnection.add(connection);
-                continue external;
+                log.info("Rebuild the connections changed since " + lastRun);
             }
+        }
+        final Date since = lastRun;
 
+        AVisualizationGraph.clearDepartmentCache();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (final String connection : connections)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    // get plugin
+                    try
+                    {
+                        NetworkPlugin plugin = (NetworkPlugin) PluginManager
+                                .getNamedPlugin(NetworkPlugin.CFG_MODULE,
+                                        NetworkPlugin.class, connection);
+                        if (since != null
+                                && plugin instanceof IncrementalNetworkPlugin)
+                        {
+                            ((IncrementalNetworkPlugin) plugin)
+                                    .loadModifiedSince(since, discardedNode,
+                                            importedNodes, otherError);
+                        }
+                        else
+                        {
+                            VisualizationGraphSolrService.getSolr()
+                                    .deleteByQuery(
+                                            "type:\"" + connection + "\"");
+                            // load data from connection
+                            plugin.load(discardedNode, importedNodes,
+                                    otherError); // load all node
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        log.error(e.getMessage(), e);
+                        discardedConnection.add(connection);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try
+        {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            log.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
         }
 
         if (line.hasOption('d'))
@@ -199,9 +272,48 @@ public class ScriptIndexNetwork
         log.info("#### ########################### ####");
         log.info("#### END: -----" + new Date() + " ----- ####");
 
+        if (discardedConnection.isEmpty())
+        {
+            writeLastRun(lastRunFile, startRun);
+        }
         System.exit(0);
     }
 
+    private static Date readLastRun(File lastRunFile)
+    {
+        try
+        {
+            if (lastRunFile.exists())
+            {
+                String value = FileUtils.readFileToString(lastRunFile).trim();
+                if (StringUtils.isNotBlank(value))
+                {
+                    return new Date(Long.parseLong(value));
+                }
+            }
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            log.warn("Unable to read the last run of the network index from "
+                    + lastRunFile, e);
+        }
+        return null;
+    }
+
+    private static void writeLastRun(File lastRunFile, Date lastRun)
+    {
+        try
+        {
+            FileUtils.writeStringToFile(lastRunFile,
+                    String.valueOf(lastRun.getTime()));
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to record the last run of the network index in "
+                    + lastRunFile, e);
+        }
+    }
+
     private static boolean checkAvailableData(String connection,
             VisualizationGraphSolrService service)
             throws SearchServiceException
@@ -0,0 +1,86 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.model.listener;
+
+import javax.persistence.Transient;
+
+import org.apache.log4j.Logger;
+import org.dspace.app.cris.model.ACrisObject;
+import org.dspace.app.cris.service.CacheInvalidationChannel;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import it.cilea.osd.common.listener.NativePostDeleteEventListener;
+import it.cilea.osd.common.listener.NativePostUpdateEventListener;
+import it.cilea.osd.common.model.Identifiable;
+
+/**
+ * Publish the modification or deletion of a CRIS object to the other nodes so
+ * that they can evict it from the ApplicationService cache. Within a
+ * transaction the invalidation is published once the transaction is
+ * committed, otherwise another node could reload the old state of the object
+ * before the commit.
+ */
+public class CacheInvalidationListener implements
+        NativePostUpdateEventListener, NativePostDeleteEventListener
+{
+
+    @Transient
+    private static Logger log = Logger
+            .getLogger(CacheInvalidationListener.class);
+
+    private CacheInvalidationChannel cacheInvalidationChannel;
+
+    @Override
+    public <T extends Identifiable> void onPostUpdate(T entity)
+    {
+        publish(entity);
+    }
+
+    @Override
+    public <P> void onPostDelete(P entity)
+    {
+        publish(entity);
+    }
+
+    private void publish(Object object)
+    {
+        if (!(object instanceof ACrisObject)
+                || cacheInvalidationChannel == null
+                || !cacheInvalidationChannel.isEnabled())
+        {
+            // nothing to do
+            return;
+        }
+        final String uuid = ((ACrisObject) object).getUuid();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronizationAdapter()
+                    {
+                        @Override
+                        public void afterCommit()
+                        {
+                            log.debug("Publish cache invalidation for " + uuid);
+                            cacheInvalidationChannel.publish(uuid);
+                        }
+                    });
+        }
+        else
+        {
+            log.debug("Publish cache invalidation for " + uuid);
+            cacheInvalidationChannel.publish(uuid);
+        }
+    }
+
+    public void setCacheInvalidationChannel(
+            CacheInvalidationChannel cacheInvalidationChannel)
+    {
+        this.cacheInvalidationChannel = cacheInvalidationChannel;
+    }
+}
@@ -15,6 +15,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
@@ -64,6 +66,14 @@ public abstract class AVisualizationGraph implements NetworkPlugin
     /** log4j logger */
     protected static Logger log = Logger.getLogger(AVisualizationGraph.class);
 
+    // department of each researcher authority, shared by all the connections
+    // loaded in the same run so that each researcher is looked up only once
+    private static ConcurrentMap<String, String> departmentCache = new ConcurrentHashMap<String, String>();
+
+    // placeholder for the researchers without department (null is not
+    // allowed as value of a ConcurrentHashMap)
+    private static final String NO_DEPARTMENT = "\u0000";
+
     private DSpace dspace = new DSpace();
 
     private VisualizationGraphSolrService service = dspace.getServiceManager()
@@ -595,6 +605,11 @@ public abstract class AVisualizationGraph implements NetworkPlugin
     
     protected String getDepartmentFromSOLR(String a_authority) throws SearchServiceException
     {
+        String cached = departmentCache.get(a_authority);
+        if (cached != null)
+        {
+            return NO_DEPARTMENT.equals(cached) ? null : cached;
+        }
         SolrQuery solrQuery = new SolrQuery();
         solrQuery.setQuery("crisrp.this_authority:" + a_authority);
         solrQuery.setFields("dept_authority");        
@@ -614,9 +629,18 @@ public abstract class AVisualizationGraph implements NetworkPlugin
             break;
         }
         
+        departmentCache.put(a_authority, rp_dept != null ? rp_dept : NO_DEPARTMENT);
         return rp_dept;
     }
 
+    /**
+     * Forget the departments looked up by the previous runs
+     */
+    public static void clearDepartmentCache()
+    {
+        departmentCache.clear();
+    }
+
     protected String getStatusFromSOLR(String a_authority) throws SearchServiceException
     {
         SolrQuery solrQuery = new SolrQuery();
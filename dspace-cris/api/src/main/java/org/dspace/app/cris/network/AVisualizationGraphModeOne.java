@@ -9,7 +9,9 @@ package org.dspace.app.cris.network;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -18,12 +20,19 @@ import java.util.Set;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.DateUtil;
 import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
 import org.dspace.discovery.SolrServiceImpl;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRowIterator;
 
 public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
+        implements IncrementalNetworkPlugin
 {
     // programmatic change mode to load index (true use no pagination, false
     // paginate each 100)
@@ -31,18 +40,114 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
             .getBooleanProperty(NetworkPlugin.CFG_MODULE, "network.connection.loader.heavyload.modeone",
                     true);
 
+    /** Number of deleted publications whose connections are dropped at once */
+    private static final int DELETE_BATCH = 100;
+
     
     @Override
     public List<VisualizationGraphNode> load(List<String[]> discardedNode,
             Integer importedNodes, Boolean otherError) throws Exception
+    {
+        return load(null, discardedNode, importedNodes, otherError);
+    }
+
+    @Override
+    public List<VisualizationGraphNode> loadModifiedSince(Date since,
+            List<String[]> discardedNode, Integer importedNodes,
+            Boolean otherError) throws Exception
+    {
+        List<VisualizationGraphNode> result = load(since, discardedNode,
+                importedNodes, otherError);
+        deleteRemovedPublications(since);
+        return result;
+    }
+
+    /**
+     * Drop the connections of the publications deleted since the given date.
+     * They are no more in the search index, so they are found by their
+     * handles, which stay unbound.
+     */
+    private void deleteRemovedPublications(Date since) throws Exception
+    {
+        List<String> handles = new ArrayList<String>();
+        Context context = new Context();
+        try
+        {
+            TableRowIterator tri = DatabaseManager.query(context,
+                    "SELECT handle FROM handle WHERE resource_type_id = ? AND resource_id IS NULL AND unbind_date >= ?",
+                    Constants.ITEM, new Timestamp(since.getTime()));
+            try
+            {
+                while (tri.hasNext())
+                {
+                    handles.add(tri.next().getStringColumn("handle"));
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+        finally
+        {
+            context.abort();
+        }
+
+        deleteConnections(handles);
+        if (!handles.isEmpty())
+        {
+            getIndexer().commit();
+        }
+    }
+
+    /**
+     * Drop the connections built from the publications with the given
+     * handles, with one query per {@link #DELETE_BATCH} handles
+     */
+    private void deleteConnections(List<String> handles)
+            throws SolrServerException, IOException
+    {
+        for (int i = 0; i < handles.size(); i += DELETE_BATCH)
+        {
+            StringBuilder query = new StringBuilder("type:")
+                    .append(getConnectionName()).append(" AND extra:(");
+            List<String> batch = handles.subList(i,
+                    Math.min(handles.size(), i + DELETE_BATCH));
+            for (int j = 0; j < batch.size(); j++)
+            {
+                if (j > 0)
+                {
+                    query.append(" OR ");
+                }
+                query.append('"').append(batch.get(j)).append('"');
+            }
+            getIndexer().getSolr().deleteByQuery(query.append(')').toString());
+        }
+    }
+
+    /**
+     * Build the connections of the publications, if since is not null only
+     * the publications indexed after such date are processed and their
+     * previous connections are replaced
+     */
+    private List<VisualizationGraphNode> load(Date since,
+            List<String[]> discardedNode, Integer importedNodes,
+            Boolean otherError) throws Exception
     {
         // load all publications
         SolrQuery solrQuery = new SolrQuery();
         solrQuery.setQuery("*:*");
 
         solrQuery.setFields("search.resourceid", "search.resourcetype",
-                "author_filter", "dc.title", "handle");
+                "author_filter", "dc.title", "handle", "withdrawn");
         solrQuery.addFilterQuery("search.resourcetype:[2 TO 4]");
+        if (since != null)
+        {
+            solrQuery.addFilterQuery("SolrIndexer.lastIndexed:["
+                    + ClientUtils.escapeQueryChars(DateUtil
+                            .getThreadLocalDateFormat().format(since))
+                    + " TO *]");
+        }
 
         int start = 0;
         int offset = 100;
@@ -72,6 +177,20 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
             }
 
             start = (start + 1) + offset;
+            if (since != null)
+            {
+                // drop the connections built by the previous run
+                List<String> handles = new ArrayList<String>();
+                for (SolrDocument publication : publications)
+                {
+                    String handle = (String) publication.getFieldValue("handle");
+                    if (handle != null)
+                    {
+                        handles.add(handle);
+                    }
+                }
+                deleteConnections(handles);
+            }
             // for each publication get authority's authors facets
             Iterator<SolrDocument> iter = publications.iterator();
             int counter = 0;
@@ -97,6 +216,13 @@ public abstract class AVisualizationGraphModeOne extends AVisualizationGraph
                             .getFieldValue("handle");
                     Object authList = publication.getFieldValue("author_filter");
 
+                    if ("true".equals(String.valueOf(publication
+                            .getFieldValue("withdrawn"))))
+                    {
+                        // a withdrawn publication has no connections
+                        continue external;
+                    }
+
                     List<String> values = new ArrayList<String>();
                     if (obj instanceof ArrayList)
                     {
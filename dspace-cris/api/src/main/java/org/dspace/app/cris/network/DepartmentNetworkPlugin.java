@@ -119,7 +119,7 @@ public class DepartmentNetworkPlugin
                         
                         importedNodes = importNode(discardedNode, importedNodes, result);
                         log.debug("commit DEPARTMENT " + facetValue);
-                        indexer.getSolr().commit();
+                        indexer.commit();
                     }                  
                     
                 }
@@ -0,0 +1,24 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.network;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A {@link NetworkPlugin} able to rebuild only the connections of the
+ * publications indexed after a given date, replacing their previous
+ * connections. The connections of the withdrawn and deleted publications are
+ * dropped.
+ */
+public interface IncrementalNetworkPlugin extends NetworkPlugin
+{
+    public List<VisualizationGraphNode> loadModifiedSince(Date since,
+            List<String[]> discardedNode, Integer importedNodes,
+            Boolean otherError) throws Exception;
+}
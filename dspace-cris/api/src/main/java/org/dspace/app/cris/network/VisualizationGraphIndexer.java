@@ -31,6 +31,13 @@ public class VisualizationGraphIndexer {
 	private HttpSolrServer solr;
 
 	private CrisSearchService indexer;
+
+	// documents waiting to be sent to solr, shared by all the plugins that
+	// are loading the network concurrently
+	private final List<SolrInputDocument> pending = new ArrayList<SolrInputDocument>();
+
+	private int batchSize = ConfigurationManager.getIntProperty(
+			NetworkPlugin.CFG_MODULE, "network.indexer.batchsize", 500);
 	
 	public HttpSolrServer getSolr() {
 		init();
@@ -62,10 +69,12 @@ public class VisualizationGraphIndexer {
 		 
 
 	/**
-	 * Method to index a Researcher Grant.
+	 * Queue the nodes for indexing, the documents are sent to solr in batches
+	 * of network.indexer.batchsize documents. Call {@link #flush()} or
+	 * {@link #commit()} to send the remaining documents.
 	 * 
-	 * @param rp
-	 *            the researcher page
+	 * @param nodes
+	 *            the nodes to index
 	 * @throws IOException
 	 * @throws SolrServerException
 	 * @throws NoSuchAlgorithmException 
@@ -74,8 +83,6 @@ public class VisualizationGraphIndexer {
 	public void index(List<VisualizationGraphNode> nodes) throws SolrServerException,
 			IOException, NoSuchAlgorithmException {
 
-		List<SolrInputDocument> solrDocs = new ArrayList<SolrInputDocument>(nodes.size());
-		
 		for (VisualizationGraphNode node : nodes) {
 			SolrInputDocument doc1 = new SolrInputDocument();
 			// Save our basic info that we already have
@@ -100,18 +107,33 @@ public class VisualizationGraphIndexer {
 			doc1.addField("extra", node.getExtra());
 			
 			log.debug("add document on solr index " + node.getA() + "|||" + node.getB());
-			solrDocs.add(doc1);
-			if (solrDocs.size() % 500 == 0) {
+			List<SolrInputDocument> solrDocs = null;
+			synchronized (pending) {
+				pending.add(doc1);
+				if (pending.size() >= batchSize) {
+					solrDocs = new ArrayList<SolrInputDocument>(pending);
+					pending.clear();
+				}
+			}
+			if (solrDocs != null) {
 				getSolr().add(solrDocs);
-				solrDocs.clear();
 			}
 		}
-		try {
-			getSolr().add(solrDocs);
-		}
-		catch(Exception e) {
-			log.error(e.getMessage(), e);
+	}
+
+	/**
+	 * Send to solr the documents queued by {@link #index(List)}
+	 */
+	public void flush() throws SolrServerException, IOException {
+		List<SolrInputDocument> solrDocs;
+		synchronized (pending) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			solrDocs = new ArrayList<SolrInputDocument>(pending);
+			pending.clear();
 		}
+		getSolr().add(solrDocs);
 	}
 
 	public void removeIndex(VisualizationGraphNode node) throws IOException,
@@ -166,6 +188,7 @@ public class VisualizationGraphIndexer {
 	public void updateIndex(List<VisualizationGraphNode> nodes) {
 		try {
 				index(nodes);
+				flush();
 		} catch (Exception e) {
 			log.error(e.getMessage(), e);
 		}
@@ -185,6 +208,7 @@ public class VisualizationGraphIndexer {
 
 	public void commit() {
 		try {
+			flush();
 			getSolr().commit();
 		} catch (Exception e) {
 			throw new RuntimeException(e.getMessage(), e);
@@ -12,12 +12,20 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.Logger;
@@ -60,7 +68,9 @@ import it.cilea.osd.common.model.Identifiable;
 import it.cilea.osd.jdyna.model.Property;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
 
 /**
  * This class provide access to the RP database service layer. Every methods
@@ -101,7 +111,14 @@ public class ApplicationService extends ExtendedTabService
 	private Cache cacheByUUID;
 	
     // the key is the UUID of the CRIS object, the set contains the UUIDs of all the CRIS objects that hold a reference to such object
-    private Map<String, Set<String>> cacheDependencies = new HashMap<String, Set<String>>();
+    private ConcurrentMap<String, Set<String>> cacheDependencies = new ConcurrentHashMap<String, Set<String>>();
+
+    // the key is the name of the cache
+    private ConcurrentMap<String, CacheStatistics> cacheStatistics = new ConcurrentHashMap<String, CacheStatistics>();
+
+    private CacheInvalidationChannel cacheInvalidationChannel;
+
+    private ScheduledExecutorService statisticsLogger;
 
     private static Logger log = Logger.getLogger(ApplicationService.class);
 
@@ -190,7 +207,7 @@ public class ApplicationService extends ExtendedTabService
                     }
 
                     cacheByUUID = cacheManager
-                            .getCache("applicationServiceCacheBySource");
+                            .getCache("applicationServiceCacheByUUID");
                     if (cacheByUUID == null)
                     {
                         cacheByUUID = new Cache("applicationServiceCacheByUUID",
@@ -199,6 +216,26 @@ public class ApplicationService extends ExtendedTabService
                                 diskExpireThreadInterval);
                         cacheManager.addCache(cacheByUUID);
                     }
+
+                    registerStatistics(cache);
+                    registerStatistics(cacheRpByEPerson);
+                    registerStatistics(cacheByCrisID);
+                    registerStatistics(cacheBySource);
+                    registerStatistics(cacheByUUID);
+                    scheduleStatisticsLog();
+
+                    if (cacheInvalidationChannel != null)
+                    {
+                        cacheInvalidationChannel.subscribe(
+                                new CacheInvalidationChannel.Receiver()
+                                {
+                                    @Override
+                                    public void invalidate(String uuid)
+                                    {
+                                        evictByUUID(uuid);
+                                    }
+                                });
+                    }
                 }
             }
             catch (Exception ex)
@@ -208,8 +245,112 @@ public class ApplicationService extends ExtendedTabService
         }
     }
 
+    private void registerStatistics(Ehcache ehcache)
+    {
+        final CacheStatistics statistics = new CacheStatistics();
+        cacheStatistics.put(ehcache.getName(), statistics);
+        ehcache.getCacheEventNotificationService().registerListener(
+                new CacheEventListenerAdapter()
+                {
+                    @Override
+                    public void notifyElementEvicted(Ehcache cache,
+                            Element element)
+                    {
+                        statistics.evictions.incrementAndGet();
+                    }
+
+                    @Override
+                    public void notifyElementExpired(Ehcache cache,
+                            Element element)
+                    {
+                        statistics.evictions.incrementAndGet();
+                    }
+                });
+    }
+
+    /**
+     * Log the cache statistics at the interval (in seconds) set by
+     * <code>cris.applicationServiceCache.statistics.log-interval</code>, 0
+     * to disable
+     */
+    private void scheduleStatisticsLog()
+    {
+        int interval = configurationService.getPropertyAsType(
+                "cris.applicationServiceCache.statistics.log-interval", 0);
+        if (interval <= 0 || statisticsLogger != null)
+        {
+            return;
+        }
+        statisticsLogger = Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r,
+                                "cris-cache-statistics-logger");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        statisticsLogger.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (Map.Entry<String, CacheStatistics> entry : cacheStatistics
+                        .entrySet())
+                {
+                    log.info("Cache " + entry.getKey() + ": "
+                            + entry.getValue());
+                }
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record the outcome of a cache lookup
+     * 
+     * @return the element itself
+     */
+    private Element recordLookup(Cache ehcache, Element element)
+    {
+        CacheStatistics statistics = cacheStatistics.get(ehcache.getName());
+        if (statistics != null)
+        {
+            if (element != null)
+            {
+                statistics.hits.incrementAndGet();
+            }
+            else
+            {
+                statistics.misses.incrementAndGet();
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Hit, miss and eviction counters of the ApplicationService caches, the
+     * key is the name of the cache
+     */
+    public Map<String, CacheStatistics> getCacheStatistics()
+    {
+        return Collections.unmodifiableMap(
+                new LinkedHashMap<String, CacheStatistics>(cacheStatistics));
+    }
+
     public void destroy()
     {
+        if (cacheInvalidationChannel != null)
+        {
+            cacheInvalidationChannel.shutdown();
+        }
+        if (statisticsLogger != null)
+        {
+            statisticsLogger.shutdownNow();
+            statisticsLogger = null;
+        }
         disableCacheManager();
     }
 
@@ -601,7 +742,7 @@ public class ApplicationService extends ExtendedTabService
     public ResearcherPage getResearcherPageByEPersonId(Integer id)
     {
 		if (cacheRpByEPerson != null) {
-			Element element = cacheRpByEPerson.getQuiet(id);
+			Element element = recordLookup(cacheRpByEPerson, cacheRpByEPerson.getQuiet(id));
 			if (element != null) {
 				ResearcherPage rp = (ResearcherPage) element.getValue();
 				if (!isExpiredCache(ResearcherPage.class, element, rp.getId(), rp)) {
@@ -640,7 +781,7 @@ public class ApplicationService extends ExtendedTabService
             Class<T> className)
     {        
 		if (cacheByCrisID != null) {
-			Element element = cacheByCrisID.getQuiet(crisID);
+			Element element = recordLookup(cacheByCrisID, cacheByCrisID.getQuiet(crisID));
 			if (element != null) {
 				T crisObject = (T) element.getValue();
                 //the element retrieved by cache is consistent with the className passed as parameter? (add safety check)
@@ -707,7 +848,7 @@ public class ApplicationService extends ExtendedTabService
             Class<T> className)
     {
 		if (cacheBySource != null) {
-			Element element = cacheBySource.getQuiet(sourceRef + "-" + sourceID);
+			Element element = recordLookup(cacheBySource, cacheBySource.getQuiet(className.getName() + "#" + sourceRef + "-" + sourceID));
 			if (element != null) {
 				T crisObject = (T) element.getValue();
 				//the element retrieved by cache is consistent with the className passed as parameter? (add safety check)
@@ -739,7 +880,7 @@ public class ApplicationService extends ExtendedTabService
     public ACrisObject getEntityByUUID(String uuid)
     {
 		if (cacheByUUID != null) {
-			Element element = cacheByUUID.getQuiet(uuid);
+			Element element = recordLookup(cacheByUUID, cacheByUUID.getQuiet(uuid));
 			if (element != null) {
 				ACrisObject crisObject = (ACrisObject) element.getValue();
 				if (!isExpiredCache(crisObject.getClass(), element, crisObject.getId(), crisObject)) {
@@ -906,7 +1047,7 @@ public class ApplicationService extends ExtendedTabService
         {
             try
             {
-				Element element = cache.getQuiet(model.getName() + "#" + objectId);
+				Element element = recordLookup(cache, cache.getQuiet(model.getName() + "#" + objectId));
 				return element;
             }
             catch (Exception ex)
@@ -965,6 +1106,63 @@ public class ApplicationService extends ExtendedTabService
         }
     }
 
+    /**
+     * Evict the object with the given UUID, and all the objects that hold a
+     * reference to it, from the cache without hitting the database. Used to
+     * apply the invalidations received by the other nodes.
+     */
+    public void evictByUUID(String uuid)
+    {
+        Set<String> dependencies = cacheDependencies.remove(uuid);
+        if (dependencies != null)
+        {
+            for (String uuidDep : dependencies)
+            {
+                evictByUUID(uuidDep);
+            }
+        }
+        if (cacheByUUID == null)
+        {
+            return;
+        }
+        Element element = cacheByUUID.getQuiet(uuid);
+        if (element == null)
+        {
+            // never cached by this node, or already evicted
+            return;
+        }
+        ACrisObject object = (ACrisObject) element.getValue();
+        try
+        {
+            cacheByUUID.remove(uuid);
+            if (cache != null)
+            {
+                cache.remove(object.getClass().getName() + "#" + object.getId());
+            }
+            if (cacheRpByEPerson != null && object instanceof ResearcherPage)
+            {
+                Integer eid = ((ResearcherPage) object).getEpersonID();
+                if (eid != null)
+                {
+                    cacheRpByEPerson.remove(eid);
+                }
+            }
+            if (cacheByCrisID != null && object.getCrisID() != null)
+            {
+                cacheByCrisID.remove(object.getCrisID());
+            }
+            if (cacheBySource != null && object.getSourceID() != null)
+            {
+                cacheBySource.remove(object.getClass().getName() + "#"
+                        + object.getSourceRef() + "-" + object.getSourceID());
+            }
+        }
+        catch (Exception ex)
+        {
+            log.error("evictByUUID", ex);
+        }
+    }
+
 	public void clearCache()
     {
         try
@@ -1007,7 +1205,7 @@ public class ApplicationService extends ExtendedTabService
 		if (object instanceof ACrisObject) {
 			// get set of the depending objects
 			String myUuid = ((ACrisObject) object).getUuid();
-			Set<String> dependencies = cacheDependencies.get(myUuid);
+			Set<String> dependencies = cacheDependencies.remove(myUuid);
 
 			// remove from the cache all the depending objects
 			if (dependencies != null) {
@@ -1015,7 +1213,6 @@ public class ApplicationService extends ExtendedTabService
 					clearCacheByUUID(uuidDep);
 				}
 			}
-			cacheDependencies.remove(myUuid);
 
 			// add the object for all the CRIS objects mentioned in its direct properties to the dependencies map
 			List<Property> props = ((ACrisObject) object).getAnagrafica();
@@ -1030,10 +1227,13 @@ public class ApplicationService extends ExtendedTabService
 				for (String myDep : myDeps) {
 					Set<String> relatedUuids = cacheDependencies.get(myDep);
 					if (relatedUuids == null) {
-						relatedUuids = new HashSet<String>();
+						Set<String> newUuids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+						relatedUuids = cacheDependencies.putIfAbsent(myDep, newUuids);
+						if (relatedUuids == null) {
+							relatedUuids = newUuids;
+						}
 					}
 					relatedUuids.add(myUuid);
-					cacheDependencies.put(myDep, relatedUuids);
 				}
 			}
 
@@ -1195,6 +1395,12 @@ public class ApplicationService extends ExtendedTabService
 		}
 	}
 
+    public void setCacheInvalidationChannel(
+            CacheInvalidationChannel cacheInvalidationChannel)
+    {
+        this.cacheInvalidationChannel = cacheInvalidationChannel;
+    }
+
     public void disableCacheManager()
     {
         if (cacheManager != null)
@@ -1209,4 +1415,45 @@ public class ApplicationService extends ExtendedTabService
     }
 
 	
-} 
\ No newline at end of file
+    /**
+     * Lookup and eviction counters of a single cache. Evictions count the
+     * elements dropped for capacity or expiry, not the explicit removals.
+     */
+    public static class CacheStatistics
+    {
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits()
+        {
+            return hits.get();
+        }
+
+        public long getMisses()
+        {
+            return misses.get();
+        }
+
+        public long getEvictions()
+        {
+            return evictions.get();
+        }
+
+        public double getHitRatio()
+        {
+            long total = hits.get() + misses.get();
+            return total == 0 ? 0 : (double) hits.get() / total;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "hits=" + getHits() + ", misses=" + getMisses()
+                    + ", evictions=" + getEvictions() + ", hit ratio="
+                    + String.format("%.2f", getHitRatio());
+        }
+    }
+}
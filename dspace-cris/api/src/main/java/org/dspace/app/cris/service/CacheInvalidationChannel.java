@@ -0,0 +1,49 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.service;
+
+/**
+ * Channel used to propagate the invalidation of the CRIS objects cached by the
+ * {@link ApplicationService} to all the nodes (JSPUI, REST, cron, etc.) that
+ * share the same database.
+ *
+ * @author cilea
+ *
+ */
+public interface CacheInvalidationChannel
+{
+    /**
+     * Callback notified when another node has invalidated a CRIS object
+     */
+    public interface Receiver
+    {
+        public void invalidate(String uuid);
+    }
+
+    public boolean isEnabled();
+
+    /**
+     * Notify all the other nodes that the CRIS object with the given UUID has
+     * been modified or deleted
+     *
+     * @param uuid
+     *            the UUID of the CRIS object
+     */
+    public void publish(String uuid);
+
+    /**
+     * Start to deliver the invalidations published by the other nodes to the
+     * receiver
+     *
+     * @param receiver
+     *            the local cache to invalidate
+     */
+    public void subscribe(Receiver receiver);
+
+    public void shutdown();
+}
@@ -0,0 +1,244 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/CILEA/dspace-cris/wiki/License
+ */
+package org.dspace.app.cris.service;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.services.ConfigurationService;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * {@link CacheInvalidationChannel} backed by the cris_cache_invalidation
+ * table. Each node appends a row for every modified CRIS object and polls the
+ * table for the rows written by the other nodes since the last poll.
+ * <p>
+ * The rows are polled by date, reading again an overlap before the latest
+ * date seen: the ids come from a sequence and are not committed in order, so
+ * a row committed late can have a lower id, or an earlier date, than rows
+ * already seen. The rows of the overlap are only invalidated once.
+ *
+ * @author cilea
+ *
+ */
+public class DatabaseCacheInvalidationChannel implements
+        CacheInvalidationChannel
+{
+    private static Logger log = Logger
+            .getLogger(DatabaseCacheInvalidationChannel.class);
+
+    private static final String TABLE = "cris_cache_invalidation";
+
+    private static final String FIND_NEW_INVALIDATIONS = "SELECT id, uuid, invalidation_date FROM cris_cache_invalidation WHERE invalidation_date >= ? AND node_id <> ? ORDER BY invalidation_date ASC, id ASC";
+
+    private static final String DELETE_OLD_INVALIDATIONS = "DELETE FROM cris_cache_invalidation WHERE invalidation_date < ?";
+
+    private ConfigurationService configurationService;
+
+    private ScheduledExecutorService scheduler;
+
+    private String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    /** The latest invalidation date seen */
+    private long lastSeenDate;
+
+    /** The ids of the rows seen within the overlap, with their date */
+    private final Map<Integer, Long> seenIds = new HashMap<Integer, Long>();
+
+    private long lastPurge = 0;
+
+    @Override
+    public boolean isEnabled()
+    {
+        return configurationService.getPropertyAsType(
+                "cris.applicationServiceCache.invalidation.enabled", false);
+    }
+
+    @Override
+    public void publish(String uuid)
+    {
+        if (!isEnabled() || uuid == null)
+        {
+            return;
+        }
+        Context context = null;
+        try
+        {
+            context = new Context();
+            context.turnOffAuthorisationSystem();
+            TableRow row = DatabaseManager.row(TABLE);
+            row.setColumn("uuid", uuid);
+            row.setColumn("node_id", nodeId);
+            row.setColumn("invalidation_date", new Date());
+            DatabaseManager.insert(context, row);
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to publish the cache invalidation of " + uuid,
+                    e);
+        }
+        finally
+        {
+            if (context != null && context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(final Receiver receiver)
+    {
+        if (!isEnabled() || scheduler != null)
+        {
+            return;
+        }
+        lastSeenDate = System.currentTimeMillis();
+        int interval = configurationService.getPropertyAsType(
+                "cris.applicationServiceCache.invalidation.poll-interval", 5);
+        scheduler = Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r,
+                                "cris-cache-invalidation-poller");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        scheduler.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                poll(receiver);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+        log.info("Listening for CRIS cache invalidations as node " + nodeId);
+    }
+
+    @Override
+    public synchronized void shutdown()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void poll(Receiver receiver)
+    {
+        Context context = null;
+        TableRowIterator tri = null;
+        long overlap = configurationService.getPropertyAsType(
+                "cris.applicationServiceCache.invalidation.poll-overlap", 60)
+                * 1000L;
+        try
+        {
+            context = new Context();
+            tri = DatabaseManager.query(context, FIND_NEW_INVALIDATIONS,
+                    new Timestamp(lastSeenDate - overlap), nodeId);
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                long date = row.getDateColumn("invalidation_date").getTime();
+                if (seenIds.put(row.getIntColumn("id"), date) != null)
+                {
+                    continue;
+                }
+                lastSeenDate = Math.max(lastSeenDate, date);
+                try
+                {
+                    receiver.invalidate(row.getStringColumn("uuid"));
+                }
+                catch (RuntimeException e)
+                {
+                    log.warn("Unable to invalidate the cached object "
+                            + row.getStringColumn("uuid"), e);
+                }
+            }
+            tri.close();
+            tri = null;
+            forgetSeenIds(lastSeenDate - overlap);
+            purge(context);
+            context.complete();
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to poll the cache invalidation log", e);
+        }
+        finally
+        {
+            if (tri != null)
+            {
+                tri.close();
+            }
+            if (context != null && context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Forget the ids of the rows older than the overlap, not read again.
+     */
+    private void forgetSeenIds(long before)
+    {
+        Iterator<Long> dates = seenIds.values().iterator();
+        while (dates.hasNext())
+        {
+            if (dates.next() < before)
+            {
+                dates.remove();
+            }
+        }
+    }
+
+    private void purge(Context context) throws SQLException
+    {
+        long retention = configurationService.getPropertyAsType(
+                "cris.applicationServiceCache.invalidation.retention", 3600)
+                * 1000L;
+        long now = System.currentTimeMillis();
+        if (now - lastPurge > retention)
+        {
+            DatabaseManager.updateQuery(context, DELETE_OLD_INVALIDATIONS,
+                    new Timestamp(now - retention));
+            lastPurge = now;
+        }
+    }
+
+    public void setConfigurationService(
+            ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    public void setNodeId(String nodeId)
+    {
+        this.nodeId = nodeId;
+    }
+}
@@ -23,6 +23,7 @@ import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputSet;
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.webui.cris.web.tag.PropertyDefinitionI18NWrapper;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
@@ -79,7 +80,7 @@ public class CrisValuePairsIndexPlugin implements CrisServiceIndexPlugin,
             for (Locale locale : I18nUtil.getSupportedLocales())
             {
                 dcInputsReader.put(locale.getLanguage(),
-                    new DCInputsReader(I18nUtil.getInputFormsFileName(locale)));
+                    SubmissionConfigRegistry.getInputsReader(I18nUtil.getInputFormsFileName(locale)));
             }
         }
 
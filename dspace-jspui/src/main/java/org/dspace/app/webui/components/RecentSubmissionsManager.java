@@ -112,7 +112,7 @@ public class RecentSubmissionsManager
 			
 			BrowseInfo results = be.browseMini(bs);
 			
-			IGlobalSearchResult[] items = results.getItemResults(context);
+			IGlobalSearchResult[] items = results.getDisplayResults(context);
 			
 			RecentSubmissions rs = new RecentSubmissions(items);
 			
@@ -50,6 +50,7 @@ import org.dspace.core.I18nUtil;
 import org.dspace.core.LogManager;
 import org.dspace.discovery.DiscoverQuery;
 import org.dspace.discovery.DiscoverResult;
+import org.dspace.discovery.IGlobalSearchResult;
 import org.dspace.discovery.SearchServiceException;
 import org.dspace.discovery.SearchUtils;
 import org.dspace.discovery.configuration.DiscoveryConfiguration;
@@ -541,6 +542,8 @@ public class DiscoverySearchRequestProcessor implements SearchRequestProcessor {
 				DiscoveryConfiguration.GLOBAL_CONFIGURATIONNAME, true);
 
 		queryArgs.setSpellCheck(discoveryConfiguration.isSpellCheckEnabled());
+		// the artifacts are rendered from the stored fields if enabled
+		queryArgs.setProjection(ConfigurationManager.getBooleanProperty("discovery", "result.projection", false));
 
 		List<DiscoverySearchFilterFacet> availableFacet = discoveryConfiguration.getSidebarFacets();
 		request.setAttribute("facetsConfig", availableFacet != null ? availableFacet
@@ -571,7 +574,12 @@ public class DiscoverySearchRequestProcessor implements SearchRequestProcessor {
 		DiscoverResult qResults = null;
 		try {
 			qResults = SearchUtils.getSearchService().search(context, null, queryArgs);
-			Map<String, List<DSpaceObject>> results = qResults.getCollapsingResults();
+			Map<String, ? extends List<? extends IGlobalSearchResult>> results;
+			if (queryArgs.isProjection()) {
+				results = qResults.getCollapsingProjections();
+			} else {
+				results = qResults.getCollapsingResults();
+			}
 			
 			// Log
 			log.info(LogManager.getHeader(context, "search", "query=\"" + query + "\",results=("
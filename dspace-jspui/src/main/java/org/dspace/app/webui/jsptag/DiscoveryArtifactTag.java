@@ -39,6 +39,7 @@ import org.dspace.core.I18nUtil;
 import org.dspace.core.PluginManager;
 import org.dspace.discovery.DiscoverResult.DSpaceObjectHighlightResult;
 import org.dspace.discovery.IGlobalSearchResult;
+import org.dspace.discovery.ProjectedDSpaceObject;
 import org.dspace.discovery.configuration.DiscoveryViewConfiguration;
 import org.dspace.discovery.configuration.DiscoveryViewFieldConfiguration;
 
@@ -103,13 +104,26 @@ public class DiscoveryArtifactTag extends BodyTagSupport {
 				out.println("<div class=\"media\">");
 
 				if (artifact.getType() == 2) {
-					Bundle[] bundles = ((Item) artifact).getBundles("BRANDED_PREVIEW");
-
-					if (bundles.length > 0) {
-						Bitstream[] bitstreams = bundles[0].getBitstreams();
+					int previewID = -1;
+					String previewName = null;
+					if (artifact instanceof ProjectedDSpaceObject) {
+						// the thumbnail is stored in the index, no need to load the item
+						ProjectedDSpaceObject projected = (ProjectedDSpaceObject) artifact;
+						previewID = projected.getPreviewBitstreamID();
+						previewName = projected.getPreviewBitstreamName();
+					}
+					else if (artifact instanceof Item) {
+						Bundle[] bundles = ((Item) artifact).getBundles("BRANDED_PREVIEW");
+						Bitstream[] bitstreams = bundles.length > 0 ? bundles[0].getBitstreams() : new Bitstream[0];
+						if (bitstreams.length > 0) {
+							previewID = bitstreams[0].getID();
+							previewName = bitstreams[0].getName();
+						}
+					}
 
-						out.println("<img class=\"media-object pull-left\" src=\"" + request.getContextPath() + "/retrieve/" + bitstreams[0].getID()
-								+ "/" + UIUtil.encodeBitstreamName(bitstreams[0].getName(), Constants.DEFAULT_ENCODING)
+					if (previewID != -1 && previewName != null) {
+						out.println("<img class=\"media-object pull-left\" src=\"" + request.getContextPath() + "/retrieve/" + previewID
+								+ "/" + UIUtil.encodeBitstreamName(previewName, Constants.DEFAULT_ENCODING)
 								+ "\"/>");
 					}
 				} else {
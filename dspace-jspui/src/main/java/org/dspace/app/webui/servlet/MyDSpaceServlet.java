@@ -31,6 +31,7 @@ import org.dspace.app.itemimport.BatchUpload;
 import org.dspace.app.itemimport.ItemImport;
 import org.dspace.app.util.SubmissionConfig;
 import org.dspace.app.util.SubmissionConfigReader;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.webui.util.JSPManager;
 import org.dspace.app.webui.util.UIUtil;
 import org.dspace.authorize.AuthorizeException;
@@ -612,7 +613,8 @@ public class MyDSpaceServlet extends DSpaceServlet
             // Load the Submission Process for the collection this WSI is
             // associated with
             Collection c = wsi.getCollection();
-            SubmissionConfigReader subConfigReader = new SubmissionConfigReader();
+            SubmissionConfigReader subConfigReader = SubmissionConfigRegistry
+                    .getSubmissionConfigReader();
             SubmissionConfig subConfig = subConfigReader.getSubmissionConfig(c
                     .getHandle(), false);
 
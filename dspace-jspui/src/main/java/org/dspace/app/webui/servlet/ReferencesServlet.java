@@ -33,6 +33,7 @@ import org.dspace.app.itemexport.ItemExport;
 import org.dspace.app.itemexport.ItemExportException;
 import org.dspace.app.util.DCInputSet;
 import org.dspace.app.util.DCInputsReader;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.webui.util.JSPManager;
 import org.dspace.app.webui.util.UIUtil;
 import org.dspace.authorize.AuthorizeException;
@@ -495,7 +496,7 @@ public class ReferencesServlet extends DSpaceServlet
                     }
 
                     // Read the input form file for the specific collection
-                    DCInputsReader inputsReader = new DCInputsReader(formFileName);
+                    DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader(formFileName);
 
                     DCInputSet inputSet = inputsReader.getInputs(col_handle);
                     type = inputSet.getFormName();
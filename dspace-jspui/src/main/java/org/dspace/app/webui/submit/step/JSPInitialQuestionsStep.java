@@ -16,6 +16,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.util.SubmissionInfo;
 import org.dspace.app.webui.submit.JSPStep;
 import org.dspace.app.webui.submit.JSPStepManager;
@@ -200,7 +201,7 @@ public class JSPInitialQuestionsStep extends JSPStep
         try
         {
             // read configurable submissions forms data
-            DCInputsReader inputsReader = new DCInputsReader();
+            DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
              
             // load the proper submission inputs to be used by the JSP
             request.setAttribute("submission.inputs", inputsReader.getInputs(c
@@ -21,6 +21,7 @@ import org.apache.log4j.Logger;
 import org.dspace.app.sherpa.submit.SHERPASubmitService;
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.util.SubmissionInfo;
 import org.dspace.app.webui.servlet.SubmissionController;
 import org.dspace.app.webui.submit.JSPStep;
@@ -141,7 +142,7 @@ public class JSPUploadStep extends JSPStep
             Collection c = subInfo.getSubmissionItem().getCollection();
             try
             {
-                DCInputsReader inputsReader = new DCInputsReader();
+                DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                 request.setAttribute("submission.inputs", inputsReader.getInputs(c
                         .getHandle()));
             }
@@ -289,7 +290,7 @@ public class JSPUploadStep extends JSPStep
                         try
                         {
                             Collection c = subInfo.getSubmissionItem().getCollection();
-                            DCInputsReader inputsReader = new DCInputsReader();
+                            DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                             request.setAttribute("submission.inputs", inputsReader
                                     .getInputs(c.getHandle()));
                         }
@@ -310,7 +311,7 @@ public class JSPUploadStep extends JSPStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -330,7 +331,7 @@ public class JSPUploadStep extends JSPStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -19,6 +19,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.app.util.SubmissionInfo;
 import org.dspace.app.webui.submit.JSPStepManager;
 import org.dspace.app.webui.util.JSONUploadResponse;
@@ -230,7 +231,7 @@ public class JSPUploadWithEmbargoStep extends JSPUploadStep
                         try
                         {
                             Collection c = subInfo.getSubmissionItem().getCollection();
-                            DCInputsReader inputsReader = new DCInputsReader();
+                            DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                             request.setAttribute("submission.inputs", inputsReader
                                     .getInputs(c.getHandle()));
                         }
@@ -251,7 +252,7 @@ public class JSPUploadWithEmbargoStep extends JSPUploadStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -271,7 +272,7 @@ public class JSPUploadWithEmbargoStep extends JSPUploadStep
                     try
                     {
                         Collection c = subInfo.getSubmissionItem().getCollection();
-                        DCInputsReader inputsReader = new DCInputsReader();
+                        DCInputsReader inputsReader = SubmissionConfigRegistry.getInputsReader();
                         request.setAttribute("submission.inputs", inputsReader
                                 .getInputs(c.getHandle()));
                     }
@@ -25,6 +25,7 @@ import org.dspace.app.util.DCInput;
 import org.dspace.app.util.DCInputSet;
 import org.dspace.app.util.DCInputsReader;
 import org.dspace.app.util.DCInputsReaderException;
+import org.dspace.app.util.SubmissionConfigRegistry;
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
 import org.dspace.content.Metadatum;
@@ -50,7 +51,7 @@ public class ValuePairsDisplayStrategy extends ASimpleDisplayStrategy
             for (Locale locale : I18nUtil.getSupportedLocales())
             {
                 dcInputsReader.put(locale.getLanguage(),
-                    new DCInputsReader(I18nUtil.getInputFormsFileName(locale)));
+                    SubmissionConfigRegistry.getInputsReader(I18nUtil.getInputFormsFileName(locale)));
             }
         }
     }
@@ -330,7 +330,7 @@ else if( qResults != null && collapsedResults != null)
 					for (IGlobalSearchResult obj : collapsedResults.get(otypeSensitive)) {
 				%>
 				
-				<dspace:discovery-artifact style="global" hlt="<%= qResults.getHighlightedResults((DSpaceObject) obj) %>" artifact="<%= obj %>" view="<%= mapViewMetadata.get(otypelower) %>" selectorCssView="<%=selectorViewMetadata %>"/>
+				<dspace:discovery-artifact style="global" hlt="<%= qResults.getHighlightedResults(obj) %>" artifact="<%= obj %>" view="<%= mapViewMetadata.get(otypelower) %>" selectorCssView="<%=selectorViewMetadata %>"/>
 				
 				<%	
 				}
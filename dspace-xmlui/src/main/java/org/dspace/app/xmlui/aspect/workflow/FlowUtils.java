@@ -188,7 +188,8 @@ public class FlowUtils {
 
             // Load the Submission Process for the collection this WSI is associated with
             Collection c = wsi.getCollection();
-            SubmissionConfigReader subConfigReader = new SubmissionConfigReader();
+            SubmissionConfigReader subConfigReader = SubmissionConfigRegistry
+                    .getSubmissionConfigReader();
             SubmissionConfig subConfig = subConfigReader.getSubmissionConfig(c.getHandle(), false);
 
             // Set the "stage_reached" column on the workspace item